@@ -17,9 +17,25 @@
  */
 package com.ericsson.otp.erlang;
 
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+
 /**
- * This class implements a generic FIFO queue. There is no upper bound on the length of
- * the queue, items are linked.
+ * This class implements a generic FIFO queue. Items are linked; by default there is no
+ * upper bound on the length of the queue.
+ *
+ * <p>
+ * The queue is lock-free: producers (typically the connection reader threads) never
+ * contend on a monitor with the consumer. Blocked consumers are parked and unparked
+ * when an item arrives. A timed {@link #poll(long)} returns null when it times out,
+ * without the cost of creating an exception.
+ *
+ * <p>
+ * If a capacity is set, {@link #put(Object)} blocks while the queue is full, so that a
+ * slow consumer pushes back on the producer instead of letting the queue grow.
  */
 
 public class GenericQueue {
@@ -27,26 +43,39 @@ public class GenericQueue {
     private static final int closing = 1;
     private static final int closed = 2;
 
-    private int status;
-    private Bucket head;
-    private Bucket tail;
-    private int count;
+    private volatile int status;
+    private final ConcurrentLinkedQueue<Object> items = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger count = new AtomicInteger();
+    private final ConcurrentLinkedQueue<Thread> consumers = new ConcurrentLinkedQueue<>();
+    private final ConcurrentLinkedQueue<Thread> producers = new ConcurrentLinkedQueue<>();
+    private volatile int capacity;
 
-    private void init() {
-        head = null;
-        tail = null;
-        count = 0;
-    }
+    private final AtomicInteger maxCount = new AtomicInteger();
+    private final AtomicLong putCount = new AtomicLong();
+    private final AtomicLong blockedPutCount = new AtomicLong();
 
     /** Create an empty queue */
     public GenericQueue() {
-        init();
+        this(0);
+    }
+
+    /**
+     * Create an empty queue holding at most <code>capacity</code> items.
+     *
+     * @param capacity
+     *            maximum number of items, 0 for no limit.
+     */
+    public GenericQueue(final int capacity) {
+        this.capacity = capacity;
         status = open;
     }
 
     /** Clear a queue */
     public void flush() {
-        init();
+        while (items.poll() != null) {
+            count.decrementAndGet();
+        }
+        wakeUp(producers);
     }
 
     public void close() {
@@ -54,25 +83,62 @@ public class GenericQueue {
     }
 
     /**
-     * Add an object to the tail of the queue.
+     * Set the maximum number of items in the queue, 0 for no limit. Producers that are
+     * blocked on a full queue are woken up to check the new limit.
+     */
+    public void setCapacity(final int capacity) {
+        this.capacity = capacity;
+        wakeUp(producers);
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Add an object to the tail of the queue. If the queue has a capacity and is full,
+     * block until there is room for it.
      *
      * @param o
      *            Object to insert in the queue
      */
-    public synchronized void put(final Object o) {
-        final Bucket b = new Bucket(o);
-
-        if (tail != null) {
-            tail.setNext(b);
-            tail = b;
-        } else {
-            // queue was empty but has one element now
-            head = tail = b;
+    public void put(final Object o) {
+        if (isFull()) {
+            blockedPutCount.incrementAndGet();
+            final Thread me = Thread.currentThread();
+            producers.add(me);
+            try {
+                while (isFull()) {
+                    LockSupport.park(this);
+                    // interrupts are ignored, like in get()
+                    Thread.interrupted();
+                }
+            } finally {
+                producers.remove(me);
+            }
+        }
+        items.add(o);
+        final int n = count.incrementAndGet();
+        putCount.incrementAndGet();
+        int max = maxCount.get();
+        while (n > max && !maxCount.compareAndSet(max, n)) {
+            max = maxCount.get();
         }
-        count++;
 
         // notify any waiting tasks
-        notify();
+        wakeUp(consumers);
+    }
+
+    private boolean isFull() {
+        final int limit = capacity;
+        return limit > 0 && count.get() >= limit;
+    }
+
+    private static void wakeUp(final ConcurrentLinkedQueue<Thread> waiters) {
+        final Thread t = waiters.peek();
+        if (t != null) {
+            LockSupport.unpark(t);
+        }
     }
 
     /**
@@ -80,13 +146,24 @@ public class GenericQueue {
      *
      * @return The object at the head of the queue.
      */
-    public synchronized Object get() {
-        Object o = null;
-
-        while ((o = tryGet()) == null) {
-            try {
-                this.wait();
-            } catch (final InterruptedException e) {
+    public Object get() {
+        Object o = tryGet();
+        if (o != null) {
+            return o;
+        }
+        final Thread me = Thread.currentThread();
+        consumers.add(me);
+        try {
+            while ((o = tryGet()) == null) {
+                LockSupport.park(this);
+                // interrupts are ignored, the caller expects an object
+                Thread.interrupted();
+            }
+        } finally {
+            consumers.remove(me);
+            // there may be more items than consumers woken up
+            if (count.get() > 0) {
+                wakeUp(consumers);
             }
         }
         return o;
@@ -104,78 +181,92 @@ public class GenericQueue {
      *
      * @return The object at the head of the queue, or null if none arrived in time.
      */
-    public synchronized Object get(final long timeout) throws InterruptedException {
+    public Object get(final long timeout) throws InterruptedException {
         if (status == closed) {
             return null;
         }
+        final Object o = poll(timeout);
+        if (o == null) {
+            throw new InterruptedException("Get operation timed out");
+        }
+        return o;
+    }
 
-        long currentTime = System.currentTimeMillis();
-        final long stopTime = currentTime + timeout;
-        Object o = null;
-
-        while (true) {
-            if ((o = tryGet()) != null) {
-                return o;
-            }
-
-            currentTime = System.currentTimeMillis();
-            if (stopTime <= currentTime) {
-                throw new InterruptedException("Get operation timed out");
-            }
-
-            try {
-                this.wait(stopTime - currentTime);
-            } catch (final InterruptedException e) {
+    /**
+     * Retrieve an object from the head of the queue, blocking until one arrives or until
+     * timeout occurs.
+     *
+     * @param timeout
+     *            Maximum time to block on queue, in ms. Use 0 to poll the queue.
+     *
+     * @return The object at the head of the queue, or null if none arrived in time.
+     */
+    public Object poll(final long timeout) {
+        if (status == closed) {
+            return null;
+        }
+        Object o = tryGet();
+        if (o != null || timeout <= 0) {
+            return o;
+        }
+        final long stopTime = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(timeout);
+        final Thread me = Thread.currentThread();
+        consumers.add(me);
+        try {
+            while ((o = tryGet()) == null) {
+                final long remaining = stopTime - System.nanoTime();
+                if (remaining <= 0) {
+                    return null;
+                }
+                LockSupport.parkNanos(this, remaining);
                 // ignore, but really should retry operation instead
+                Thread.interrupted();
+            }
+        } finally {
+            consumers.remove(me);
+            // we may have been woken up for an item and then timed out; pass the wakeup
+            // on, or the next consumer would sleep while an item is waiting
+            if (count.get() > 0) {
+                wakeUp(consumers);
             }
         }
+        return o;
     }
 
     // attempt to retrieve message from queue head
     public Object tryGet() {
-        Object o = null;
-
-        if (head != null) {
-            o = head.getContents();
-            head = head.getNext();
-            count--;
-
-            if (head == null) {
-                tail = null;
-                count = 0;
+        final Object o = items.poll();
+        if (o != null) {
+            count.decrementAndGet();
+            if (capacity > 0) {
+                wakeUp(producers);
             }
         }
-
         return o;
     }
 
-    public synchronized int getCount() {
-        return count;
+    public int getCount() {
+        return count.get();
     }
 
-    /*
-     * The Bucket class. The queue is implemented as a linked list of Buckets. The
-     * container holds the queued object and a reference to the next Bucket.
+    /**
+     * @return the largest number of items that were in the queue at the same time.
      */
-    class Bucket {
-        private Bucket next;
-        private final Object contents;
-
-        public Bucket(final Object o) {
-            next = null;
-            contents = o;
-        }
-
-        public void setNext(final Bucket newNext) {
-            next = newNext;
-        }
+    public int getMaxCount() {
+        return maxCount.get();
+    }
 
-        public Bucket getNext() {
-            return next;
-        }
+    /**
+     * @return the number of items that were added to the queue.
+     */
+    public long getPutCount() {
+        return putCount.get();
+    }
 
-        public Object getContents() {
-            return contents;
-        }
+    /**
+     * @return how many times a producer had to wait because the queue was full.
+     */
+    public long getBlockedPutCount() {
+        return blockedPutCount.get();
     }
 }
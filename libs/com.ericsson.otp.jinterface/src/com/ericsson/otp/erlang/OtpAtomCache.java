@@ -0,0 +1,99 @@
+/*
+ * %CopyrightBegin%
+ *
+ * Copyright Ericsson AB 2000-2016. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * %CopyrightEnd%
+ */
+package com.ericsson.otp.erlang;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * A bounded table of decoded atoms, shared by all input streams. Erlang traffic uses
+ * the same atoms over and over, so looking up the encoded bytes here saves allocating
+ * a new byte array, string and {@link OtpErlangAtom} for each of them.
+ *
+ * <p>
+ * The table is direct-mapped: each slot holds one entry, and an atom whose bytes hash
+ * to an occupied slot replaces the entry there. Entries are immutable, so readers need
+ * no locking.
+ */
+final class OtpAtomCache {
+
+    private static final int SIZE = 4096; // must be a power of two
+    private static final int MAX_BYTES = OtpExternal.maxAtomLength;
+
+    private static final AtomicReferenceArray<Entry> table = new AtomicReferenceArray<>(
+            SIZE);
+
+    private OtpAtomCache() {
+    }
+
+    private static final class Entry {
+        final byte[] bytes;
+        final boolean utf8;
+        final OtpErlangAtom atom;
+
+        Entry(final byte[] bytes, final boolean utf8, final OtpErlangAtom atom) {
+            this.bytes = bytes;
+            this.utf8 = utf8;
+            this.atom = atom;
+        }
+
+        boolean matches(final byte[] buf, final int offset, final int len,
+                final boolean isUtf8) {
+            if (utf8 != isUtf8 || bytes.length != len) {
+                return false;
+            }
+            for (int i = 0; i < len; i++) {
+                if (bytes[i] != buf[offset + i]) {
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    /**
+     * Return the atom encoded by <code>len</code> bytes of <code>buf</code>, starting at
+     * <code>offset</code>.
+     *
+     * @return the shared atom, or null if the atom is too long to be cached.
+     */
+    static OtpErlangAtom get(final byte[] buf, final int offset, final int len,
+            final boolean utf8) {
+        if (len > MAX_BYTES) {
+            return null;
+        }
+        int h = utf8 ? 1 : 0;
+        for (int i = 0; i < len; i++) {
+            h = 31 * h + buf[offset + i];
+        }
+        h ^= h >>> 16;
+        final int slot = h & SIZE - 1;
+        final Entry entry = table.get(slot);
+        if (entry != null && entry.matches(buf, offset, len, utf8)) {
+            return entry.atom;
+        }
+        final byte[] bytes = new byte[len];
+        System.arraycopy(buf, offset, bytes, 0, len);
+        // at most 255 bytes, so the atom is never longer than maxAtomLength
+        final String s = new String(bytes,
+                utf8 ? StandardCharsets.UTF_8 : StandardCharsets.ISO_8859_1);
+        final OtpErlangAtom atom = new OtpErlangAtom(s);
+        table.set(slot, new Entry(bytes, utf8, atom));
+        return atom;
+    }
+}
@@ -137,10 +137,13 @@ public class OtpCookedConnection extends AbstractConnection {
      * send to pid
      */
     @SuppressWarnings("resource")
-    void send(final OtpErlangPid from, final OtpErlangPid dest, final OtpErlangObject msg)
+    int send(final OtpErlangPid from, final OtpErlangPid dest, final OtpErlangObject msg)
             throws IOException {
         // encode and send the message
-        sendBuf(from, dest, new OtpOutputStream(msg));
+        final OtpOutputStream payload = new OtpOutputStream(msg);
+        sendBuf(from, dest, payload);
+        // the payload goes out after a version tag
+        return payload.size() + 1;
     }
 
     /*
@@ -148,10 +151,13 @@ public class OtpCookedConnection extends AbstractConnection {
      * the choice of connection.
      */
     @SuppressWarnings("resource")
-    void send(final OtpErlangPid from, final String dest, final OtpErlangObject msg)
+    int send(final OtpErlangPid from, final String dest, final OtpErlangObject msg)
             throws IOException {
         // encode and send the message
-        sendBuf(from, dest, new OtpOutputStream(msg));
+        final OtpOutputStream payload = new OtpOutputStream(msg);
+        sendBuf(from, dest, payload);
+        // the payload goes out after a version tag
+        return payload.size() + 1;
     }
 
     @Override
@@ -365,6 +365,11 @@ public class OtpInputStream extends ByteArrayInputStream {
         byte[] strbuf;
         String atom;
 
+        final OtpErlangAtom cached = read_cached_atom();
+        if (cached != null) {
+            return cached.atomValue();
+        }
+
         tag = read1skip_version();
 
         switch (tag) {
@@ -420,6 +425,43 @@ public class OtpInputStream extends ByteArrayInputStream {
         return atom;
     }
 
+    /**
+     * Read an Erlang atom from the stream through the shared atom cache.
+     *
+     * @return the shared atom, or null (with the stream position unchanged) if the next
+     *         term is not an atom or can't be cached.
+     */
+    private OtpErlangAtom read_cached_atom() throws OtpErlangDecodeException {
+        final int start = super.pos;
+        final int tag = read1skip_version();
+        final int len;
+
+        switch (tag) {
+        case OtpExternal.atomTag:
+        case OtpExternal.atomUtf8Tag:
+            len = read2BE();
+            break;
+        case OtpExternal.smallAtomUtf8Tag:
+            len = read1();
+            break;
+        default:
+            super.pos = start;
+            return null;
+        }
+        if (len > super.count - super.pos) {
+            super.pos = start;
+            return null;
+        }
+        final OtpErlangAtom atom = OtpAtomCache.get(super.buf, super.pos, len,
+                tag != OtpExternal.atomTag);
+        if (atom == null) {
+            super.pos = start;
+            return null;
+        }
+        super.pos += len;
+        return atom;
+    }
+
     /**
      * Read an Erlang binary from the stream.
      *
@@ -1144,6 +1186,22 @@ public class OtpInputStream extends ByteArrayInputStream {
      *                if the next term in the stream is not a compressed term.
      */
     public OtpErlangObject read_compressed() throws OtpErlangDecodeException {
+        final byte[] abuf = read_compressed_bytes();
+
+        @SuppressWarnings("resource")
+        final OtpInputStream ois = new OtpInputStream(abuf, flags);
+        return ois.read_any();
+    }
+
+    /**
+     * Read a compressed term from the stream, without decoding it.
+     *
+     * @return the uncompressed external representation of the term.
+     *
+     * @exception OtpErlangDecodeException
+     *                if the next term in the stream is not a compressed term.
+     */
+    byte[] read_compressed_bytes() throws OtpErlangDecodeException {
         final int tag = read1skip_version();
 
         if (tag != OtpExternal.compressedTag) {
@@ -1169,10 +1227,150 @@ public class OtpInputStream extends ByteArrayInputStream {
         } catch (final IOException e) {
             throw new OtpErlangDecodeException("Cannot read from input stream");
         }
+        return abuf;
+    }
 
-        @SuppressWarnings("resource")
-        final OtpInputStream ois = new OtpInputStream(abuf, flags);
-        return ois.read_any();
+    int getFlags() {
+        return flags;
+    }
+
+    byte[] getBuffer() {
+        return super.buf;
+    }
+
+    private void skipN(final int n) throws OtpErlangDecodeException {
+        if (n < 0 || n > super.count - super.pos) {
+            throw new OtpErlangDecodeException("Cannot read from input stream");
+        }
+        super.pos += n;
+    }
+
+    /**
+     * Move past the next term in the stream without decoding it.
+     *
+     * @exception OtpErlangDecodeException
+     *                if the next term in the stream is not a valid external
+     *                representation.
+     */
+    public void skip_term() throws OtpErlangDecodeException {
+        final int tag = read1skip_version();
+        int n;
+
+        switch (tag) {
+        case OtpExternal.smallIntTag:
+            skipN(1);
+            break;
+        case OtpExternal.intTag:
+            skipN(4);
+            break;
+        case OtpExternal.smallBigTag:
+            skipN(1 + read1());
+            break;
+        case OtpExternal.largeBigTag:
+            skipN(1 + read4BE());
+            break;
+        case OtpExternal.floatTag:
+            skipN(31);
+            break;
+        case OtpExternal.newFloatTag:
+            skipN(8);
+            break;
+        case OtpExternal.atomTag:
+        case OtpExternal.atomUtf8Tag:
+            skipN(read2BE());
+            break;
+        case OtpExternal.smallAtomUtf8Tag:
+            skipN(read1());
+            break;
+        case OtpExternal.refTag:
+            skip_term();
+            skipN(5);
+            break;
+        case OtpExternal.newRefTag:
+            n = read2BE();
+            skip_term();
+            skipN(1 + 4 * n);
+            break;
+        case OtpExternal.newerRefTag:
+            n = read2BE();
+            skip_term();
+            skipN(4 + 4 * n);
+            break;
+        case OtpExternal.portTag:
+            skip_term();
+            skipN(5);
+            break;
+        case OtpExternal.newPortTag:
+            skip_term();
+            skipN(8);
+            break;
+        case OtpExternal.v4PortTag:
+            skip_term();
+            skipN(12);
+            break;
+        case OtpExternal.pidTag:
+            skip_term();
+            skipN(9);
+            break;
+        case OtpExternal.newPidTag:
+            skip_term();
+            skipN(12);
+            break;
+        case OtpExternal.smallTupleTag:
+        case OtpExternal.largeTupleTag:
+            n = tag == OtpExternal.smallTupleTag ? read1() : read4BE();
+            for (int i = 0; i < n; i++) {
+                skip_term();
+            }
+            break;
+        case OtpExternal.mapTag:
+            n = read4BE();
+            for (int i = 0; i < 2 * n; i++) {
+                skip_term();
+            }
+            break;
+        case OtpExternal.nilTag:
+            break;
+        case OtpExternal.stringTag:
+            skipN(read2BE());
+            break;
+        case OtpExternal.listTag:
+            n = read4BE();
+            // the elements and the tail
+            for (int i = 0; i <= n; i++) {
+                skip_term();
+            }
+            break;
+        case OtpExternal.binTag:
+            skipN(read4BE());
+            break;
+        case OtpExternal.bitBinTag:
+            n = read4BE();
+            skipN(1 + n);
+            break;
+        case OtpExternal.newFunTag:
+            // the size includes the size field itself
+            skipN(read4BE() - 4);
+            break;
+        case OtpExternal.funTag:
+            n = read4BE();
+            // pid, module, index, uniq and the free variables
+            for (int i = 0; i < 4 + n; i++) {
+                skip_term();
+            }
+            break;
+        case OtpExternal.externalFunTag:
+            skip_term();
+            skip_term();
+            skip_term();
+            break;
+        case OtpExternal.compressedTag:
+            super.pos--;
+            read_compressed_bytes();
+            break;
+        default:
+            throw new OtpErlangDecodeException("Unknown data type: " + tag);
+        }
     }
 
     /**
@@ -1198,6 +1396,10 @@ public class OtpInputStream extends ByteArrayInputStream {
         case OtpExternal.atomTag:
         case OtpExternal.smallAtomUtf8Tag:
         case OtpExternal.atomUtf8Tag:
+            final OtpErlangAtom atom = read_cached_atom();
+            if (atom != null) {
+                return atom;
+            }
             return new OtpErlangAtom(this);
 
         case OtpExternal.floatTag:
@@ -0,0 +1,228 @@
+/*
+ * %CopyrightBegin%
+ *
+ * Copyright Ericsson AB 2000-2016. All Rights Reserved.
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License"); you may not use this
+ * file except in compliance with the License. You may obtain a copy of the License at
+ *
+ * http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software distributed under
+ * the License is distributed on an "AS IS" BASIS, WITHOUT WARRANTIES OR CONDITIONS OF ANY
+ * KIND, either express or implied. See the License for the specific language governing
+ * permissions and limitations under the License.
+ *
+ * %CopyrightEnd%
+ */
+package com.ericsson.otp.erlang;
+
+/**
+ * A view of an Erlang term that is still in external format. Nothing is decoded until
+ * it is asked for: {@link #elementAt(int)} finds the position of an element by skipping
+ * over the ones before it, and returns a view of it. {@link #materialize()} decodes the
+ * whole term into the usual {@link OtpErlangObject} representation.
+ *
+ * <p>
+ * This is useful when only a small part of a large term is needed, for example the tag
+ * of a message or one element of an RPC reply.
+ */
+public final class OtpLazyTerm {
+
+    private final byte[] buf;
+    private final int start;
+    private final int end;
+    private final int flags;
+    // start offsets of the elements (tuples and lists), computed on first use
+    private volatile int[] offsets;
+    private volatile OtpErlangObject object;
+
+    private OtpLazyTerm(final byte[] buf, final int start, final int end,
+            final int flags) {
+        this.buf = buf;
+        this.start = start;
+        this.end = end;
+        this.flags = flags;
+    }
+
+    /**
+     * Create a view of the next term in the stream and move past it. A compressed term
+     * is uncompressed, but not decoded.
+     *
+     * @exception OtpErlangDecodeException
+     *                if the next term in the stream is not a valid external
+     *                representation.
+     */
+    public static OtpLazyTerm read(final OtpInputStream is)
+            throws OtpErlangDecodeException {
+        if (is.peek1skip_version() == OtpExternal.compressedTag) {
+            final byte[] bytes = is.read_compressed_bytes();
+            return new OtpLazyTerm(bytes, 0, bytes.length, is.getFlags());
+        }
+        final int start = is.getPos();
+        is.skip_term();
+        return new OtpLazyTerm(is.getBuffer(), start, is.getPos(), is.getFlags());
+    }
+
+    /**
+     * Create a view of an already decoded term.
+     */
+    public static OtpLazyTerm of(final OtpErlangObject object) {
+        @SuppressWarnings("resource")
+        final byte[] bytes = new OtpOutputStream(object).toByteArray();
+        final OtpLazyTerm result = new OtpLazyTerm(bytes, 0, bytes.length, 0);
+        result.object = object;
+        return result;
+    }
+
+    /**
+     * @return the external format tag of the term (see {@link OtpExternal}).
+     */
+    public int type() {
+        return buf[start] & 0xff;
+    }
+
+    /**
+     * @return the size of the encoded term, in bytes.
+     */
+    public int size() {
+        return end - start;
+    }
+
+    public boolean isAtom() {
+        final int tag = type();
+        return tag == OtpExternal.atomTag || tag == OtpExternal.atomUtf8Tag
+                || tag == OtpExternal.smallAtomUtf8Tag;
+    }
+
+    /**
+     * @return true if the term is the given atom.
+     */
+    public boolean isAtom(final String name) {
+        if (!isAtom()) {
+            return false;
+        }
+        try {
+            return name.equals(atomValue());
+        } catch (final OtpErlangDecodeException e) {
+            return false;
+        }
+    }
+
+    public boolean isTuple() {
+        final int tag = type();
+        return tag == OtpExternal.smallTupleTag || tag == OtpExternal.largeTupleTag;
+    }
+
+    public boolean isList() {
+        final int tag = type();
+        return tag == OtpExternal.listTag || tag == OtpExternal.nilTag
+                || tag == OtpExternal.stringTag;
+    }
+
+    public boolean isBinary() {
+        return type() == OtpExternal.binTag;
+    }
+
+    public String atomValue() throws OtpErlangDecodeException {
+        return stream().read_atom();
+    }
+
+    public byte[] binaryValue() throws OtpErlangDecodeException {
+        return stream().read_binary();
+    }
+
+    /**
+     * @return the arity of a tuple or the number of elements of a list.
+     *
+     * @exception OtpErlangDecodeException
+     *                if the term is not a tuple or a list.
+     */
+    public int arity() throws OtpErlangDecodeException {
+        switch (type()) {
+        case OtpExternal.smallTupleTag:
+            return buf[start + 1] & 0xff;
+        case OtpExternal.largeTupleTag:
+        case OtpExternal.listTag:
+            final OtpInputStream is = stream();
+            is.read1();
+            return is.read4BE();
+        case OtpExternal.nilTag:
+            return 0;
+        case OtpExternal.stringTag:
+            return (buf[start + 1] & 0xff) << 8 | buf[start + 2] & 0xff;
+        default:
+            throw new OtpErlangDecodeException("Not a tuple or list: " + type());
+        }
+    }
+
+    /**
+     * @return a view of the i:th element (counting from 0) of a tuple or a list.
+     *
+     * @exception OtpErlangDecodeException
+     *                if the term is not a tuple or a list, or has no such element.
+     */
+    public OtpLazyTerm elementAt(final int i) throws OtpErlangDecodeException {
+        final int n = arity();
+        if (i < 0 || i >= n) {
+            throw new OtpErlangDecodeException(
+                    "No element " + i + " in term of arity " + n);
+        }
+        if (type() == OtpExternal.stringTag) {
+            return OtpLazyTerm.of(new OtpErlangLong(buf[start + 3 + i] & 0xff));
+        }
+        final int[] offs = elementOffsets(n);
+        final int elementEnd = i + 1 < n ? offs[i + 1] : offs[n];
+        return new OtpLazyTerm(buf, offs[i], elementEnd, flags);
+    }
+
+    /**
+     * The start of each element, followed by the end of the last one.
+     */
+    private int[] elementOffsets(final int n) throws OtpErlangDecodeException {
+        int[] offs = offsets;
+        if (offs == null) {
+            offs = new int[n + 1];
+            final OtpInputStream is = stream();
+            final int tag = is.read1();
+            if (tag == OtpExternal.smallTupleTag) {
+                is.read1();
+            } else {
+                is.read4BE();
+            }
+            for (int j = 0; j < n; j++) {
+                offs[j] = is.getPos();
+                is.skip_term();
+            }
+            offs[n] = is.getPos();
+            offsets = offs;
+        }
+        return offs;
+    }
+
+    /**
+     * Decode the term. The result is remembered, so this is done only once.
+     */
+    public OtpErlangObject materialize() throws OtpErlangDecodeException {
+        OtpErlangObject result = object;
+        if (result == null) {
+            result = stream().read_any();
+            object = result;
+        }
+        return result;
+    }
+
+    @SuppressWarnings("resource")
+    private OtpInputStream stream() {
+        return new OtpInputStream(buf, start, end - start, flags);
+    }
+
+    @Override
+    public String toString() {
+        try {
+            return materialize().toString();
+        } catch (final OtpErlangDecodeException e) {
+            return "#LazyTerm<" + size() + " bytes>";
+        }
+    }
+}
@@ -79,6 +79,9 @@ public class OtpMbox {
     GenericQueue queue;
     String name;
     Links links;
+    // not synchronized: a mailbox is normally used by a single thread
+    private long sentBytes;
+    private long receivedBytes;
 
     // package constructor: called by OtpNode:createMbox(name)
     // to create a named mbox
@@ -96,6 +99,26 @@ public class OtpMbox {
         this(home, self, null);
     }
 
+    /**
+     * Get the number of bytes this mailbox has sent to other nodes, as encoded on the
+     * wire. Messages to mailboxes on the same node are not encoded and not counted.
+     *
+     * @return the number of bytes sent.
+     */
+    public long getSentBytes() {
+        return sentBytes;
+    }
+
+    /**
+     * Get the number of bytes of the messages this mailbox has retrieved that came from
+     * other nodes, as they were encoded on the wire.
+     *
+     * @return the number of bytes received.
+     */
+    public long getReceivedBytes() {
+        return receivedBytes;
+    }
+
     /**
      * <p>
      * Get the identifying {@link OtpErlangPid pid} associated with this mailbox.
@@ -183,16 +206,51 @@ public class OtpMbox {
      */
     public OtpErlangObject receive(final long timeout)
             throws OtpErlangExit, OtpErlangDecodeException {
-        try {
-            final OtpMsg m = receiveMsg(timeout);
-            if (m != null) {
-                return m.getMsg();
-            }
-        } catch (final OtpErlangExit e) {
-            throw e;
-        } catch (final OtpErlangDecodeException f) {
-            throw f;
-        } catch (final InterruptedException g) {
+        final OtpMsg m = pollMsg(timeout);
+        if (m != null) {
+            return m.getMsg();
+        }
+        return null;
+    }
+
+    /**
+     * Block until a message arrives for this mailbox.
+     *
+     * @return a view of the body of the next message waiting in this mailbox, that is
+     *         decoded only as much as needed.
+     *
+     * @exception OtpErlangDecodeException
+     *                if the message is not a valid term.
+     *
+     * @exception OtpErlangExit
+     *                if a linked {@link OtpErlangPid pid} has exited or has sent an exit
+     *                signal to this mailbox.
+     */
+    public OtpLazyTerm receiveLazy() throws OtpErlangExit, OtpErlangDecodeException {
+        return receiveMsg().getLazyMsg();
+    }
+
+    /**
+     * Wait for a message to arrive for this mailbox.
+     *
+     * @param timeout
+     *            the time, in milliseconds, to wait for a message before returning null.
+     *
+     * @return a view of the body of the next message waiting in this mailbox, that is
+     *         decoded only as much as needed.
+     *
+     * @exception OtpErlangDecodeException
+     *                if the message is not a valid term.
+     *
+     * @exception OtpErlangExit
+     *                if a linked {@link OtpErlangPid pid} has exited or has sent an exit
+     *                signal to this mailbox.
+     */
+    public OtpLazyTerm receiveLazy(final long timeout)
+            throws OtpErlangExit, OtpErlangDecodeException {
+        final OtpMsg m = pollMsg(timeout);
+        if (m != null) {
+            return m.getLazyMsg();
         }
         return null;
     }
@@ -253,6 +311,7 @@ public class OtpMbox {
     public OtpMsg receiveMsg() throws OtpErlangExit {
 
         final OtpMsg m = (OtpMsg) queue.get();
+        receivedBytes += m.size();
 
         switch (m.type()) {
         case OtpMsg.exitTag:
@@ -293,7 +352,38 @@ public class OtpMbox {
         if (m == null) {
             return null;
         }
+        receivedBytes += m.size();
+
+        return checkExit(m);
+    }
+
+    /**
+     * Wait for a message to arrive for this mailbox. Unlike
+     * {@link #receiveMsg(long)}, a timeout is not signalled by an exception.
+     *
+     * @param timeout
+     *            the time, in milliseconds, to wait for a message.
+     *
+     * @return an {@link OtpMsg OtpMsg} containing the header information as well as the
+     *         body of the next message waiting in this mailbox, or null if none arrived
+     *         in time.
+     *
+     * @exception OtpErlangExit
+     *                if a linked {@link OtpErlangPid pid} has exited or has sent an exit
+     *                signal to this mailbox.
+     */
+    public OtpMsg pollMsg(final long timeout) throws OtpErlangExit {
+        final OtpMsg m = (OtpMsg) queue.poll(timeout);
+
+        if (m == null) {
+            return null;
+        }
+        receivedBytes += m.size();
 
+        return checkExit(m);
+    }
+
+    private OtpMsg checkExit(final OtpMsg m) throws OtpErlangExit {
         switch (m.type()) {
         case OtpMsg.exitTag:
         case OtpMsg.exit2Tag:
@@ -331,7 +421,7 @@ public class OtpMbox {
                 if (conn == null) {
                     return;
                 }
-                conn.send(self, to, msg);
+                sentBytes += conn.send(self, to, msg);
             }
         } catch (final Exception e) {
         }
@@ -378,7 +468,7 @@ public class OtpMbox {
                 if (conn == null) {
                     return;
                 }
-                conn.send(self, aname, msg);
+                sentBytes += conn.send(self, aname, msg);
             }
         } catch (final Exception e) {
         }
@@ -635,6 +725,42 @@ public class OtpMbox {
         home.closeMbox(this);
     }
 
+    /**
+     * @return the number of messages waiting in this mailbox.
+     */
+    public int getQueueLength() {
+        return queue.getCount();
+    }
+
+    /**
+     * @return the largest number of messages that were waiting in this mailbox at the
+     *         same time.
+     */
+    public int getMaxQueueLength() {
+        return queue.getMaxCount();
+    }
+
+    /**
+     * @return the number of messages delivered to this mailbox.
+     */
+    public long getDeliveredCount() {
+        return queue.getPutCount();
+    }
+
+    /**
+     * Limit the number of messages waiting in this mailbox. When the limit is reached,
+     * the thread delivering messages (normally the connection reader) blocks until the
+     * owner of the mailbox receives some, so that a flood of messages is slowed down at
+     * the source instead of filling the memory. Note that other mailboxes served by the
+     * same connection are held up too.
+     *
+     * @param capacity
+     *            maximum number of waiting messages, 0 (the default) for no limit.
+     */
+    public void setQueueCapacity(final int capacity) {
+        queue.setCapacity(capacity);
+    }
+
     @Override
     protected void finalize() {
         close();
@@ -61,6 +61,7 @@ public class OtpMsg {
     protected int tag; // what type of message is this (send, link, exit etc)
     protected OtpInputStream paybuf;
     protected OtpErlangObject payload;
+    protected int size;
 
     protected OtpErlangPid from;
     protected OtpErlangPid to;
@@ -73,6 +74,7 @@ public class OtpMsg {
         this.to = to;
         toName = null;
         this.paybuf = paybuf;
+        size = paybuf.available();
         payload = null;
     }
 
@@ -93,6 +95,7 @@ public class OtpMsg {
         this.toName = toName;
         to = null;
         this.paybuf = paybuf;
+        size = paybuf.available();
         payload = null;
     }
 
@@ -139,6 +142,16 @@ public class OtpMsg {
         this.to = to;
     }
 
+    /**
+     * Get the size of the encoded payload of this message, as it was received.
+     *
+     * @return the size in bytes, or 0 if the message was delivered locally and was
+     *         never encoded.
+     */
+    public int size() {
+        return size;
+    }
+
     /**
      * Get the payload from this message without deserializing it.
      *
@@ -208,6 +221,28 @@ public class OtpMsg {
         return payload;
     }
 
+    /**
+     * Return a view of the message contained in this OtpMsg, that is decoded only as
+     * much as needed (see {@link OtpLazyTerm}).
+     *
+     * @return a view of the Erlang term.
+     *
+     * @exception OtpErlangDecodeException
+     *                if the byte stream does not contain a valid term.
+     */
+    public OtpLazyTerm getLazyMsg() throws OtpErlangDecodeException {
+        if (payload != null || paybuf == null) {
+            return payload == null ? null : OtpLazyTerm.of(payload);
+        }
+        final int pos = paybuf.getPos();
+        try {
+            return OtpLazyTerm.read(paybuf);
+        } finally {
+            // getMsg() may still be called
+            paybuf.setPos(pos);
+        }
+    }
+
     /**
      * <p>
      * Get the name of the recipient for this message.
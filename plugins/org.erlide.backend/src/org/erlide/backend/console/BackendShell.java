@@ -9,8 +9,12 @@
 package org.erlide.backend.console;
 
 import java.io.IOException;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
 import java.util.List;
+import java.util.Map;
 
 import org.erlide.backend.api.IBackend;
 import org.erlide.runtime.events.ErlangEventHandler;
@@ -28,6 +32,7 @@ import com.ericsson.otp.erlang.OtpErlangPid;
 import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 public class BackendShell implements IBackendShell {
 
@@ -42,7 +47,6 @@ public class BackendShell implements IBackendShell {
         this.backend = backend;
         fId = id;
         this.server = server;
-        requests = new ArrayList<>(1000);
         listeners = new ArrayList<>();
     }
 
@@ -82,9 +86,20 @@ public class BackendShell implements IBackendShell {
     private static final int MAX_REQUESTS = 5000;
     private static final int DELTA_REQUESTS = 500;
 
-    private final List<IoRequest> requests;
+    /*
+     * The requests are kept in a ring buffer, oldest first. Their start positions are
+     * absolute offsets in the whole output of the shell; base is the start of the
+     * oldest retained request, so that a position in the text is start - base. Removing
+     * old requests only moves base. The int arithmetic may wrap around on very long
+     * sessions, but differences stay right as long as the text is shorter than 2GB.
+     */
+    private final IoRequest[] requests = new IoRequest[BackendShell.MAX_REQUESTS];
+    private int first;
+    private int count;
+    private int base;
+    private int end;
+    private final Map<OtpErlangPid, Deque<IoRequest>> bySender = Maps.newHashMap();
     private final List<BackendShellListener> listeners;
-    private int length;
 
     @Override
     public void input(final String s0) {
@@ -92,29 +107,12 @@ public class BackendShell implements IBackendShell {
         if (!s.endsWith("\n")) {
             s += "\n";
         }
-        final IoRequest request = new IoRequest(s, IoRequestKind.INPUT);
-        request.setStart(length);
-        final int prevLength = length;
-        addRequest(request);
-        notifyListeners(makeEvent(prevLength, request));
-    }
-
-    private void addRequest(final IoRequest req) {
-        final int reqLength = req.getLength();
-        length += reqLength;
-        synchronized (requests) {
-            requests.add(req);
-        }
+        append(Collections.singletonList(new IoRequest(s, IoRequestKind.INPUT)));
     }
 
     @Override
     public void add(final OtpErlangObject msg) {
-        deleteOldItems();
-        final int prevLength = length;
-        final IoRequest request = addRequestFromTuple(msg);
-        if (request != null) {
-            notifyListeners(makeEvent(prevLength, request));
-        }
+        add(Collections.singletonList(msg));
     }
 
     @Override
@@ -122,52 +120,97 @@ public class BackendShell implements IBackendShell {
         if (IoRequest.RE_PROMPT.matcher(text).matches()) {
             return;
         }
-        final IoRequest request = new IoRequest(text, kind);
-        request.setStart(length);
-        final int prevLength = length;
-        addRequest(request);
-        notifyListeners(makeEvent(prevLength, request));
+        append(Collections.singletonList(new IoRequest(text, kind)));
     }
 
-    private BackendShellEvent makeEvent(final int prevLength, final IoRequest request) {
-        return new BackendShellEvent(prevLength, 0, request.getMessage());
+    @Override
+    public void add(final List<OtpErlangObject> msgs) {
+        final List<IoRequest> reqs = Lists.newArrayListWithCapacity(msgs.size());
+        for (final OtpErlangObject msg : msgs) {
+            if (msg instanceof OtpErlangTuple) {
+                reqs.add(new IoRequest((OtpErlangTuple) msg));
+            }
+        }
+        append(reqs);
     }
 
-    private IoRequest addRequestFromTuple(final OtpErlangObject msg) {
-        if (!(msg instanceof OtpErlangTuple)) {
-            return null;
+    /**
+     * Add the requests, dropping the oldest ones if there is no room. Listeners get at
+     * most one event for the removed text and one for the added text.
+     */
+    private void append(final List<IoRequest> reqs0) {
+        if (reqs0.isEmpty()) {
+            return;
+        }
+        final int n = reqs0.size();
+        final List<IoRequest> reqs = n > requests.length
+                ? reqs0.subList(n - requests.length, n)
+                : reqs0;
+        BackendShellEvent removed = null;
+        final BackendShellEvent added;
+        synchronized (requests) {
+            final int overflow = count + reqs.size() - requests.length;
+            if (overflow > 0) {
+                final int prevBase = base;
+                deleteOldItems(Math.max(overflow, BackendShell.DELTA_REQUESTS));
+                removed = new BackendShellEvent(0, base - prevBase, "");
+            }
+            final int offset = end - base;
+            final StringBuilder text = new StringBuilder();
+            for (final IoRequest req : reqs) {
+                req.setStart(end);
+                end += req.getLength();
+                requests[(first + count) % requests.length] = req;
+                count++;
+                bySender.computeIfAbsent(req.getSender(), k -> new ArrayDeque<>())
+                        .add(req);
+                text.append(req.getMessage());
+            }
+            added = new BackendShellEvent(offset, 0, text.toString());
         }
-        final IoRequest request = new IoRequest((OtpErlangTuple) msg);
-        request.setStart(length);
-        addRequest(request);
-        return request;
+        if (removed != null) {
+            notifyListeners(removed);
+        }
+        notifyListeners(added);
     }
 
-    private void deleteOldItems() {
-        final int prevLength = length;
-        synchronized (requests) {
-            if (requests.size() > BackendShell.MAX_REQUESTS) {
-                requests.subList(0, BackendShell.DELTA_REQUESTS).clear();
-                final IoRequest first = requests.get(0);
-                final int start = first.getStart();
-                length = 0;
-                for (final IoRequest request : requests) {
-                    request.setStart(request.getStart() - start);
-                    length += request.getLength();
+    private void deleteOldItems(final int n0) {
+        final int n = Math.min(n0, count);
+        for (int i = 0; i < n; i++) {
+            final IoRequest req = requests[first];
+            requests[first] = null;
+            first = (first + 1) % requests.length;
+            final Deque<IoRequest> fromSender = bySender.get(req.getSender());
+            if (fromSender != null) {
+                // the oldest request is also the oldest from its sender
+                fromSender.pollFirst();
+                if (fromSender.isEmpty()) {
+                    bySender.remove(req.getSender());
                 }
             }
         }
-        if (length != prevLength) {
-            notifyListeners(new BackendShellEvent(0, length - prevLength, ""));
-        }
+        count -= n;
+        base = count == 0 ? end : requests[first].getStart();
+    }
+
+    private IoRequest get(final int i) {
+        return requests[(first + i) % requests.length];
     }
 
     @Override
     public IoRequest findAtPos(final int thePos) {
         synchronized (requests) {
-            for (final IoRequest req : requests) {
-                if (req.getStart() <= thePos
-                        && req.getStart() + req.getLength() > thePos) {
+            int lo = 0;
+            int hi = count - 1;
+            while (lo <= hi) {
+                final int mid = lo + hi >>> 1;
+                final IoRequest req = get(mid);
+                final int start = req.getStart() - base;
+                if (thePos < start) {
+                    hi = mid - 1;
+                } else if (thePos >= start + req.getLength()) {
+                    lo = mid + 1;
+                } else {
                     return req;
                 }
             }
@@ -176,34 +219,17 @@ public class BackendShell implements IBackendShell {
     }
 
     @Override
-    public List<IoRequest> getAllFrom(final OtpErlangPid sender) {
-        final List<IoRequest> result = new ArrayList<>();
+    public int getOffset(final IoRequest request) {
         synchronized (requests) {
-            for (final IoRequest element : requests) {
-                if (element.getSender().equals(sender)) {
-                    result.add(element);
-                }
-            }
+            return request.getStart() - base;
         }
-        return result;
     }
 
     @Override
-    public void add(final List<OtpErlangObject> msgs) {
-        final int prevLength = length;
-        final StringBuilder text = new StringBuilder();
+    public List<IoRequest> getAllFrom(final OtpErlangPid sender) {
         synchronized (requests) {
-            deleteOldItems();
-            for (final OtpErlangObject element : msgs) {
-                final IoRequest request = addRequestFromTuple(element);
-                if (request != null) {
-                    requests.add(request);
-                    text.append(request.getMessage());
-                }
-            }
-        }
-        if (!requests.isEmpty()) {
-            notifyListeners(new BackendShellEvent(prevLength, 0, text.toString()));
+            final Deque<IoRequest> fromSender = bySender.get(sender);
+            return fromSender == null ? new ArrayList<>() : new ArrayList<>(fromSender);
         }
     }
 
@@ -223,11 +249,11 @@ public class BackendShell implements IBackendShell {
     }
 
     private void sendEarlierRequests(final BackendShellListener listener) {
-        int alength = 0;
         synchronized (requests) {
-            for (final IoRequest request : requests) {
-                listener.changed(makeEvent(alength, request));
-                alength += request.getLength();
+            for (int i = 0; i < count; i++) {
+                final IoRequest request = get(i);
+                listener.changed(new BackendShellEvent(request.getStart() - base, 0,
+                        request.getMessage()));
             }
         }
     }
@@ -251,15 +277,17 @@ public class BackendShell implements IBackendShell {
 
     @Override
     public int getTextLength() {
-        return length;
+        synchronized (requests) {
+            return end - base;
+        }
     }
 
     @Override
     public String getText() {
         final StringBuilder result = new StringBuilder();
         synchronized (requests) {
-            for (final IoRequest request : requests) {
-                result.append(request.getMessage());
+            for (int i = 0; i < count; i++) {
+                result.append(get(i).getMessage());
             }
         }
         return result.toString();
@@ -269,10 +297,9 @@ public class BackendShell implements IBackendShell {
     public String[] getLastMessages(final int nMessages) {
         final List<String> result = Lists.newArrayListWithCapacity(nMessages);
         synchronized (requests) {
-            final int size = requests.size();
-            final int n = Math.min(nMessages, size);
-            for (int i = size - n; i < size; ++i) {
-                result.add(requests.get(i).getMessage());
+            final int n = Math.min(nMessages, count);
+            for (int i = count - n; i < count; ++i) {
+                result.add(get(i).getMessage());
             }
         }
         return result.toArray(new String[nMessages]);
@@ -1,8 +1,12 @@
 package org.erlide.backend.debug;
 
+import java.util.ArrayList;
+import java.util.List;
+
 import org.erlide.runtime.rpc.IOtpRpc;
 
 import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangList;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 
@@ -34,4 +38,57 @@ public class EvalHelper {
         return result;
     }
 
+    /**
+     * Evaluate several expressions with a single call. Each expression is evaluated in
+     * its own fun, so they can't see each other's bindings, and its exceptions are
+     * caught, so that one failing expression doesn't hide the others' values. If the
+     * batch can't be evaluated (for example because of a syntax error), the
+     * expressions are evaluated one by one.
+     *
+     * @return the results, in the same order as the expressions
+     */
+    public static List<BackendEvalResult> evalAll(final IOtpRpc b,
+            final List<String> exprs) {
+        final List<BackendEvalResult> results = new ArrayList<>(exprs.size());
+        if (exprs.isEmpty()) {
+            return results;
+        }
+        final BackendEvalResult batch = EvalHelper.eval(b, EvalHelper.batch(exprs),
+                null);
+        if (batch.isOk() && batch.getValue() instanceof OtpErlangList
+                && ((OtpErlangList) batch.getValue()).arity() == exprs.size()) {
+            for (final OtpErlangObject o : (OtpErlangList) batch.getValue()) {
+                final OtpErlangTuple t = (OtpErlangTuple) o;
+                final BackendEvalResult result = new BackendEvalResult();
+                if ("ok".equals(((OtpErlangAtom) t.elementAt(0)).atomValue())) {
+                    result.setValue(t.elementAt(1), null);
+                } else {
+                    result.setError(t.elementAt(1));
+                }
+                results.add(result);
+            }
+            return results;
+        }
+        for (final String expr : exprs) {
+            results.add(EvalHelper.eval(b, expr + ".", null));
+        }
+        return results;
+    }
+
+    static String batch(final List<String> exprs) {
+        final StringBuilder sb = new StringBuilder("[");
+        for (final String expr : exprs) {
+            if (sb.length() > 1) {
+                sb.append(",\n");
+            }
+            // the newline ends a trailing comment in the expression; the variables of
+            // the wrapper must not clash with the ones the expression binds
+            sb.append("(fun() -> try begin ").append(expr)
+                    .append("\n end of Erlide__V -> {ok, Erlide__V}")
+                    .append(" catch Erlide__C:Erlide__R ->")
+                    .append(" {error, {Erlide__C, Erlide__R}} end end)()");
+        }
+        return sb.append("].").toString();
+    }
+
 }
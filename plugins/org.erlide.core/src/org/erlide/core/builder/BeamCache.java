@@ -0,0 +1,326 @@
+package org.erlide.core.builder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import org.erlide.core.ErlangPlugin;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.runtime.rpc.IOtpRpc;
+import org.erlide.runtime.rpc.RpcException;
+import org.erlide.util.ErlLogger;
+import org.erlide.util.SystemConfiguration;
+
+import com.ericsson.otp.erlang.OtpErlangBinary;
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangRangeException;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpExternal;
+import com.ericsson.otp.erlang.OtpInputStream;
+import com.ericsson.otp.erlang.OtpOutputStream;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * Beams addressed by the content they were compiled from: the source, the contents of
+ * all included files, the compiler options and the Erlang runtime. A module that was
+ * compiled once, here or (with a shared store) on another machine, is fetched instead
+ * of compiled again.
+ *
+ * <p>
+ * Entries are looked up in the local store first, then in the remote one; remote hits
+ * are copied to the local store. Each entry holds the beam, the compiler messages and
+ * the time the compile took, used to report the time saved.
+ *
+ * <p>
+ * Enabled with <code>-Derlide.beamcache=true</code>. The local store is in
+ * <code>erlide.beamcache.dir</code> (default: the plugin's state location), a remote
+ * one can be a shared directory given by <code>erlide.beamcache.remote</code> or any
+ * {@link Store} set with {@link #setRemote(Store)}.
+ */
+public class BeamCache {
+
+    /**
+     * Where cache entries are kept.
+     */
+    public interface Store {
+        /**
+         * @return the entry, or null if there is none
+         */
+        byte[] get(String key) throws IOException;
+
+        void put(String key, byte[] data) throws IOException;
+    }
+
+    /**
+     * Stores entries as files in a directory, which can be shared.
+     */
+    public static class DirectoryStore implements Store {
+        private final File dir;
+
+        public DirectoryStore(final File dir) {
+            this.dir = dir;
+        }
+
+        @Override
+        public byte[] get(final String key) throws IOException {
+            final File file = file(key);
+            return file.isFile() ? Files.readAllBytes(file.toPath()) : null;
+        }
+
+        @Override
+        public void put(final String key, final byte[] data) throws IOException {
+            final File file = file(key);
+            final File parent = file.getParentFile();
+            if (!parent.isDirectory() && !parent.mkdirs()) {
+                throw new IOException("Can't create " + parent);
+            }
+            final File tmp = File.createTempFile(key, ".tmp", parent);
+            try {
+                Files.write(tmp.toPath(), data);
+                if (!tmp.renameTo(file) && !file.isFile()) {
+                    throw new IOException("Can't write " + file);
+                }
+            } finally {
+                tmp.delete();
+            }
+        }
+
+        private File file(final String key) {
+            return new File(new File(dir, key.substring(0, 2)), key + ".entry");
+        }
+    }
+
+    /**
+     * A cached compile: the beam and the compiler messages.
+     */
+    public static class Entry {
+        private final byte[] beam;
+        private final OtpErlangObject messages;
+        private final long compileMillis;
+
+        public Entry(final byte[] beam, final OtpErlangObject messages,
+                final long compileMillis) {
+            this.beam = beam;
+            this.messages = messages;
+            this.compileMillis = compileMillis;
+        }
+
+        public byte[] getBeam() {
+            return beam;
+        }
+
+        public OtpErlangObject getMessages() {
+            return messages;
+        }
+
+        public long getCompileMillis() {
+            return compileMillis;
+        }
+    }
+
+    public static class Stats {
+        private final int hits;
+        private final int misses;
+        private final long savedMillis;
+
+        Stats(final int hits, final int misses, final long savedMillis) {
+            this.hits = hits;
+            this.misses = misses;
+            this.savedMillis = savedMillis;
+        }
+
+        public int getHits() {
+            return hits;
+        }
+
+        public int getMisses() {
+            return misses;
+        }
+
+        /**
+         * @return the compile time of the hits, minus the time taken to fetch them
+         */
+        public long getSavedMillis() {
+            return savedMillis;
+        }
+
+        @Override
+        public String toString() {
+            final int total = hits + misses;
+            return String.format(
+                    "beam cache: %d hit(s), %d miss(es) (%d%% hits), ~%d ms saved", hits,
+                    misses, total == 0 ? 0 : hits * 100 / total, savedMillis);
+        }
+    }
+
+    private static final int VERSION = 1;
+    private static BeamCache instance;
+
+    private final Store local;
+    private volatile Store remote;
+    private final Map<IOtpRpc, String> runtimes = Collections
+            .synchronizedMap(new WeakHashMap<IOtpRpc, String>());
+    private final AtomicInteger hits = new AtomicInteger();
+    private final AtomicInteger misses = new AtomicInteger();
+    private final AtomicLong savedMillis = new AtomicLong();
+
+    public BeamCache(final Store local, final Store remote) {
+        this.local = local;
+        this.remote = remote;
+    }
+
+    /**
+     * @return the configured cache, or null if it isn't enabled
+     */
+    public static synchronized BeamCache getDefault() {
+        if (!SystemConfiguration.hasFeatureEnabled("erlide.beamcache")) {
+            return null;
+        }
+        if (BeamCache.instance == null) {
+            final String dir = System.getProperty("erlide.beamcache.dir");
+            final File localDir = dir != null ? new File(dir)
+                    : ErlangPlugin.getDefault().getStateLocation().append("beam_cache")
+                            .toFile();
+            final String remoteDir = System.getProperty("erlide.beamcache.remote");
+            BeamCache.instance = new BeamCache(new DirectoryStore(localDir),
+                    remoteDir != null ? new DirectoryStore(new File(remoteDir)) : null);
+        }
+        return BeamCache.instance;
+    }
+
+    public void setRemote(final Store remote) {
+        this.remote = remote;
+    }
+
+    /**
+     * @return a key identifying the Erlang runtime the backend runs, or null if it
+     *         can't be found (and nothing should be cached)
+     */
+    public String getRuntime(final IOtpRpc backend) {
+        String result = runtimes.get(backend);
+        if (result == null) {
+            try {
+                result = backend.call("erlang", "system_info", "a", "system_version")
+                        .toString();
+            } catch (final RpcException e) {
+                ErlLogger.warn(e);
+                return null;
+            }
+            runtimes.put(backend, result);
+        }
+        return result;
+    }
+
+    /**
+     * Compute the key of a module's compile. Included files contribute their name and
+     * content, not their location, so that the key is the same in other workspaces.
+     */
+    public static String key(final IErlModule module, final File source,
+            final String options, final String runtime) {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putInt(BeamCache.VERSION);
+        hasher.putString(runtime, StandardCharsets.UTF_8);
+        hasher.putString(options, StandardCharsets.UTF_8);
+        hasher.putString(source.getName(), StandardCharsets.UTF_8);
+        hasher.putString(String.valueOf(BuildState.hash(source)), StandardCharsets.UTF_8);
+        if (module != null) {
+            for (final String include : BuildState.includes(module)) {
+                final File file = new File(include);
+                hasher.putString(file.getName(), StandardCharsets.UTF_8);
+                hasher.putString(String.valueOf(BuildState.hash(file)),
+                        StandardCharsets.UTF_8);
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * @return the cached compile, or null (and a miss is counted)
+     */
+    public Entry get(final String key) {
+        final long start = System.currentTimeMillis();
+        Entry result = BeamCache.read(local, key);
+        if (result == null && remote != null) {
+            result = BeamCache.read(remote, key);
+            if (result != null) {
+                BeamCache.write(local, key, result);
+            }
+        }
+        if (result == null) {
+            misses.incrementAndGet();
+        } else {
+            hits.incrementAndGet();
+            final long fetchMillis = System.currentTimeMillis() - start;
+            savedMillis.addAndGet(Math.max(0, result.compileMillis - fetchMillis));
+        }
+        return result;
+    }
+
+    public void put(final String key, final Entry entry) {
+        BeamCache.write(local, key, entry);
+        if (remote != null) {
+            BeamCache.write(remote, key, entry);
+        }
+    }
+
+    /**
+     * @return the hits, misses and saved time since the last call
+     */
+    public Stats takeStats() {
+        return new Stats(hits.getAndSet(0), misses.getAndSet(0),
+                savedMillis.getAndSet(0));
+    }
+
+    private static Entry read(final Store store, final String key) {
+        try {
+            final byte[] data = store.get(key);
+            if (data == null) {
+                return null;
+            }
+            final OtpErlangObject term = new OtpInputStream(data).read_any();
+            if (!(term instanceof OtpErlangTuple)) {
+                return null;
+            }
+            final OtpErlangTuple t = (OtpErlangTuple) term;
+            if (t.arity() != 4 || !(t.elementAt(3) instanceof OtpErlangBinary)) {
+                return null;
+            }
+            if (((OtpErlangLong) t.elementAt(0)).intValue() != BeamCache.VERSION) {
+                return null;
+            }
+            return new Entry(((OtpErlangBinary) t.elementAt(3)).binaryValue(),
+                    t.elementAt(2), ((OtpErlangLong) t.elementAt(1)).longValue());
+        } catch (final IOException | OtpErlangDecodeException | OtpErlangRangeException
+                | ClassCastException e) {
+            ErlLogger.warn("Could not read beam cache entry %s: %s", key, e.getMessage());
+            return null;
+        }
+    }
+
+    private static void write(final Store store, final String key, final Entry entry) {
+        final OtpErlangObject messages = entry.messages != null ? entry.messages
+                : new OtpErlangList();
+        try (OtpOutputStream out = new OtpOutputStream()) {
+            out.write1(OtpExternal.versionTag);
+            out.write_any(new OtpErlangTuple(new OtpErlangObject[] {
+                    new OtpErlangLong(BeamCache.VERSION),
+                    new OtpErlangLong(entry.compileMillis), messages,
+                    new OtpErlangBinary(entry.beam) }));
+            store.put(key, out.toByteArray());
+        } catch (final IOException e) {
+            ErlLogger.warn("Could not write beam cache entry %s: %s", key,
+                    e.getMessage());
+        }
+    }
+
+}
@@ -0,0 +1,192 @@
+package org.erlide.core.builder;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.erlide.engine.MarkerUtils;
+import org.erlide.engine.MarkerUtils.ProblemMarkerData;
+import org.erlide.util.ErlLogger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * The workspace changes of a build: problem markers of compiled modules, derived flags
+ * and refreshes of output directories. They are collected while compiling and applied
+ * together, in one workspace operation per batch, so that listeners get one resource
+ * delta per batch instead of one per marker.
+ *
+ * <p>
+ * The markers of a compiled module replace those of its previous compile, but markers
+ * that didn't change are left alone instead of being deleted and created again.
+ */
+public class BuildChanges {
+
+    private static final int BATCH_SIZE = Integer
+            .parseInt(System.getProperty("erlide.build.batch", "200"));
+
+    private final IProject project;
+    private final Map<IResource, List<ProblemMarkerData>> markers = Maps
+            .newLinkedHashMap();
+    private final Set<IResource> derived = Sets.newLinkedHashSet();
+    private final Map<IResource, Integer> refreshes = Maps.newLinkedHashMap();
+
+    public BuildChanges(final IProject project) {
+        this.project = project;
+    }
+
+    /**
+     * The module was compiled and these are all its markers.
+     */
+    public synchronized void compiled(final IResource source,
+            final Collection<ProblemMarkerData> problems) {
+        markers.put(source, Lists.newArrayList(problems));
+    }
+
+    public synchronized void setDerived(final IResource resource) {
+        derived.add(resource);
+    }
+
+    public synchronized void refresh(final IResource resource, final int depth) {
+        final Integer known = refreshes.get(resource);
+        if (known == null || known < depth) {
+            refreshes.put(resource, depth);
+        }
+    }
+
+    /**
+     * Apply the collected changes if there are enough of them.
+     */
+    public void commitIfFull() {
+        final boolean full;
+        synchronized (this) {
+            full = markers.size() >= BuildChanges.BATCH_SIZE;
+        }
+        if (full) {
+            commit();
+        }
+    }
+
+    /**
+     * Apply the collected changes, in one workspace operation.
+     */
+    public void commit() {
+        final Map<IResource, List<ProblemMarkerData>> newMarkers;
+        final Set<IResource> newDerived;
+        final Map<IResource, Integer> newRefreshes;
+        synchronized (this) {
+            if (markers.isEmpty() && derived.isEmpty() && refreshes.isEmpty()) {
+                return;
+            }
+            newMarkers = Maps.newLinkedHashMap(markers);
+            newDerived = Sets.newLinkedHashSet(derived);
+            newRefreshes = Maps.newLinkedHashMap(refreshes);
+            markers.clear();
+            derived.clear();
+            refreshes.clear();
+        }
+        final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        try {
+            workspace.run(monitor -> {
+                for (final Map.Entry<IResource, Integer> entry : newRefreshes
+                        .entrySet()) {
+                    if (entry.getKey().exists()) {
+                        entry.getKey().refreshLocal(entry.getValue(), monitor);
+                    }
+                }
+                for (final IResource resource : newDerived) {
+                    if (resource.exists()) {
+                        resource.setDerived(true, monitor);
+                    }
+                }
+                if (!newMarkers.isEmpty()) {
+                    updateMarkers(workspace, newMarkers);
+                }
+            }, null, IWorkspace.AVOID_UPDATE, null);
+        } catch (final CoreException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+    private void updateMarkers(final IWorkspace workspace,
+            final Map<IResource, List<ProblemMarkerData>> newMarkers)
+            throws CoreException {
+        // markers of a module can be on its include files; they know their source
+        final Map<String, List<IMarker>> bySource = Maps.newHashMap();
+        if (project.isAccessible()) {
+            for (final IMarker m : project.findMarkers(MarkerUtils.PROBLEM_MARKER, true,
+                    IResource.DEPTH_INFINITE)) {
+                final Object sourceId = m.getAttribute(IMarker.SOURCE_ID);
+                if (sourceId instanceof String) {
+                    bySource.computeIfAbsent((String) sourceId, k -> Lists.newArrayList())
+                            .add(m);
+                }
+            }
+        }
+        final List<IMarker> obsolete = Lists.newArrayList();
+        for (final Map.Entry<IResource, List<ProblemMarkerData>> entry : newMarkers
+                .entrySet()) {
+            final IResource source = entry.getKey();
+            final Set<IMarker> existing = Sets.newLinkedHashSet();
+            if (source.exists()) {
+                existing.addAll(Arrays.asList(source.findMarkers(
+                        MarkerUtils.PROBLEM_MARKER, true, IResource.DEPTH_ZERO)));
+            }
+            if (source.getLocation() != null) {
+                final List<IMarker> fromSource = bySource
+                        .get(source.getLocation().toString());
+                if (fromSource != null) {
+                    existing.addAll(fromSource);
+                }
+            }
+            for (final ProblemMarkerData data : BuildChanges.diff(existing,
+                    entry.getValue(), MarkerUtils::markerKey, obsolete)) {
+                data.create();
+            }
+        }
+        if (!obsolete.isEmpty()) {
+            workspace.deleteMarkers(obsolete.toArray(new IMarker[obsolete.size()]));
+        }
+    }
+
+    /**
+     * Match existing markers with the wanted ones.
+     *
+     * @param obsolete
+     *            receives the existing markers that are not wanted anymore
+     * @return the wanted markers that don't exist yet
+     */
+    public static <M> List<ProblemMarkerData> diff(final Collection<M> existing,
+            final Collection<ProblemMarkerData> wanted, final Function<M, String> key,
+            final List<M> obsolete) {
+        final Map<String, List<ProblemMarkerData>> missing = Maps.newLinkedHashMap();
+        for (final ProblemMarkerData data : wanted) {
+            missing.computeIfAbsent(data.getKey(), k -> Lists.newArrayList()).add(data);
+        }
+        for (final M marker : existing) {
+            final List<ProblemMarkerData> same = missing.get(key.apply(marker));
+            if (same == null || same.isEmpty()) {
+                obsolete.add(marker);
+            } else {
+                same.remove(same.size() - 1);
+            }
+        }
+        final List<ProblemMarkerData> result = Lists.newArrayList();
+        for (final List<ProblemMarkerData> list : missing.values()) {
+            result.addAll(list);
+        }
+        return result;
+    }
+
+}
@@ -143,10 +143,7 @@ public class BuildNotifier {
     }
 
     public boolean isCanceled() {
-        if (monitor != null) {
-            monitor.isCanceled();
-        }
-        return false;
+        return monitor != null && monitor.isCanceled();
     }
 
     public void worked(final int i) {
@@ -0,0 +1,146 @@
+package org.erlide.core.builder;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * The time each project of a scheduled build took and the critical path: the chain of
+ * projects, each referencing the next, whose builds add up to the longest time. No
+ * number of threads can make the whole build faster than its critical path.
+ */
+public class BuildReport<T> {
+
+    private final Map<T, Set<T>> dependencies;
+    private final Map<T, Long> times = Collections
+            .synchronizedMap(Maps.newLinkedHashMap());
+    private final Set<T> failures = Collections.synchronizedSet(Sets.newHashSet());
+    volatile long elapsed;
+    volatile boolean canceled;
+
+    BuildReport(final Map<T, Set<T>> dependencies) {
+        this.dependencies = dependencies;
+    }
+
+    void built(final T node, final long time) {
+        times.put(node, time);
+    }
+
+    void failed(final T node) {
+        failures.add(node);
+    }
+
+    /**
+     * @return the build time of each project, in milliseconds, in the order they were
+     *         finished
+     */
+    public Map<T, Long> getTimes() {
+        synchronized (times) {
+            return Collections.unmodifiableMap(Maps.newLinkedHashMap(times));
+        }
+    }
+
+    public Set<T> getFailures() {
+        synchronized (failures) {
+            return Collections.unmodifiableSet(Sets.newHashSet(failures));
+        }
+    }
+
+    /**
+     * @return the wall-clock time of the whole build, in milliseconds
+     */
+    public long getElapsed() {
+        return elapsed;
+    }
+
+    public boolean isCanceled() {
+        return canceled;
+    }
+
+    /**
+     * @return the projects on the critical path, the referenced ones first
+     */
+    public List<T> getCriticalPath() {
+        final Map<T, Long> built = getTimes();
+        final Map<T, Long> pathTimes = Maps.newHashMap();
+        final Map<T, T> previous = Maps.newHashMap();
+        T last = null;
+        for (final T node : built.keySet()) {
+            final long time = pathTime(node, built, pathTimes, previous,
+                    Sets.<T> newHashSet());
+            if (last == null || time > pathTimes.get(last)) {
+                last = node;
+            }
+        }
+        final List<T> result = Lists.newArrayList();
+        for (T node = last; node != null; node = previous.get(node)) {
+            result.add(0, node);
+        }
+        return result;
+    }
+
+    /**
+     * @return the sum of the build times on the critical path, in milliseconds
+     */
+    public long getCriticalPathTime() {
+        final Map<T, Long> built = getTimes();
+        long result = 0;
+        for (final T node : getCriticalPath()) {
+            result += built.get(node);
+        }
+        return result;
+    }
+
+    private long pathTime(final T node, final Map<T, Long> built,
+            final Map<T, Long> pathTimes, final Map<T, T> previous,
+            final Set<T> visiting) {
+        final Long known = pathTimes.get(node);
+        if (known != null) {
+            return known;
+        }
+        visiting.add(node);
+        long longest = 0;
+        final Set<T> deps = dependencies.get(node);
+        if (deps != null) {
+            for (final T dep : deps) {
+                if (built.containsKey(dep) && !visiting.contains(dep)) {
+                    final long time = pathTime(dep, built, pathTimes, previous,
+                            visiting);
+                    if (time > longest) {
+                        longest = time;
+                        previous.put(node, dep);
+                    }
+                }
+            }
+        }
+        visiting.remove(node);
+        final long result = longest + built.get(node);
+        pathTimes.put(node, result);
+        return result;
+    }
+
+    @Override
+    public String toString() {
+        final StringBuilder result = new StringBuilder();
+        final Map<T, Long> built = getTimes();
+        result.append(String.format("Built %d project(s) in %d ms%s", built.size(),
+                elapsed, canceled ? " (canceled)" : ""));
+        for (final Map.Entry<T, Long> entry : built.entrySet()) {
+            result.append(String.format("%n  %s: %d ms%s", entry.getKey(),
+                    entry.getValue(),
+                    failures.contains(entry.getKey()) ? " (failed)" : ""));
+        }
+        result.append(String.format("%nCritical path (%d ms): ", getCriticalPathTime()));
+        final List<T> path = getCriticalPath();
+        for (int i = 0; i < path.size(); i++) {
+            result.append(i == 0 ? "" : " -> ").append(path.get(i));
+        }
+        return result.toString();
+    }
+
+}
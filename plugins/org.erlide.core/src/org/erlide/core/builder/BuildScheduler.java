@@ -0,0 +1,173 @@
+package org.erlide.core.builder;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CompletionService;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorCompletionService;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Function;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.eclipse.core.runtime.OperationCanceledException;
+import org.erlide.util.ErlLogger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Builds a set of projects on a bounded number of threads, starting each one as soon
+ * as the projects it references (and that are part of the same build) are done.
+ *
+ * <p>
+ * Progress is reported on the notifier of the caller, from the calling thread only.
+ * Each build gets a notifier of its own, that is canceled when the caller's is;
+ * projects that were not started yet are then skipped.
+ */
+public class BuildScheduler<T> {
+
+    public interface Task<T> {
+        void build(T node, BuildNotifier notifier) throws CoreException;
+    }
+
+    private final int threads;
+
+    public BuildScheduler(final int threads) {
+        this.threads = Math.max(1, threads);
+    }
+
+    public BuildReport<T> run(final Collection<T> nodes,
+            final Function<T, Collection<T>> references, final Task<T> task,
+            final BuildNotifier notifier) {
+        final Map<T, Set<T>> waitingFor = Maps.newLinkedHashMap();
+        for (final T node : nodes) {
+            final Set<T> deps = Sets.newLinkedHashSet();
+            for (final T ref : references.apply(node)) {
+                if (nodes.contains(ref) && !ref.equals(node)) {
+                    deps.add(ref);
+                }
+            }
+            waitingFor.put(node, deps);
+        }
+        final Map<T, Set<T>> dependencies = Maps.newHashMap();
+        for (final Map.Entry<T, Set<T>> entry : waitingFor.entrySet()) {
+            dependencies.put(entry.getKey(), Sets.newHashSet(entry.getValue()));
+        }
+
+        final BuildReport<T> report = new BuildReport<>(dependencies);
+        final long start = System.currentTimeMillis();
+        final AtomicInteger count = new AtomicInteger();
+        final ExecutorService executor = Executors.newFixedThreadPool(threads, r -> {
+            final Thread thread = new Thread(r,
+                    "erlide build " + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        final CompletionService<T> completion = new ExecutorCompletionService<>(
+                executor);
+        final float progress = nodes.isEmpty() ? 0 : 1.0f / nodes.size();
+        int running = 0;
+        try {
+            while (!waitingFor.isEmpty() || running > 0) {
+                if (!notifier.isCanceled()) {
+                    List<T> ready = BuildScheduler.ready(waitingFor);
+                    if (ready.isEmpty() && running == 0) {
+                        // a cycle; build the project that waits for the fewest others
+                        ready = Lists
+                                .newArrayList(BuildScheduler.leastWaiting(waitingFor));
+                    }
+                    // don't queue more than can be started, to be able to cancel them
+                    for (final T node : ready.subList(0,
+                            Math.min(ready.size(), threads - running))) {
+                        waitingFor.remove(node);
+                        completion.submit(() -> build(node, task, notifier, report),
+                                node);
+                        running++;
+                    }
+                } else if (running == 0) {
+                    break;
+                }
+                final Future<T> done = completion.poll(100, TimeUnit.MILLISECONDS);
+                if (done != null) {
+                    running--;
+                    final T node = BuildScheduler.get(done);
+                    for (final Set<T> deps : waitingFor.values()) {
+                        deps.remove(node);
+                    }
+                    notifier.subTask(String.format("Built %s", node));
+                    notifier.updateProgressDelta(progress);
+                }
+            }
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            report.canceled = true;
+        } finally {
+            report.canceled |= notifier.isCanceled();
+            executor.shutdownNow();
+            report.elapsed = System.currentTimeMillis() - start;
+        }
+        return report;
+    }
+
+    private void build(final T node, final Task<T> task, final BuildNotifier parent,
+            final BuildReport<T> report) {
+        final long start = System.currentTimeMillis();
+        final IProgressMonitor monitor = new NullProgressMonitor() {
+            @Override
+            public boolean isCanceled() {
+                return super.isCanceled() || parent.isCanceled();
+            }
+        };
+        try {
+            task.build(node, new BuildNotifier(monitor, null));
+        } catch (final OperationCanceledException e) {
+            // the caller sees it, too
+        } catch (final CoreException | RuntimeException e) {
+            ErlLogger.error(e);
+            report.failed(node);
+        } finally {
+            report.built(node, System.currentTimeMillis() - start);
+        }
+    }
+
+    private static <T> List<T> ready(final Map<T, Set<T>> waitingFor) {
+        final List<T> result = Lists.newArrayList();
+        for (final Map.Entry<T, Set<T>> entry : waitingFor.entrySet()) {
+            if (entry.getValue().isEmpty()) {
+                result.add(entry.getKey());
+            }
+        }
+        return result;
+    }
+
+    private static <T> T leastWaiting(final Map<T, Set<T>> waitingFor) {
+        T result = null;
+        int min = Integer.MAX_VALUE;
+        for (final Map.Entry<T, Set<T>> entry : waitingFor.entrySet()) {
+            if (entry.getValue().size() < min) {
+                min = entry.getValue().size();
+                result = entry.getKey();
+            }
+        }
+        return result;
+    }
+
+    private static <T> T get(final Future<T> future) throws InterruptedException {
+        try {
+            return future.get();
+        } catch (final ExecutionException e) {
+            // build() doesn't throw
+            throw new IllegalStateException(e.getCause());
+        }
+    }
+
+}
@@ -0,0 +1,270 @@
+package org.erlide.core.builder;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.resources.IProject;
+import org.erlide.core.ErlangCore;
+import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.erlang.ErlangIncludeFile;
+import org.erlide.engine.model.root.IErlElementLocator;
+import org.erlide.engine.model.root.IErlModel;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.util.ErlLogger;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
+
+/**
+ * What each module of a project was last compiled from: a hash of its source, of all
+ * the files it includes (transitively), of the compiler options and output directory,
+ * and a hash of the beam that was produced. A module whose inputs and beam are
+ * unchanged doesn't need to be compiled, whatever the time stamps say.
+ *
+ * <p>
+ * The state is kept in the project's working location, in a text file with one line
+ * per module: <code>source TAB inputs TAB beam</code>.
+ */
+public class BuildState {
+
+    private static final String FILE_NAME = "build_state";
+    private static final String HEADER = "# erlide build state v1";
+    private static final boolean disabled = Boolean
+            .parseBoolean(System.getProperty("erlide.noBuildState"));
+
+    private static final Map<IProject, BuildState> states = Maps.newConcurrentMap();
+    private static final Map<String, FileHash> fileHashes = Maps.newConcurrentMap();
+
+    private static final class Entry {
+        final String inputs;
+        final String beam;
+
+        Entry(final String inputs, final String beam) {
+            this.inputs = inputs;
+            this.beam = beam;
+        }
+    }
+
+    private static final class FileHash {
+        final long modified;
+        final long length;
+        final String hash;
+
+        FileHash(final long modified, final long length, final String hash) {
+            this.modified = modified;
+            this.length = length;
+            this.hash = hash;
+        }
+    }
+
+    private final File file;
+    private final Map<String, Entry> entries = Maps.newConcurrentMap();
+    private final AtomicInteger avoided = new AtomicInteger();
+    private volatile boolean dirty;
+
+    public BuildState(final File file) {
+        this.file = file;
+        load();
+    }
+
+    /**
+     * @return the build state of the project, or null if it is disabled (with
+     *         <code>-Derlide.noBuildState=true</code>)
+     */
+    public static BuildState get(final IProject project) {
+        if (BuildState.disabled) {
+            return null;
+        }
+        return BuildState.states.computeIfAbsent(project,
+                p -> new BuildState(new File(
+                        p.getWorkingLocation(ErlangCore.PLUGIN_ID).toFile(),
+                        BuildState.FILE_NAME)));
+    }
+
+    /**
+     * @return true if the module was compiled from these inputs and its beam is still
+     *         the one that was produced then; false if it changed or is unknown
+     */
+    public boolean isUpToDate(final String source, final String inputs,
+            final File beam) {
+        final Entry entry = entries.get(source);
+        return entry != null && entry.inputs.equals(inputs) && beam.isFile()
+                && entry.beam.equals(BuildState.hash(beam));
+    }
+
+    public boolean isKnown(final String source) {
+        return entries.containsKey(source);
+    }
+
+    public void put(final String source, final String inputs, final File beam) {
+        final String beamHash = BuildState.hash(beam);
+        if (beamHash == null) {
+            remove(source);
+            return;
+        }
+        entries.put(source, new Entry(inputs, beamHash));
+        dirty = true;
+    }
+
+    public void remove(final String source) {
+        if (entries.remove(source) != null) {
+            dirty = true;
+        }
+    }
+
+    public void clear() {
+        entries.clear();
+        dirty = true;
+    }
+
+    public void avoided() {
+        avoided.incrementAndGet();
+    }
+
+    /**
+     * @return the number of compiles that were skipped because the inputs of the
+     *         module didn't change, since the last call
+     */
+    public int takeAvoided() {
+        return avoided.getAndSet(0);
+    }
+
+    /**
+     * Compute the hash of everything a module is compiled from.
+     */
+    public static String inputs(final IErlModule module, final File source,
+            final String options, final String outputDir) {
+        final Hasher hasher = Hashing.sha256().newHasher();
+        hasher.putString(options, StandardCharsets.UTF_8);
+        hasher.putString(outputDir, StandardCharsets.UTF_8);
+        hasher.putString(String.valueOf(BuildState.hash(source)), StandardCharsets.UTF_8);
+        if (module != null) {
+            for (final String include : BuildState.includes(module)) {
+                hasher.putString(include, StandardCharsets.UTF_8);
+                hasher.putString(String.valueOf(BuildState.hash(new File(include))),
+                        StandardCharsets.UTF_8);
+            }
+        }
+        return hasher.hash().toString();
+    }
+
+    /**
+     * @return the paths of the files included by the module, directly or not; sorted
+     *         and without duplicates. Includes that can't be found are returned by
+     *         name.
+     */
+    static Collection<String> includes(final IErlModule module) {
+        final IErlModel model = ErlangEngine.getInstance().getModel();
+        final Set<String> result = Sets.newTreeSet();
+        final Set<IErlModule> visited = Sets.newHashSet(module);
+        final List<IErlModule> queue = Lists.newArrayList(module);
+        while (!queue.isEmpty()) {
+            final IErlModule m = queue.remove(queue.size() - 1);
+            try {
+                for (final ErlangIncludeFile ifile : m.getIncludeFiles()) {
+                    final IErlModule include = model.findIncludeFromModule(m,
+                            ifile.getFilenameLastPart(), ifile.getFilename(),
+                            IErlElementLocator.Scope.REFERENCED_PROJECTS);
+                    if (include == null || include.getFilePath() == null) {
+                        result.add(ifile.getFilename());
+                    } else if (visited.add(include)) {
+                        result.add(include.getFilePath());
+                        queue.add(include);
+                    }
+                }
+            } catch (final ErlModelException e) {
+                ErlLogger.warn(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the hash of the file's content, or null if it can't be read. The hash is
+     *         computed again only if the file's size or time stamp changed.
+     */
+    static String hash(final File file) {
+        final long modified = file.lastModified();
+        final long length = file.length();
+        if (modified == 0) {
+            BuildState.fileHashes.remove(file.getPath());
+            return null;
+        }
+        final FileHash known = BuildState.fileHashes.get(file.getPath());
+        if (known != null && known.modified == modified && known.length == length) {
+            return known.hash;
+        }
+        try {
+            final String hash = Hashing.sha256()
+                    .hashBytes(Files.readAllBytes(file.toPath())).toString();
+            BuildState.fileHashes.put(file.getPath(),
+                    new FileHash(modified, length, hash));
+            return hash;
+        } catch (final IOException e) {
+            return null;
+        }
+    }
+
+    public synchronized void save() {
+        if (!dirty) {
+            return;
+        }
+        final File tmp = new File(file.getPath() + ".tmp");
+        try (BufferedWriter out = Files.newBufferedWriter(tmp.toPath(),
+                StandardCharsets.UTF_8)) {
+            out.write(BuildState.HEADER);
+            out.newLine();
+            for (final Map.Entry<String, Entry> e : entries.entrySet()) {
+                out.write(e.getKey() + "\t" + e.getValue().inputs + "\t"
+                        + e.getValue().beam);
+                out.newLine();
+            }
+        } catch (final IOException e) {
+            ErlLogger.warn("Could not write build state %s: %s", file, e.getMessage());
+            tmp.delete();
+            return;
+        }
+        file.delete();
+        if (!tmp.renameTo(file)) {
+            tmp.delete();
+            return;
+        }
+        dirty = false;
+    }
+
+    private void load() {
+        if (!file.isFile()) {
+            return;
+        }
+        try (BufferedReader in = Files.newBufferedReader(file.toPath(),
+                StandardCharsets.UTF_8)) {
+            if (!BuildState.HEADER.equals(in.readLine())) {
+                return;
+            }
+            String line;
+            while ((line = in.readLine()) != null) {
+                final String[] parts = line.split("\t");
+                if (parts.length == 3) {
+                    entries.put(parts[0], new Entry(parts[1], parts[2]));
+                }
+            }
+        } catch (final IOException e) {
+            ErlLogger.warn("Could not read build state %s: %s", file, e.getMessage());
+            entries.clear();
+        }
+    }
+
+}
@@ -9,8 +9,11 @@
 package org.erlide.core.builder;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
 import java.util.ArrayList;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.List;
 import java.util.Map;
 import java.util.Map.Entry;
@@ -41,12 +44,14 @@ import org.erlide.backend.debug.BeamUtil;
 import org.erlide.core.ErlangPlugin;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.MarkerUtils;
+import org.erlide.engine.MarkerUtils.ProblemMarkerData;
 import org.erlide.engine.model.ErlModelException;
 import org.erlide.engine.model.erlang.ErlangIncludeFile;
 import org.erlide.engine.model.erlang.SourceKind;
 import org.erlide.engine.model.root.ErlangProjectProperties;
 import org.erlide.engine.model.root.IErlModule;
 import org.erlide.engine.model.root.IErlProject;
+import org.erlide.engine.services.search.XrefService;
 import org.erlide.engine.util.ResourceUtil;
 import org.erlide.runtime.api.BeamLoader;
 import org.erlide.runtime.rpc.IOtpRpc;
@@ -54,10 +59,13 @@ import org.erlide.runtime.rpc.RpcException;
 import org.erlide.runtime.rpc.RpcFuture;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.SystemConfiguration;
+import org.erlide.util.erlang.OtpErlang;
+import org.erlide.util.erlang.TypeConverter;
 
 import com.ericsson.otp.erlang.OtpErlangAtom;
 import com.ericsson.otp.erlang.OtpErlangBinary;
 import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
@@ -73,9 +81,35 @@ public final class BuilderHelper {
     private static final String YRL = "yrl";
     private static final String ERLIDE_BUILDER = "erlide_builder";
 
+    private static final class PendingCompile {
+        final String key;
+        final File beam;
+
+        PendingCompile(final String key, final File beam) {
+            this.key = key;
+            this.beam = beam;
+        }
+    }
+
+    private final Map<IResource, Entry<String, File>> pendingInputs = Maps
+            .newConcurrentMap();
+    private final Map<IResource, PendingCompile> pendingCache = Maps.newConcurrentMap();
+    private final Map<IResource, OtpErlangObject> cachedResults = Maps
+            .newConcurrentMap();
+
+    private BuildChanges changes;
+
     public BuilderHelper() {
     }
 
+    /**
+     * Collect markers and refreshes in this buffer instead of applying them right
+     * away.
+     */
+    public void setChanges(final BuildChanges changes) {
+        this.changes = changes;
+    }
+
     public static boolean isDebugging() {
         return ErlangPlugin.getDefault().isDebugging() && "true".equalsIgnoreCase(
                 Platform.getDebugOption("org.erlide.core/debug/builder"));
@@ -183,13 +217,31 @@ public final class BuilderHelper {
         return result;
     }
 
-    public void checkForClashes(final IOtpRpc backend, final IProject project) {
-        createMarkersForCodeClashes(backend, project);
-        createMarkersForDuplicateModuleNames(backend, project);
+    private static final String CODE_CLASH = "code clash between ";
+    private static final String DUPLICATE_MODULE = "duplicated module name in ";
+
+    /**
+     * @return the markers for the module name and code path clashes of the project
+     */
+    public List<ProblemMarkerData> findClashes(final IOtpRpc backend,
+            final IProject project) {
+        final List<ProblemMarkerData> result = Lists.newArrayList();
+        createMarkersForCodeClashes(backend, project, result);
+        createMarkersForDuplicateModuleNames(backend, project, result);
+        return result;
+    }
+
+    /**
+     * @return whether a marker with this message was made by
+     *         {@link #findClashes(IOtpRpc, IProject)}
+     */
+    public static boolean isClashMessage(final String message) {
+        return message.startsWith(BuilderHelper.CODE_CLASH)
+                || message.startsWith(BuilderHelper.DUPLICATE_MODULE);
     }
 
     private void createMarkersForDuplicateModuleNames(final IOtpRpc backend,
-            final IProject project) {
+            final IProject project, final List<ProblemMarkerData> markers) {
         try {
             final IErlProject erlProject = ErlangEngine.getInstance().getModel()
                     .getErlangProject(project);
@@ -204,9 +256,9 @@ public final class BuilderHelper {
                 final OtpErlangTuple t = (OtpErlangTuple) res.elementAt(i);
                 final String f1 = ((OtpErlangString) t.elementAt(0)).stringValue();
                 final String f2 = ((OtpErlangString) t.elementAt(1)).stringValue();
-                MarkerUtils.createProblemMarker(project, null,
-                        "duplicated module name in " + f1 + " and " + f2, 0,
-                        IMarker.SEVERITY_WARNING);
+                markers.add(new ProblemMarkerData(project, null,
+                        BuilderHelper.DUPLICATE_MODULE + f1 + " and " + f2, 0,
+                        IMarker.SEVERITY_WARNING, null));
             }
         } catch (final Exception e) {
             ErlLogger.debug(e);
@@ -214,7 +266,7 @@ public final class BuilderHelper {
     }
 
     private void createMarkersForCodeClashes(final IOtpRpc backend,
-            final IProject project) {
+            final IProject project, final List<ProblemMarkerData> markers) {
         try {
             final OtpErlangList res = BuilderHelper.getCodeClashes(backend);
             for (final OtpErlangObject elem : res) {
@@ -226,9 +278,9 @@ public final class BuilderHelper {
                 final IResource r1 = project.findMember(f1);
                 final IResource r2 = project.findMember(f2);
                 if (r1 != null || r2 != null) {
-                    MarkerUtils.createProblemMarker(project, null,
-                            "code clash between " + f1 + " and " + f2, 0,
-                            IMarker.SEVERITY_WARNING);
+                    markers.add(new ProblemMarkerData(project, null,
+                            BuilderHelper.CODE_CLASH + f1 + " and " + f2, 0,
+                            IMarker.SEVERITY_WARNING, null));
                 }
             }
 
@@ -275,6 +327,37 @@ public final class BuilderHelper {
         return shouldCompile;
     }
 
+    /**
+     * Like {@link #shouldCompile(IProject, IResource, IResource)}, but for modules the
+     * build state knows about, only a change of the inputs' hash or of the beam
+     * decides.
+     *
+     * @param inputs
+     *            the hash of the module's inputs, or null if there is no build state
+     */
+    public boolean shouldCompile(final IProject project, final IResource source,
+            final IResource beam, final String inputs) throws ErlModelException {
+        final BuildState state = BuildState.get(project);
+        if (state == null || inputs == null || beam == null
+                || beam.getLocation() == null) {
+            return shouldCompile(project, source, beam);
+        }
+        final String key = source.getProjectRelativePath().toPortableString();
+        final File beamFile = beam.getLocation().toFile();
+        if (state.isKnown(key)) {
+            final boolean upToDate = state.isUpToDate(key, inputs, beamFile);
+            if (upToDate && shouldCompile(project, source, beam)) {
+                state.avoided();
+            }
+            return !upToDate;
+        }
+        final boolean result = shouldCompile(project, source, beam);
+        if (!result) {
+            state.put(key, inputs, beamFile);
+        }
+        return result;
+    }
+
     private boolean shouldCompileModule(final IProject project, final IResource source,
             final IResource beam, final boolean shouldCompile0, final IErlProject eprj)
             throws ErlModelException {
@@ -301,7 +384,7 @@ public final class BuilderHelper {
         final IPath outputDir = erlProject.getProperties().getOutputDir();
         final IResource ebinDir = project.findMember(outputDir);
         if (ebinDir != null) {
-            ebinDir.refreshLocal(IResource.DEPTH_ONE, null);
+            refresh(ebinDir, IResource.DEPTH_ONE);
         }
     }
 
@@ -309,22 +392,44 @@ public final class BuilderHelper {
             final OtpErlangObject compilationResult, final IOtpRpc backend,
             final OtpErlangList compilerOptions) {
         if (compilationResult == null) {
-            MarkerUtils.createProblemMarker(source, null, "Could not compile file", 0,
-                    IMarker.SEVERITY_ERROR);
+            pendingInputs.remove(source);
+            pendingCache.remove(source);
+            if (changes != null) {
+                changes.compiled(source,
+                        Collections.singletonList(new ProblemMarkerData(source, null,
+                                "Could not compile file", 0, IMarker.SEVERITY_ERROR,
+                                null)));
+            } else {
+                MarkerUtils.createProblemMarker(source, null, "Could not compile file",
+                        0, IMarker.SEVERITY_ERROR);
+            }
             return;
         }
-        final OtpErlangTuple t = (OtpErlangTuple) compilationResult;
+        OtpErlangTuple t = (OtpErlangTuple) compilationResult;
+        long compileMillis = 0;
+        if (t.arity() == 2 && t.elementAt(0) instanceof OtpErlangLong) {
+            // the {Micros, Result} of timer:tc, see compileErl()
+            compileMillis = ((OtpErlangLong) t.elementAt(0)).longValue() / 1000;
+            t = (OtpErlangTuple) t.elementAt(1);
+        }
 
-        if ("ok".equals(((OtpErlangAtom) t.elementAt(0)).atomValue())) {
+        final boolean ok = "ok".equals(((OtpErlangAtom) t.elementAt(0)).atomValue());
+        if (ok) {
             final String beamf = source.getFullPath().removeFileExtension().lastSegment();
             BuilderHelper.loadModule(project, beamf);
             refreshDirs(project, t.elementAt(2));
         }
+        recordBuildState(project, source, ok);
+        addToCache(source, t, ok, compileMillis);
 
         // process compilation messages
         if (t.elementAt(1) instanceof OtpErlangList) {
             final OtpErlangList l = (OtpErlangList) t.elementAt(1);
-            MarkerUtils.addErrorMarkers(source, l);
+            if (changes != null) {
+                changes.compiled(source, MarkerUtils.getErrorMarkers(source, l));
+            } else {
+                MarkerUtils.addErrorMarkers(source, l);
+            }
         } else {
             ErlLogger.warn("bad result from builder: %s", t);
         }
@@ -332,6 +437,15 @@ public final class BuilderHelper {
         completeCompileForYrl(project, source, backend, compilerOptions);
     }
 
+    private void refresh(final IResource resource, final int depth)
+            throws CoreException {
+        if (changes != null) {
+            changes.refresh(resource, depth);
+        } else {
+            resource.refreshLocal(depth, null);
+        }
+    }
+
     private void refreshDirs(final IProject project, final OtpErlangObject element) {
         final OtpErlangList list = (OtpErlangList) element;
         final Map<IPath, String> paths = Maps.newHashMap();
@@ -365,13 +479,28 @@ public final class BuilderHelper {
             }
             if (dir != null) {
                 try {
-                    dir.refreshLocal(IResource.DEPTH_ONE, null);
+                    refresh(dir, IResource.DEPTH_ONE);
                 } catch (final CoreException e) {
                 }
             }
         }
     }
 
+    private void recordBuildState(final IProject project, final IResource source,
+            final boolean ok) {
+        final Entry<String, File> pending = pendingInputs.remove(source);
+        final BuildState state = BuildState.get(project);
+        if (state == null) {
+            return;
+        }
+        final String key = source.getProjectRelativePath().toPortableString();
+        if (ok && pending != null) {
+            state.put(key, pending.getKey(), pending.getValue());
+        } else {
+            state.remove(key);
+        }
+    }
+
     private void completeCompileForYrl(final IProject project, final IResource source,
             final IOtpRpc backend, final OtpErlangList compilerOptions) {
         final IPath erl = getErlForYrl(source);
@@ -405,7 +534,10 @@ public final class BuilderHelper {
             ErlLogger.warn("trying to compile " + res.getName() + "?!?!");
         }
 
-        MarkerUtils.deleteMarkers(res);
+        if (changes == null) {
+            // otherwise the markers are replaced when the compile is done
+            MarkerUtils.deleteMarkers(res);
+        }
 
         String outputDir;
         outputDir = getRealOutputDir(bres, outputDir0, projectPath);
@@ -417,9 +549,17 @@ public final class BuilderHelper {
         final IResource beam = project.findMember(beamPath);
 
         try {
-            final boolean shouldCompile = force || shouldCompile(project, res, beam);
+            final String inputs = getInputs(project, res, outputDir, compilerOptions);
+            final boolean shouldCompile = force
+                    || shouldCompile(project, res, beam, inputs);
 
             if (shouldCompile) {
+                final String beamName = res.getFullPath().removeFileExtension()
+                        .addFileExtension(BuilderHelper.BEAM).lastSegment();
+                final File beamFile = new File(outputDir, beamName);
+                if (inputs != null) {
+                    pendingInputs.put(res, Maps.immutableEntry(inputs, beamFile));
+                }
                 if (beam != null) {
                     try {
                         beam.delete(true, null);
@@ -432,6 +572,9 @@ public final class BuilderHelper {
                 }
 
                 createTaskMarkers(project, res);
+                if (fetchFromCache(project, res, beamFile, backend, compilerOptions)) {
+                    return null;
+                }
                 return BuilderHelper.compileErl(backend, res.getLocation(), outputDir,
                         includeDirs, compilerOptions);
 
@@ -443,6 +586,83 @@ public final class BuilderHelper {
         }
     }
 
+    /**
+     * Look the module up in the beam cache. On a hit the beam is written and the
+     * compile result is kept for {@link #takeCachedResult(IResource)}; on a miss the
+     * result of the compile will be added to the cache.
+     *
+     * @return true on a hit
+     */
+    private boolean fetchFromCache(final IProject project, final IResource res,
+            final File beamFile, final IOtpRpc backend,
+            final OtpErlangList compilerOptions) throws ErlModelException {
+        final BeamCache cache = BeamCache.getDefault();
+        if (cache == null || res.getLocation() == null) {
+            return false;
+        }
+        final String runtime = cache.getRuntime(backend);
+        if (runtime == null) {
+            return false;
+        }
+        final IErlProject eprj = ErlangEngine.getInstance().getModel()
+                .findProject(project);
+        final IErlModule module = eprj == null ? null : eprj.getModule(res.getName());
+        final String key = BeamCache.key(module, res.getLocation().toFile(),
+                String.valueOf(compilerOptions), runtime);
+        final BeamCache.Entry entry = cache.get(key);
+        if (entry != null) {
+            try {
+                Files.write(beamFile.toPath(), entry.getBeam());
+                final OtpErlangList beams = new OtpErlangList(
+                        new OtpErlangString(beamFile.getPath()));
+                cachedResults.put(res, OtpErlang.mkTuple(new OtpErlangAtom("ok"),
+                        entry.getMessages(), beams));
+                return true;
+            } catch (final IOException e) {
+                ErlLogger.warn(e);
+            }
+        }
+        pendingCache.put(res, new PendingCompile(key, beamFile));
+        return false;
+    }
+
+    /**
+     * @return the compile result of a module that was fetched from the beam cache, or
+     *         null
+     */
+    public OtpErlangObject takeCachedResult(final IResource res) {
+        return cachedResults.remove(res);
+    }
+
+    private void addToCache(final IResource source, final OtpErlangTuple result,
+            final boolean ok, final long compileMillis) {
+        final PendingCompile pending = pendingCache.remove(source);
+        final BeamCache cache = BeamCache.getDefault();
+        if (pending == null || cache == null || !ok) {
+            return;
+        }
+        try {
+            final byte[] beam = Files.readAllBytes(pending.beam.toPath());
+            cache.put(pending.key,
+                    new BeamCache.Entry(beam, result.elementAt(1), compileMillis));
+        } catch (final IOException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+    private String getInputs(final IProject project, final IResource res,
+            final String outputDir, final OtpErlangList compilerOptions)
+            throws ErlModelException {
+        if (BuildState.get(project) == null || res.getLocation() == null) {
+            return null;
+        }
+        final IErlProject eprj = ErlangEngine.getInstance().getModel()
+                .findProject(project);
+        final IErlModule module = eprj == null ? null : eprj.getModule(res.getName());
+        return BuildState.inputs(module, res.getLocation().toFile(),
+                String.valueOf(compilerOptions), outputDir);
+    }
+
     private String getRealOutputDir(final BuildResource bres, final String outputDir0,
             final IPath projectPath) {
         String outputDir;
@@ -524,6 +744,11 @@ public final class BuilderHelper {
             final OtpErlangList compilerOptions) {
         final RpcFuture res = startCompileErl(project, resource, outputDir, b,
                 compilerOptions, true);
+        final OtpErlangObject cached = takeCachedResult(resource.getResource());
+        if (cached != null) {
+            completeCompile(project, resource.getResource(), cached, b, compilerOptions);
+            return;
+        }
         if (res == null) {
             ErlLogger.warn("error compiling erl file: "
                     + resource.getResource().getProjectRelativePath());
@@ -554,6 +779,11 @@ public final class BuilderHelper {
         }
     }
 
+    /**
+     * Compile the file on the backend. The compile runs under <code>timer:tc</code>, so
+     * that the result also tells how long the compile itself took, without the time the
+     * request waited to be served or for its result to be picked up.
+     */
     public static RpcFuture compileErl(final IOtpRpc backend, final IPath fn,
             final String outputdir, final Collection<IPath> includedirs,
             final OtpErlangList compilerOptions) {
@@ -562,8 +792,12 @@ public final class BuilderHelper {
             incs.add(p.toString());
         }
         try {
-            return backend.async_call(BuilderHelper.ERLIDE_BUILDER, "compile", "sslsx",
-                    fn.toString(), outputdir, incs, compilerOptions);
+            final OtpErlangObject[] args = {
+                    TypeConverter.java2erlang(fn.toString(), "s"),
+                    TypeConverter.java2erlang(outputdir, "s"),
+                    TypeConverter.java2erlang(incs, "ls"), compilerOptions };
+            return backend.async_call("timer", "tc", "aax", BuilderHelper.ERLIDE_BUILDER,
+                    "compile", new OtpErlangList(args));
         } catch (final Exception e) {
             ErlLogger.debug(e);
             return null;
@@ -838,6 +1072,8 @@ public final class BuilderHelper {
                         ErlLogger.warn(e);
                     }
                 }
+                XrefService.getDefault().modulesRemoved(resource.getProject().getName(),
+                        Collections.singletonList(module.lastSegment()));
 
                 // was it derived from a yrl?
                 final IPath yrlpath = resource.getProjectRelativePath()
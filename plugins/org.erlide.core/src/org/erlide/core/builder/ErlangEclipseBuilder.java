@@ -1,21 +1,72 @@
 package org.erlide.core.builder;
 
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
 import java.util.Map;
+import java.util.Set;
 
+import org.eclipse.core.resources.IBuildConfiguration;
+import org.eclipse.core.resources.IBuildContext;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.IWorkspace;
 import org.eclipse.core.resources.IncrementalProjectBuilder;
+import org.eclipse.core.resources.ResourcesPlugin;
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.jobs.ISchedulingRule;
+import org.eclipse.core.runtime.jobs.Job;
+import org.erlide.core.ErlangCore;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.MarkerUtils;
+import org.erlide.engine.model.ErlModelException;
 import org.erlide.engine.model.builder.BuilderTool;
 import org.erlide.engine.model.root.IErlProject;
 import org.erlide.engine.model.root.ProjectConfigType;
 import org.erlide.util.ErlLogger;
 
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
 public class ErlangEclipseBuilder extends IncrementalProjectBuilder {
 
+    /**
+     * The number of projects a full build compiles at the same time; 1 builds them one
+     * after the other, each from its own builder invocation.
+     */
+    private static final int BUILD_THREADS = Integer.getInteger("erlide.build.threads",
+            Math.min(4, Runtime.getRuntime().availableProcessors()));
+
+    /**
+     * Projects already built by a parallel build in the current build cycle, with the
+     * configurations requested for that cycle.
+     */
+    private static final Map<IProject, List<IBuildConfiguration>> prebuilt = Maps
+            .newConcurrentMap();
+
+    private static volatile BuildReport<IProject> lastReport;
+
+    /**
+     * @return the per project timing and the critical path of the last parallel build,
+     *         or null
+     */
+    public static BuildReport<IProject> getLastBuildReport() {
+        return ErlangEclipseBuilder.lastReport;
+    }
+
+    @Override
+    public ISchedulingRule getRule(final int kind, final Map<String, String> args) {
+        if (kind == IncrementalProjectBuilder.FULL_BUILD
+                && ErlangEclipseBuilder.BUILD_THREADS > 1) {
+            // each project build locks its own project
+            return null;
+        }
+        return super.getRule(kind, args);
+    }
+
     @Override
     public IProject[] build(final int kind, final Map<String, String> args,
             final IProgressMonitor monitor) throws CoreException {
@@ -24,6 +75,79 @@ public class ErlangEclipseBuilder extends IncrementalProjectBuilder {
         if (project == null || !project.isAccessible()) {
             return null;
         }
+        if (kind == IncrementalProjectBuilder.FULL_BUILD
+                && ErlangEclipseBuilder.BUILD_THREADS > 1) {
+            final List<IBuildConfiguration> cycle = Arrays
+                    .asList(getContext().getRequestedConfigs());
+            if (cycle.equals(ErlangEclipseBuilder.prebuilt.remove(project))) {
+                return null;
+            }
+            // with a lock held, the project builds would wait for us forever
+            final ISchedulingRule held = Job.getJobManager().currentRule();
+            if (held == null) {
+                buildInParallel(project, cycle, new BuildNotifier(monitor, project));
+                return null;
+            }
+            // getRule() asked for no rule, so lock the project like the parallel
+            // builds do; a nested rule has to be contained in the one held
+            final ISchedulingRule rule = held.contains(project) ? project : held;
+            ResourcesPlugin.getWorkspace().run(
+                    m -> buildProject(project, getDelta(project), kind,
+                            new BuildNotifier(monitor, project)),
+                    rule, IWorkspace.AVOID_UPDATE, monitor);
+            return null;
+        }
+        buildProject(project, getDelta(project), kind, new BuildNotifier(monitor,
+                project));
+        return null;
+    }
+
+    private void buildInParallel(final IProject project,
+            final List<IBuildConfiguration> cycle, final BuildNotifier notifier) {
+        final Set<IProject> projects = Sets.newLinkedHashSet();
+        projects.add(project);
+        final IBuildContext context = getContext();
+        for (final IBuildConfiguration config : context.getRequestedConfigs()) {
+            projects.add(config.getProject());
+        }
+        for (final IBuildConfiguration config : context.getAllReferencingBuildConfigs()) {
+            projects.add(config.getProject());
+        }
+        for (final IProject p : Lists.newArrayList(projects)) {
+            if (!ErlangEclipseBuilder.isErlangProject(p)) {
+                projects.remove(p);
+            }
+        }
+        ErlangEclipseBuilder.prebuilt.clear();
+
+        final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        notifier.begin();
+        final BuildScheduler.Task<IProject> task = (p, n) -> workspace.run(
+                m -> buildProject(p, null, IncrementalProjectBuilder.FULL_BUILD, n), p,
+                IWorkspace.AVOID_UPDATE, n.monitor);
+        final BuildReport<IProject> report = new BuildScheduler<IProject>(
+                ErlangEclipseBuilder.BUILD_THREADS).run(projects,
+                        ErlangEclipseBuilder::getReferencedProjects, task, notifier);
+        notifier.done();
+        ErlangEclipseBuilder.lastReport = report;
+        ErlLogger.info(report.toString());
+
+        for (final IProject p : report.getTimes().keySet()) {
+            if (!p.equals(project)) {
+                ErlangEclipseBuilder.prebuilt.put(p, cycle);
+            }
+        }
+        if (report.isCanceled()) {
+            ErlangEclipseBuilder.prebuilt.clear();
+            notifier.checkCancel();
+        }
+    }
+
+    private void buildProject(final IProject project, final IResourceDelta delta,
+            final int kind, final BuildNotifier notifier) throws CoreException {
+        if (!project.isAccessible()) {
+            return;
+        }
         final IErlProject erlProject = ErlangEngine.getInstance().getModel()
                 .getErlangProject(project);
         final ProjectConfigType config = erlProject.getConfigType();
@@ -31,21 +155,42 @@ public class ErlangEclipseBuilder extends IncrementalProjectBuilder {
 
         if (!validateBuildConfiguration(erlProject)) {
             ErlLogger.warn("Builder tool and config mismatch: " + tool + " " + config);
-            monitor.setCanceled(true);
+            notifier.monitor.setCanceled(true);
         }
 
         final ErlangBuilder builder = ErlangBuilderFactory.get(tool);
         if (builder != null) {
-            final BuildNotifier notifier = new BuildNotifier(monitor, project);
-
             if (builder instanceof InternalBuilder) {
                 // temporary hack; rebar builder will not need this
-                ((InternalBuilder) builder).setDelta(getDelta(project));
+                ((InternalBuilder) builder).setDelta(delta);
             }
             builder.build(ErlangBuilder.BuildKind.get(kind), erlProject, notifier);
         }
+    }
 
-        return null;
+    private static boolean isErlangProject(final IProject project) {
+        try {
+            return project.isAccessible() && project.hasNature(ErlangCore.NATURE_ID);
+        } catch (final CoreException e) {
+            return false;
+        }
+    }
+
+    private static Collection<IProject> getReferencedProjects(final IProject project) {
+        final List<IProject> result = Lists.newArrayList();
+        final IErlProject erlProject = ErlangEngine.getInstance().getModel()
+                .getErlangProject(project);
+        if (erlProject == null) {
+            return result;
+        }
+        try {
+            for (final IErlProject ref : erlProject.getReferencedProjects()) {
+                result.add(ref.getWorkspaceProject());
+            }
+        } catch (final ErlModelException e) {
+            ErlLogger.warn(e);
+        }
+        return result;
     }
 
     private boolean validateBuildConfiguration(final IErlProject erlProject) {
@@ -1,25 +1,56 @@
 package org.erlide.core.builder;
 
 import java.util.Iterator;
+import java.util.List;
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
 import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
 import org.erlide.engine.MarkerUtils;
+import org.erlide.util.ErlLogger;
 
 import com.google.common.base.Splitter;
+import com.google.common.collect.Lists;
 
+/**
+ * Parses the problems reported by erlc. The output is parsed on the threads that read
+ * it, but markers are only created by {@link #flush()}, which the builder calls from
+ * its own thread, so that the threads reading the output never wait for the
+ * workspace.
+ */
 public class ErlcMessageParser implements IMessageParser {
 
     private final IProject project;
+    private final Queue<Problem> pending = new ConcurrentLinkedQueue<>();
+
+    private static final class Problem {
+        final IResource resource;
+        final String message;
+        final int line;
+        final int severity;
+
+        Problem(final IResource resource, final String message, final int line,
+                final int severity) {
+            this.resource = resource;
+            this.message = message;
+            this.line = line;
+            this.severity = severity;
+        }
+    }
 
     public ErlcMessageParser(final IProject project) {
         this.project = project;
     }
 
     /**
-     * Parses messages from erlc and creates the markers on the appropriate resource.
-     * Returns true if any marker was created.
+     * Parses messages from erlc and queues markers for the appropriate resource.
+     * Returns true if the message is a problem report. The markers are created by
+     * {@link #flush()}.
      *
      * Format is filename:line: message
      *
@@ -27,15 +58,18 @@ public class ErlcMessageParser implements IMessageParser {
     @Override
     public boolean createMarkers(final String msg) {
         boolean result = false;
-        final Iterable<String> pars = Splitter.on(':').limit(3).split(msg);
-        if ("ERROR".equals(pars.iterator().next())) {
-            MarkerUtils.createProblemMarker(project, null, pars.iterator().next(), -1,
-                    IMarker.SEVERITY_ERROR);
+        final Iterator<String> iterator = Splitter.on(':').limit(3).split(msg)
+                .iterator();
+        final String first = iterator.next();
+        if ("ERROR".equals(first)) {
+            final String message = msg.length() > first.length()
+                    ? msg.substring(first.length() + 1).trim()
+                    : first;
+            pending.add(new Problem(project, message, -1, IMarker.SEVERITY_ERROR));
             result = true;
         } else {
-            final Iterator<String> iterator = pars.iterator();
             try {
-                final String filename = iterator.next();
+                final String filename = first;
                 final int line = Integer.parseInt(iterator.next());
                 final String rawmessage = iterator.next().trim();
                 String message;
@@ -49,8 +83,7 @@ public class ErlcMessageParser implements IMessageParser {
                 }
                 final IResource resource = project.findMember(filename);
                 if (resource != null) {
-                    MarkerUtils.createProblemMarker(resource, null, message, line,
-                            severity);
+                    pending.add(new Problem(resource, message, line, severity));
                     result = true;
                 }
             } catch (final Exception e) {
@@ -58,4 +91,26 @@ public class ErlcMessageParser implements IMessageParser {
         }
         return result;
     }
+
+    @Override
+    public void flush() {
+        final List<Problem> problems = Lists.newArrayList();
+        Problem problem;
+        while ((problem = pending.poll()) != null) {
+            problems.add(problem);
+        }
+        if (problems.isEmpty()) {
+            return;
+        }
+        try {
+            ResourcesPlugin.getWorkspace().run(monitor -> {
+                for (final Problem p : problems) {
+                    MarkerUtils.createProblemMarker(p.resource, null, p.message, p.line,
+                            p.severity);
+                }
+            }, null, IWorkspace.AVOID_UPDATE, null);
+        } catch (final CoreException e) {
+            ErlLogger.warn(e);
+        }
+    }
 }
@@ -52,6 +52,7 @@ public abstract class ExternalBuilder extends ErlangBuilder {
                 project.getFolder("ebin").create(true, true, null);
             }
 
+            final IMessageParser parser = getMessageParser(erlProject);
             final ProgressCallback callback = new ProgressCallback() {
 
                 @Override
@@ -59,7 +60,6 @@ public abstract class ExternalBuilder extends ErlangBuilder {
                     if (ExternalBuilder.DEBUG) {
                         System.out.println("out: " + line);
                     }
-                    final IMessageParser parser = getMessageParser(erlProject);
                     parser.createMarkers(line);
                 }
 
@@ -69,10 +69,16 @@ public abstract class ExternalBuilder extends ErlangBuilder {
                         System.out.println("err: " + line);
                     }
                 }
+
+                @Override
+                public void poll() {
+                    parser.flush();
+                }
             };
             final ToolResults result = ex.run(osCommand,
                     new String[] { getCompileTarget() },
                     project.getLocation().toPortableString(), callback, notifier);
+            parser.flush();
 
             if (result == null || result.isCommandNotFound()) {
                 MarkerUtils.createProblemMarker(project, null,
@@ -110,20 +116,26 @@ public abstract class ExternalBuilder extends ErlangBuilder {
         if (getCleanTarget() == null) {
             return;
         }
+        final IMessageParser parser = getMessageParser(erlProject);
         final ProgressCallback callback = new ProgressCallback() {
 
             @Override
             public void stdout(final String line) {
-                final IMessageParser parser = getMessageParser(erlProject);
                 parser.createMarkers(line);
             }
 
             @Override
             public void stderr(final String line) {
             }
+
+            @Override
+            public void poll() {
+                parser.flush();
+            }
         };
         ex.run(getOsCommand(erlProject), new String[] { getCleanTarget() },
                 project.getLocation().toPortableString(), callback, notifier);
+        parser.flush();
         notifier.worked(9);
     }
 
@@ -4,4 +4,10 @@ public interface IMessageParser {
 
     boolean createMarkers(String msg);
 
+    /**
+     * Create the markers that are still queued. Called from the builder's thread.
+     */
+    default void flush() {
+    }
+
 }
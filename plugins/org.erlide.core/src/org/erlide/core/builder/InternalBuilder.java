@@ -8,8 +8,6 @@
  *******************************************************************************/
 package org.erlide.core.builder;
 
-import static com.google.common.collect.Lists.newArrayList;
-
 import java.util.Collection;
 import java.util.Date;
 import java.util.HashMap;
@@ -19,6 +17,7 @@ import java.util.Map.Entry;
 import java.util.Set;
 import java.util.concurrent.TimeUnit;
 
+import org.eclipse.core.resources.IFile;
 import org.eclipse.core.resources.IFolder;
 import org.eclipse.core.resources.IMarker;
 import org.eclipse.core.resources.IProject;
@@ -38,16 +37,14 @@ import org.erlide.core.builder.BuilderHelper.SearchVisitor;
 import org.erlide.dialyzer.internal.builder.DialyzerBuilder;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.MarkerUtils;
-import org.erlide.engine.model.ErlModelException;
 import org.erlide.engine.model.builder.BuilderProperties;
-import org.erlide.engine.model.erlang.SourceKind;
 import org.erlide.engine.model.root.ErlangProjectProperties;
 import org.erlide.engine.model.root.IErlModel;
 import org.erlide.engine.model.root.IErlModule;
 import org.erlide.engine.model.root.IErlProject;
+import org.erlide.engine.services.search.XrefService;
 import org.erlide.runtime.rpc.RpcFuture;
 import org.erlide.util.ErlLogger;
-import org.erlide.util.SystemConfiguration;
 
 import com.ericsson.otp.erlang.OtpErlangList;
 import com.ericsson.otp.erlang.OtpErlangObject;
@@ -77,6 +74,8 @@ public class InternalBuilder extends ErlangBuilder {
         if (BuilderHelper.isDebugging()) {
             ErlLogger.trace("build", "Start " + project.getName() + ": " + kind);
         }
+        final BuildChanges changes = new BuildChanges(project);
+        helper.setChanges(changes);
         try {
             initializeBuilder(notifier);
 
@@ -85,30 +84,22 @@ public class InternalBuilder extends ErlangBuilder {
             final IPath out = properties.getOutputDir();
             final IResource outr = project.findMember(out);
             if (outr != null) {
-                try {
-                    outr.setDerived(true, null);
-                    outr.refreshLocal(IResource.DEPTH_ZERO, null);
-                } catch (final CoreException e) {
-                    // ignore it
-                }
-            }
-            if (delta != null && delta.getAffectedChildren().length != 0) {
-                handleAppFile(project,
-                        project.getLocation().toPortableString() + "/" + out,
-                        properties.getSourceDirs());
+                changes.setDerived(outr);
+                changes.refresh(outr, IResource.DEPTH_ZERO);
             }
-            handleErlangFiles(erlProject, project, kind, delta, notifier);
+            handleErlangFiles(erlProject, project, kind, delta, notifier, changes);
             dialyzerBuilder.build(notifier);
+            if (delta == null) {
+                PostBuildJob.schedule(project, true, true);
+            } else if (delta.getAffectedChildren().length != 0) {
+                PostBuildJob.schedule(project, appSrcChanged(delta), false);
+            }
 
             if (project.findMember("rebar.config") != null) {
                 final IResource buildr = project.findMember("_build");
                 if (buildr != null) {
-                    try {
-                        buildr.setDerived(true, null);
-                        buildr.refreshLocal(IResource.DEPTH_ZERO, null);
-                    } catch (final CoreException e) {
-                        // ignore it
-                    }
+                    changes.setDerived(buildr);
+                    changes.refresh(buildr, IResource.DEPTH_ZERO);
                 }
             }
         } catch (final OperationCanceledException e) {
@@ -122,6 +113,8 @@ public class InternalBuilder extends ErlangBuilder {
             MarkerUtils.createProblemMarker(project, null, msg, 0,
                     IMarker.SEVERITY_ERROR);
         } finally {
+            changes.commit();
+            helper.setChanges(null);
             cleanup(notifier);
             if (BuilderHelper.isDebugging()) {
                 ErlLogger.trace("build", " Done " + project.getName() + " took "
@@ -147,6 +140,12 @@ public class InternalBuilder extends ErlangBuilder {
         try {
             initializeBuilder(notifier);
             MarkerUtils.removeProblemMarkersFor(currentProject);
+            PostBuildJob.reset(currentProject);
+            final BuildState state = BuildState.get(currentProject);
+            if (state != null) {
+                state.clear();
+                state.save();
+            }
             final IFolder bf = currentProject
                     .getFolder(erlProject.getProperties().getOutputDir());
             if (bf.exists()) {
@@ -169,6 +168,18 @@ public class InternalBuilder extends ErlangBuilder {
         }
     }
 
+    private static boolean appSrcChanged(final IResourceDelta delta)
+            throws CoreException {
+        final boolean[] result = new boolean[1];
+        delta.accept(d -> {
+            if (d.getResource().getName().endsWith(".app.src")) {
+                result[0] = true;
+            }
+            return !result[0];
+        });
+        return result[0];
+    }
+
     private void cleanupOutput(final IFolder folder, final BuildNotifier notifier)
             throws CoreException {
         final IResource[] beams = folder.members();
@@ -195,8 +206,8 @@ public class InternalBuilder extends ErlangBuilder {
 
     private void handleErlangFiles(final IErlProject erlProject,
             @NonNull final IProject project, final BuildKind kind,
-            final IResourceDelta resourceDelta, final BuildNotifier notifier)
-            throws CoreException, BackendException {
+            final IResourceDelta resourceDelta, final BuildNotifier notifier,
+            final BuildChanges changes) throws CoreException, BackendException {
         final OtpErlangList compilerOptions = CompilerOptions.get(project);
 
         final Set<BuildResource> resourcesToBuild = getResourcesToBuild(kind, project,
@@ -224,19 +235,59 @@ public class InternalBuilder extends ErlangBuilder {
         backend.addProjectPath(model.findProject(project));
 
         notifier.setProgressPerCompilationUnit(1.0f / n);
+        final Collection<IResource> compiled = compile(erlProject, project, kind,
+                notifier, compilerOptions, resourcesToBuild, backend, changes);
+        helper.refreshOutputDir(project);
+        changes.commit();
+        updateXref(compiled);
+
+        final BuildState state = BuildState.get(project);
+        if (state != null) {
+            state.save();
+            final int avoided = state.takeAvoided();
+            if (avoided > 0) {
+                ErlLogger.info("%s: %d compile(s) avoided, their inputs are unchanged",
+                        project.getName(), avoided);
+            }
+        }
+        final BeamCache cache = BeamCache.getDefault();
+        if (cache != null) {
+            ErlLogger.info("%s: %s", project.getName(), cache.takeStats());
+        }
+
+        backend.removeProjectPath(model.findProject(project));
+
+    }
+
+    /**
+     * @return the Erlang modules whose beam changed
+     */
+    private Collection<IResource> compile(final IErlProject erlProject,
+            final IProject project,
+            final BuildKind kind, final BuildNotifier notifier,
+            final OtpErlangList compilerOptions,
+            final Set<BuildResource> resourcesToBuild, final IBackend backend,
+            final BuildChanges changes) {
         final Map<RpcFuture, IResource> results = new HashMap<>();
+        final List<IResource> compiled = Lists.newArrayList();
         for (final BuildResource bres : resourcesToBuild) {
             notifier.checkCancel();
             final IResource resource = bres.getResource();
-            MarkerUtils.deleteMarkers(resource);
             notifier.aboutToCompile(resource);
             if ("erl".equals(resource.getFileExtension())) {
                 final String outputDir = erlProject.getProperties().getOutputDir()
                         .toString();
                 final RpcFuture f = helper.startCompileErl(project, bres, outputDir,
                         backend.getOtpRpc(), compilerOptions, kind == BuildKind.FULL);
+                final OtpErlangObject cached = helper.takeCachedResult(resource);
                 if (f != null) {
                     results.put(f, resource);
+                    compiled.add(resource);
+                } else if (cached != null) {
+                    helper.completeCompile(project, resource, cached,
+                            backend.getOtpRpc(), compilerOptions);
+                    notifier.compiled(resource);
+                    compiled.add(resource);
                 }
             } else if ("yrl".equals(resource.getFileExtension())) {
                 final RpcFuture f = helper.startCompileYrl(project, resource,
@@ -268,6 +319,7 @@ public class InternalBuilder extends ErlangBuilder {
                     helper.completeCompile(project, resource, r, backend.getOtpRpc(),
                             compilerOptions);
                     notifier.compiled(resource);
+                    changes.commitIfFull();
 
                     done.add(result);
                 }
@@ -275,105 +327,21 @@ public class InternalBuilder extends ErlangBuilder {
             waiting.removeAll(done);
             done.clear();
         }
-        helper.refreshOutputDir(project);
-
-        try {
-            helper.checkForClashes(backend.getOtpRpc(), project);
-        } catch (final Exception e) {
-        }
-        backend.removeProjectPath(model.findProject(project));
-
-    }
-
-    private void handleAppFile(final IProject project, final String outPath,
-            final Collection<IPath> sources) {
-        if (SystemConfiguration.hasFeatureEnabled("erlide.no_app_src")) {
-            return;
-        }
-        // if project doesn't look like an OTP app, skip this step
-        if (!sources.contains(new Path("src"))) {
-            return;
-        }
-
-        // ignore other dirs than 'src'
-        final IPath src = new Path("src");
-        final IFolder dir = (IFolder) project.findMember(src);
-        if (dir != null) {
-            try {
-                for (final IResource file : dir.members()) {
-                    final String name = file.getName();
-                    if (name.endsWith(".app.src")) {
-                        final String appSrc = file.getLocation().toPortableString();
-                        final String destPath = outPath + "/"
-                                + name.substring(0, name.lastIndexOf('.'));
-                        final Collection<String> modules = gatherModules(project);
-                        fillAppFileDetails(project, appSrc, destPath, modules);
-                    }
-                }
-            } catch (final CoreException e) {
-                ErlLogger.error(e);
-            }
-        }
+        return compiled;
     }
 
-    private Collection<String> gatherModules(final IProject project) {
-        final Collection<String> modules = newArrayList();
-        try {
-            final IErlProject erlangProject = ErlangEngine.getInstance().getModel()
-                    .getErlangProject(project);
-            for (final IErlModule m : erlangProject.getModules()) {
-                // ignore rebar deps;
-                if (!ignoreModule(erlangProject, m)) {
-                    modules.add(m.getModuleName());
+    private static void updateXref(final Collection<IResource> sources) {
+        final IErlModel model = ErlangEngine.getInstance().getModel();
+        final List<IErlModule> modules = Lists.newArrayList();
+        for (final IResource source : sources) {
+            if (source instanceof IFile) {
+                final IErlModule module = model.findModule((IFile) source);
+                if (module != null) {
+                    modules.add(module);
                 }
             }
-        } catch (final ErlModelException e1) {
-            ErlLogger.error(e1);
-        }
-        return modules;
-    }
-
-    private boolean ignoreModule(final IErlProject erlangProject, final IErlModule m) {
-        boolean result = false;
-        result |= m.getSourceKind() != SourceKind.ERL;
-        result |= !isModuleOnDirectSourcePath(erlangProject, m);
-        result |= "deps".equals(m.getResource().getProjectRelativePath().segment(0));
-        if (result) {
-            ErlLogger.debug(".app: ignore " + m.getResource().getProjectRelativePath());
-        }
-        return result;
-    }
-
-    private boolean isModuleOnDirectSourcePath(final IErlProject erlangProject,
-            final IErlModule m) {
-        boolean result = false;
-        final List<IPath> sourceDirs = Lists
-                .newArrayList(erlangProject.getProperties().getSourceDirs());
-
-        for (final IPath p : sourceDirs) {
-            if (m.getResource().getParent().getProjectRelativePath().equals(p)) {
-                result = true;
-                break;
-            }
-        }
-        return result;
-    }
-
-    private void fillAppFileDetails(final IProject project, final String appSrc,
-            final String destPath, final Collection<String> modules) {
-        try {
-            final IErlProject eproject = ErlangEngine.getInstance().getModel()
-                    .findProject(project);
-            if (eproject == null) {
-                return;
-            }
-            final IBackend backend = BackendCore.getBackendManager()
-                    .getBuildBackend(eproject);
-            backend.getOtpRpc().call("erlide_builder", "compile_app_src", "ssla", appSrc,
-                    destPath, modules);
-        } catch (final Exception e) {
-            ErlLogger.error(e);
         }
+        XrefService.getDefault().modulesChanged(modules);
     }
 
     private void initializeBuilder(final BuildNotifier notifier) {
@@ -0,0 +1,345 @@
+package org.erlide.core.builder;
+
+import static com.google.common.collect.Lists.newArrayList;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Function;
+
+import org.eclipse.core.resources.IFolder;
+import org.eclipse.core.resources.IMarker;
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IWorkspace;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IPath;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Path;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.erlide.backend.BackendCore;
+import org.erlide.backend.api.IBackend;
+import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.MarkerUtils;
+import org.erlide.engine.MarkerUtils.ProblemMarkerData;
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.erlang.SourceKind;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.engine.model.root.IErlProject;
+import org.erlide.util.ErlLogger;
+import org.erlide.util.SystemConfiguration;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * The analyses that follow the compile of a project but that nothing in the build
+ * waits for: generating the .app files from the .app.src ones and looking for module
+ * name and code path clashes. They run in the background once the build is done, and
+ * only when something they depend on changed: the .app.src files or the set of
+ * modules of the project. A full build always runs them.
+ */
+public class PostBuildJob extends Job {
+
+    private static final Map<IProject, PostBuildJob> pending = Maps.newHashMap();
+    private static final Map<IProject, Set<String>> appModules = Maps
+            .newConcurrentMap();
+    private static final Map<IProject, Set<String>> clashModules = Maps
+            .newConcurrentMap();
+    private static boolean listening;
+
+    private final IProject project;
+    private boolean appSrcChanged;
+    private boolean force;
+
+    private PostBuildJob(final IProject project) {
+        super("Checking " + project.getName());
+        this.project = project;
+        setSystem(true);
+        setPriority(Job.DECORATE);
+        setRule(project);
+    }
+
+    /**
+     * Run the analyses of the project after the current build. Requests made before
+     * a pending job starts are merged into it.
+     *
+     * @param appSrcChanged
+     *            whether an .app.src file changed
+     * @param force
+     *            run everything, whatever changed
+     */
+    public static void schedule(final IProject project, final boolean appSrcChanged,
+            final boolean force) {
+        synchronized (PostBuildJob.pending) {
+            if (!PostBuildJob.listening) {
+                // forget the projects that go away
+                ResourcesPlugin.getWorkspace().addResourceChangeListener(
+                        PostBuildJob::projectRemoved, IResourceChangeEvent.PRE_CLOSE
+                                | IResourceChangeEvent.PRE_DELETE);
+                PostBuildJob.listening = true;
+            }
+            PostBuildJob job = PostBuildJob.pending.get(project);
+            if (job == null) {
+                job = new PostBuildJob(project);
+                PostBuildJob.pending.put(project, job);
+            }
+            job.appSrcChanged |= appSrcChanged;
+            job.force |= force;
+            job.schedule(100);
+        }
+    }
+
+    /**
+     * Forget what was analyzed, so that the next build runs everything.
+     */
+    public static void reset(final IProject project) {
+        PostBuildJob.appModules.remove(project);
+        PostBuildJob.clashModules.remove(project);
+    }
+
+    private static void projectRemoved(final IResourceChangeEvent event) {
+        if (event.getResource() instanceof IProject) {
+            PostBuildJob.reset((IProject) event.getResource());
+        }
+    }
+
+    /**
+     * @param modules
+     *            the modules the analysis would look at now
+     * @param analyzed
+     *            the modules it looked at last time, or null if it didn't run yet
+     * @param force
+     *            whether it has to run anyway
+     * @return whether the analysis has to run
+     */
+    public static boolean isStale(final Set<String> modules, final Set<String> analyzed,
+            final boolean force) {
+        return force || !modules.equals(analyzed);
+    }
+
+    /**
+     * Compare the clash markers found now with the existing markers of the project.
+     * Other markers of the project are ignored.
+     *
+     * @param message
+     *            the message of an existing marker
+     * @param key
+     *            the {@link ProblemMarkerData#getKey()} of an existing marker
+     * @param obsolete
+     *            receives the existing clash markers that are no longer wanted
+     * @return the wanted markers that don't exist yet
+     */
+    public static <M> List<ProblemMarkerData> diffClashMarkers(
+            final Collection<M> existing, final Function<M, String> message,
+            final Function<M, String> key, final Collection<ProblemMarkerData> wanted,
+            final List<M> obsolete) {
+        final List<M> clashes = Lists.newArrayList();
+        for (final M marker : existing) {
+            if (BuilderHelper.isClashMessage(message.apply(marker))) {
+                clashes.add(marker);
+            }
+        }
+        return BuildChanges.diff(clashes, wanted, key, obsolete);
+    }
+
+    @Override
+    protected IStatus run(final IProgressMonitor monitor) {
+        final boolean runAll;
+        final boolean appSrc;
+        synchronized (PostBuildJob.pending) {
+            PostBuildJob.pending.remove(project);
+            runAll = force;
+            appSrc = appSrcChanged;
+        }
+        if (!project.isAccessible()) {
+            return Status.OK_STATUS;
+        }
+        final IErlProject erlProject = ErlangEngine.getInstance().getModel()
+                .findProject(project);
+        if (erlProject == null) {
+            return Status.OK_STATUS;
+        }
+        final IBackend backend = BackendCore.getBackendManager()
+                .getBuildBackend(erlProject);
+        if (backend == null) {
+            return Status.OK_STATUS;
+        }
+
+        final Set<String> appSet = Sets.newHashSet(gatherModules(erlProject));
+        if (PostBuildJob.isStale(appSet, PostBuildJob.appModules.get(project),
+                runAll || appSrc)) {
+            handleAppFile(erlProject, backend, appSet, !runAll && !appSrc, monitor);
+            PostBuildJob.appModules.put(project, appSet);
+        }
+        if (monitor.isCanceled()) {
+            return Status.CANCEL_STATUS;
+        }
+
+        final Set<String> clashSet = Sets.newHashSet(allModules(erlProject));
+        if (PostBuildJob.isStale(clashSet, PostBuildJob.clashModules.get(project),
+                runAll)) {
+            final List<ProblemMarkerData> clashes;
+            backend.addProjectPath(erlProject);
+            try {
+                clashes = new BuilderHelper().findClashes(backend.getOtpRpc(), project);
+            } finally {
+                backend.removeProjectPath(erlProject);
+            }
+            updateClashMarkers(clashes);
+            PostBuildJob.clashModules.put(project, clashSet);
+        }
+        return Status.OK_STATUS;
+    }
+
+    /**
+     * Replace the clash markers of the project with the ones found now. Markers that
+     * are still valid are kept, so that only the changes show up in the workspace.
+     */
+    private void updateClashMarkers(final List<ProblemMarkerData> wanted) {
+        final IWorkspace workspace = ResourcesPlugin.getWorkspace();
+        try {
+            workspace.run(monitor -> {
+                if (!project.isAccessible()) {
+                    return;
+                }
+                final List<IMarker> obsolete = Lists.newArrayList();
+                for (final ProblemMarkerData data : PostBuildJob.diffClashMarkers(
+                        Arrays.asList(project.findMarkers(MarkerUtils.PROBLEM_MARKER,
+                                true, IResource.DEPTH_ZERO)),
+                        m -> m.getAttribute(IMarker.MESSAGE, ""), MarkerUtils::markerKey,
+                        wanted, obsolete)) {
+                    data.create();
+                }
+                if (!obsolete.isEmpty()) {
+                    workspace.deleteMarkers(
+                            obsolete.toArray(new IMarker[obsolete.size()]));
+                }
+            }, project, IWorkspace.AVOID_UPDATE, null);
+        } catch (final CoreException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+    /**
+     * @param onlyMissing
+     *            only write .app files that don't exist
+     */
+    private void handleAppFile(final IErlProject erlProject, final IBackend backend,
+            final Collection<String> modules, final boolean onlyMissing,
+            final IProgressMonitor monitor) {
+        if (SystemConfiguration.hasFeatureEnabled("erlide.no_app_src")) {
+            return;
+        }
+        // if project doesn't look like an OTP app, skip this step
+        final Collection<IPath> sources = erlProject.getProperties().getSourceDirs();
+        if (!sources.contains(new Path("src"))) {
+            return;
+        }
+        final IPath outputDir = erlProject.getProperties().getOutputDir();
+        final String outPath = project.getLocation().toPortableString() + "/"
+                + outputDir;
+
+        // ignore other dirs than 'src'
+        final IPath src = new Path("src");
+        final IFolder dir = (IFolder) project.findMember(src);
+        if (dir != null) {
+            try {
+                boolean written = false;
+                for (final IResource file : dir.members()) {
+                    final String name = file.getName();
+                    if (name.endsWith(".app.src")) {
+                        final String appSrc = file.getLocation().toPortableString();
+                        final String destPath = outPath + "/"
+                                + name.substring(0, name.lastIndexOf('.'));
+                        if (!onlyMissing || !new File(destPath).exists()) {
+                            fillAppFileDetails(backend, appSrc, destPath, modules);
+                            written = true;
+                        }
+                    }
+                }
+                // the build refreshed the output folder before the files were written
+                final IResource ebin = project.findMember(outputDir);
+                if (written && ebin != null) {
+                    ebin.refreshLocal(IResource.DEPTH_ONE, monitor);
+                }
+            } catch (final CoreException e) {
+                ErlLogger.error(e);
+            }
+        }
+    }
+
+    private Collection<String> allModules(final IErlProject erlangProject) {
+        final Collection<String> modules = newArrayList();
+        try {
+            for (final IErlModule m : erlangProject.getModules()) {
+                if (m.getSourceKind() == SourceKind.ERL) {
+                    modules.add(m.getResource().getProjectRelativePath().toString());
+                }
+            }
+        } catch (final ErlModelException e) {
+            ErlLogger.error(e);
+        }
+        return modules;
+    }
+
+    private Collection<String> gatherModules(final IErlProject erlangProject) {
+        final Collection<String> modules = newArrayList();
+        try {
+            for (final IErlModule m : erlangProject.getModules()) {
+                // ignore rebar deps;
+                if (!ignoreModule(erlangProject, m)) {
+                    modules.add(m.getModuleName());
+                }
+            }
+        } catch (final ErlModelException e1) {
+            ErlLogger.error(e1);
+        }
+        return modules;
+    }
+
+    private boolean ignoreModule(final IErlProject erlangProject, final IErlModule m) {
+        boolean result = false;
+        result |= m.getSourceKind() != SourceKind.ERL;
+        result |= !isModuleOnDirectSourcePath(erlangProject, m);
+        result |= "deps".equals(m.getResource().getProjectRelativePath().segment(0));
+        if (result) {
+            ErlLogger.debug(".app: ignore " + m.getResource().getProjectRelativePath());
+        }
+        return result;
+    }
+
+    private boolean isModuleOnDirectSourcePath(final IErlProject erlangProject,
+            final IErlModule m) {
+        boolean result = false;
+        final List<IPath> sourceDirs = Lists
+                .newArrayList(erlangProject.getProperties().getSourceDirs());
+
+        for (final IPath p : sourceDirs) {
+            if (m.getResource().getParent().getProjectRelativePath().equals(p)) {
+                result = true;
+                break;
+            }
+        }
+        return result;
+    }
+
+    private void fillAppFileDetails(final IBackend backend, final String appSrc,
+            final String destPath, final Collection<String> modules) {
+        try {
+            backend.getOtpRpc().call("erlide_builder", "compile_app_src", "ssla", appSrc,
+                    destPath, modules);
+        } catch (final Exception e) {
+            ErlLogger.error(e);
+        }
+    }
+
+}
@@ -6,4 +6,10 @@ public interface ProgressCallback {
 
     void stderr(String line);
 
+    /**
+     * Called now and then while the tool runs, on the thread that started it.
+     */
+    default void poll() {
+    }
+
 }
@@ -2,11 +2,15 @@ package org.erlide.core.builder.executor;
 
 import java.io.BufferedReader;
 import java.io.File;
+import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
 
 import org.eclipse.core.externaltools.internal.IExternalToolConstants;
 import org.eclipse.core.runtime.CoreException;
@@ -22,11 +26,22 @@ import org.erlide.core.builder.BuildNotifier;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.SystemConfiguration;
 
+import com.google.common.base.Splitter;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
 @SuppressWarnings("restriction")
 public class ToolExecutor {
 
+    private static final long POLL_INTERVAL = 100;
+    private static final long DRAIN_TIMEOUT = 2000;
+
+    private static final Map<String, ToolLocation> locations = Maps.newConcurrentMap();
+
     public static class ToolResults {
         public int exit;
+        public boolean canceled;
 
         public ToolResults() {
             exit = -1;
@@ -42,7 +57,7 @@ public class ToolExecutor {
 
         @Override
         public String toString() {
-            return "{{{ exit=" + exit + " }}}";
+            return "{{{ exit=" + exit + (canceled ? " canceled" : "") + " }}}";
         }
     }
 
@@ -127,7 +142,84 @@ public class ToolExecutor {
         }
     }
 
+    /**
+     * Find a tool in the directories of $PATH. Results, including misses, are cached
+     * until $PATH or the modification time of one of its directories changes.
+     */
     public static String getToolLocation(final String cmd) {
+        final String searchPath = Strings.nullToEmpty(System.getenv("PATH"));
+        final List<File> dirs = ToolExecutor.pathDirectories(searchPath);
+        final long[] stamps = new long[dirs.size()];
+        for (int i = 0; i < stamps.length; i++) {
+            stamps[i] = dirs.get(i).lastModified();
+        }
+        final ToolLocation cached = ToolExecutor.locations.get(cmd);
+        if (cached != null && cached.isValid(searchPath, stamps)) {
+            return cached.path;
+        }
+        String result = ToolExecutor.findInPath(cmd, dirs,
+                SystemConfiguration.getInstance().isOnWindows());
+        if (result == null) {
+            result = ToolExecutor.getToolLocationFromShell(cmd);
+        }
+        ToolExecutor.locations.put(cmd, new ToolLocation(result, searchPath, stamps));
+        return result;
+    }
+
+    private static final class ToolLocation {
+        final String path;
+        final String searchPath;
+        final long[] stamps;
+
+        ToolLocation(final String path, final String searchPath, final long[] stamps) {
+            this.path = path;
+            this.searchPath = searchPath;
+            this.stamps = stamps;
+        }
+
+        boolean isValid(final String currentSearchPath, final long[] currentStamps) {
+            return searchPath.equals(currentSearchPath)
+                    && Arrays.equals(stamps, currentStamps)
+                    && (path == null || new File(path).isFile());
+        }
+    }
+
+    private static List<File> pathDirectories(final String searchPath) {
+        final List<File> result = Lists.newArrayList();
+        for (final String dir : Splitter.on(File.pathSeparatorChar).omitEmptyStrings()
+                .split(searchPath)) {
+            result.add(new File(dir));
+        }
+        return result;
+    }
+
+    public static String findInPath(final String cmd, final List<File> dirs,
+            final boolean onWindows) {
+        if (cmd.indexOf('/') >= 0 || cmd.indexOf('\\') >= 0) {
+            return null;
+        }
+        final List<String> names = Lists.newArrayList();
+        if (onWindows) {
+            final String pathExt = System.getenv("PATHEXT");
+            for (final String ext : Splitter.on(';').omitEmptyStrings()
+                    .split(pathExt == null ? ".COM;.EXE;.BAT;.CMD" : pathExt)) {
+                names.add(cmd + ext.toLowerCase(Locale.ROOT));
+            }
+        }
+        names.add(cmd);
+        for (final File dir : dirs) {
+            for (final String name : names) {
+                final File file = new File(dir, name);
+                if (file.isFile() && file.canExecute()) {
+                    return onWindows ? file.getPath().replace('\\', '/')
+                            : file.getPath();
+                }
+            }
+        }
+        return null;
+    }
+
+    private static String getToolLocationFromShell(final String cmd) {
         // hack because sometimes first call returns an empty value
         String result = null;
         final int MAX_TRIES = 5;
@@ -185,6 +277,13 @@ public class ToolExecutor {
         }
     }
 
+    /**
+     * Run a tool, passing each line it writes to the callback as soon as it is read.
+     * Both output streams are read concurrently, so a tool can't get stuck writing to
+     * a full pipe. Callbacks are never called concurrently, and
+     * {@link ProgressCallback#poll()} is called from the calling thread while the tool
+     * runs. If the build is canceled, the tool is terminated.
+     */
     public ToolResults run(final String cmd0, final String[] args, final String wdir,
             final ProgressCallback cb, final BuildNotifier bn) {
         final ToolResults result = new ToolResults();
@@ -206,29 +305,31 @@ public class ToolExecutor {
         }
         try {
             final Process process = builder.start();
-            final InputStream is = process.getInputStream();
-            final InputStreamReader isr = new InputStreamReader(is);
-            try (final BufferedReader br = new BufferedReader(isr)) {
-                String line;
-                while ((line = br.readLine()) != null) {
-                    if (cb != null) {
-                        cb.stdout(line);
-                    }
+            process.getOutputStream().close();
+            final Object lock = new Object();
+            final Thread out = ToolExecutor.drain(process.getInputStream(), cb, lock,
+                    false);
+            final Thread err = ToolExecutor.drain(process.getErrorStream(), cb, lock,
+                    true);
+            while (!process.waitFor(ToolExecutor.POLL_INTERVAL, TimeUnit.MILLISECONDS)) {
+                if (cb != null) {
+                    cb.poll();
                 }
-            }
-
-            final InputStream es = process.getErrorStream();
-            final InputStreamReader esr = new InputStreamReader(es);
-            try (final BufferedReader ebr = new BufferedReader(esr)) {
-                String line;
-                while ((line = ebr.readLine()) != null) {
-                    if (cb != null) {
-                        cb.stderr(line);
+                if (bn != null && bn.isCanceled()) {
+                    result.canceled = true;
+                    process.destroy();
+                    if (!process.waitFor(1, TimeUnit.SECONDS)) {
+                        process.destroyForcibly();
                     }
+                    break;
                 }
             }
-
+            // children of the tool may keep the pipes open
+            out.join(ToolExecutor.DRAIN_TIMEOUT);
+            err.join(ToolExecutor.DRAIN_TIMEOUT);
             result.exit = process.waitFor();
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
         } catch (final Exception e) {
             ErlLogger.error("Could not execute: %s", cmd);
             ErlLogger.error(e);
@@ -236,4 +337,31 @@ public class ToolExecutor {
         return result;
     }
 
+    private static Thread drain(final InputStream stream, final ProgressCallback cb,
+            final Object lock, final boolean isStderr) {
+        final Thread thread = new Thread(() -> {
+            try (final BufferedReader reader = new BufferedReader(
+                    new InputStreamReader(stream))) {
+                String line;
+                while ((line = reader.readLine()) != null) {
+                    if (cb == null) {
+                        continue;
+                    }
+                    synchronized (lock) {
+                        if (isStderr) {
+                            cb.stderr(line);
+                        } else {
+                            cb.stdout(line);
+                        }
+                    }
+                }
+            } catch (final IOException e) {
+                // the process is gone
+            }
+        }, isStderr ? "erlide tool stderr" : "erlide tool stdout");
+        thread.setDaemon(true);
+        thread.start();
+        return thread;
+    }
+
 }
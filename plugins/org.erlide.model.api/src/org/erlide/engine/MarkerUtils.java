@@ -60,6 +60,84 @@ public final class MarkerUtils {
                 IMarker.SEVERITY_INFO, MarkerUtils.TASK_MARKER);
     }
 
+    /**
+     * A problem marker that is to be created.
+     */
+    public static final class ProblemMarkerData {
+        private final IResource resource;
+        private final String path;
+        private final String message;
+        private final int line;
+        private final int severity;
+        private final String sourceId;
+
+        public ProblemMarkerData(final IResource resource, final String path,
+                final String message, final int line, final int severity,
+                final String sourceId) {
+            this.resource = resource;
+            this.path = path;
+            this.message = message;
+            this.line = line >= 0 ? line : 1;
+            this.severity = severity;
+            this.sourceId = sourceId;
+        }
+
+        public IResource getResource() {
+            return resource;
+        }
+
+        public String getMessage() {
+            return message;
+        }
+
+        public int getLine() {
+            return line;
+        }
+
+        public int getSeverity() {
+            return severity;
+        }
+
+        public String getSourceId() {
+            return sourceId;
+        }
+
+        /**
+         * @return a key that is equal for markers that look the same
+         */
+        public String getKey() {
+            return MarkerUtils.markerKey(resource, line, severity, message);
+        }
+
+        public IMarker create() {
+            final IMarker marker = MarkerUtils.createMarker(resource, path, message,
+                    line, severity, MarkerUtils.PROBLEM_MARKER);
+            if (marker != null && sourceId != null) {
+                try {
+                    marker.setAttribute(IMarker.SOURCE_ID, sourceId);
+                } catch (final CoreException e) {
+                }
+            }
+            return marker;
+        }
+    }
+
+    /**
+     * @return a key that is equal for markers that look the same
+     */
+    public static String markerKey(final IMarker marker) {
+        return MarkerUtils.markerKey(marker.getResource(),
+                marker.getAttribute(IMarker.LINE_NUMBER, 1),
+                marker.getAttribute(IMarker.SEVERITY, IMarker.SEVERITY_INFO),
+                marker.getAttribute(IMarker.MESSAGE, ""));
+    }
+
+    static String markerKey(final IResource resource, final int line,
+            final int severity, final String message) {
+        return (resource == null ? "" : resource.getFullPath().toString()) + '\0' + line
+                + '\0' + severity + '\0' + message;
+    }
+
     /**
      * Add error markers from a list of error tuples
      *
@@ -68,6 +146,19 @@ public final class MarkerUtils {
      */
     public static void addErrorMarkers(final IResource resource,
             final OtpErlangList errorList) {
+        for (final ProblemMarkerData data : MarkerUtils.getErrorMarkers(resource,
+                errorList)) {
+            data.create();
+        }
+    }
+
+    /**
+     * Like {@link #addErrorMarkers(IResource, OtpErlangList)}, but only return what
+     * the markers would be.
+     */
+    public static List<ProblemMarkerData> getErrorMarkers(final IResource resource,
+            final OtpErlangList errorList) {
+        final List<ProblemMarkerData> result = Lists.newArrayList();
         final OtpErlangObject[] messages = errorList.elements();
         final Map<String, List<OtpErlangTuple>> groupedMessages = MarkerUtils
                 .groupMessagesByFile(messages);
@@ -79,9 +170,11 @@ public final class MarkerUtils {
                     fileName);
 
             for (final OtpErlangTuple data : entry.getValue()) {
-                MarkerUtils.addAnnotationForMessage(resource, fileName, res, data);
+                result.add(
+                        MarkerUtils.getMarkerForMessage(resource, fileName, res, data));
             }
         }
+        return result;
     }
 
     private static IResource findResourceForFileName(final IResource resource,
@@ -120,7 +213,7 @@ public final class MarkerUtils {
         return res;
     }
 
-    private static void addAnnotationForMessage(final IResource resource,
+    private static ProblemMarkerData getMarkerForMessage(final IResource resource,
             final String fileName, final IResource res, final OtpErlangTuple data) {
         int line = 0;
         if (data.elementAt(0) instanceof OtpErlangLong) {
@@ -155,14 +248,8 @@ public final class MarkerUtils {
         if (msg.startsWith("\"")) {
             msg = msg.substring(1, msg.length() - 1);
         }
-        final IMarker marker = MarkerUtils.createMarker(res, fileName, msg, line, sev,
-                MarkerUtils.PROBLEM_MARKER);
-        if (marker != null) {
-            try {
-                marker.setAttribute(IMarker.SOURCE_ID, resource.getLocation().toString());
-            } catch (final CoreException e) {
-            }
-        }
+        return new ProblemMarkerData(res, fileName, msg, line, sev,
+                resource.getLocation().toString());
     }
 
     private static Map<String, List<OtpErlangTuple>> groupMessagesByFile(
@@ -121,6 +121,13 @@ public interface IErlElementDelta {
      */
     int F_CONTENT = 0x00001;
 
+    /**
+     * Change flag indicating that a member is at another offset in its file, its text
+     * being the same. The element it replaces can be retrieved using
+     * <code>getMovedFromElement</code>.
+     */
+    int F_POSITION = 0x00002;
+
     /**
      * Change flag indicating that there are changes to the children of the element. This
      * flag is only valid if the element is an <code>IParent</code>.
@@ -292,7 +299,7 @@ public interface IErlElementDelta {
     /**
      * Returns an element describing this element before it was moved to its current
      * location, or <code>null</code> if the <code>F_MOVED_FROM</code> change flag is not
-     * set.
+     * set. For a member changed by a reparse, returns the element it replaces.
      *
      * @return an element describing this element before it was moved to its current
      *         location, or <code>null</code> if the <code>F_MOVED_FROM</code> change flag
@@ -77,6 +77,8 @@ public interface IErlModel extends IErlElement, IOpenable, IParent, IErlElementL
 
     void notifyChange(IErlElement element);
 
+    void notifyChange(IErlElement element, IErlElementDelta delta);
+
     /**
      * Returns the Erlang element corresponding to the given file, its project being the
      * given project. Returns <code>null</code> if unable to associate the given file with
@@ -14,4 +14,14 @@ public interface IErlModelChangeListener {
 
     void elementChanged(IErlElement element);
 
+    /**
+     * Called after a module was reparsed, with the members that were added, removed,
+     * changed or moved. The delta is <code>null</code> when it could not be computed,
+     * for example on the first parse.
+     */
+    default void elementChanged(final IErlElement element,
+            final IErlElementDelta delta) {
+        elementChanged(element);
+    }
+
 }
@@ -12,4 +12,9 @@ public class NullScannerService implements SimpleScannerService {
         final ErlToken token = new ErlToken(ErlToken.KIND_OTHER, offset, string.length());
         return Lists.newArrayList(token);
     }
+
+    @Override
+    public List<ErlToken> getTokens(final String scannerName) throws ScannerException {
+        return Lists.newArrayList();
+    }
 }
@@ -6,4 +6,9 @@ public interface SimpleScannerService {
 
     List<ErlToken> lightScanString(String string, int offset) throws ScannerException;
 
+    /**
+     * @return the tokens the scanner of a module has now, without sending its text
+     */
+    List<ErlToken> getTokens(String scannerName) throws ScannerException;
+
 }
@@ -0,0 +1,296 @@
+package org.erlide.engine.services.proclist;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangPid;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * The process list of a node, kept in columns of primitive values and updated from
+ * successive snapshots by computing what was spawned, what exited and which rows
+ * changed.
+ *
+ * <p>
+ * Rows are the <code>{Pid, Name, InitialCall, Reductions, MessageQueueLen}</code>
+ * tuples returned by <code>erlide_proclist:process_list/0</code>. The process
+ * identifiers are stable between updates, row indexes are not.
+ */
+public class ProcessTable {
+
+    public static final int NAME = 0;
+    public static final int INITIAL_CALL = 1;
+    public static final int REDUCTIONS = 2;
+    public static final int MESSAGES = 3;
+
+    private int size;
+    private OtpErlangPid[] pids = new OtpErlangPid[0];
+    private String[] names = new String[0];
+    private String[] calls = new String[0];
+    private long[] reductions = new long[0];
+    private long[] messages = new long[0];
+    private final Map<OtpErlangPid, Integer> rows = Maps.newHashMap();
+
+    /**
+     * What an update changed.
+     */
+    public static class Diff {
+        private final List<OtpErlangPid> spawned = Lists.newArrayList();
+        private final List<OtpErlangPid> exited = Lists.newArrayList();
+        private final List<OtpErlangPid> changed = Lists.newArrayList();
+        private final BitSet changedColumns = new BitSet();
+
+        public List<OtpErlangPid> getSpawned() {
+            return spawned;
+        }
+
+        public List<OtpErlangPid> getExited() {
+            return exited;
+        }
+
+        public List<OtpErlangPid> getChanged() {
+            return changed;
+        }
+
+        public boolean isColumnChanged(final int column) {
+            return changedColumns.get(column);
+        }
+
+        public boolean isEmpty() {
+            return spawned.isEmpty() && exited.isEmpty() && changed.isEmpty();
+        }
+
+        @Override
+        public String toString() {
+            return "spawned=" + spawned.size() + " exited=" + exited.size()
+                    + " changed=" + changed.size();
+        }
+    }
+
+    /**
+     * Replace the contents with a new snapshot.
+     */
+    public synchronized Diff update(final OtpErlangList snapshot) {
+        final Diff diff = new Diff();
+        final BitSet seen = new BitSet(size);
+        for (final OtpErlangObject o : snapshot) {
+            if (!(o instanceof OtpErlangTuple) || ((OtpErlangTuple) o).arity() < 5
+                    || !(((OtpErlangTuple) o).elementAt(0) instanceof OtpErlangPid)) {
+                continue;
+            }
+            final OtpErlangTuple t = (OtpErlangTuple) o;
+            final OtpErlangPid pid = (OtpErlangPid) t.elementAt(0);
+            final String name = ProcessTable.text(t.elementAt(1));
+            final String call = ProcessTable.text(t.elementAt(2));
+            final long reds = ProcessTable.number(t.elementAt(3));
+            final long msgs = ProcessTable.number(t.elementAt(4));
+            final Integer row = rows.get(pid);
+            if (row == null) {
+                ensureCapacity(size + 1);
+                pids[size] = pid;
+                set(size, name, call, reds, msgs);
+                rows.put(pid, size);
+                seen.set(size);
+                size++;
+                diff.spawned.add(pid);
+            } else {
+                seen.set(row);
+                if (changed(row, name, call, reds, msgs, diff.changedColumns)) {
+                    set(row, name, call, reds, msgs);
+                    diff.changed.add(pid);
+                }
+            }
+        }
+        if (seen.cardinality() < size) {
+            removeUnseen(seen, diff);
+        }
+        return diff;
+    }
+
+    private boolean changed(final int row, final String name, final String call,
+            final long reds, final long msgs, final BitSet columns) {
+        boolean result = false;
+        if (!name.equals(names[row])) {
+            columns.set(ProcessTable.NAME);
+            result = true;
+        }
+        if (!call.equals(calls[row])) {
+            columns.set(ProcessTable.INITIAL_CALL);
+            result = true;
+        }
+        if (reds != reductions[row]) {
+            columns.set(ProcessTable.REDUCTIONS);
+            result = true;
+        }
+        if (msgs != messages[row]) {
+            columns.set(ProcessTable.MESSAGES);
+            result = true;
+        }
+        return result;
+    }
+
+    private void set(final int row, final String name, final String call,
+            final long reds, final long msgs) {
+        names[row] = name;
+        calls[row] = call;
+        reductions[row] = reds;
+        messages[row] = msgs;
+    }
+
+    private void removeUnseen(final BitSet seen, final Diff diff) {
+        int to = 0;
+        for (int from = 0; from < size; from++) {
+            if (!seen.get(from)) {
+                diff.exited.add(pids[from]);
+                rows.remove(pids[from]);
+                continue;
+            }
+            if (to != from) {
+                pids[to] = pids[from];
+                set(to, names[from], calls[from], reductions[from], messages[from]);
+                rows.put(pids[to], to);
+            }
+            to++;
+        }
+        Arrays.fill(pids, to, size, null);
+        Arrays.fill(names, to, size, null);
+        Arrays.fill(calls, to, size, null);
+        size = to;
+    }
+
+    private void ensureCapacity(final int capacity) {
+        if (capacity <= pids.length) {
+            return;
+        }
+        final int n = Math.max(capacity, pids.length * 2);
+        pids = Arrays.copyOf(pids, n);
+        names = Arrays.copyOf(names, n);
+        calls = Arrays.copyOf(calls, n);
+        reductions = Arrays.copyOf(reductions, n);
+        messages = Arrays.copyOf(messages, n);
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public synchronized boolean contains(final OtpErlangPid pid) {
+        return rows.containsKey(pid);
+    }
+
+    /**
+     * @return the text shown for a column of the process, or an empty string if the
+     *         process isn't in the table
+     */
+    public synchronized String getText(final OtpErlangPid pid, final int column) {
+        final Integer row = rows.get(pid);
+        if (row == null) {
+            return "";
+        }
+        switch (column) {
+        case NAME:
+            return names[row];
+        case INITIAL_CALL:
+            return calls[row];
+        case REDUCTIONS:
+            return Long.toString(reductions[row]);
+        case MESSAGES:
+            return Long.toString(messages[row]);
+        default:
+            return "";
+        }
+    }
+
+    /**
+     * Select the processes to show.
+     *
+     * @param column
+     *            the column to sort on, or -1 to keep the order of the snapshots
+     * @param descending
+     *            sort from largest to smallest
+     * @param filter
+     *            if not empty, only the processes whose name or initial call
+     *            contains it (ignoring case) are returned
+     * @param limit
+     *            if positive, only the first <code>limit</code> processes are
+     *            returned
+     */
+    public synchronized OtpErlangPid[] select(final int column, final boolean descending,
+            final String filter, final int limit) {
+        final String lowerFilter = filter == null ? ""
+                : filter.trim().toLowerCase(Locale.ROOT);
+        Integer[] selected = new Integer[size];
+        int n = 0;
+        for (int row = 0; row < size; row++) {
+            if (lowerFilter.isEmpty()
+                    || names[row].toLowerCase(Locale.ROOT).contains(lowerFilter)
+                    || calls[row].toLowerCase(Locale.ROOT).contains(lowerFilter)) {
+                selected[n++] = row;
+            }
+        }
+        selected = Arrays.copyOf(selected, n);
+        final Comparator<Integer> comparator = comparator(column);
+        if (comparator != null) {
+            Arrays.sort(selected, descending ? comparator.reversed() : comparator);
+        }
+        if (limit > 0 && limit < n) {
+            n = limit;
+        }
+        final OtpErlangPid[] result = new OtpErlangPid[n];
+        for (int i = 0; i < n; i++) {
+            result[i] = pids[selected[i]];
+        }
+        return result;
+    }
+
+    private Comparator<Integer> comparator(final int column) {
+        switch (column) {
+        case NAME:
+            return (a, b) -> names[a].compareTo(names[b]);
+        case INITIAL_CALL:
+            return (a, b) -> calls[a].compareTo(calls[b]);
+        case REDUCTIONS:
+            return (a, b) -> Long.compare(reductions[a], reductions[b]);
+        case MESSAGES:
+            return (a, b) -> Long.compare(messages[a], messages[b]);
+        default:
+            return null;
+        }
+    }
+
+    public synchronized void clear() {
+        rows.clear();
+        Arrays.fill(pids, null);
+        Arrays.fill(names, null);
+        Arrays.fill(calls, null);
+        size = 0;
+    }
+
+    private static String text(final OtpErlangObject o) {
+        if (o instanceof OtpErlangString) {
+            return ((OtpErlangString) o).stringValue();
+        }
+        return o.toString();
+    }
+
+    private static long number(final OtpErlangObject o) {
+        if (o instanceof OtpErlangLong) {
+            return ((OtpErlangLong) o).longValue();
+        }
+        try {
+            return Long.parseLong(ProcessTable.text(o).trim());
+        } catch (final NumberFormatException e) {
+            return -1;
+        }
+    }
+}
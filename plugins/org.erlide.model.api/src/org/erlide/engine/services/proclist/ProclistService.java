@@ -10,6 +10,9 @@ public interface ProclistService {
 
     void processListInit(IOtpRpc b);
 
+    /**
+     * @return the processes of the node, or null if they couldn't be retrieved
+     */
     OtpErlangList getProcessList(IOtpRpc b);
 
     OtpErlangObject getProcessInfo(IOtpRpc b, OtpErlangPid pid);
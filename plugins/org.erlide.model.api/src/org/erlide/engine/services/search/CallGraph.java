@@ -0,0 +1,348 @@
+package org.erlide.engine.services.search;
+
+import java.io.IOException;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.Consumer;
+
+import org.erlide.engine.model.erlang.FunctionRef;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Caller/callee graph of Erlang functions, kept up to date in Java from the parsed
+ * modules, so that call hierarchies can be expanded without asking xref.
+ *
+ * <p>
+ * Functions are numbered and edges are kept in both directions as arrays of ids.
+ * The calls made from a module are replaced as a whole each time the module is
+ * analysed. They are stored under a unit key chosen by the caller (see
+ * {@link XrefService#unit}), so that modules with the same name in different
+ * projects don't replace each other's calls; an edge stays as long as a unit has it.
+ *
+ * <p>
+ * Listeners are told which functions got or lost callers or callees with each change,
+ * so that they can drop what they derived from them.
+ */
+public class CallGraph {
+
+    private static final int[] NO_EDGES = new int[0];
+
+    private static final CallGraph instance = new CallGraph();
+
+    private final Map<String, Integer> ids = Maps.newHashMap();
+    private final List<FunctionRef> refs = Lists.newArrayList();
+    private int[][] callees = new int[256][];
+    private int[] calleeCount = new int[256];
+    private int[][] callers = new int[256][];
+    private int[] callerCount = new int[256];
+    private final Map<String, int[]> moduleFunctions = Maps.newHashMap();
+    private final Map<String, long[]> moduleCalls = Maps.newHashMap();
+    // the number of units that have each edge
+    private final Map<Long, Integer> edgeCounts = Maps.newHashMap();
+    private final List<Consumer<Set<FunctionRef>>> listeners = Lists
+            .newCopyOnWriteArrayList();
+
+    public static CallGraph getDefault() {
+        return CallGraph.instance;
+    }
+
+    public void addListener(final Consumer<Set<FunctionRef>> listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(final Consumer<Set<FunctionRef>> listener) {
+        listeners.remove(listener);
+    }
+
+    /**
+     * Replace the calls made from a module.
+     *
+     * @param unit
+     *            identifies the module
+     * @param calls
+     *            the callees of each function of the module
+     */
+    public void setModuleCalls(final String unit,
+            final Map<FunctionRef, ? extends Collection<FunctionRef>> calls) {
+        final Set<FunctionRef> changed;
+        synchronized (this) {
+            final Set<Long> before = moduleEdges(unit);
+            removeEdges(unit);
+            final int[] functions = new int[calls.size()];
+            final Set<Long> edges = Sets.newLinkedHashSet();
+            int n = 0;
+            for (final Map.Entry<FunctionRef, ? extends Collection<FunctionRef>> entry :
+                    calls.entrySet()) {
+                final int caller = id(entry.getKey());
+                functions[n++] = caller;
+                for (final FunctionRef callee : entry.getValue()) {
+                    final int calleeId = id(callee);
+                    if (edges.add(CallGraph.edge(caller, calleeId))) {
+                        addEdge(caller, calleeId);
+                    }
+                }
+            }
+            moduleFunctions.put(unit, functions);
+            final long[] unitCalls = new long[edges.size()];
+            n = 0;
+            for (final long e : edges) {
+                unitCalls[n++] = e;
+            }
+            moduleCalls.put(unit, unitCalls);
+            changed = changes(before, moduleEdges(unit));
+        }
+        fireChanged(changed);
+    }
+
+    public void removeModule(final String unit) {
+        final Set<FunctionRef> changed;
+        synchronized (this) {
+            final Set<Long> before = moduleEdges(unit);
+            removeEdges(unit);
+            changed = changes(before, Sets.newHashSet());
+        }
+        fireChanged(changed);
+    }
+
+    private void removeEdges(final String unit) {
+        moduleFunctions.remove(unit);
+        final long[] edges = moduleCalls.remove(unit);
+        if (edges == null) {
+            return;
+        }
+        for (final long e : edges) {
+            removeEdge((int) (e >>> 32), (int) e);
+        }
+    }
+
+    /**
+     * @return the edges going out of the module's functions, as caller and callee
+     *         ids in the high and low half; the functions themselves are included as
+     *         edges to themselves
+     */
+    private Set<Long> moduleEdges(final String unit) {
+        final Set<Long> result = Sets.newHashSet();
+        final int[] functions = moduleFunctions.get(unit);
+        if (functions != null) {
+            for (final int caller : functions) {
+                result.add(CallGraph.edge(caller, caller));
+            }
+        }
+        final long[] edges = moduleCalls.get(unit);
+        if (edges != null) {
+            for (final long e : edges) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    private static long edge(final int caller, final int callee) {
+        return (long) caller << 32 | callee;
+    }
+
+    private Set<FunctionRef> changes(final Set<Long> before, final Set<Long> after) {
+        final Set<FunctionRef> result = Sets.newHashSet();
+        for (final long edge : Sets.symmetricDifference(before, after)) {
+            result.add(refs.get((int) (edge >>> 32)));
+            result.add(refs.get((int) edge));
+        }
+        return result;
+    }
+
+    private void fireChanged(final Set<FunctionRef> changed) {
+        if (changed.isEmpty()) {
+            return;
+        }
+        for (final Consumer<Set<FunctionRef>> listener : listeners) {
+            listener.accept(changed);
+        }
+    }
+
+    public synchronized boolean hasModule(final String unit) {
+        return moduleFunctions.containsKey(unit);
+    }
+
+    public synchronized List<FunctionRef> getCallers(final FunctionRef function) {
+        return refs(ids.get(CallGraph.key(function)), callers, callerCount);
+    }
+
+    public synchronized List<FunctionRef> getCallees(final FunctionRef function) {
+        return refs(ids.get(CallGraph.key(function)), callees, calleeCount);
+    }
+
+    /**
+     * @return all the functions that call the given one directly or indirectly
+     */
+    public synchronized Set<FunctionRef> getTransitiveCallers(final FunctionRef function) {
+        final Set<FunctionRef> result = Sets.newLinkedHashSet();
+        for (final int id : reachable(ids.get(CallGraph.key(function)))) {
+            result.add(refs.get(id));
+        }
+        return result;
+    }
+
+    /**
+     * Write the graph in Graphviz DOT format.
+     *
+     * @param root
+     *            if not null, only this function and its (transitive) callers are
+     *            written
+     */
+    public synchronized void writeDot(final Appendable out, final FunctionRef root)
+            throws IOException {
+        final Collection<Integer> nodes;
+        if (root == null) {
+            nodes = Lists.newArrayList();
+            for (int i = 0; i < refs.size(); i++) {
+                nodes.add(i);
+            }
+        } else {
+            final Integer rootId = ids.get(CallGraph.key(root));
+            nodes = Sets.newLinkedHashSet();
+            if (rootId != null) {
+                nodes.add(rootId);
+                nodes.addAll(reachable(rootId));
+            }
+        }
+        out.append("digraph calls {\n");
+        for (final int caller : nodes) {
+            for (int i = 0; i < calleeCount[caller]; i++) {
+                final int callee = callees[caller][i];
+                if (root == null || nodes.contains(callee)) {
+                    out.append("  \"").append(refs.get(caller).toString())
+                            .append("\" -> \"").append(refs.get(callee).toString())
+                            .append("\";\n");
+                }
+            }
+        }
+        out.append("}\n");
+    }
+
+    public void clear() {
+        final Set<FunctionRef> changed;
+        synchronized (this) {
+            changed = Sets.newHashSet(refs);
+            clearAll();
+        }
+        fireChanged(changed);
+    }
+
+    private void clearAll() {
+        ids.clear();
+        refs.clear();
+        moduleFunctions.clear();
+        moduleCalls.clear();
+        edgeCounts.clear();
+        Arrays.fill(callees, null);
+        Arrays.fill(calleeCount, 0);
+        Arrays.fill(callers, null);
+        Arrays.fill(callerCount, 0);
+    }
+
+    private Set<Integer> reachable(final Integer start) {
+        final Set<Integer> seen = Sets.newLinkedHashSet();
+        if (start == null) {
+            return seen;
+        }
+        final List<Integer> todo = Lists.newArrayList(start);
+        while (!todo.isEmpty()) {
+            final int id = todo.remove(todo.size() - 1);
+            for (int i = 0; i < callerCount[id]; i++) {
+                final int caller = callers[id][i];
+                if (caller != start && seen.add(caller)) {
+                    todo.add(caller);
+                }
+            }
+        }
+        return seen;
+    }
+
+    private List<FunctionRef> refs(final Integer id, final int[][] edges,
+            final int[] count) {
+        final List<FunctionRef> result = Lists.newArrayList();
+        if (id != null) {
+            for (int i = 0; i < count[id]; i++) {
+                result.add(refs.get(edges[id][i]));
+            }
+        }
+        return result;
+    }
+
+    private static String key(final FunctionRef ref) {
+        return ref.module + ":" + ref.function + "/" + ref.arity;
+    }
+
+    private int id(final FunctionRef ref) {
+        final String key = CallGraph.key(ref);
+        Integer id = ids.get(key);
+        if (id == null) {
+            id = refs.size();
+            ids.put(key, id);
+            refs.add(ref);
+            if (id == callees.length) {
+                final int size = id * 2;
+                callees = Arrays.copyOf(callees, size);
+                calleeCount = Arrays.copyOf(calleeCount, size);
+                callers = Arrays.copyOf(callers, size);
+                callerCount = Arrays.copyOf(callerCount, size);
+            }
+        }
+        return id;
+    }
+
+    private void addEdge(final int caller, final int callee) {
+        final Long e = CallGraph.edge(caller, callee);
+        final Integer n = edgeCounts.get(e);
+        edgeCounts.put(e, n == null ? 1 : n + 1);
+        if (n == null) {
+            CallGraph.add(callees, calleeCount, caller, callee);
+            CallGraph.add(callers, callerCount, callee, caller);
+        }
+    }
+
+    private void removeEdge(final int caller, final int callee) {
+        final Long e = CallGraph.edge(caller, callee);
+        final Integer n = edgeCounts.get(e);
+        if (n == null) {
+            return;
+        }
+        if (n > 1) {
+            edgeCounts.put(e, n - 1);
+            return;
+        }
+        edgeCounts.remove(e);
+        CallGraph.remove(callees, calleeCount, caller, callee);
+        CallGraph.remove(callers, callerCount, callee, caller);
+    }
+
+    private static void add(final int[][] edges, final int[] count, final int from,
+            final int to) {
+        int[] list = edges[from];
+        if (list == null) {
+            list = new int[4];
+        } else if (count[from] == list.length) {
+            list = Arrays.copyOf(list, list.length * 2);
+        }
+        list[count[from]++] = to;
+        edges[from] = list;
+    }
+
+    private static void remove(final int[][] edges, final int[] count, final int from,
+            final int to) {
+        final int[] list = edges[from] == null ? CallGraph.NO_EDGES : edges[from];
+        for (int i = 0; i < count[from]; i++) {
+            if (list[i] == to) {
+                list[i] = list[--count[from]];
+                return;
+            }
+        }
+    }
+
+}
@@ -0,0 +1,295 @@
+package org.erlide.engine.services.search;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.erlide.engine.model.ErlElementKind;
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.IErlElement;
+import org.erlide.engine.model.erlang.ErlangFunction;
+import org.erlide.engine.model.erlang.FunctionRef;
+import org.erlide.engine.model.erlang.IErlFunction;
+import org.erlide.engine.model.erlang.IErlFunctionClause;
+import org.erlide.engine.model.erlang.IErlImport;
+import org.erlide.engine.model.erlang.ISourceRange;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.engine.services.parsing.ErlToken;
+
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Finds the calls made by the functions of a parsed module, for the
+ * {@link CallGraph}.
+ *
+ * <p>
+ * The functions, their clauses and the imports come from the module structure; the
+ * function bodies are read from the tokens of the backend scanner. Recognized are
+ * local calls <code>f(...)</code>, remote calls <code>m:f(...)</code> (also
+ * <code>?MODULE:f(...)</code>) and function references <code>fun f/N</code> and
+ * <code>fun m:f/N</code>. Calls whose module or function is a variable, or that are
+ * hidden in macros, are not seen. Local calls to functions that are neither defined
+ * nor imported are taken to be auto-imported BIFs.
+ */
+public final class CallScanner {
+
+    private static final Set<String> KEYWORDS = ImmutableSet.of("after", "and",
+            "andalso", "band", "begin", "bnot", "bor", "bsl", "bsr", "bxor", "case",
+            "catch", "cond", "div", "end", "fun", "if", "let", "maybe", "else", "not",
+            "of", "or", "orelse", "receive", "rem", "try", "when", "xor");
+    private static final Set<String> BLOCKS = ImmutableSet.of("begin", "case", "if",
+            "maybe", "receive", "try");
+
+    private static final int ATOM = 0;
+    private static final int VAR = 1;
+    private static final int MACRO = 2;
+    private static final int KEYWORD = 3;
+    private static final int PUNCT = 4;
+    private static final int OTHER = 5;
+
+    private CallScanner() {
+    }
+
+    /**
+     * @param text
+     *            the text the module was parsed from
+     * @param tokens
+     *            the tokens of the text, in order
+     * @return the callees of each function of the module
+     */
+    public static Map<FunctionRef, Set<FunctionRef>> scan(final IErlModule module,
+            final String text, final List<ErlToken> tokens) throws ErlModelException {
+        final String moduleName = module.getModuleName();
+        final List<IErlFunction> functions = Lists.newArrayList();
+        final Map<String, String> resolve = Maps.newHashMap();
+        for (final IErlElement e : module.getChildrenOfKind(ErlElementKind.FUNCTION)) {
+            final IErlFunction f = (IErlFunction) e;
+            functions.add(f);
+            resolve.put(f.getName() + "/" + f.getArity(), moduleName);
+        }
+        for (final IErlImport imp : module.getImports()) {
+            for (final ErlangFunction f : imp.getFunctions()) {
+                resolve.putIfAbsent(f.getNameWithArity(), imp.getImportModule());
+            }
+        }
+        final Map<FunctionRef, Set<FunctionRef>> result = Maps.newLinkedHashMap();
+        int first = 0;
+        for (final IErlFunction f : functions) {
+            final ISourceRange r = f.getSourceRange();
+            final int start = r.getOffset();
+            final int end = r.getOffset() + r.getLength() + 1;
+            // the clause names are part of the heads, not calls
+            final Set<Integer> heads = Sets.newHashSet(f.getNameRange().getOffset());
+            for (final IErlFunctionClause clause : f.getClauses()) {
+                heads.add(clause.getNameRange().getOffset());
+            }
+            while (first < tokens.size() && tokens.get(first).getOffset() < start) {
+                first++;
+            }
+            int last = first;
+            while (last < tokens.size() && tokens.get(last).getOffset() < end) {
+                last++;
+            }
+            result.put(new FunctionRef(moduleName, f.getName(), f.getArity()),
+                    CallScanner.scanCalls(text, tokens.subList(first, last), heads,
+                            moduleName, resolve));
+        }
+        return result;
+    }
+
+    /**
+     * @param heads
+     *            the offsets of the clause names
+     * @param resolve
+     *            maps <code>name/arity</code> of the local and imported functions to
+     *            their module
+     */
+    static Set<FunctionRef> scanCalls(final String text, final List<ErlToken> erlTokens,
+            final Set<Integer> heads, final String module,
+            final Map<String, String> resolve) {
+        final List<Token> tokens = CallScanner.tokens(text, erlTokens);
+        final int n = tokens.size();
+        final Set<FunctionRef> result = Sets.newLinkedHashSet();
+        for (int i = 0; i < n; i++) {
+            final Token t = tokens.get(i);
+            if (t.is(CallScanner.KEYWORD, "fun")) {
+                CallScanner.addFunRef(tokens, i, resolve, result);
+            } else if (CallScanner.isModule(t) && CallScanner.is(tokens, i + 1, ":")
+                    && CallScanner.kind(tokens, i + 2) == CallScanner.ATOM
+                    && CallScanner.is(tokens, i + 3, "(")) {
+                final String m = t.kind == CallScanner.MACRO ? module : t.text;
+                result.add(new FunctionRef(m, tokens.get(i + 2).text,
+                        CallScanner.arity(tokens, i + 3)));
+                i += 2;
+            } else if (t.kind == CallScanner.ATOM && CallScanner.is(tokens, i + 1, "(")
+                    && !CallScanner.is(tokens, i - 1, ":")
+                    && !CallScanner.is(tokens, i - 1, "#")
+                    && !heads.contains(t.offset)) {
+                final int arity = CallScanner.arity(tokens, i + 1);
+                final String m = resolve.get(t.text + "/" + arity);
+                result.add(new FunctionRef(m == null ? "erlang" : m, t.text, arity));
+            }
+        }
+        return result;
+    }
+
+    private static List<Token> tokens(final String text, final List<ErlToken> tokens) {
+        final List<Token> result = Lists.newArrayListWithCapacity(tokens.size());
+        for (final ErlToken t : tokens) {
+            final int start = t.getOffset();
+            final int end = start + t.getLength();
+            if (start < 0 || end > text.length()) {
+                continue;
+            }
+            final String s = text.substring(start, end);
+            switch (t.getKind()) {
+            case ErlToken.KIND_WHITESPACE:
+            case ErlToken.KIND_COMMENT:
+                break;
+            case ErlToken.KIND_ATOM:
+            case ErlToken.KIND_KEYWORD:
+                if (s.length() > 1 && s.charAt(0) == '\'') {
+                    result.add(new Token(CallScanner.ATOM,
+                            s.substring(1, s.length() - 1), start));
+                } else {
+                    result.add(new Token(CallScanner.KEYWORDS.contains(s)
+                            ? CallScanner.KEYWORD : CallScanner.ATOM, s, start));
+                }
+                break;
+            case ErlToken.KIND_VAR:
+                result.add(new Token(CallScanner.VAR, s, start));
+                break;
+            case ErlToken.KIND_MACRO:
+                result.add(new Token(CallScanner.MACRO, s.replaceFirst("^\\?\\??", ""),
+                        start));
+                break;
+            case ErlToken.KIND_OTHER:
+            case ErlToken.KIND_ARROW:
+                // the scanner state gives keywords their own kind
+                result.add(new Token(CallScanner.KEYWORDS.contains(s)
+                        ? CallScanner.KEYWORD : CallScanner.PUNCT, s, start));
+                break;
+            default:
+                result.add(new Token(CallScanner.OTHER, s, start));
+                break;
+            }
+        }
+        return result;
+    }
+
+    private static void addFunRef(final List<Token> tokens, final int i,
+            final Map<String, String> resolve, final Set<FunctionRef> result) {
+        if (CallScanner.kind(tokens, i + 1) != CallScanner.ATOM) {
+            return;
+        }
+        if (CallScanner.is(tokens, i + 2, "/")
+                && CallScanner.kind(tokens, i + 3) == CallScanner.OTHER) {
+            final Integer arity = CallScanner.intValue(tokens.get(i + 3).text);
+            if (arity != null) {
+                final String name = tokens.get(i + 1).text;
+                final String m = resolve.get(name + "/" + arity);
+                result.add(new FunctionRef(m == null ? "erlang" : m, name, arity));
+            }
+        } else if (CallScanner.is(tokens, i + 2, ":")
+                && CallScanner.kind(tokens, i + 3) == CallScanner.ATOM
+                && CallScanner.is(tokens, i + 4, "/")
+                && CallScanner.kind(tokens, i + 5) == CallScanner.OTHER) {
+            final Integer arity = CallScanner.intValue(tokens.get(i + 5).text);
+            if (arity != null) {
+                result.add(new FunctionRef(tokens.get(i + 1).text,
+                        tokens.get(i + 3).text, arity));
+            }
+        }
+    }
+
+    private static boolean isModule(final Token t) {
+        return t.kind == CallScanner.ATOM || t.is(CallScanner.MACRO, "MODULE");
+    }
+
+    private static int arity(final List<Token> tokens, final int open) {
+        int d = 0;
+        int commas = 0;
+        boolean any = false;
+        for (int i = open + 1; i < tokens.size(); i++) {
+            if (CallScanner.opens(tokens, i)) {
+                d++;
+            } else if (CallScanner.closes(tokens.get(i))) {
+                if (d == 0) {
+                    break;
+                }
+                d--;
+            } else if (d == 0 && tokens.get(i).is(CallScanner.PUNCT, ",")) {
+                commas++;
+            }
+            any = true;
+        }
+        return any ? commas + 1 : 0;
+    }
+
+    private static boolean opens(final List<Token> tokens, final int i) {
+        final Token t = tokens.get(i);
+        if (t.kind == CallScanner.PUNCT) {
+            return "(".equals(t.text) || "[".equals(t.text) || "{".equals(t.text)
+                    || "<<".equals(t.text) || "#{".equals(t.text);
+        }
+        if (t.kind != CallScanner.KEYWORD) {
+            return false;
+        }
+        if ("fun".equals(t.text)) {
+            // fun (...) -> ... end and fun Name(...) -> ... end
+            return CallScanner.is(tokens, i + 1, "(")
+                    || CallScanner.kind(tokens, i + 1) == CallScanner.VAR
+                            && CallScanner.is(tokens, i + 2, "(");
+        }
+        return CallScanner.BLOCKS.contains(t.text);
+    }
+
+    private static boolean closes(final Token t) {
+        if (t.kind == CallScanner.PUNCT) {
+            return ")".equals(t.text) || "]".equals(t.text) || "}".equals(t.text)
+                    || ">>".equals(t.text);
+        }
+        return t.is(CallScanner.KEYWORD, "end");
+    }
+
+    private static boolean is(final List<Token> tokens, final int i, final String punct) {
+        return i >= 0 && i < tokens.size() && tokens.get(i).is(CallScanner.PUNCT, punct);
+    }
+
+    private static int kind(final List<Token> tokens, final int i) {
+        return i < tokens.size() ? tokens.get(i).kind : -1;
+    }
+
+    private static Integer intValue(final String s) {
+        try {
+            return Integer.valueOf(s);
+        } catch (final NumberFormatException e) {
+            return null;
+        }
+    }
+
+    private static final class Token {
+        final int kind;
+        final String text;
+        final int offset;
+
+        Token(final int kind, final String text, final int offset) {
+            this.kind = kind;
+            this.text = text;
+            this.offset = offset;
+        }
+
+        boolean is(final int k, final String s) {
+            return kind == k && text.equals(s);
+        }
+
+        @Override
+        public String toString() {
+            return text;
+        }
+    }
+
+}
@@ -3,6 +3,7 @@ package org.erlide.engine.services.search;
 import java.util.Collection;
 import java.util.List;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.erlide.engine.services.ErlangService;
 import org.erlide.runtime.rpc.IOtpRpc;
 import org.erlide.util.ErlangFunctionCall;
@@ -25,4 +26,10 @@ public interface OtpDocService extends ErlangService {
 
     String getOtpDocLocation(IOtpRpc b);
 
+    /**
+     * Fetch the documentation of all OTP modules of the backend's runtime into the
+     * documentation cache.
+     */
+    void warmUpCache(IOtpRpc b, IProgressMonitor monitor);
+
 }
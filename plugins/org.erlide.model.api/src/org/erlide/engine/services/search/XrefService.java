@@ -0,0 +1,220 @@
+package org.erlide.engine.services.search;
+
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.erlang.FunctionRef;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.engine.model.root.IErlProject;
+import org.erlide.engine.services.parsing.ErlToken;
+import org.erlide.engine.services.parsing.ScannerException;
+import org.erlide.util.ErlLogger;
+
+import com.google.common.collect.ImmutableList;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Cross reference queries answered from the {@link CallGraph}.
+ *
+ * <p>
+ * The builder reports the modules it compiled and removed; they are analysed again in
+ * the background, one by one, instead of updating everything. Parsed modules report
+ * their text and get their calls scanned in the same background job, from the tokens
+ * their backend scanner already has; the text is dropped once scanned. Query results
+ * are cached; the call graph tells which functions got or lost callers or callees, and
+ * only the results about those functions are dropped.
+ */
+public class XrefService {
+
+    private static final XrefService instance = new XrefService(CallGraph.getDefault());
+
+    private final CallGraph graph;
+    // keyed by module:function/arity
+    private final Map<String, List<FunctionRef>> uses = Maps.newConcurrentMap();
+    private final Set<IErlModule> pending = Sets.newLinkedHashSet();
+    // the text each module was last parsed from, waiting to be scanned
+    private final Map<IErlModule, String> parsed = Maps.newLinkedHashMap();
+    private final Job job = new Job("Updating cross references") {
+        @Override
+        protected IStatus run(final IProgressMonitor monitor) {
+            analysePending(monitor);
+            return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+        }
+    };
+
+    public XrefService(final CallGraph graph) {
+        this.graph = graph;
+        graph.addListener(this::invalidate);
+        job.setSystem(true);
+        job.setPriority(Job.DECORATE);
+    }
+
+    public static XrefService getDefault() {
+        return XrefService.instance;
+    }
+
+    /**
+     * These modules were compiled; analyse them again.
+     */
+    public void modulesChanged(final Collection<IErlModule> modules) {
+        if (modules.isEmpty()) {
+            return;
+        }
+        synchronized (pending) {
+            pending.addAll(modules);
+        }
+        job.schedule();
+    }
+
+    /**
+     * The module was parsed from this text; scan its calls.
+     */
+    public void moduleParsed(final IErlModule module, final String text) {
+        synchronized (pending) {
+            parsed.put(module, text);
+        }
+        job.schedule();
+    }
+
+    /**
+     * These modules (names without extension) of the project don't exist anymore.
+     */
+    public void modulesRemoved(final String project, final Collection<String> modules) {
+        for (final String module : modules) {
+            graph.removeModule(XrefService.unit(project, module));
+        }
+    }
+
+    /**
+     * @return true if no reported change is waiting to be analysed
+     */
+    public boolean isCurrent() {
+        synchronized (pending) {
+            return pending.isEmpty() && parsed.isEmpty()
+                    && job.getState() != Job.RUNNING;
+        }
+    }
+
+    /**
+     * @return true if the calls of the module are in the call graph
+     */
+    public boolean isAnalysed(final IErlModule module) {
+        return graph.hasModule(XrefService.unit(module));
+    }
+
+    /**
+     * @return the key of the module's calls in the call graph
+     */
+    public static String unit(final IErlModule module) {
+        final IErlProject project = ErlangEngine.getInstance().getModelUtilService()
+                .getProject(module);
+        return XrefService.unit(project == null ? "" : project.getName(),
+                module.getModuleName());
+    }
+
+    public static String unit(final String project, final String module) {
+        return project + "/" + module;
+    }
+
+    /**
+     * @return the functions that call the given one
+     */
+    public List<FunctionRef> functionUse(final FunctionRef function) {
+        return uses.computeIfAbsent(function.toString(),
+                key -> ImmutableList.copyOf(graph.getCallers(function)));
+    }
+
+    /**
+     * Analyse the modules reported so far, in the calling thread.
+     */
+    public void analysePending(final IProgressMonitor monitor) {
+        while (!monitor.isCanceled()) {
+            final IErlModule module;
+            synchronized (pending) {
+                if (pending.isEmpty()) {
+                    break;
+                }
+                module = pending.iterator().next();
+                pending.remove(module);
+            }
+            try {
+                // parsing the module reports its text
+                module.open(monitor);
+            } catch (final ErlModelException e) {
+                ErlLogger.warn(e);
+            }
+        }
+        while (!monitor.isCanceled()) {
+            final Map.Entry<IErlModule, String> entry;
+            synchronized (pending) {
+                if (parsed.isEmpty()) {
+                    return;
+                }
+                entry = parsed.entrySet().iterator().next();
+                parsed.remove(entry.getKey());
+            }
+            scanCalls(entry.getKey(), entry.getValue());
+        }
+    }
+
+    private void scanCalls(final IErlModule module, final String text) {
+        try {
+            final List<ErlToken> tokens = ErlangEngine.getInstance()
+                    .getSimpleScannerService().getTokens(module.getScannerName());
+            if (!XrefService.matches(tokens, text)) {
+                return;
+            }
+            synchronized (pending) {
+                if (parsed.containsKey(module)) {
+                    // edited and parsed again meanwhile, scan the new text
+                    return;
+                }
+            }
+            graph.setModuleCalls(XrefService.unit(module),
+                    CallScanner.scan(module, text, tokens));
+        } catch (final ScannerException e) {
+            ErlLogger.debug(e);
+        } catch (final ErlModelException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+    /**
+     * @return false if the scanner got edits that the text doesn't have yet; the
+     *         module will be parsed and reported again
+     */
+    private static boolean matches(final List<ErlToken> tokens, final String text) {
+        if (tokens == null) {
+            return false;
+        }
+        for (final ErlToken token : tokens) {
+            if (token.getOffset() + token.getLength() > text.length()) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private void invalidate(final Set<FunctionRef> changed) {
+        for (final FunctionRef ref : changed) {
+            uses.remove(ref.toString());
+        }
+    }
+
+    /**
+     * Drop all cached results.
+     */
+    public void clear() {
+        uses.clear();
+    }
+
+}
@@ -0,0 +1,670 @@
+package org.erlide.engine.services.text;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import com.google.common.base.Objects;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Computes the indentation of Erlang code in Java, without asking the backend.
+ *
+ * <p>
+ * The code is scanned line by line. The state at the start of a line is the stack
+ * of open brackets, blocks (<code>case</code>, <code>fun</code>, <code>try</code>,
+ * ...) and clauses, and whether a string or quoted atom continues from the previous
+ * line. These states are cached per line, so that only the lines between the last
+ * edit and the line being indented have to be scanned again. Call
+ * {@link #invalidate(int, int, int)} before the text is changed. The states after
+ * the edit are kept, and scanning stops at the first line whose new state is the
+ * one it had before.
+ *
+ * <p>
+ * A form ends at a dot followed by whitespace, which resets the state, so errors
+ * in one form don't affect the next.
+ */
+public class IndentEngine {
+
+    /**
+     * The lines of a document, without their line delimiters.
+     */
+    public interface Lines {
+        int getNumberOfLines();
+
+        String getLine(int line);
+    }
+
+    public static class Settings {
+        private final int indentWidth;
+        private final int tabWidth;
+        private final boolean useTabs;
+        private final Map<String, Integer> prefs = Maps.newHashMap();
+
+        public Settings(final int indentWidth, final int tabWidth, final boolean useTabs,
+                final Map<String, String> prefs) {
+            this.indentWidth = indentWidth;
+            this.tabWidth = tabWidth <= 0 ? 8 : tabWidth;
+            this.useTabs = useTabs;
+            for (final Map.Entry<String, String> e : prefs.entrySet()) {
+                final String s = e.getValue();
+                if ("false".equals(s)) {
+                    this.prefs.put(e.getKey(), 0);
+                } else if ("true".equals(s)) {
+                    this.prefs.put(e.getKey(), 1);
+                } else {
+                    try {
+                        this.prefs.put(e.getKey(), Integer.parseInt(s));
+                    } catch (final NumberFormatException ex) {
+                        // use the default
+                    }
+                }
+            }
+        }
+
+        public int get(final String key, final int defaultValue) {
+            final Integer value = prefs.get(key);
+            return value == null ? defaultValue : value;
+        }
+
+        public boolean getBoolean(final String key) {
+            return get(key, 0) != 0;
+        }
+
+        public int getIndentWidth() {
+            return indentWidth;
+        }
+
+        public int getTabWidth() {
+            return tabWidth;
+        }
+
+        public boolean isUseTabs() {
+            return useTabs;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof Settings)) {
+                return false;
+            }
+            final Settings other = (Settings) obj;
+            return indentWidth == other.indentWidth && tabWidth == other.tabWidth
+                    && useTabs == other.useTabs && prefs.equals(other.prefs);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(indentWidth, tabWidth, useTabs, prefs);
+        }
+    }
+
+    private static final int BRACKET = 0;
+    private static final int BLOCK = 1;
+    private static final int CLAUSE = 2;
+
+    private static final Set<String> BINARY_OPERATORS = ImmutableSet.of("=", "+", "-",
+            "*", "/", "++", "--", "==", "/=", "=<", "<", ">=", ">", "=:=", "=/=", "!",
+            "<-", "<=", "||", "|", "::", "=>", ":=", "andalso", "orelse", "and", "or",
+            "xor", "band", "bor", "bxor", "bsl", "bsr", "div", "rem");
+    private static final String[] OPERATORS = { "=:=", "=/=", "...", "->", "<<", ">>",
+            "||", "::", "=>", ":=", "<-", "<=", "==", "/=", "=<", ">=", "++", "--" };
+
+    /**
+     * An open bracket, block or clause. Frames are never modified, so states can
+     * share them.
+     */
+    private static final class Frame {
+        final Frame parent;
+        final int kind;
+        final String token;
+        /** the column of the closing token */
+        final int close;
+        /** the column of the lines inside */
+        final int content;
+
+        Frame(final Frame parent, final int kind, final String token, final int close,
+                final int content) {
+            this.parent = parent;
+            this.kind = kind;
+            this.token = token;
+            this.close = close;
+            this.content = content;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (this == obj) {
+                return true;
+            }
+            if (!(obj instanceof Frame)) {
+                return false;
+            }
+            final Frame other = (Frame) obj;
+            return kind == other.kind && close == other.close
+                    && content == other.content && token.equals(other.token)
+                    && Objects.equal(parent, other.parent);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(parent, kind, token, close, content);
+        }
+    }
+
+    /**
+     * The scanner state at the start of a line.
+     */
+    public static final class State {
+        public static final State EMPTY = new State(null, (char) 0, false);
+
+        final Frame top;
+        /** the quote of the string or atom that continues, or 0 */
+        final char quote;
+        /** the previous line ended with a binary operator */
+        final boolean continued;
+
+        State(final Frame top, final char quote, final boolean continued) {
+            this.top = top;
+            this.quote = quote;
+            this.continued = continued;
+        }
+
+        public int getDepth() {
+            int result = 0;
+            for (Frame f = top; f != null; f = f.parent) {
+                result++;
+            }
+            return result;
+        }
+
+        @Override
+        public boolean equals(final Object obj) {
+            if (!(obj instanceof State)) {
+                return false;
+            }
+            final State other = (State) obj;
+            return quote == other.quote && continued == other.continued
+                    && Objects.equal(top, other.top);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hashCode(top, quote, continued);
+        }
+    }
+
+    private Settings settings = new Settings(4, 8, false,
+            Maps.<String, String> newHashMap());
+    private final List<State> states = Lists.newArrayList();
+    // the states before this line are up to date, the ones after it may be old
+    private int valid;
+    // the last changed line; an old state after it can be used again
+    private int changed = -1;
+
+    /**
+     * Use new settings, dropping the cached states if they changed.
+     */
+    public synchronized void setSettings(final Settings newSettings) {
+        if (!settings.equals(newSettings)) {
+            settings = newSettings;
+            clear();
+        }
+    }
+
+    public synchronized Settings getSettings() {
+        return settings;
+    }
+
+    /**
+     * Forget all cached states.
+     */
+    public synchronized void clear() {
+        states.clear();
+        valid = 0;
+        changed = -1;
+    }
+
+    /**
+     * Mark the states that depend on a change as old. The states of the lines after
+     * the change are kept, moved to the lines they will be at.
+     *
+     * @param line
+     *            the first changed line
+     * @param removedLines
+     *            the number of line delimiters in the replaced text
+     * @param addedLines
+     *            the number of line delimiters in the new text
+     */
+    public synchronized void invalidate(final int line, final int removedLines,
+            final int addedLines) {
+        final int first = Math.max(0, line + 1);
+        if (states.size() > first) {
+            final int last = first + removedLines;
+            if (last >= states.size()) {
+                states.subList(first, states.size()).clear();
+            } else {
+                states.subList(first, last).clear();
+                // the states of the new lines are not known
+                states.addAll(first, Collections.<State> nCopies(addedLines, null));
+            }
+        }
+        valid = Math.min(valid, first);
+        if (changed >= line) {
+            changed = Math.max(changed + addedLines - removedLines, line + addedLines);
+        } else {
+            changed = line + addedLines;
+        }
+    }
+
+    /**
+     * @return the state at the start of the line, scanning the lines after the last
+     *         cached state
+     */
+    public synchronized State getState(final Lines lines, final int line) {
+        if (states.isEmpty()) {
+            states.add(State.EMPTY);
+            valid = 1;
+        }
+        final int target = Math.min(line, lines.getNumberOfLines());
+        while (valid <= target) {
+            final State state = scan(states.get(valid - 1), lines.getLine(valid - 1));
+            if (valid == states.size()) {
+                states.add(state);
+                valid++;
+            } else if (valid > changed && state.equals(states.get(valid))) {
+                // the lines after are unchanged, so are their states
+                valid = states.size();
+                changed = -1;
+            } else {
+                states.set(valid, state);
+                valid++;
+            }
+        }
+        return states.get(Math.max(0, target));
+    }
+
+    /**
+     * @return the number of lines whose state is cached and up to date
+     */
+    public synchronized int getCachedLines() {
+        return valid;
+    }
+
+    /**
+     * @return the column the line should start at, or -1 if it starts inside a
+     *         string and must be left alone
+     */
+    public int getIndent(final State state, final String line) {
+        if (state.quote != 0) {
+            return -1;
+        }
+        final Settings s = getSettings();
+        final String first = IndentEngine.firstToken(line);
+        Frame top = state.top;
+        if ("end".equals(first)) {
+            top = IndentEngine.popClauses(top);
+            if (top != null && top.kind == IndentEngine.BLOCK) {
+                return top.close;
+            }
+        } else if (")".equals(first) || "]".equals(first) || "}".equals(first)
+                || ">>".equals(first)) {
+            top = IndentEngine.popClauses(top);
+            if (top != null && top.kind == IndentEngine.BRACKET) {
+                return top.close;
+            }
+        } else if ("of".equals(first) || "catch".equals(first)
+                || "after".equals(first)) {
+            final Frame block = IndentEngine.popClauses(top);
+            if (block != null && block.kind == IndentEngine.BLOCK
+                    && IndentEngine.isSection(block.token, first)) {
+                return block.close;
+            }
+        }
+        int result = top == null ? 0 : top.content;
+        if (state.continued) {
+            result += s.get("after_binary_op", s.getIndentWidth());
+        }
+        return result;
+    }
+
+    /**
+     * @return the text of the line with its indentation recomputed
+     */
+    public String indentLine(final State state, final String line) {
+        final int indent = getIndent(state, line);
+        if (indent < 0) {
+            return line;
+        }
+        return indentString(indent) + IndentEngine.trimLeft(line);
+    }
+
+    /**
+     * Indent a range of lines.
+     *
+     * @return the new text of the lines from <code>first</code> to
+     *         <code>last</code>, both included
+     */
+    public List<String> indentLines(final Lines lines, final int first, final int last) {
+        final List<String> result = Lists.newArrayList();
+        State state = getState(lines, first);
+        for (int i = first; i <= last && i < lines.getNumberOfLines(); i++) {
+            final String line = indentLine(state, lines.getLine(i));
+            result.add(line);
+            state = scan(state, line);
+        }
+        return result;
+    }
+
+    public String indentString(final int column) {
+        final Settings s = getSettings();
+        final StringBuilder result = new StringBuilder();
+        int n = column;
+        if (s.isUseTabs()) {
+            while (n >= s.getTabWidth()) {
+                result.append('\t');
+                n -= s.getTabWidth();
+            }
+        }
+        while (n-- > 0) {
+            result.append(' ');
+        }
+        return result.toString();
+    }
+
+    /**
+     * @return the state after scanning the text, which is the state at the start
+     *         of the next line if the text is a whole line
+     */
+    public State scan(final State state, final String text) {
+        final Settings s = getSettings();
+        final int n = text.length();
+        final int lineIndent = visualColumn(text, IndentEngine.indentLength(text));
+        Frame top = state.top;
+        char quote = state.quote;
+        boolean continued = false;
+        int col = 0;
+        int i = 0;
+        while (i < n) {
+            if (quote != 0) {
+                while (i < n && text.charAt(i) != quote) {
+                    col = advance(text.charAt(i), col);
+                    if (text.charAt(i) == '\\' && i + 1 < n) {
+                        i++;
+                        col++;
+                    }
+                    i++;
+                }
+                if (i >= n) {
+                    break;
+                }
+                quote = 0;
+                col++;
+                i++;
+                continued = false;
+                continue;
+            }
+            final char c = text.charAt(i);
+            if (c == ' ' || c == '\t' || c == '\r' || c == '\n') {
+                col = advance(c, col);
+                i++;
+                continue;
+            }
+            if (c == '%') {
+                break;
+            }
+            if (c == '"' || c == '\'') {
+                quote = c;
+                col++;
+                i++;
+                continue;
+            }
+            final int start = i;
+            final int startCol = col;
+            String token;
+            if (c == '$') {
+                i = Math.min(n, i + (i + 1 < n && text.charAt(i + 1) == '\\' ? 3 : 2));
+                token = "$";
+            } else if (Character.isLetter(c) || c == '_') {
+                while (i < n && IndentEngine.isNameChar(text.charAt(i))) {
+                    i++;
+                }
+                token = text.substring(start, i);
+            } else if (Character.isDigit(c)) {
+                while (i < n && (IndentEngine.isNameChar(text.charAt(i))
+                        || text.charAt(i) == '#' || text.charAt(i) == '.' && i + 1 < n
+                                && Character.isDigit(text.charAt(i + 1)))) {
+                    i++;
+                }
+                token = "0";
+            } else {
+                token = IndentEngine.operator(text, i);
+                i += token.length();
+            }
+            col = startCol + (i - start);
+
+            if (".".equals(token) && IndentEngine.isDotEnd(text, i)) {
+                // end of form
+                top = null;
+                continued = false;
+                continue;
+            }
+            continued = IndentEngine.BINARY_OPERATORS.contains(token);
+            switch (token) {
+            case "(":
+            case "[":
+            case "{":
+            case "<<": {
+                final boolean hanging = IndentEngine.restIsEmpty(text, i);
+                final int offset = "<<".equals(token) ? s.get("<<", 2) : s.get("paren", 1);
+                top = hanging
+                        ? new Frame(top, IndentEngine.BRACKET, token,
+                                lineIndent + s.get("end_paren", 0),
+                                lineIndent + s.getIndentWidth())
+                        : new Frame(top, IndentEngine.BRACKET, token,
+                                startCol + s.get("end_paren", 0), startCol + offset);
+                break;
+            }
+            case ")":
+            case "]":
+            case "}":
+            case ">>":
+                top = IndentEngine.popClauses(top);
+                if (top != null && top.kind == IndentEngine.BRACKET) {
+                    top = top.parent;
+                }
+                break;
+            case "case":
+                top = new Frame(top, IndentEngine.BLOCK, token, startCol,
+                        startCol + s.getIndentWidth());
+                break;
+            case "if":
+            case "receive":
+                top = new Frame(top, IndentEngine.BLOCK, token, startCol,
+                        startCol + s.get("case", s.getIndentWidth()));
+                break;
+            case "try":
+                top = new Frame(top, IndentEngine.BLOCK, token, startCol,
+                        startCol + s.get("try", s.getIndentWidth()));
+                break;
+            case "begin":
+                top = new Frame(top, IndentEngine.BLOCK, token, startCol,
+                        startCol + s.getIndentWidth());
+                break;
+            case "fun":
+                if (IndentEngine.isFunBlock(text, i)) {
+                    top = new Frame(top, IndentEngine.BLOCK, token, startCol,
+                            startCol + s.getIndentWidth());
+                }
+                break;
+            case "of":
+            case "catch":
+            case "after": {
+                final Frame block = IndentEngine.popClauses(top);
+                if (block != null && block.kind == IndentEngine.BLOCK
+                        && IndentEngine.isSection(block.token, token)) {
+                    final String key = "of".equals(token) ? "case".equals(block.token)
+                            ? "case" : "try" : "catch".equals(token) ? "catch" : "case";
+                    top = new Frame(block.parent, IndentEngine.BLOCK, block.token,
+                            block.close,
+                            block.close + s.get(key, s.getIndentWidth()));
+                    continued = false;
+                }
+                break;
+            }
+            case "end":
+                top = IndentEngine.popClauses(top);
+                if (top != null && top.kind == IndentEngine.BLOCK) {
+                    top = top.parent;
+                }
+                break;
+            case "->":
+                if (top == null) {
+                    top = new Frame(null, IndentEngine.CLAUSE, token, 0,
+                            s.get("clause", s.getIndentWidth()));
+                } else if (top.kind == IndentEngine.BLOCK) {
+                    final int body = "fun".equals(top.token)
+                            ? top.close + s.getIndentWidth()
+                            : top.content + s.get("after_arrow", s.getIndentWidth());
+                    top = new Frame(top, IndentEngine.CLAUSE, token, top.content, body);
+                }
+                break;
+            case ";":
+                if (top != null && top.kind == IndentEngine.CLAUSE) {
+                    top = IndentEngine.popClauses(top);
+                }
+                break;
+            default:
+                break;
+            }
+        }
+        return new State(top, quote, continued);
+    }
+
+    private static Frame popClauses(final Frame frame) {
+        Frame result = frame;
+        while (result != null && result.kind == IndentEngine.CLAUSE) {
+            result = result.parent;
+        }
+        return result;
+    }
+
+    private static boolean isSection(final String block, final String keyword) {
+        switch (keyword) {
+        case "of":
+            return "case".equals(block) || "try".equals(block);
+        case "catch":
+            return "try".equals(block);
+        case "after":
+            return "try".equals(block) || "receive".equals(block);
+        default:
+            return false;
+        }
+    }
+
+    private int advance(final char c, final int col) {
+        if (c == '\t') {
+            final int tab = getSettings().getTabWidth();
+            return (col / tab + 1) * tab;
+        }
+        return col + 1;
+    }
+
+    private int visualColumn(final String text, final int index) {
+        int col = 0;
+        for (int i = 0; i < index; i++) {
+            col = advance(text.charAt(i), col);
+        }
+        return col;
+    }
+
+    private static boolean isNameChar(final char c) {
+        return Character.isLetterOrDigit(c) || c == '_' || c == '@';
+    }
+
+    private static String operator(final String text, final int i) {
+        for (final String op : IndentEngine.OPERATORS) {
+            if (text.startsWith(op, i)) {
+                return op;
+            }
+        }
+        return text.substring(i, i + 1);
+    }
+
+    /**
+     * A dot followed by whitespace, a comment or the end of the line ends a form.
+     */
+    private static boolean isDotEnd(final String text, final int i) {
+        if (i >= text.length()) {
+            return true;
+        }
+        final char c = text.charAt(i);
+        return Character.isWhitespace(c) || c == '%';
+    }
+
+    private static boolean restIsEmpty(final String text, final int i) {
+        for (int j = i; j < text.length(); j++) {
+            final char c = text.charAt(j);
+            if (c == '%') {
+                return true;
+            }
+            if (!Character.isWhitespace(c)) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * <code>fun (...) -> ... end</code> and <code>fun Name(...) -> ... end</code>
+     * are blocks, <code>fun f/1</code> and <code>fun M:f/1</code> are not.
+     */
+    private static boolean isFunBlock(final String text, final int i) {
+        int j = i;
+        while (j < text.length() && Character.isWhitespace(text.charAt(j))) {
+            j++;
+        }
+        if (j >= text.length() || text.charAt(j) == '(' || text.charAt(j) == '%') {
+            return true;
+        }
+        if (!Character.isUpperCase(text.charAt(j))) {
+            return false;
+        }
+        while (j < text.length() && IndentEngine.isNameChar(text.charAt(j))) {
+            j++;
+        }
+        return j < text.length() && text.charAt(j) == '(';
+    }
+
+    private static int indentLength(final String text) {
+        int i = 0;
+        while (i < text.length() && (text.charAt(i) == ' ' || text.charAt(i) == '\t')) {
+            i++;
+        }
+        return i;
+    }
+
+    private static String trimLeft(final String text) {
+        return text.substring(IndentEngine.indentLength(text));
+    }
+
+    private static String firstToken(final String line) {
+        final String text = IndentEngine.trimLeft(line);
+        if (text.isEmpty()) {
+            return "";
+        }
+        final char c = text.charAt(0);
+        if (Character.isLetter(c)) {
+            int i = 1;
+            while (i < text.length() && IndentEngine.isNameChar(text.charAt(i))) {
+                i++;
+            }
+            return text.substring(0, i);
+        }
+        return IndentEngine.operator(text, 0);
+    }
+
+}
@@ -0,0 +1,59 @@
+package org.erlide.engine.util;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.model.OtpRpcFactory;
+import org.erlide.runtime.rpc.IOtpRpc;
+import org.erlide.runtime.runtimeinfo.RuntimeVersion;
+import org.erlide.util.ErlLogger;
+import org.erlide.util.SystemConfiguration;
+
+/**
+ * Fetches the documentation of all the OTP modules of a runtime into the
+ * documentation cache in the background, so that hovers and completion details
+ * don't have to wait for the backend. Functions already in the cache are skipped, so
+ * only the first run for an OTP installation does any real work.
+ *
+ * <p>
+ * Opt-in, enable with <code>-Derlide.doc.warmup=true</code>.
+ */
+public class DocCacheWarmupJob extends Job {
+
+    public static final String FEATURE = "erlide.doc.warmup";
+
+    private final RuntimeVersion version;
+
+    /**
+     * @param version
+     *            the runtime whose documentation to fetch, or null for the one the
+     *            IDE runs on
+     */
+    public DocCacheWarmupJob(final RuntimeVersion version) {
+        super("Fetching OTP documentation");
+        this.version = version;
+        setPriority(Job.DECORATE);
+    }
+
+    public static boolean isEnabled() {
+        return SystemConfiguration.hasFeatureEnabled(DocCacheWarmupJob.FEATURE);
+    }
+
+    @Override
+    protected IStatus run(final IProgressMonitor monitor) {
+        final IOtpRpc backend = version == null ? OtpRpcFactory.getOtpRpc()
+                : OtpRpcFactory.getOtpRpc(version);
+        if (backend == null) {
+            return Status.OK_STATUS;
+        }
+        final long start = System.currentTimeMillis();
+        ErlangEngine.getInstance().getOtpDocService().warmUpCache(backend, monitor);
+        ErlLogger.info("Documentation warm-up for %s done in %d ms",
+                version == null ? "the IDE runtime" : version,
+                System.currentTimeMillis() - start);
+        return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+    }
+
+}
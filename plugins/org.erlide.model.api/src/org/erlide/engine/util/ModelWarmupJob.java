@@ -0,0 +1,192 @@
+package org.erlide.engine.util;
+
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.CoreException;
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
+import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.root.IErlModel;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.engine.model.root.IErlProject;
+import org.erlide.engine.services.search.ModelFindService;
+import org.erlide.util.ErlLogger;
+import org.erlide.util.SystemConfiguration;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Opens (and thus parses) all the source modules in the workspace in the background,
+ * so that the model and the scanner state on the IDE backend are ready when the user
+ * first needs them. Modules of open editors and their includes are handled first.
+ *
+ * <p>
+ * Opt-in, enable with <code>-Derlide.model.warmup=true</code>.
+ */
+public class ModelWarmupJob extends Job {
+
+    public static final String FEATURE = "erlide.model.warmup";
+
+    private static final int MAX_THREADS = Integer
+            .parseInt(System.getProperty("erlide.model.warmup.threads", "4"));
+    private static final int SLOWEST_REPORTED = 5;
+
+    private final Collection<IErlModule> priorityModules;
+    private final int threads;
+    private final Map<IErlModule, Long> timings = Maps.newConcurrentMap();
+    private volatile long totalTime;
+
+    public ModelWarmupJob(final Collection<IErlModule> priorityModules) {
+        this(priorityModules, ModelWarmupJob.MAX_THREADS);
+    }
+
+    public ModelWarmupJob(final Collection<IErlModule> priorityModules,
+            final int threads) {
+        super("Initializing Erlang model");
+        this.priorityModules = Lists.newArrayList(priorityModules);
+        this.threads = Math.max(1, threads);
+        setPriority(Job.DECORATE);
+    }
+
+    public static boolean isEnabled() {
+        return SystemConfiguration.hasFeatureEnabled(ModelWarmupJob.FEATURE);
+    }
+
+    @Override
+    protected IStatus run(final IProgressMonitor monitor) {
+        final long start = System.currentTimeMillis();
+        final List<IErlModule> modules;
+        try {
+            modules = collectModules(monitor);
+        } catch (final CoreException e) {
+            ErlLogger.warn(e);
+            return Status.OK_STATUS;
+        }
+        monitor.beginTask("Parsing Erlang modules", modules.size());
+
+        final ExecutorService executor = Executors.newFixedThreadPool(threads);
+        final AtomicInteger done = new AtomicInteger(timings.size());
+        final List<Future<?>> futures = Lists.newArrayList();
+        for (final IErlModule module : modules) {
+            if (timings.containsKey(module)) {
+                continue;
+            }
+            futures.add(executor.submit(() -> {
+                if (monitor.isCanceled()) {
+                    return;
+                }
+                timedParse(module);
+                done.incrementAndGet();
+            }));
+        }
+        executor.shutdown();
+
+        int reported = 0;
+        try {
+            while (!executor.awaitTermination(100, TimeUnit.MILLISECONDS)) {
+                if (monitor.isCanceled()) {
+                    executor.shutdownNow();
+                    break;
+                }
+                final int current = done.get();
+                monitor.worked(current - reported);
+                reported = current;
+            }
+        } catch (final InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+        monitor.done();
+
+        totalTime = System.currentTimeMillis() - start;
+        logTimings(modules.size());
+        return monitor.isCanceled() ? Status.CANCEL_STATUS : Status.OK_STATUS;
+    }
+
+    /**
+     * Priority modules and their includes come first, then everything else in the
+     * workspace. Listing the projects' modules and includes fills the model cache.
+     * Priority modules are parsed right away, their includes are only known then.
+     */
+    private List<IErlModule> collectModules(final IProgressMonitor monitor)
+            throws CoreException {
+        final Set<IErlModule> result = Sets.newLinkedHashSet();
+        final ModelFindService findService = ErlangEngine.getInstance()
+                .getModelFindService();
+        for (final IErlModule module : priorityModules) {
+            if (module == null || monitor.isCanceled()) {
+                continue;
+            }
+            result.add(module);
+            timedParse(module);
+            final Collection<IErlModule> includes = findService
+                    .findAllIncludedFiles(module);
+            for (final IErlModule include : includes) {
+                if (!monitor.isCanceled() && result.add(include)) {
+                    timedParse(include);
+                }
+            }
+        }
+        if (monitor.isCanceled()) {
+            return Lists.newArrayList(result);
+        }
+        final IErlModel model = ErlangEngine.getInstance().getModel();
+        for (final IErlProject project : model.getErlangProjects()) {
+            result.addAll(project.getModules());
+            result.addAll(project.getIncludes());
+        }
+        return Lists.newArrayList(result);
+    }
+
+    private void timedParse(final IErlModule module) {
+        final long t0 = System.currentTimeMillis();
+        try {
+            parse(module);
+        } catch (final ErlModelException e) {
+            ErlLogger.warn("Could not parse %s: %s", module.getName(), e.getMessage());
+        }
+        timings.put(module, System.currentTimeMillis() - t0);
+    }
+
+    protected void parse(final IErlModule module) throws ErlModelException {
+        module.open(null);
+    }
+
+    private void logTimings(final int total) {
+        final List<Map.Entry<IErlModule, Long>> entries = Lists
+                .newArrayList(timings.entrySet());
+        entries.sort(Comparator.comparing(Map.Entry<IErlModule, Long>::getValue)
+                .reversed());
+        final StringBuilder slowest = new StringBuilder();
+        for (final Map.Entry<IErlModule, Long> entry : entries.subList(0,
+                Math.min(ModelWarmupJob.SLOWEST_REPORTED, entries.size()))) {
+            slowest.append(' ').append(entry.getKey().getName()).append('=')
+                    .append(entry.getValue()).append("ms");
+        }
+        ErlLogger.info("Model warm-up: parsed %d of %d modules in %d ms; slowest:%s",
+                timings.size(), total, totalTime, slowest);
+    }
+
+    public Map<IErlModule, Long> getTimings() {
+        return Maps.newHashMap(timings);
+    }
+
+    public long getTotalTime() {
+        return totalTime;
+    }
+
+}
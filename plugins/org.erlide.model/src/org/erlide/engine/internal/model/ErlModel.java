@@ -205,11 +205,16 @@ public class ErlModel extends Openable implements IErlModel {
 
     @Override
     public void notifyChange(final IErlElement element) {
+        notifyChange(element, null);
+    }
+
+    @Override
+    public void notifyChange(final IErlElement element, final IErlElementDelta delta) {
         if (System.getProperty("erlide.model.notify") != null) {
             ErlLogger.debug("   caller = " + ErlModel.getStack());
         }
         for (final IErlModelChangeListener listener : fListeners) {
-            listener.elementChanged(element);
+            listener.elementChanged(element, delta);
         }
     }
 
@@ -48,6 +48,7 @@ import org.erlide.engine.model.erlang.IErlTypespec;
 import org.erlide.engine.model.erlang.ISourceRange;
 import org.erlide.engine.model.erlang.ISourceReference;
 import org.erlide.engine.model.erlang.SourceKind;
+import org.erlide.engine.model.root.IErlElementDelta;
 import org.erlide.engine.model.root.IErlFolder;
 import org.erlide.engine.model.root.IErlModel;
 import org.erlide.engine.model.root.IErlModule;
@@ -55,6 +56,7 @@ import org.erlide.engine.model.root.IErlProject;
 import org.erlide.engine.model.root.ISourceUnit;
 import org.erlide.engine.services.parsing.ScannerService;
 import org.erlide.engine.services.search.ModelUtilService;
+import org.erlide.engine.services.search.XrefService;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.SystemConfiguration;
 import org.erlide.util.Util;
@@ -78,6 +80,13 @@ public class ErlModule extends Openable implements IErlModule {
     private final Collection<IErlComment> comments;
     private ScannerService scanner;
     private final Charset encoding;
+    private MemberIndex memberIndex;
+    // the text with the reconciled edits applied, kept while an editor works on the
+    // module; null if unknown
+    private StringBuilder currentText;
+    // the scanner has edits that aren't in initialText
+    private boolean edited;
+    private final MemberDiff memberDiff = new MemberDiff();
 
     private final ModelUtilService modelUtilService;
 
@@ -110,12 +119,18 @@ public class ErlModule extends Openable implements IErlModule {
         }
     }
 
-    public boolean internalBuildStructure(final IProgressMonitor pm) {
+    /**
+     * @param parsedText
+     *            the text the scanner has now, or null if unknown
+     */
+    private boolean internalBuildStructure(final String text, final String parsedText) {
         setChildren(null);
-        final String text = getInitialText();
         if (text != null) {
             final ErlParser parser = new ErlParser(OtpRpcFactory.getOtpRpc());
             parsed = parser.parse(this, scannerName, !parsed, getFilePath(), text, true);
+            if (moduleKind == SourceKind.ERL && parsedText != null) {
+                XrefService.getDefault().moduleParsed(this, parsedText);
+            }
             return parsed;
         }
         return true;
@@ -164,10 +179,20 @@ public class ErlModule extends Openable implements IErlModule {
     @Override
     public synchronized boolean buildStructure(final IProgressMonitor pm)
             throws ErlModelException {
-        if (internalBuildStructure(pm)) {
+        final String text = getInitialText();
+        String parsedText = text;
+        if (edited) {
+            parsedText = currentText == null ? null : currentText.toString();
+        }
+        if (internalBuildStructure(text, parsedText)) {
+            final IErlElementDelta delta;
+            synchronized (getModelLock()) {
+                delta = memberDiff.update(this, internalGetChildren(), comments,
+                        parsedText);
+            }
             final IErlModel model = ErlangEngine.getInstance().getModel();
             if (model != null) {
-                model.notifyChange(this);
+                model.notifyChange(this, delta);
             }
             return true;
         }
@@ -187,7 +212,12 @@ public class ErlModule extends Openable implements IErlModule {
 
     @Override
     public IErlElement getElementAt(final int position) throws ErlModelException {
-        return ErlangEngine.getInstance().getModel().innermostThat(this, e -> {
+        final IErlElement member = getMemberIndex().findAtOffset(position);
+        if (member == null) {
+            return null;
+        }
+        // look for a clause inside the member
+        return ErlangEngine.getInstance().getModel().innermostThat(member, e -> {
             if (e instanceof ISourceReference) {
                 final ISourceReference ch = (ISourceReference) e;
                 ISourceRange r;
@@ -202,7 +232,11 @@ public class ErlModule extends Openable implements IErlModule {
 
     @Override
     public IErlMember getElementAtLine(final int lineNumber) {
-        return (IErlMember) ErlangEngine.getInstance().getModel().innermostThat(this,
+        final IErlElement member = getMemberIndex().findAtLine(lineNumber);
+        if (member == null) {
+            return null;
+        }
+        return (IErlMember) ErlangEngine.getInstance().getModel().innermostThat(member,
                 e -> {
                     if (e instanceof ISourceReference) {
                         final ISourceReference sr = (ISourceReference) e;
@@ -215,6 +249,23 @@ public class ErlModule extends Openable implements IErlModule {
                 });
     }
 
+    private MemberIndex getMemberIndex() {
+        synchronized (getModelLock()) {
+            if (memberIndex == null) {
+                memberIndex = new MemberIndex(internalGetChildren());
+            }
+            return memberIndex;
+        }
+    }
+
+    @Override
+    public void clearCaches() {
+        synchronized (getModelLock()) {
+            memberIndex = null;
+        }
+        super.clearCaches();
+    }
+
     @Override
     public SourceKind getSourceKind() {
         return moduleKind;
@@ -385,6 +436,16 @@ public class ErlModule extends Openable implements IErlModule {
         if (scanner != null) {
             scanner.replaceText(offset, removeLength, newText);
         }
+        // the first edit starts the working copy text
+        if (currentText == null && !edited && initialText != null) {
+            currentText = new StringBuilder(initialText);
+        }
+        edited = true;
+        if (currentText != null && offset + removeLength <= currentText.length()) {
+            currentText.replace(offset, offset + removeLength, newText);
+        } else {
+            currentText = null;
+        }
         if (mon != null) {
             mon.worked(1);
         }
@@ -412,7 +473,8 @@ public class ErlModule extends Openable implements IErlModule {
 
     @Override
     public synchronized void finalReconcile() {
-        // currently unused
+        // the editor is gone, its text isn't needed anymore
+        currentText = null;
     }
 
     @Override
@@ -475,6 +537,8 @@ public class ErlModule extends Openable implements IErlModule {
     public synchronized void resetAndCacheScannerAndParser(final String newText)
             throws ErlModelException {
         initialText = newText;
+        currentText = null;
+        edited = false;
         parsed = false;
         setStructureKnown(false);
         scanner.initialScan(newText, "", ErlModule.logging);
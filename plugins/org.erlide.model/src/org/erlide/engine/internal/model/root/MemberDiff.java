@@ -0,0 +1,180 @@
+package org.erlide.engine.internal.model.root;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Map.Entry;
+
+import org.erlide.engine.model.ErlElementKind;
+import org.erlide.engine.model.IErlElement;
+import org.erlide.engine.model.erlang.IErlFunction;
+import org.erlide.engine.model.erlang.ISourceRange;
+import org.erlide.engine.model.erlang.ISourceReference;
+import org.erlide.engine.model.root.IErlElementDelta;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Compares the members and comments of a module with those of its previous parse and
+ * describes the difference as a fine-grained delta.
+ *
+ * <p>
+ * Members are matched by kind, name and arity, comments by their text. The contents of
+ * matched members are compared by a hash of their source range, so that a member whose
+ * text is the same but whose offset changed is reported as moved instead of changed.
+ * For changed and moved members the element of the previous parse is returned by
+ * {@link IErlElementDelta#getMovedFromElement()}.
+ */
+final class MemberDiff {
+
+    private static final class Member {
+        final IErlElement element;
+        final int index;
+        final int offset;
+        final int hash;
+
+        Member(final IErlElement element, final int index, final int offset,
+                final int hash) {
+            this.element = element;
+            this.index = index;
+            this.offset = offset;
+            this.hash = hash;
+        }
+    }
+
+    private Map<String, Member> previous = Collections.emptyMap();
+
+    /**
+     * Remember the new members and return how they differ from the previous ones.
+     *
+     * @param text
+     *            the source the members were parsed from
+     * @return the delta for the module, or <code>null</code> if there was nothing to
+     *         compare with or the members don't match the text
+     */
+    ErlElementDelta update(final IErlElement module,
+            final Collection<? extends IErlElement> children,
+            final Collection<? extends IErlElement> comments, final String text) {
+        final Map<String, Member> current = text == null ? null
+                : MemberDiff.members(children, comments, text);
+        final Map<String, Member> old = previous;
+        previous = current == null ? Collections.<String, Member> emptyMap() : current;
+        if (current == null || old.isEmpty()) {
+            return null;
+        }
+        final List<ErlElementDelta> deltas = Lists.newArrayList();
+        boolean fineGrained = true;
+        boolean reordered = false;
+        int lastIndex = -1;
+        for (final Entry<String, Member> entry : current.entrySet()) {
+            final Member member = entry.getValue();
+            final Member before = old.get(entry.getKey());
+            ErlElementDelta delta = null;
+            if (before == null) {
+                delta = new ErlElementDelta(IErlElementDelta.ADDED, 0, member.element);
+            } else {
+                if (before.index < lastIndex) {
+                    reordered = true;
+                }
+                lastIndex = before.index;
+                if (before.hash != member.hash) {
+                    delta = new ErlElementDelta(IErlElementDelta.CHANGED,
+                            IErlElementDelta.F_CONTENT, member.element);
+                } else if (before.offset != member.offset) {
+                    delta = new ErlElementDelta(IErlElementDelta.CHANGED,
+                            IErlElementDelta.F_POSITION, member.element);
+                }
+                if (delta != null) {
+                    delta.fMovedFromElement = before.element;
+                }
+            }
+            if (delta != null) {
+                deltas.add(delta);
+                fineGrained &= !MemberDiff.affectsOthers(member.element);
+            }
+        }
+        for (final Entry<String, Member> entry : old.entrySet()) {
+            if (!current.containsKey(entry.getKey())) {
+                final IErlElement element = entry.getValue().element;
+                deltas.add(new ErlElementDelta(IErlElementDelta.REMOVED, 0, element));
+                fineGrained &= !MemberDiff.affectsOthers(element);
+            }
+        }
+        int flags = deltas.isEmpty() ? 0 : IErlElementDelta.F_CHILDREN;
+        if (fineGrained) {
+            flags |= IErlElementDelta.F_FINE_GRAINED;
+        }
+        if (reordered) {
+            flags |= IErlElementDelta.F_REORDER;
+        }
+        return new ErlElementDelta(IErlElementDelta.CHANGED, flags, module, deltas);
+    }
+
+    private static Map<String, Member> members(
+            final Collection<? extends IErlElement> children,
+            final Collection<? extends IErlElement> comments, final String text) {
+        final Map<String, Member> result = Maps.newLinkedHashMap();
+        final Map<String, Integer> duplicates = Maps.newHashMap();
+        int index = 0;
+        for (final IErlElement element : children) {
+            if (!MemberDiff.add(result, duplicates, MemberDiff.key(element), element,
+                    index++, text)) {
+                return null;
+            }
+        }
+        for (final IErlElement element : comments) {
+            if (!MemberDiff.add(result, duplicates, null, element, index++, text)) {
+                return null;
+            }
+        }
+        return result;
+    }
+
+    private static boolean add(final Map<String, Member> members,
+            final Map<String, Integer> duplicates, final String name,
+            final IErlElement element, final int index, final String text) {
+        if (!(element instanceof ISourceReference)) {
+            return false;
+        }
+        final ISourceRange range = ((ISourceReference) element).getSourceRange();
+        if (range == null) {
+            return false;
+        }
+        final int offset = range.getOffset();
+        final int end = offset + range.getLength();
+        if (offset < 0 || end > text.length()) {
+            return false;
+        }
+        int hash = 1;
+        for (int i = offset; i < end; i++) {
+            hash = 31 * hash + text.charAt(i);
+        }
+        final String key = name != null ? name : "%" + hash;
+        final Integer n = duplicates.get(key);
+        duplicates.put(key, n == null ? 1 : n + 1);
+        members.put(n == null ? key : key + "#" + n,
+                new Member(element, index, offset, hash));
+        return true;
+    }
+
+    private static String key(final IErlElement element) {
+        final StringBuilder result = new StringBuilder();
+        result.append(element.getKind()).append(':').append(element.getName());
+        if (element instanceof IErlFunction) {
+            result.append('/').append(((IErlFunction) element).getArity());
+        }
+        return result.toString();
+    }
+
+    /**
+     * A change in exports or imports changes how the functions are shown, too.
+     */
+    private static boolean affectsOthers(final IErlElement element) {
+        final ErlElementKind kind = element.getKind();
+        return kind == ErlElementKind.EXPORT || kind == ErlElementKind.IMPORT
+                || kind == ErlElementKind.ATTRIBUTE
+                        && "compile".equals(element.getName());
+    }
+}
@@ -0,0 +1,117 @@
+package org.erlide.engine.internal.model.root;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+
+import org.erlide.engine.model.IErlElement;
+import org.erlide.engine.model.erlang.ISourceRange;
+import org.erlide.engine.model.erlang.ISourceReference;
+
+/**
+ * Offset and line lookup of the children of a module, in O(log n) instead of a scan
+ * over all children.
+ *
+ * <p>
+ * The children are sorted by start position, together with the largest end position
+ * seen so far. A query finds the last child starting at or before the position and
+ * walks back only while an earlier child can still reach the position. When children
+ * overlap, the one that comes first in the module wins, as with a linear scan.
+ */
+final class MemberIndex {
+
+    private final Intervals offsets;
+    private final Intervals lines;
+
+    MemberIndex(final Collection<IErlElement> children) {
+        final IErlElement[] elements = children.toArray(new IErlElement[0]);
+        final int n = elements.length;
+        final int[] offsetStart = new int[n];
+        final int[] offsetEnd = new int[n];
+        final int[] lineStart = new int[n];
+        final int[] lineEnd = new int[n];
+        for (int i = 0; i < n; i++) {
+            offsetStart[i] = lineStart[i] = Integer.MAX_VALUE;
+            offsetEnd[i] = lineEnd[i] = Integer.MIN_VALUE;
+            if (elements[i] instanceof ISourceReference) {
+                final ISourceReference ref = (ISourceReference) elements[i];
+                final ISourceRange r = ref.getSourceRange();
+                if (r != null) {
+                    offsetStart[i] = r.getOffset();
+                    offsetEnd[i] = r.getOffset() + r.getLength();
+                }
+                lineStart[i] = ref.getLineStart();
+                lineEnd[i] = ref.getLineEnd();
+            }
+        }
+        offsets = new Intervals(elements, offsetStart, offsetEnd);
+        lines = new Intervals(elements, lineStart, lineEnd);
+    }
+
+    /**
+     * @return the first child whose source range contains the offset, or null
+     */
+    IErlElement findAtOffset(final int offset) {
+        return offsets.find(offset);
+    }
+
+    /**
+     * @return the first child whose lines contain the line, or null
+     */
+    IErlElement findAtLine(final int line) {
+        return lines.find(line);
+    }
+
+    private static final class Intervals {
+        private final IErlElement[] elements;
+        private final int[] order;
+        private final int[] start;
+        private final int[] end;
+        private final int[] maxEnd;
+
+        Intervals(final IErlElement[] children, final int[] starts, final int[] ends) {
+            final Integer[] sorted = new Integer[children.length];
+            for (int i = 0; i < sorted.length; i++) {
+                sorted[i] = i;
+            }
+            Arrays.sort(sorted, Comparator.comparingInt(i -> starts[i]));
+            final int n = sorted.length;
+            elements = new IErlElement[n];
+            order = new int[n];
+            start = new int[n];
+            end = new int[n];
+            maxEnd = new int[n];
+            int max = Integer.MIN_VALUE;
+            for (int i = 0; i < n; i++) {
+                final int k = sorted[i];
+                elements[i] = children[k];
+                order[i] = k;
+                start[i] = starts[k];
+                end[i] = ends[k];
+                max = Math.max(max, end[i]);
+                maxEnd[i] = max;
+            }
+        }
+
+        IErlElement find(final int pos) {
+            int lo = 0;
+            int hi = start.length;
+            while (lo < hi) {
+                final int mid = lo + hi >>> 1;
+                if (start[mid] <= pos) {
+                    lo = mid + 1;
+                } else {
+                    hi = mid;
+                }
+            }
+            int best = -1;
+            for (int i = lo - 1; i >= 0 && maxEnd[i] >= pos; i--) {
+                if (end[i] >= pos && (best < 0 || order[i] < order[best])) {
+                    best = i;
+                }
+            }
+            return best < 0 ? null : elements[best];
+        }
+    }
+
+}
@@ -0,0 +1,287 @@
+package org.erlide.engine.internal.services.codeassist;
+
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import org.eclipse.core.resources.IProject;
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.internal.services.search.DocCache;
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.IErlElement;
+import org.erlide.engine.model.root.IErlModelChangeListener;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.engine.model.root.IErlProject;
+import org.erlide.runtime.rpc.IOtpRpc;
+import org.erlide.util.ErlLogger;
+
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * In-memory index of the names offered by code completion, so that typing a module
+ * or function prefix doesn't need a backend call per keystroke.
+ *
+ * <p>
+ * Module names (project, referenced projects and externals) are kept per project in
+ * a sorted array and looked up with a binary search. The OTP module list is fetched
+ * once per runtime and merged in. The proposals of an OTP module (with their
+ * documentation) are fetched once per runtime for an empty prefix and filtered
+ * locally afterwards. The runtime is identified by {@link DocCache#getRuntimeKey};
+ * when it can't be found, the OTP data isn't kept. The list of a project is dropped
+ * when an Erlang source file is added to or removed from it or from a project it
+ * references, when its settings change, or when a module that isn't indexed shows up
+ * in the model.
+ */
+public class CompletionIndex implements IResourceChangeListener, IErlModelChangeListener {
+
+    private static final int FUNCTION_CACHE_SIZE = 200;
+    private static final String[] NO_NAMES = new String[0];
+
+    private static CompletionIndex instance;
+
+    // by runtime
+    private final Map<String, String[]> otpModules = Maps.newConcurrentMap();
+    private final Map<IErlProject, String[]> projectModules = Maps.newConcurrentMap();
+    // by runtime and module
+    private final Cache<String, OtpErlangList> moduleProposals = CacheBuilder
+            .newBuilder().maximumSize(CompletionIndex.FUNCTION_CACHE_SIZE).build();
+
+    public static synchronized CompletionIndex getDefault() {
+        if (CompletionIndex.instance == null) {
+            final CompletionIndex index = new CompletionIndex();
+            ResourcesPlugin.getWorkspace().addResourceChangeListener(index,
+                    IResourceChangeEvent.POST_CHANGE);
+            ErlangEngine.getInstance().getModel().addModelChangeListener(index);
+            CompletionIndex.instance = index;
+        }
+        return CompletionIndex.instance;
+    }
+
+    /**
+     * @return the sorted names of the modules visible from the project that start
+     *         with the prefix
+     */
+    public List<String> getModules(final IOtpRpc backend, final IErlProject project,
+            final String prefix) throws ErlModelException {
+        String[] names = project == null ? null : projectModules.get(project);
+        if (names == null) {
+            names = CompletionIndex.sorted(ErlangEngine.getInstance()
+                    .getModelUtilService().findUnitsWithPrefix("", project, true, false));
+            if (project != null) {
+                projectModules.put(project, names);
+            }
+        }
+        return CompletionIndex.merge(CompletionIndex.withPrefix(names, prefix),
+                CompletionIndex.withPrefix(getOtpModules(backend), prefix));
+    }
+
+    /**
+     * @return the proposals of an OTP module whose names start with the prefix, in
+     *         the format returned by <code>get_proposals</code>
+     */
+    public OtpErlangObject getProposals(final IOtpRpc backend, final String module,
+            final String prefix) {
+        final String runtime = DocCache.getRuntimeKey(backend);
+        final String key = runtime + ":" + module;
+        OtpErlangList all = runtime == null ? null : moduleProposals.getIfPresent(key);
+        if (all == null) {
+            final OtpErlangObject res = ErlangEngine.getInstance().getOtpDocService()
+                    .getProposalsWithDoc(backend, module, "");
+            if (!(res instanceof OtpErlangList)) {
+                return res;
+            }
+            all = (OtpErlangList) res;
+            if (runtime != null) {
+                moduleProposals.put(key, all);
+            }
+        }
+        if (prefix.isEmpty()) {
+            return all;
+        }
+        final List<OtpErlangObject> result = Lists.newArrayList();
+        for (final OtpErlangObject o : all) {
+            if (o instanceof OtpErlangTuple) {
+                final OtpErlangObject name = ((OtpErlangTuple) o).elementAt(0);
+                if (name instanceof OtpErlangString
+                        && ((OtpErlangString) name).stringValue().startsWith(prefix)) {
+                    result.add(o);
+                }
+            }
+        }
+        return new OtpErlangList(result.toArray(new OtpErlangObject[result.size()]));
+    }
+
+    private String[] getOtpModules(final IOtpRpc backend) {
+        final String runtime = DocCache.getRuntimeKey(backend);
+        String[] result = runtime == null ? null : otpModules.get(runtime);
+        if (result != null) {
+            return result;
+        }
+        final List<String> names = Lists.newArrayList();
+        final OtpErlangObject res = ErlangEngine.getInstance().getOtpDocService()
+                .getModules(backend, "", Lists.<String> newArrayList(), false);
+        if (res instanceof OtpErlangList) {
+            for (final OtpErlangObject o : (OtpErlangList) res) {
+                if (o instanceof OtpErlangString) {
+                    names.add(((OtpErlangString) o).stringValue());
+                }
+            }
+        }
+        result = CompletionIndex.sorted(names);
+        // an empty answer means the backend isn't ready yet; ask again next time
+        if (runtime != null && result.length > 0) {
+            otpModules.put(runtime, result);
+        }
+        return result;
+    }
+
+    static String[] sorted(final Collection<String> names) {
+        final String[] result = Sets.newHashSet(names)
+                .toArray(CompletionIndex.NO_NAMES);
+        Arrays.sort(result);
+        return result;
+    }
+
+    /**
+     * @return the union of two sorted lists, sorted
+     */
+    static List<String> merge(final List<String> a, final List<String> b) {
+        final List<String> result = Lists.newArrayListWithCapacity(a.size() + b.size());
+        int i = 0;
+        int j = 0;
+        while (i < a.size() || j < b.size()) {
+            if (j == b.size() || i < a.size() && a.get(i).compareTo(b.get(j)) < 0) {
+                result.add(a.get(i++));
+            } else if (i == a.size() || b.get(j).compareTo(a.get(i)) < 0) {
+                result.add(b.get(j++));
+            } else {
+                result.add(a.get(i++));
+                j++;
+            }
+        }
+        return result;
+    }
+
+    static List<String> withPrefix(final String[] sortedNames, final String prefix) {
+        int i = Arrays.binarySearch(sortedNames, prefix);
+        if (i < 0) {
+            i = -i - 1;
+        }
+        final List<String> result = Lists.newArrayList();
+        while (i < sortedNames.length && sortedNames[i].startsWith(prefix)) {
+            result.add(sortedNames[i++]);
+        }
+        return result;
+    }
+
+    @Override
+    public void elementChanged(final IErlElement element) {
+        if (!(element instanceof IErlModule) || projectModules.isEmpty()) {
+            return;
+        }
+        final IErlModule module = (IErlModule) element;
+        final IErlProject project = ErlangEngine.getInstance().getModelUtilService()
+                .getProject(module);
+        if (project == null) {
+            return;
+        }
+        final String[] names = projectModules.get(project);
+        if (names != null
+                && Arrays.binarySearch(names, module.getModuleName()) < 0) {
+            invalidate(project.getWorkspaceProject());
+        }
+    }
+
+    @Override
+    public void resourceChanged(final IResourceChangeEvent event) {
+        final IResourceDelta delta = event.getDelta();
+        if (delta == null || projectModules.isEmpty()) {
+            return;
+        }
+        final Set<IProject> changed = Sets.newHashSet();
+        try {
+            delta.accept(d -> {
+                final IResource resource = d.getResource();
+                if (resource.getType() == IResource.PROJECT) {
+                    if (d.getKind() != IResourceDelta.CHANGED
+                            || (d.getFlags() & IResourceDelta.OPEN) != 0) {
+                        changed.add((IProject) resource);
+                        return false;
+                    }
+                    return !changed.contains(resource);
+                }
+                if (resource.getType() == IResource.FILE
+                        && CompletionIndex.affectsModules(resource.getName(),
+                                d.getKind())) {
+                    changed.add(resource.getProject());
+                    return false;
+                }
+                return true;
+            });
+        } catch (final CoreException e) {
+            ErlLogger.warn(e);
+            projectModules.clear();
+            return;
+        }
+        for (final IProject project : changed) {
+            invalidate(project);
+        }
+    }
+
+    /**
+     * @return true if a change of the given kind to a file with this name can change
+     *         the module names of its project
+     */
+    static boolean affectsModules(final String name, final int kind) {
+        if (name.endsWith(".prefs")) {
+            // source and include directories, external modules
+            return true;
+        }
+        return (name.endsWith(".erl") || name.endsWith(".hrl"))
+                && kind != IResourceDelta.CHANGED;
+    }
+
+    /**
+     * Drop the lists of the project and of the projects that reference it, which
+     * include its modules.
+     */
+    private void invalidate(final IProject project) {
+        for (final IErlProject p : projectModules.keySet()) {
+            final IProject workspaceProject = p.getWorkspaceProject();
+            if (workspaceProject == null || workspaceProject.equals(project)
+                    || CompletionIndex.references(p, project)) {
+                projectModules.remove(p);
+            }
+        }
+    }
+
+    private static boolean references(final IErlProject p, final IProject project) {
+        try {
+            for (final IErlProject ref : p.getReferencedProjects()) {
+                if (project.equals(ref.getWorkspaceProject())) {
+                    return true;
+                }
+            }
+        } catch (final ErlModelException e) {
+            return true;
+        }
+        return false;
+    }
+
+}
@@ -209,6 +209,9 @@ public class ErlangCompletionService implements CompletionService {
 
     List<String> getModules0(final IOtpRpc backend, final int offset, final String prefix,
             final CompletionFlag kind) throws ErlModelException {
+        if (kind == CompletionFlag.MODULES) {
+            return CompletionIndex.getDefault().getModules(backend, project, prefix);
+        }
         final List<String> result = Lists.newArrayList();
         final boolean includes = kind == CompletionFlag.INCLUDES
                 || kind == CompletionFlag.INCLUDE_LIBS;
@@ -332,8 +335,8 @@ public class ErlangCompletionService implements CompletionService {
         // FIXME or IErlElementLocator.Scope.REFERENCED_PROJECTS
         if (theModule != null) {
             if (ErlangEngine.getInstance().getModelUtilService().isOtpModule(theModule)) {
-                final OtpErlangObject res = ErlangEngine.getInstance().getOtpDocService()
-                        .getProposalsWithDoc(b, moduleName, prefix);
+                final OtpErlangObject res = CompletionIndex.getDefault().getProposals(b,
+                        moduleName, prefix);
                 addFunctionProposalsWithDoc(offset, prefix, result, res, null, arityOnly);
             } else {
                 addFunctionsFromModule(offset, prefix, arityOnly, result, theModule);
@@ -651,8 +654,8 @@ public class ErlangCompletionService implements CompletionService {
 
     List<CompletionData> getAutoImportedFunctions(final IOtpRpc backend, final int offset,
             final String prefix) {
-        final OtpErlangObject res = ErlangEngine.getInstance().getOtpDocService()
-                .getProposalsWithDoc(backend, "<auto_imported>", prefix);
+        final OtpErlangObject res = CompletionIndex.getDefault().getProposals(backend,
+                "<auto_imported>", prefix);
         final List<CompletionData> result = new ArrayList<>();
         addFunctionProposalsWithDoc(offset, prefix, result, res, null, false);
         return result;
@@ -662,8 +665,8 @@ public class ErlangCompletionService implements CompletionService {
             final String prefix) {
         final List<CompletionData> result = new ArrayList<>();
         for (final IErlImport imp : module.getImports()) {
-            final OtpErlangObject res = ErlangEngine.getInstance().getOtpDocService()
-                    .getProposalsWithDoc(backend, imp.getImportModule(), prefix);
+            final OtpErlangObject res = CompletionIndex.getDefault().getProposals(backend,
+                    imp.getImportModule(), prefix);
             addFunctionProposalsWithDoc(offset, prefix, result, res, imp, false);
         }
         return result;
@@ -8,6 +8,7 @@
  *******************************************************************************/
 package org.erlide.engine.internal.services.parsing;
 
+import java.io.File;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Comparator;
@@ -77,6 +78,8 @@ public final class ErlParser {
     private static final int MODULE_HEADER_COMMENT_THRESHOLD = 1;
     private static final boolean TRACE = false;
 
+    private static ParseCache parseCache;
+
     private final RuntimeHelper helper;
     private final IOtpRpc backend;
 
@@ -86,6 +89,14 @@ public final class ErlParser {
         helper = new RuntimeHelper(backend);
     }
 
+    public static synchronized ParseCache getParseCache() {
+        if (ErlParser.parseCache == null) {
+            final String stateDir = ErlangEngine.getInstance().getStateDir();
+            ErlParser.parseCache = new ParseCache(new File(stateDir, "parse_cache"));
+        }
+        return ErlParser.parseCache;
+    }
+
     public boolean parse(final IErlModule module, final String scannerName,
             final boolean initialParse, final String path, final String initialText,
             final boolean updateSearchServer) {
@@ -95,18 +106,39 @@ public final class ErlParser {
         OtpErlangList forms = null;
         OtpErlangList comments = null;
         OtpErlangTuple res = null;
+        String cacheKey = null;
+        OtpErlangTuple cached = null;
         if (initialParse) {
             final String stateDir = ErlangEngine.getInstance().getStateDir();
             final String pathNotNull = path == null ? "" : path;
-            res = ErlideNoparse.initialParse(backend, scannerName, pathNotNull,
-                    initialText, stateDir, updateSearchServer);
+            final String parserVersion = initialText == null ? null
+                    : ErlideNoparse.getParserVersion(backend);
+            if (parserVersion != null) {
+                cacheKey = ParseCache.key(parserVersion, initialText);
+                cached = ErlParser.getParseCache().get(cacheKey);
+            }
+            if (cached != null) {
+                // the backend still needs its own state of the module (and maybe the
+                // references); we only wait for it before the module is changed
+                ErlideNoparse.initialParseAsync(backend, scannerName, pathNotNull,
+                        initialText, stateDir, updateSearchServer);
+            } else {
+                res = ErlideNoparse.initialParse(backend, scannerName, pathNotNull,
+                        initialText, stateDir, updateSearchServer);
+            }
         } else {
             res = ErlideNoparse.reparse(backend, scannerName, updateSearchServer);
         }
-        if (Util.isOk(res)) {
+        if (cached != null) {
+            forms = (OtpErlangList) cached.elementAt(0);
+            comments = (OtpErlangList) cached.elementAt(1);
+        } else if (Util.isOk(res)) {
             final OtpErlangTuple t = (OtpErlangTuple) res.elementAt(1);
             forms = (OtpErlangList) t.elementAt(1);
             comments = (OtpErlangList) t.elementAt(2);
+            if (cacheKey != null) {
+                ErlParser.getParseCache().put(cacheKey, forms, comments);
+            }
         } else {
             ErlLogger.error("error when parsing %s: %s", path, res);
         }
@@ -123,18 +155,18 @@ public final class ErlParser {
             module.setComments(moduleComments);
         }
         attachFunctionComments(module);
-        String cached = "reparsed";
+        String cacheInfo = cached != null ? "java cache" : "reparsed";
         if (res != null && res.arity() > 2) {
             final OtpErlangObject res2 = res.elementAt(2);
             if (res2 instanceof OtpErlangAtom) {
                 final OtpErlangAtom atom = (OtpErlangAtom) res2;
-                cached = atom.atomValue();
+                cacheInfo = atom.atomValue();
             }
         }
         if (ErlParser.TRACE) {
             ErlLogger.debug("Parsed %d forms and %d comments (%s)",
                     forms != null ? forms.arity() : 0,
-                    comments != null ? comments.arity() : 0, cached);
+                    comments != null ? comments.arity() : 0, cacheInfo);
         }
         return forms != null && comments != null;
     }
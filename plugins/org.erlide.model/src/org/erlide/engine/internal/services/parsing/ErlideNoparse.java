@@ -1,25 +1,45 @@
 package org.erlide.engine.internal.services.parsing;
 
+import java.util.Collections;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.TimeUnit;
+
 import org.erlide.engine.model.ErlModelException;
 import org.erlide.engine.model.IErlElement;
 import org.erlide.engine.model.erlang.IErlFunction;
 import org.erlide.engine.model.root.IErlModule;
 import org.erlide.runtime.rpc.IOtpRpc;
 import org.erlide.runtime.rpc.RpcException;
+import org.erlide.runtime.rpc.RpcFuture;
 import org.erlide.runtime.rpc.RpcTimeoutException;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.Util;
 
+import com.ericsson.otp.erlang.OtpErlangBinary;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hasher;
+import com.google.common.hash.Hashing;
 
 public class ErlideNoparse {
 
     private static final String ERLIDE_NOPARSE = "erlide_noparse";
+    private static final String[] PARSER_MODULES = { ErlideNoparse.ERLIDE_NOPARSE,
+            "erlide_scanner" };
+
+    private static final Map<IOtpRpc, String> parserVersions = Collections
+            .synchronizedMap(new WeakHashMap<IOtpRpc, String>());
+    // initial parses that were not waited for yet, by scanner name; the module's
+    // next parse, edit or dispose waits for them
+    private static final Map<String, RpcFuture> pendingParses = Maps
+            .newConcurrentMap();
 
     public static OtpErlangTuple initialParse(final IOtpRpc b,
             final String scannerModuleName, final String moduleFileName,
             final String initialText, final String stateDir, final boolean updateRefs) {
+        ErlideNoparse.awaitInitialParse(scannerModuleName);
         OtpErlangTuple res = null;
         try {
             res = (OtpErlangTuple) b.call(200000, ErlideNoparse.ERLIDE_NOPARSE,
@@ -33,8 +53,71 @@ public class ErlideNoparse {
         return res;
     }
 
+    /**
+     * Like {@link #initialParse}, but doesn't wait for the result. Used to keep the
+     * backend state up to date when the structure was found in the {@link ParseCache}.
+     * Later edits and reparses of the module wait for it, see
+     * {@link #awaitInitialParse(String)}.
+     */
+    public static void initialParseAsync(final IOtpRpc b, final String scannerModuleName,
+            final String moduleFileName, final String initialText, final String stateDir,
+            final boolean updateRefs) {
+        ErlideNoparse.awaitInitialParse(scannerModuleName);
+        try {
+            final RpcFuture future = b.async_call(ErlideNoparse.ERLIDE_NOPARSE,
+                    "initial_parse", "asssoo", scannerModuleName, moduleFileName,
+                    initialText, stateDir, true, updateRefs);
+            ErlideNoparse.pendingParses.put(scannerModuleName, future);
+        } catch (final RpcException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+    /**
+     * Waits until the backend has the state of the module, if an
+     * {@link #initialParseAsync initial parse} is still running.
+     */
+    public static void awaitInitialParse(final String scannerModuleName) {
+        final RpcFuture future = ErlideNoparse.pendingParses.remove(scannerModuleName);
+        if (future == null) {
+            return;
+        }
+        try {
+            future.checkedGet(200000, TimeUnit.MILLISECONDS);
+        } catch (final RpcException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+    /**
+     * @return a hash of the code of the backend modules that produce the parse result,
+     *         or null if it can't be found. It changes when the backend is upgraded.
+     */
+    public static String getParserVersion(final IOtpRpc b) {
+        String version = ErlideNoparse.parserVersions.get(b);
+        if (version == null) {
+            try {
+                final Hasher hasher = Hashing.sha256().newHasher();
+                for (final String module : ErlideNoparse.PARSER_MODULES) {
+                    final OtpErlangObject md5 = b.call(module, "module_info", "a",
+                            "md5");
+                    if (!(md5 instanceof OtpErlangBinary)) {
+                        return null;
+                    }
+                    hasher.putBytes(((OtpErlangBinary) md5).binaryValue());
+                }
+                version = hasher.hash().toString();
+                ErlideNoparse.parserVersions.put(b, version);
+            } catch (final RpcException e) {
+                ErlLogger.warn(e);
+            }
+        }
+        return version;
+    }
+
     public static OtpErlangTuple reparse(final IOtpRpc b, final String scannerModuleName,
             final boolean updateSearchServer) {
+        ErlideNoparse.awaitInitialParse(scannerModuleName);
         OtpErlangTuple res = null;
         try {
             res = (OtpErlangTuple) b.call(20000, ErlideNoparse.ERLIDE_NOPARSE, "reparse",
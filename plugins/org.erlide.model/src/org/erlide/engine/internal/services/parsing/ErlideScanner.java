@@ -14,9 +14,11 @@ import org.erlide.runtime.rpc.RpcTimeoutException;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.Util;
 
-import com.ericsson.otp.erlang.OtpErlangBinary;
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpErlangList;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpLazyTerm;
 
 public class ErlideScanner implements SimpleScannerService, InternalScanner {
     private static final String ERLIDE_SCANNER = "erlide_scanner";
@@ -66,6 +68,7 @@ public class ErlideScanner implements SimpleScannerService, InternalScanner {
     }
 
     public void dispose(final String module) {
+        ErlideNoparse.awaitInitialParse(module);
         try {
             backend.call(ErlideScanner.ERLIDE_SCANNER, "dispose", "a", module);
         } catch (final RpcTimeoutException e) {
@@ -102,6 +105,7 @@ public class ErlideScanner implements SimpleScannerService, InternalScanner {
     @SuppressWarnings("boxing")
     public void replaceText(final String module, final int offset, final int removeLength,
             final String newText) {
+        ErlideNoparse.awaitInitialParse(module);
         try {
             final OtpErlangObject r = backend.call(ErlideScanner.ERLIDE_SCANNER,
                     "replace_text", "aiis", module, offset, removeLength, newText);
@@ -119,9 +123,10 @@ public class ErlideScanner implements SimpleScannerService, InternalScanner {
     @Override
     public List<ErlToken> lightScanString(final String string, final int offset)
             throws ScannerException {
-        OtpErlangObject r1 = null;
+        OtpLazyTerm r1 = null;
         try {
-            r1 = backend.call("erlide_scanner", "light_scan_string", "ba", string,
+            // only the token binary is needed, no need to decode the rest
+            r1 = backend.call_lazy("erlide_scanner", "light_scan_string", "ba", string,
                     ErlideScanner.ENCODING);
         } catch (final Exception e) {
             throw new ScannerException(
@@ -131,28 +136,55 @@ public class ErlideScanner implements SimpleScannerService, InternalScanner {
             return null;
         }
 
-        if (!(r1 instanceof OtpErlangTuple)) {
+        if (!r1.isTuple()) {
             throw new ScannerException("Could not parse string \"" + string
                     + "\": weird return value " + r1);
         }
-        final OtpErlangTuple t1 = (OtpErlangTuple) r1;
 
         List<ErlToken> toks = null;
-        if (Util.isOk(t1)) {
-            if (t1.elementAt(1) instanceof OtpErlangBinary) {
-                final OtpErlangBinary b = (OtpErlangBinary) t1.elementAt(1);
-                final byte[] bytes = b.binaryValue();
-                toks = new ArrayList<>(bytes.length / 10);
-                for (int i = 0; i < bytes.length; i += 10) {
-                    final ErlToken tk = new ErlToken(bytes, i, offset);
-                    toks.add(tk);
+        try {
+            if (r1.arity() > 0 && r1.elementAt(0).isAtom("ok")) {
+                final OtpLazyTerm b = r1.arity() > 1 ? r1.elementAt(1) : null;
+                if (b != null && b.isBinary()) {
+                    final byte[] bytes = b.binaryValue();
+                    toks = new ArrayList<>(bytes.length / 10);
+                    for (int i = 0; i < bytes.length; i += 10) {
+                        final ErlToken tk = new ErlToken(bytes, i, offset);
+                        toks.add(tk);
+                    }
+                    return toks;
                 }
-                return toks;
+                throw new ScannerException("unexpected token format");
             }
-            throw new ScannerException("unexpected token format");
+        } catch (final OtpErlangDecodeException e) {
+            throw new ScannerException(
+                    "Could not parse string \"" + string + "\": " + e.getMessage());
         }
         throw new ScannerException(
-                "Could not parse string \"" + string + "\": " + t1.toString());
+                "Could not parse string \"" + string + "\": " + r1.toString());
+    }
+
+    @Override
+    public List<ErlToken> getTokens(final String module) throws ScannerException {
+        ErlideNoparse.awaitInitialParse(module);
+        final OtpErlangObject r;
+        try {
+            r = backend.call(ErlideScanner.ERLIDE_SCANNER, "get_tokens", "a", module);
+        } catch (final RpcException e) {
+            throw new ScannerException(
+                    "Could not get the tokens of " + module + ": " + e.getMessage());
+        }
+        if (!(r instanceof OtpErlangList)) {
+            throw new ScannerException("Could not get the tokens of " + module + ": " + r);
+        }
+        final OtpErlangList list = (OtpErlangList) r;
+        final List<ErlToken> toks = new ArrayList<>(list.arity());
+        for (final OtpErlangObject o : list) {
+            if (o instanceof OtpErlangTuple) {
+                toks.add(new ErlToken((OtpErlangTuple) o));
+            }
+        }
+        return toks;
     }
 
     @Override
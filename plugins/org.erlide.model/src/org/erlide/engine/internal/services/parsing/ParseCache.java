@@ -0,0 +1,191 @@
+package org.erlide.engine.internal.services.parsing;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.util.Arrays;
+import java.util.Comparator;
+
+import org.erlide.util.ErlLogger;
+
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpExternal;
+import com.ericsson.otp.erlang.OtpInputStream;
+import com.ericsson.otp.erlang.OtpOutputStream;
+import com.google.common.hash.Hashing;
+
+/**
+ * On-disk cache of parse results (forms and comments as returned by noparse), keyed
+ * by a hash of the module text, the backend parser version and the cache format
+ * version. A hit lets {@link ErlParser} build the module structure without calling
+ * the backend.
+ *
+ * <p>
+ * Each entry is a file holding a small header and the compressed external term
+ * format of <code>{Forms, Comments}</code>. Entries are written to a temporary file
+ * and renamed into place, so readers never see half of one. The last-modified time
+ * of a file records its last use; when the cache grows over its size limit, the
+ * least recently used entries are deleted.
+ */
+public class ParseCache {
+
+    /**
+     * Increase this when the structure of the noparse result changes.
+     */
+    static final int VERSION = 1;
+
+    private static final byte[] MAGIC = "EPC".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = ParseCache.MAGIC.length + 1;
+    private static final String SUFFIX = ".epc";
+    private static final long MAX_SIZE = Long
+            .parseLong(System.getProperty("erlide.parsecache.size", "67108864"));
+    private static final boolean disabled = Boolean
+            .parseBoolean(System.getProperty("erlide.noParseCache"));
+
+    private final File dir;
+    private long size = -1;
+
+    public ParseCache(final File dir) {
+        this.dir = dir;
+    }
+
+    /**
+     * @param parserVersion
+     *            identifies the backend code that parsed the text, see
+     *            {@link ErlideNoparse#getParserVersion}
+     */
+    public static String key(final String parserVersion, final String text) {
+        return Hashing.sha256().newHasher().putInt(ParseCache.VERSION)
+                .putString(parserVersion, StandardCharsets.UTF_8)
+                .putString(text, StandardCharsets.UTF_8).hash().toString();
+    }
+
+    /**
+     * @return <code>{Forms, Comments}</code> or null if not cached.
+     */
+    public OtpErlangTuple get(final String key) {
+        if (ParseCache.disabled) {
+            return null;
+        }
+        final File file = new File(dir, key + ParseCache.SUFFIX);
+        if (!file.isFile()) {
+            return null;
+        }
+        try {
+            final byte[] data = Files.readAllBytes(file.toPath());
+            if (data.length < ParseCache.HEADER_SIZE
+                    || !Arrays.equals(Arrays.copyOf(data, ParseCache.MAGIC.length),
+                            ParseCache.MAGIC)
+                    || data[ParseCache.MAGIC.length] != ParseCache.VERSION) {
+                file.delete();
+                return null;
+            }
+            final OtpErlangObject term = new OtpInputStream(data,
+                    ParseCache.HEADER_SIZE, data.length - ParseCache.HEADER_SIZE, 0)
+                            .read_any();
+            if (!isValid(term)) {
+                file.delete();
+                return null;
+            }
+            file.setLastModified(System.currentTimeMillis());
+            return (OtpErlangTuple) term;
+        } catch (final IOException | OtpErlangDecodeException e) {
+            ErlLogger.warn("Could not read parse cache entry %s: %s", file,
+                    e.getMessage());
+            file.delete();
+            return null;
+        }
+    }
+
+    public void put(final String key, final OtpErlangList forms,
+            final OtpErlangList comments) {
+        if (ParseCache.disabled || forms == null || comments == null) {
+            return;
+        }
+        if (!dir.isDirectory() && !dir.mkdirs()) {
+            return;
+        }
+        final File file = new File(dir, key + ParseCache.SUFFIX);
+        Path tmp = null;
+        try (OtpOutputStream out = new OtpOutputStream()) {
+            out.write(ParseCache.MAGIC);
+            out.write1(ParseCache.VERSION);
+            out.write1(OtpExternal.versionTag);
+            out.write_compressed(
+                    new OtpErlangTuple(new OtpErlangObject[] { forms, comments }));
+            // a unique name, so that concurrent puts of the same key don't mix
+            tmp = Files.createTempFile(dir.toPath(), key, ".tmp");
+            try (OutputStream fos = Files.newOutputStream(tmp)) {
+                out.writeTo(fos);
+            }
+            Files.move(tmp, file.toPath(), StandardCopyOption.REPLACE_EXISTING,
+                    StandardCopyOption.ATOMIC_MOVE);
+            collectGarbage(file.length());
+        } catch (final IOException e) {
+            ErlLogger.warn("Could not write parse cache entry %s: %s", file,
+                    e.getMessage());
+            if (tmp != null) {
+                tmp.toFile().delete();
+            }
+        }
+    }
+
+    private static boolean isValid(final OtpErlangObject term) {
+        if (!(term instanceof OtpErlangTuple)) {
+            return false;
+        }
+        final OtpErlangTuple t = (OtpErlangTuple) term;
+        return t.arity() == 2 && t.elementAt(0) instanceof OtpErlangList
+                && t.elementAt(1) instanceof OtpErlangList;
+    }
+
+    /**
+     * Delete the least recently used entries until the cache is at 3/4 of its limit.
+     */
+    private synchronized void collectGarbage(final long added) {
+        if (size >= 0 && size + added <= ParseCache.MAX_SIZE) {
+            size += added;
+            return;
+        }
+        final File[] files = dir.listFiles((d, name) -> name.endsWith(ParseCache.SUFFIX));
+        if (files == null) {
+            return;
+        }
+        size = 0;
+        for (final File f : files) {
+            size += f.length();
+        }
+        if (size <= ParseCache.MAX_SIZE) {
+            return;
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        final long target = ParseCache.MAX_SIZE / 4 * 3;
+        for (final File f : files) {
+            if (size <= target) {
+                break;
+            }
+            final long len = f.length();
+            if (f.delete()) {
+                size -= len;
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        final File[] files = dir.listFiles((d, name) -> name.endsWith(ParseCache.SUFFIX));
+        if (files != null) {
+            for (final File f : files) {
+                f.delete();
+            }
+        }
+        size = 0;
+    }
+
+}
@@ -36,7 +36,7 @@ public class ErlideProclist implements ProclistService {
         } catch (final Exception e) {
             ErlLogger.warn(e);
         }
-        return new OtpErlangList();
+        return null;
     }
 
     @Override
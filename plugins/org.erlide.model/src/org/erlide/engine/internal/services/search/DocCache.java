@@ -0,0 +1,320 @@
+package org.erlide.engine.internal.services.search;
+
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.WeakHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.regex.Pattern;
+
+import org.eclipse.core.resources.IResource;
+import org.eclipse.core.resources.IResourceChangeEvent;
+import org.eclipse.core.resources.IResourceChangeListener;
+import org.eclipse.core.resources.IResourceDelta;
+import org.eclipse.core.resources.ResourcesPlugin;
+import org.eclipse.core.runtime.CoreException;
+import org.erlide.engine.ErlangEngine;
+import org.erlide.runtime.rpc.IOtpRpc;
+import org.erlide.runtime.rpc.RpcException;
+import org.erlide.util.ErlLogger;
+
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpExternal;
+import com.ericsson.otp.erlang.OtpInputStream;
+import com.ericsson.otp.erlang.OtpOutputStream;
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+import com.google.common.hash.Hashing;
+
+/**
+ * Documentation returned by the backend, kept in memory and on disk, keyed by
+ * runtime, module and entry (usually <code>Function/Arity</code>). Hovering twice over
+ * the same function, in this session or in a later one, asks the backend only once.
+ *
+ * <p>
+ * The entries of a module are stored in one file per runtime, holding a small header
+ * and the compressed external term format of <code>[{Entry, Doc}]</code>. The file is
+ * read the first time the module is needed; a bounded number of modules is kept in
+ * memory, the least recently used are dropped first. The entries of a workspace
+ * module are dropped when its source file changes.
+ */
+public class DocCache implements IResourceChangeListener {
+
+    /**
+     * Increase this when the format of the documentation changes.
+     */
+    static final int VERSION = 1;
+
+    /**
+     * The entry holding the completion proposals of a module.
+     */
+    public static final String PROPOSALS = "*";
+
+    private static final byte[] MAGIC = "EDC".getBytes(StandardCharsets.US_ASCII);
+    private static final int HEADER_SIZE = DocCache.MAGIC.length + 1;
+    private static final String SUFFIX = ".edc";
+    private static final Pattern PLAIN_NAME = Pattern.compile("[a-zA-Z0-9_@]+");
+    private static final int MAX_MODULES = Integer
+            .parseInt(System.getProperty("erlide.doccache.modules", "200"));
+    private static final boolean disabled = Boolean
+            .parseBoolean(System.getProperty("erlide.noDocCache"));
+    private static final Map<IOtpRpc, String> runtimes = Collections
+            .synchronizedMap(new WeakHashMap<IOtpRpc, String>());
+
+    private static DocCache instance;
+
+    private final File dir;
+    private final Cache<String, Map<String, OtpErlangObject>> modules = CacheBuilder
+            .newBuilder().maximumSize(DocCache.MAX_MODULES).build();
+
+    public DocCache(final File dir) {
+        this.dir = dir;
+    }
+
+    public static synchronized DocCache getDefault() {
+        if (DocCache.instance == null) {
+            final String stateDir = ErlangEngine.getInstance().getStateDir();
+            final DocCache cache = new DocCache(new File(stateDir, "doc_cache"));
+            ResourcesPlugin.getWorkspace().addResourceChangeListener(cache,
+                    IResourceChangeEvent.POST_CHANGE);
+            DocCache.instance = cache;
+        }
+        return DocCache.instance;
+    }
+
+    /**
+     * @return a key identifying the Erlang installation the backend runs, or null if
+     *         it can't be found (and nothing should be cached)
+     */
+    public String getRuntime(final IOtpRpc backend) {
+        if (DocCache.disabled) {
+            return null;
+        }
+        return DocCache.getRuntimeKey(backend);
+    }
+
+    /**
+     * Like {@link #getRuntime(IOtpRpc)}, also when the documentation cache is
+     * disabled. Other in-memory caches of runtime data are keyed by it.
+     */
+    public static String getRuntimeKey(final IOtpRpc backend) {
+        if (backend == null) {
+            return null;
+        }
+        String result = DocCache.runtimes.get(backend);
+        if (result == null) {
+            try {
+                final OtpErlangObject version = backend.call("erlang", "system_info",
+                        "a", "system_version");
+                final OtpErlangObject root = backend.call("code", "root_dir", "");
+                result = Hashing.sha256().newHasher().putInt(DocCache.VERSION)
+                        .putString(version.toString(), StandardCharsets.UTF_8)
+                        .putString(root.toString(), StandardCharsets.UTF_8).hash()
+                        .toString().substring(0, 16);
+            } catch (final RpcException e) {
+                ErlLogger.warn(e);
+                return null;
+            }
+            DocCache.runtimes.put(backend, result);
+        }
+        return result;
+    }
+
+    public static String entry(final String function, final int arity) {
+        return function + "/" + arity;
+    }
+
+    /**
+     * @return the cached documentation, or null
+     */
+    public OtpErlangObject get(final String runtime, final String module,
+            final String entry) {
+        if (DocCache.disabled || runtime == null) {
+            return null;
+        }
+        return getModule(runtime, module).get(entry);
+    }
+
+    public void put(final String runtime, final String module, final String entry,
+            final OtpErlangObject doc) {
+        putAll(runtime, module, Collections.singletonMap(entry, doc));
+    }
+
+    /**
+     * Add several entries of a module and write its file once.
+     */
+    public void putAll(final String runtime, final String module,
+            final Map<String, ? extends OtpErlangObject> docs) {
+        if (DocCache.disabled || runtime == null || docs.isEmpty()) {
+            return;
+        }
+        final Map<String, OtpErlangObject> entries = getModule(runtime, module);
+        synchronized (entries) {
+            entries.putAll(docs);
+            write(file(runtime, module), entries);
+        }
+    }
+
+    /**
+     * Drop the entries of a module, for all runtimes.
+     */
+    public void invalidate(final String module) {
+        final String suffix = "/" + module;
+        for (final String key : Lists.newArrayList(modules.asMap().keySet())) {
+            if (key.endsWith(suffix)) {
+                modules.invalidate(key);
+            }
+        }
+        final File[] runtimeDirs = dir.listFiles(File::isDirectory);
+        if (runtimeDirs != null) {
+            for (final File runtimeDir : runtimeDirs) {
+                new File(runtimeDir, DocCache.fileName(module)).delete();
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        modules.invalidateAll();
+        final File[] runtimeDirs = dir.listFiles(File::isDirectory);
+        if (runtimeDirs != null) {
+            for (final File runtimeDir : runtimeDirs) {
+                final File[] files = runtimeDir
+                        .listFiles((d, name) -> name.endsWith(DocCache.SUFFIX));
+                if (files != null) {
+                    for (final File f : files) {
+                        f.delete();
+                    }
+                }
+            }
+        }
+    }
+
+    private Map<String, OtpErlangObject> getModule(final String runtime,
+            final String module) {
+        try {
+            return modules.get(runtime + "/" + module,
+                    () -> DocCache.read(file(runtime, module)));
+        } catch (final ExecutionException e) {
+            return Maps.newConcurrentMap();
+        }
+    }
+
+    private File file(final String runtime, final String module) {
+        return new File(new File(dir, runtime), DocCache.fileName(module));
+    }
+
+    private static String fileName(final String module) {
+        if (DocCache.PLAIN_NAME.matcher(module).matches()) {
+            return module + DocCache.SUFFIX;
+        }
+        return Hashing.sha256().hashString(module, StandardCharsets.UTF_8).toString()
+                + DocCache.SUFFIX;
+    }
+
+    private static Map<String, OtpErlangObject> read(final File file) {
+        final Map<String, OtpErlangObject> result = Maps.newConcurrentMap();
+        if (!file.isFile()) {
+            return result;
+        }
+        try {
+            final byte[] data = Files.readAllBytes(file.toPath());
+            if (data.length < DocCache.HEADER_SIZE
+                    || !Arrays.equals(Arrays.copyOf(data, DocCache.MAGIC.length),
+                            DocCache.MAGIC)
+                    || data[DocCache.MAGIC.length] != DocCache.VERSION) {
+                file.delete();
+                return result;
+            }
+            final OtpErlangObject term = new OtpInputStream(data, DocCache.HEADER_SIZE,
+                    data.length - DocCache.HEADER_SIZE, 0).read_any();
+            if (!(term instanceof OtpErlangList)) {
+                file.delete();
+                return result;
+            }
+            for (final OtpErlangObject o : (OtpErlangList) term) {
+                if (o instanceof OtpErlangTuple && ((OtpErlangTuple) o).arity() == 2
+                        && ((OtpErlangTuple) o).elementAt(0) instanceof OtpErlangString) {
+                    final OtpErlangTuple t = (OtpErlangTuple) o;
+                    result.put(((OtpErlangString) t.elementAt(0)).stringValue(),
+                            t.elementAt(1));
+                }
+            }
+        } catch (final IOException | OtpErlangDecodeException e) {
+            ErlLogger.warn("Could not read doc cache entry %s: %s", file, e.getMessage());
+            file.delete();
+        }
+        return result;
+    }
+
+    private static void write(final File file,
+            final Map<String, OtpErlangObject> entries) {
+        final File parent = file.getParentFile();
+        if (!parent.isDirectory() && !parent.mkdirs()) {
+            return;
+        }
+        final List<OtpErlangObject> list = Lists.newArrayList();
+        for (final Map.Entry<String, OtpErlangObject> entry : entries.entrySet()) {
+            list.add(new OtpErlangTuple(new OtpErlangObject[] {
+                    new OtpErlangString(entry.getKey()), entry.getValue() }));
+        }
+        final File tmp = new File(parent, file.getName() + ".tmp");
+        try (OtpOutputStream out = new OtpOutputStream()) {
+            out.write(DocCache.MAGIC);
+            out.write1(DocCache.VERSION);
+            out.write1(OtpExternal.versionTag);
+            out.write_compressed(
+                    new OtpErlangList(list.toArray(new OtpErlangObject[list.size()])));
+            try (FileOutputStream fos = new FileOutputStream(tmp)) {
+                out.writeTo(fos);
+            }
+            if (!tmp.renameTo(file)) {
+                file.delete();
+                if (!tmp.renameTo(file)) {
+                    tmp.delete();
+                }
+            }
+        } catch (final IOException e) {
+            ErlLogger.warn("Could not write doc cache entry %s: %s", file,
+                    e.getMessage());
+            tmp.delete();
+        }
+    }
+
+    @Override
+    public void resourceChanged(final IResourceChangeEvent event) {
+        final IResourceDelta delta = event.getDelta();
+        if (delta == null) {
+            return;
+        }
+        try {
+            delta.accept(d -> {
+                final IResource resource = d.getResource();
+                if (resource.getType() != IResource.FILE) {
+                    return true;
+                }
+                if ("erl".equals(resource.getFileExtension())
+                        && (d.getKind() == IResourceDelta.REMOVED
+                                || (d.getFlags() & IResourceDelta.CONTENT) != 0)) {
+                    final String name = resource.getName();
+                    invalidate(name.substring(0, name.length() - ".erl".length()));
+                }
+                return false;
+            });
+        } catch (final CoreException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+}
@@ -2,20 +2,26 @@ package org.erlide.engine.internal.services.search;
 
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
+import org.eclipse.core.runtime.IProgressMonitor;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.services.search.OtpDocService;
 import org.erlide.runtime.rpc.IOtpRpc;
 import org.erlide.runtime.rpc.RpcException;
 import org.erlide.util.ErlLogger;
 import org.erlide.util.ErlangFunctionCall;
+import org.erlide.util.Util;
 
 import com.ericsson.otp.erlang.OtpErlangAtom;
 import com.ericsson.otp.erlang.OtpErlangInt;
 import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
 
 public class ErlideDoc implements OtpDocService {
 
@@ -31,6 +37,14 @@ public class ErlideDoc implements OtpDocService {
     @Override
     public OtpErlangObject getProposalsWithDoc(final IOtpRpc b, final String mod,
             final String prefix) {
+        final DocCache cache = DocCache.getDefault();
+        final String runtime = prefix.isEmpty() ? cache.getRuntime(b) : null;
+        if (runtime != null) {
+            final OtpErlangObject cached = cache.get(runtime, mod, DocCache.PROPOSALS);
+            if (cached != null) {
+                return cached;
+            }
+        }
         OtpErlangObject res = null;
         try {
             res = b.call(ErlideDoc.ERLIDE_OTP_DOC, "get_proposals", "ass", mod, prefix,
@@ -38,6 +52,9 @@ public class ErlideDoc implements OtpDocService {
         } catch (final RpcException e) {
             ErlLogger.warn(e);
         }
+        if (runtime != null && res instanceof OtpErlangList) {
+            cache.put(runtime, mod, DocCache.PROPOSALS, res);
+        }
         return res;
     }
 
@@ -58,19 +75,14 @@ public class ErlideDoc implements OtpDocService {
     @Override
     public OtpErlangObject getOtpDoc(final IOtpRpc b,
             final ErlangFunctionCall functionCall) {
-        OtpErlangObject res = null;
-        final OtpErlangTuple input = new OtpErlangTuple(new OtpErlangObject[] {
-                new OtpErlangAtom("external"),
-                new OtpErlangAtom(functionCall.getModule()),
-                new OtpErlangAtom(functionCall.getName()),
-                new OtpErlangInt(functionCall.getArity()), new OtpErlangString("") });
+        final OtpErlangTuple input = ErlideDoc.external(functionCall.getModule(),
+                functionCall.getName(), functionCall.getArity());
         try {
-            res = b.call(ErlideDoc.ERLIDE_OTP_DOC, "get_doc", "sxs",
-                    functionCall.getModule(), input, stateDir);
+            return getDoc(b, functionCall.getModule(), input);
         } catch (final RpcException e) {
             ErlLogger.warn(e);
         }
-        return res;
+        return null;
     }
 
     @Override
@@ -83,14 +95,140 @@ public class ErlideDoc implements OtpDocService {
             final OtpErlangObject input = backend.call("erlide_open", "open", "aix",
                     module, offset, ErlangEngine.getInstance().getOpenService()
                             .mkContext(externalModules, null, pathVars, null, imports));
-            res = b.call(ErlideDoc.ERLIDE_OTP_DOC, "get_doc", "sxs", module, input,
-                    stateDir);
+            res = getDoc(b, module, input);
         } catch (final RpcException e) {
             ErlLogger.warn(e);
         }
         return res;
     }
 
+    /**
+     * The documentation of external functions is looked up in the cache first, and
+     * cached if found.
+     */
+    private OtpErlangObject getDoc(final IOtpRpc b, final String module,
+            final OtpErlangObject input) throws RpcException {
+        if (!ErlideDoc.isExternal(input)) {
+            return callGetDoc(b, module, input);
+        }
+        final OtpErlangTuple t = (OtpErlangTuple) input;
+        final String docModule = ((OtpErlangAtom) t.elementAt(1)).atomValue();
+        String entry = DocCache.entry(((OtpErlangAtom) t.elementAt(2)).atomValue(),
+                (int) ((OtpErlangLong) t.elementAt(3)).longValue());
+        if (t.arity() > 4) {
+            final String path = Util.stringValue(t.elementAt(4));
+            if (!path.isEmpty()) {
+                entry = entry + " " + path;
+            }
+        }
+        final DocCache cache = DocCache.getDefault();
+        final String runtime = cache.getRuntime(b);
+        final OtpErlangObject cached = cache.get(runtime, docModule, entry);
+        if (cached != null) {
+            return cached;
+        }
+        final OtpErlangObject res = callGetDoc(b, module, input);
+        if (Util.isOk(res)) {
+            cache.put(runtime, docModule, entry, res);
+        }
+        return res;
+    }
+
+    private OtpErlangObject callGetDoc(final IOtpRpc b, final String module,
+            final OtpErlangObject input) throws RpcException {
+        return b.call(ErlideDoc.ERLIDE_OTP_DOC, "get_doc", "sxs", module, input,
+                stateDir);
+    }
+
+    private static OtpErlangTuple external(final String module, final String function,
+            final int arity) {
+        return new OtpErlangTuple(new OtpErlangObject[] { new OtpErlangAtom("external"),
+                new OtpErlangAtom(module), new OtpErlangAtom(function),
+                new OtpErlangInt(arity), new OtpErlangString("") });
+    }
+
+    private static boolean isExternal(final OtpErlangObject input) {
+        if (!(input instanceof OtpErlangTuple)) {
+            return false;
+        }
+        final OtpErlangTuple t = (OtpErlangTuple) input;
+        return t.arity() >= 4 && Util.isTag(t.elementAt(0), "external")
+                && t.elementAt(1) instanceof OtpErlangAtom
+                && t.elementAt(2) instanceof OtpErlangAtom
+                && t.elementAt(3) instanceof OtpErlangLong;
+    }
+
+    @Override
+    public void warmUpCache(final IOtpRpc b, final IProgressMonitor monitor) {
+        final DocCache cache = DocCache.getDefault();
+        final String runtime = cache.getRuntime(b);
+        final OtpErlangObject modules = getModules(b, "", Lists.<String> newArrayList(),
+                false);
+        if (runtime == null || !(modules instanceof OtpErlangList)) {
+            return;
+        }
+        monitor.beginTask("Fetching OTP documentation",
+                ((OtpErlangList) modules).arity());
+        for (final OtpErlangObject o : (OtpErlangList) modules) {
+            if (monitor.isCanceled()) {
+                break;
+            }
+            if (o instanceof OtpErlangString) {
+                final String module = ((OtpErlangString) o).stringValue();
+                monitor.subTask(module);
+                try {
+                    warmUpModule(b, cache, runtime, module, monitor);
+                } catch (final RpcException e) {
+                    ErlLogger.warn("Could not fetch the documentation of %s: %s", module,
+                            e.getMessage());
+                }
+            }
+            monitor.worked(1);
+        }
+        monitor.done();
+    }
+
+    /**
+     * Fetch the proposals of a module, then the documentation of the functions that
+     * aren't cached yet, writing the module's cache file only once.
+     */
+    private void warmUpModule(final IOtpRpc b, final DocCache cache,
+            final String runtime, final String module, final IProgressMonitor monitor)
+            throws RpcException {
+        final OtpErlangObject proposals = getProposalsWithDoc(b, module, "");
+        if (!(proposals instanceof OtpErlangList)) {
+            return;
+        }
+        final Map<String, OtpErlangObject> docs = Maps.newHashMap();
+        for (final OtpErlangObject o : (OtpErlangList) proposals) {
+            if (monitor.isCanceled()) {
+                break;
+            }
+            if (!(o instanceof OtpErlangTuple)
+                    || !(((OtpErlangTuple) o).elementAt(0) instanceof OtpErlangString)) {
+                continue;
+            }
+            final String funWithArity = ((OtpErlangString) ((OtpErlangTuple) o)
+                    .elementAt(0)).stringValue();
+            final int slash = funWithArity.lastIndexOf('/');
+            if (slash < 0 || cache.get(runtime, module, funWithArity) != null) {
+                continue;
+            }
+            final int arity;
+            try {
+                arity = Integer.parseInt(funWithArity.substring(slash + 1));
+            } catch (final NumberFormatException e) {
+                continue;
+            }
+            final OtpErlangObject res = callGetDoc(b, module, ErlideDoc.external(module,
+                    funWithArity.substring(0, slash), arity));
+            if (Util.isOk(res)) {
+                docs.put(DocCache.entry(funWithArity.substring(0, slash), arity), res);
+            }
+        }
+        cache.putAll(runtime, module, docs);
+    }
+
     @Override
     public String getOtpDocLocation(final IOtpRpc b) {
         // OtpErlangObject res = null;
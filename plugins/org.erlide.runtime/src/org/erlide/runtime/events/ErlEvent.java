@@ -1,27 +1,53 @@
 package org.erlide.runtime.events;
 
 import org.erlide.runtime.api.IOtpNodeProxy;
+import org.erlide.util.ErlLogger;
 
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangPid;
+import com.ericsson.otp.erlang.OtpLazyTerm;
 
 public class ErlEvent {
 
     private final String topic;
     private final IOtpNodeProxy runtime;
-    private final OtpErlangObject event;
+    // one of these is set
+    private final OtpLazyTerm event;
+    private final OtpErlangObject eventObject;
     private final OtpErlangPid sender;
 
     public ErlEvent(final String topic, final IOtpNodeProxy runtime,
             final OtpErlangObject event, final OtpErlangPid sender) {
         this.topic = topic;
         this.runtime = runtime;
+        this.event = null;
+        eventObject = event;
+        this.sender = sender;
+    }
+
+    /**
+     * The event data is decoded only when a handler asks for it.
+     */
+    public ErlEvent(final String topic, final IOtpNodeProxy runtime,
+            final OtpLazyTerm event, final OtpErlangPid sender) {
+        this.topic = topic;
+        this.runtime = runtime;
         this.event = event;
+        eventObject = null;
         this.sender = sender;
     }
 
     public OtpErlangObject getEvent() {
-        return event;
+        if (event == null) {
+            return eventObject;
+        }
+        try {
+            return event.materialize();
+        } catch (final OtpErlangDecodeException e) {
+            ErlLogger.error(e);
+            return null;
+        }
     }
 
     public String getTopic() {
@@ -4,23 +4,25 @@ import org.erlide.runtime.api.IOtpNodeProxy;
 import org.erlide.runtime.events.ErlEvent;
 
 import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangPid;
 import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpLazyTerm;
 
 public class EventParser {
 
-    public ErlEvent parse(final OtpErlangObject msg, final IOtpNodeProxy runtime) {
-        if (msg == null) {
+    public ErlEvent parse(final OtpLazyTerm msg, final IOtpNodeProxy runtime)
+            throws OtpErlangDecodeException {
+        if (msg == null || !msg.isTuple() || msg.arity() != 4) {
             return null;
         }
-        final String topic = getEventTopic(msg);
-        if (topic == null) {
+        final OtpLazyTerm topic = msg.elementAt(1);
+        if (!topic.isAtom()) {
             return null;
         }
-        final OtpErlangObject event = getEventData(msg);
-        final OtpErlangPid sender = getEventSender(msg);
-        return new ErlEvent(topic, runtime, event, sender);
+        final OtpErlangPid sender = (OtpErlangPid) msg.elementAt(3).materialize();
+        return new ErlEvent(topic.atomValue(), runtime, msg.elementAt(2), sender);
     }
 
     public boolean isEventMessage(final OtpErlangObject msg) {
@@ -33,21 +35,4 @@ public class EventParser {
         }
     }
 
-    private OtpErlangPid getEventSender(final OtpErlangObject msg) {
-        final OtpErlangTuple tmsg = (OtpErlangTuple) msg;
-        return (OtpErlangPid) tmsg.elementAt(3);
-    }
-
-    private OtpErlangObject getEventData(final OtpErlangObject msg) {
-        final OtpErlangTuple tmsg = (OtpErlangTuple) msg;
-        return tmsg.elementAt(2);
-    }
-
-    private String getEventTopic(final OtpErlangObject msg) {
-        final OtpErlangTuple tmsg = (OtpErlangTuple) msg;
-        final Object el0 = tmsg.elementAt(1);
-        final OtpErlangAtom a = (OtpErlangAtom) el0;
-        return a.atomValue();
-    }
-
 }
@@ -36,6 +36,7 @@ import com.ericsson.otp.erlang.OtpErlangDecodeException;
 import com.ericsson.otp.erlang.OtpErlangExit;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangPid;
+import com.ericsson.otp.erlang.OtpLazyTerm;
 import com.ericsson.otp.erlang.OtpMbox;
 import com.ericsson.otp.erlang.OtpNode;
 import com.google.common.eventbus.DeadEvent;
@@ -95,9 +96,9 @@ public class OtpNodeProxy implements IOtpNodeProxy {
     }
 
     private void receiveEventMessage(final OtpMbox eventBox) throws OtpErlangExit {
-        OtpErlangObject msg = null;
+        OtpLazyTerm msg = null;
         try {
-            msg = eventBox.receive(OtpNodeProxy.POLL_INTERVAL);
+            msg = eventBox.receiveLazy(OtpNodeProxy.POLL_INTERVAL);
             final ErlEvent busEvent = eventHelper.parse(msg, this);
             if (busEvent != null) {
                 if (OtpNodeProxy.DEBUG) {
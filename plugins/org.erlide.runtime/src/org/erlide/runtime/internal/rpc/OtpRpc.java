@@ -25,8 +25,8 @@ import com.ericsson.otp.erlang.OtpErlangExit;
 import com.ericsson.otp.erlang.OtpErlangList;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangPid;
-import com.ericsson.otp.erlang.OtpErlangRef;
 import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpLazyTerm;
 import com.ericsson.otp.erlang.OtpMbox;
 import com.ericsson.otp.erlang.OtpNode;
 import com.google.common.util.concurrent.ThreadFactoryBuilder;
@@ -156,6 +156,34 @@ public class OtpRpc implements IOtpRpc {
         return result;
     }
 
+    @Override
+    public OtpLazyTerm call_lazy(final long timeout, final String module,
+            final String fun, final String signature, final Object... args0)
+            throws RpcException {
+        checkConnected();
+        OtpLazyTerm result = null;
+        try {
+            final RpcFuture future = sendRpcCall(localNode, nodeName, false,
+                    OtpRpc.USER_ATOM, module, fun, signature, args0);
+            result = future.checkedGetLazy(timeout, TimeUnit.MILLISECONDS);
+            if (OtpRpc.CHECK_RPC) {
+                ErlLogger.debug("RPC result:: " + result);
+            }
+            if (result != null && isBadRpc(result)) {
+                throw new RpcException("Bad RPC: " + result);
+            }
+        } catch (final SignatureException e) {
+            throw new RpcException(e);
+        }
+        return result;
+    }
+
+    @Override
+    public OtpLazyTerm call_lazy(final String m, final String f, final String signature,
+            final Object... a) throws RpcException {
+        return call_lazy(OtpRpc.DEFAULT_TIMEOUT, m, f, signature, a);
+    }
+
     @Override
     public OtpErlangObject call(final long timeout, final String module, final String fun,
             final String signature, final Object... args0) throws RpcException {
@@ -294,6 +322,15 @@ public class OtpRpc implements IOtpRpc {
         return false;
     }
 
+    private boolean isBadRpc(final OtpLazyTerm result) {
+        try {
+            return result.isTuple() && result.arity() > 0
+                    && result.elementAt(0).isAtom("badrpc");
+        } catch (final OtpErlangDecodeException e) {
+            return false;
+        }
+    }
+
     private synchronized RpcFuture sendRpcCall(final OtpNode node, final String peer,
             final boolean logCalls, final OtpErlangObject gleader, final String module,
             final String fun, final String signature, final Object... args0)
@@ -307,16 +344,13 @@ public class OtpRpc implements IOtpRpc {
             final Object[] args01 = { module, fun, argString(args) };
             ErlLogger.debug("call -> %s:%s(%s)", args01);
         }
-        //
-        final OtpErlangRef ref = RpcMonitor.recordRequest(node, peer, module, fun, args,
-                OtpErlang.sizeOf(res));
-        //
+        final RpcMonitor.Call call = RpcMonitor.recordRequest(peer, module, fun, args);
         mbox.send("rex", peer, res);
         if (OtpRpc.CHECK_RPC) {
             ErlLogger.debug("RPC " + mbox.hashCode() + "=> " + res);
         }
-        return new RpcFuture(ref, mbox, module + ":" + fun + "/" + args0.length, logCalls,
-                this);
+        return new RpcFuture(call, mbox, module + ":" + fun + "/" + args0.length,
+                logCalls, this);
     }
 
     private static final String SEP = ", ";
@@ -383,6 +417,45 @@ public class OtpRpc implements IOtpRpc {
         return res;
     }
 
+    /**
+     * Retrieve the result of a RPC, without decoding more of it than needed.
+     */
+    @Override
+    public OtpLazyTerm getLazyRpcResult(final OtpMbox mbox, final long timeout,
+            final String env) throws RpcException {
+        assert mbox != null;
+
+        OtpLazyTerm res = null;
+        try {
+            try {
+                if (timeout == OtpRpc.INFINITY) {
+                    res = mbox.receiveLazy();
+                } else {
+                    res = mbox.receiveLazy(timeout);
+                }
+                if (OtpRpc.CHECK_RPC) {
+                    ErlLogger.debug("RPC " + mbox.hashCode() + "<= " + res);
+                }
+            } finally {
+                if (res != null) {
+                    mbox.close();
+                }
+            }
+            if (res == null) {
+                final String msg = env != null ? env : "??";
+                throw new RpcTimeoutException(msg);
+            }
+            if (!res.isTuple() || res.arity() != 2) {
+                throw new RpcException(res.toString());
+            }
+            return res.elementAt(1);
+        } catch (final OtpErlangExit e) {
+            throw new RpcException(e);
+        } catch (final OtpErlangDecodeException e) {
+            throw new RpcException(e);
+        }
+    }
+
     private OtpErlangObject buildRpcCall(final OtpErlangPid pid,
             final OtpErlangObject gleader, final String module, final String fun,
             final OtpErlangObject[] args) {
@@ -2,6 +2,7 @@ package org.erlide.runtime.rpc;
 
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangPid;
+import com.ericsson.otp.erlang.OtpLazyTerm;
 import com.ericsson.otp.erlang.OtpMbox;
 
 public interface IOtpRpc {
@@ -67,6 +68,16 @@ public interface IOtpRpc {
             final String m, final String f, final String signature, final Object... a)
             throws RpcException;
 
+    /**
+     * Like {@link #call(long, String, String, String, Object...)}, but the result is
+     * only decoded as far as the caller looks at it.
+     */
+    OtpLazyTerm call_lazy(final long timeout, final String m, final String f,
+            final String signature, final Object... a) throws RpcException;
+
+    OtpLazyTerm call_lazy(final String m, final String f, final String signature,
+            final Object... a) throws RpcException;
+
     /**
      * Calls a function that supports sending progress reports back. The first argument is
      * implicit and is the pid where the reports are to be sent.
@@ -97,6 +108,9 @@ public interface IOtpRpc {
     OtpErlangObject getRpcResult(OtpMbox mbox, long timeout, String env)
             throws RpcException;
 
+    OtpLazyTerm getLazyRpcResult(OtpMbox mbox, long timeout, String env)
+            throws RpcException;
+
     // y (ErlRuntime)
     void setConnected(boolean b);
 
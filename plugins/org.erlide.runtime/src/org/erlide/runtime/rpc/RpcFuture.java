@@ -15,7 +15,7 @@ import org.erlide.runtime.internal.rpc.OtpRpc;
 import org.erlide.util.ErlLogger;
 
 import com.ericsson.otp.erlang.OtpErlangObject;
-import com.ericsson.otp.erlang.OtpErlangRef;
+import com.ericsson.otp.erlang.OtpLazyTerm;
 import com.ericsson.otp.erlang.OtpMbox;
 import com.google.common.util.concurrent.ListenableFuture;
 
@@ -23,15 +23,16 @@ public class RpcFuture implements ListenableFuture<OtpErlangObject> {
 
     private final OtpMbox mbox;
     private OtpErlangObject result;
+    private OtpLazyTerm lazyResult;
     private final String env;
     private final boolean logCalls;
 
     private final IOtpRpc rpc;
-    private final OtpErlangRef ref;
+    private final RpcMonitor.Call call;
 
-    public RpcFuture(final OtpErlangRef ref, final OtpMbox mbox, final String env,
+    public RpcFuture(final RpcMonitor.Call call, final OtpMbox mbox, final String env,
             final boolean logCalls, final IOtpRpc rpc) {
-        this.ref = ref;
+        this.call = call;
 
         this.mbox = mbox;
         this.env = env;
@@ -59,7 +60,7 @@ public class RpcFuture implements ListenableFuture<OtpErlangObject> {
 
     @Override
     public boolean isDone() {
-        return result != null;
+        return result != null || lazyResult != null;
     }
 
     @Override
@@ -89,7 +90,7 @@ public class RpcFuture implements ListenableFuture<OtpErlangObject> {
         result = rpc.getRpcResult(mbox, TimeUnit.MILLISECONDS.convert(timeout, unit),
                 env);
         if (isDone()) {
-            RpcMonitor.recordResponse(ref, result);
+            RpcMonitor.recordResponse(call, mbox, result);
             if (logCalls) {
                 final Object[] args0 = { result };
                 ErlLogger.debug("call <- %s", args0);
@@ -98,4 +99,22 @@ public class RpcFuture implements ListenableFuture<OtpErlangObject> {
         return result;
     }
 
+    /**
+     * Like {@link #checkedGet(long, TimeUnit)}, but the result is only decoded as far as
+     * the caller looks at it.
+     */
+    public OtpLazyTerm checkedGetLazy(final long timeout, final TimeUnit unit)
+            throws RpcException {
+        lazyResult = rpc.getLazyRpcResult(mbox,
+                TimeUnit.MILLISECONDS.convert(timeout, unit), env);
+        if (isDone()) {
+            RpcMonitor.recordResponse(call, mbox, lazyResult);
+            if (logCalls) {
+                final Object[] args0 = { lazyResult };
+                ErlLogger.debug("call <- %s", args0);
+            }
+        }
+        return lazyResult;
+    }
+
 }
@@ -0,0 +1,120 @@
+package org.erlide.runtime.rpc;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A histogram of non-negative values that any number of threads can record into
+ * without locking.
+ *
+ * <p>
+ * As in HdrHistogram, buckets get wider as values grow: each power of two is split
+ * in 8 buckets, so a value is known to within 12.5%. Values up to 2^40 are told
+ * apart; larger ones share the last bucket.
+ */
+public class RpcHistogram {
+
+    private static final int SUB_BITS = 3;
+    private static final int SUB_COUNT = 1 << RpcHistogram.SUB_BITS;
+    private static final int MAX_EXPONENT = 40;
+    private static final int BUCKETS = (RpcHistogram.MAX_EXPONENT - RpcHistogram.SUB_BITS
+            + 2) * RpcHistogram.SUB_COUNT;
+
+    private final AtomicLongArray counts = new AtomicLongArray(RpcHistogram.BUCKETS);
+    private final LongAdder count = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final LongAccumulator max = new LongAccumulator(Math::max, 0);
+
+    public void record(final long value) {
+        final long v = Math.max(0, value);
+        counts.incrementAndGet(RpcHistogram.index(v));
+        count.increment();
+        sum.add(v);
+        max.accumulate(v);
+    }
+
+    public long getCount() {
+        return count.sum();
+    }
+
+    public long getSum() {
+        return sum.sum();
+    }
+
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        final long n = count.sum();
+        return n == 0 ? 0 : (double) sum.sum() / n;
+    }
+
+    /**
+     * @param percentile
+     *            between 0 and 100
+     * @return the highest value of the bucket the percentile falls into, but not more
+     *         than the largest value recorded
+     */
+    public long getValueAtPercentile(final double percentile) {
+        long total = 0;
+        final long[] snapshot = new long[RpcHistogram.BUCKETS];
+        for (int i = 0; i < RpcHistogram.BUCKETS; i++) {
+            snapshot[i] = counts.get(i);
+            total += snapshot[i];
+        }
+        if (total == 0) {
+            return 0;
+        }
+        final long rank = Math.max(1,
+                (long) Math.ceil(Math.min(100, percentile) / 100 * total));
+        long seen = 0;
+        for (int i = 0; i < RpcHistogram.BUCKETS; i++) {
+            seen += snapshot[i];
+            if (seen >= rank) {
+                return Math.min(RpcHistogram.highest(i), getMax());
+            }
+        }
+        return getMax();
+    }
+
+    public void reset() {
+        for (int i = 0; i < RpcHistogram.BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        count.reset();
+        sum.reset();
+        max.reset();
+    }
+
+    static int index(final long value) {
+        if (value < RpcHistogram.SUB_COUNT) {
+            return (int) value;
+        }
+        final int exponent = 63 - Long.numberOfLeadingZeros(value);
+        if (exponent > RpcHistogram.MAX_EXPONENT) {
+            return RpcHistogram.BUCKETS - 1;
+        }
+        final int shift = exponent - RpcHistogram.SUB_BITS;
+        final int sub = (int) (value >>> shift) & (RpcHistogram.SUB_COUNT - 1);
+        return (shift + 1) * RpcHistogram.SUB_COUNT + sub;
+    }
+
+    static long lowest(final int index) {
+        if (index < RpcHistogram.SUB_COUNT) {
+            return index;
+        }
+        final int shift = index / RpcHistogram.SUB_COUNT - 1;
+        final long sub = index % RpcHistogram.SUB_COUNT;
+        return (RpcHistogram.SUB_COUNT + sub) << shift;
+    }
+
+    static long highest(final int index) {
+        if (index == RpcHistogram.BUCKETS - 1) {
+            return Long.MAX_VALUE;
+        }
+        return RpcHistogram.lowest(index + 1) - 1;
+    }
+
+}
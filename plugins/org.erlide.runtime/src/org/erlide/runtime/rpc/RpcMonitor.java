@@ -4,145 +4,427 @@ import java.io.File;
 import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
 import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
 import java.lang.ref.SoftReference;
-import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.Comparator;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.atomic.LongAdder;
+
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import javax.management.StandardMBean;
 
 import org.erlide.util.ErlLogger;
-import org.erlide.util.erlang.OtpErlang;
 
-import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
 import com.ericsson.otp.erlang.OtpErlangObject;
-import com.ericsson.otp.erlang.OtpErlangRef;
-import com.ericsson.otp.erlang.OtpNode;
+import com.ericsson.otp.erlang.OtpLazyTerm;
+import com.ericsson.otp.erlang.OtpMbox;
 import com.google.common.collect.Lists;
 import com.google.common.collect.Maps;
 
+/**
+ * Metrics of the RPCs made to the backends, cheap enough to be always on.
+ *
+ * <p>
+ * For each called <code>module:function</code>, the number of calls and histograms of
+ * their latency and of the size of requests and replies are kept. Sizes are those of
+ * the messages on the wire, as counted by the mailbox of the call; nothing is encoded
+ * just to be measured. Recording doesn't lock.
+ *
+ * <p>
+ * Calls slower than <code>erlide.rpcmonitor.slow</code> ms (default 500) or larger
+ * than <code>erlide.rpcmonitor.large</code> bytes (default 1000000) are sampled: the
+ * last <code>erlide.rpcmonitor.count</code> (default 50) of each are kept. With
+ * <code>erlide.rpcmonitor.full</code>, their arguments and results are kept too.
+ *
+ * <p>
+ * The metrics are available from {@link #getStats()}, as JSON from {@link #toJson()}
+ * and over JMX as <code>org.erlide:type=RpcMonitor</code>. They are written to the log
+ * file on shutdown if <code>erlide.rpcmonitor</code> is set. Everything is turned off
+ * with <code>-Derlide.rpcmonitor.off=true</code>.
+ */
 public class RpcMonitor {
-    private static final boolean DISABLED = System
-            .getProperty("erlide.rpcmonitor") == null;
+    private static final boolean DISABLED = Boolean.getBoolean("erlide.rpcmonitor.off");
+    private static final boolean DUMP = System.getProperty("erlide.rpcmonitor") != null;
     private static final int COUNT = Integer
             .parseInt(System.getProperty("erlide.rpcmonitor.count", "50"));
     private static final boolean FULL = System
             .getProperty("erlide.rpcmonitor.full") != null;
+    private static final long SLOW_MILLIS = Long
+            .parseLong(System.getProperty("erlide.rpcmonitor.slow", "500"));
+    private static final long LARGE_BYTES = Long
+            .parseLong(System.getProperty("erlide.rpcmonitor.large", "1000000"));
 
-    private static class RpcData {
-        public final long startTime;
-        public final String node;
-        public final String module;
-        public final String fun;
-        public final SoftReference<Collection<OtpErlangObject>> args;
-        public final long size;
+    /**
+     * An ongoing call, as returned by {@link RpcMonitor#recordRequest}.
+     */
+    public static final class Call {
+        private final long startNanos = System.nanoTime();
+        private final long startTime = System.currentTimeMillis();
+        private final String node;
+        private final String module;
+        private final String fun;
+        private final OtpErlangObject[] args;
+        private boolean done;
 
-        public RpcData(final long startTime, final String node, final String module,
-                final String fun, final OtpErlangObject[] args, final long size) {
-            this.startTime = startTime;
+        Call(final String node, final String module, final String fun,
+                final OtpErlangObject[] args) {
             this.node = node;
             this.module = module;
             this.fun = fun;
-            this.args = new SoftReference<>(
-                    Collections.unmodifiableCollection(Lists.newArrayList(args)));
-            this.size = size;
+            this.args = RpcMonitor.FULL ? args : null;
         }
     }
 
-    private static class RpcInfo {
+    /**
+     * The metrics of the calls to one function.
+     */
+    public static final class CallStats {
+        private final String name;
+        private final LongAdder calls = new LongAdder();
+        private final RpcHistogram latency = new RpcHistogram();
+        private final RpcHistogram requestBytes = new RpcHistogram();
+        private final RpcHistogram replyBytes = new RpcHistogram();
+
+        CallStats(final String name) {
+            this.name = name;
+        }
+
+        /**
+         * @return <code>module:function</code>
+         */
+        public String getName() {
+            return name;
+        }
+
+        public long getCalls() {
+            return calls.sum();
+        }
+
+        /**
+         * @return the time between request and reply, in microseconds
+         */
+        public RpcHistogram getLatency() {
+            return latency;
+        }
+
+        public RpcHistogram getRequestBytes() {
+            return requestBytes;
+        }
+
+        public RpcHistogram getReplyBytes() {
+            return replyBytes;
+        }
+    }
+
+    /**
+     * A sampled call.
+     */
+    public static final class Sample {
+        public final long startTime;
         public final String node;
         public final String module;
         public final String fun;
-        public final SoftReference<Collection<OtpErlangObject>> args;
-        public final long callSize;
-        public final SoftReference<OtpErlangObject> result;
-        public final long answerSize;
-        public final long callTime;
-        public final long answerTime;
-        private final int argsSize;
-
-        public RpcInfo(final RpcData data, final OtpErlangObject result,
-                final long answerTime) {
-            node = data.node;
-            module = data.module;
-            fun = data.fun;
-            args = data.args;
-            final Collection<OtpErlangObject> collection = args.get();
-            argsSize = collection == null ? 0 : collection.size();
-            this.result = new SoftReference<>(result);
-            callTime = data.startTime;
-            this.answerTime = answerTime;
-            callSize = data.size;
-            answerSize = OtpErlang.sizeOf(result);
-        }
-
-        public void dump(final PrintStream out, final boolean full) {
-            Collection<OtpErlangObject> myArgs = args.get();
-            myArgs = myArgs == null ? new ArrayList<>() : myArgs;
-            final String argsString = full ? args.toString().replaceAll("\n|\r", " ")
-                    : "...";
-            OtpErlangObject val = result.get();
-            val = val == null ? new OtpErlangAtom("null") : val;
-            String resultString = full ? val.toString().replaceAll("\n|\r", " ") : "...";
+        public final long micros;
+        public final long requestBytes;
+        public final long replyBytes;
+        private final SoftReference<Collection<OtpErlangObject>> args;
+        private final SoftReference<Object> result;
+
+        Sample(final Call call, final long micros, final long requestBytes,
+                final long replyBytes, final Object result) {
+            startTime = call.startTime;
+            node = call.node;
+            module = call.module;
+            fun = call.fun;
+            this.micros = micros;
+            this.requestBytes = requestBytes;
+            this.replyBytes = replyBytes;
+            args = new SoftReference<>(call.args == null ? null
+                    : Collections.unmodifiableCollection(Arrays.asList(call.args)));
+            this.result = new SoftReference<>(RpcMonitor.FULL ? result : null);
+        }
+
+        void dump(final PrintStream out) {
+            final Collection<OtpErlangObject> myArgs = args.get();
+            final String argsString = myArgs == null ? "..."
+                    : myArgs.toString().replaceAll("\n|\r", " ");
+            final Object val = result.get();
+            String resultString = val == null ? "..."
+                    : val.toString().replaceAll("\n|\r", " ");
             if (resultString.length() > 100) {
-                resultString = (resultString.substring(0, 99) + "...");
+                resultString = resultString.substring(0, 99) + "...";
             }
             out.format(
-                    "%30s|%25s:%-20s/%d in=%9d, out=%9d, t=%6d, args=%s -> result=%s%n",
+                    "%30s|%25s:%-20s in=%9d, out=%9d, t=%6d, args=%s -> result=%s%n",
                     node.substring(0, Math.min(29, node.length() - 1)), module, fun,
-                    argsSize, callSize, answerSize, answerTime - callTime, argsString,
-                    resultString);
+                    requestBytes, replyBytes, micros / 1000, argsString, resultString);
         }
     }
 
-    private static int callCount;
-    private static final Map<OtpErlangRef, RpcData> ongoing = Maps.newHashMap();
-    private static Comparator<RpcInfo> timeComparator = (o1,
-            o2) -> (int) (o2.answerTime - o2.callTime - (o1.answerTime - o1.callTime));
-    private static Comparator<RpcInfo> sizeComparator = (o1,
-            o2) -> (int) (o2.callSize + o2.answerSize - (o1.callSize + o1.answerSize));
-    private static final List<RpcInfo> slowest = Lists.newLinkedList();
-    private static final List<RpcInfo> largest = Lists.newLinkedList();
+    /**
+     * Keeps the last samples, overwriting the oldest.
+     */
+    private static final class SampleRing {
+        private final AtomicReferenceArray<Sample> samples = new AtomicReferenceArray<>(
+                RpcMonitor.COUNT);
+        private final AtomicLong next = new AtomicLong();
 
-    public static synchronized void recordResponse(final OtpErlangRef ref,
-            final OtpErlangObject result) {
+        void add(final Sample sample) {
+            final int i = (int) (next.getAndIncrement() % samples.length());
+            samples.set(i, sample);
+        }
+
+        List<Sample> get() {
+            final List<Sample> result = Lists.newArrayList();
+            for (int i = 0; i < samples.length(); i++) {
+                final Sample s = samples.get(i);
+                if (s != null) {
+                    result.add(s);
+                }
+            }
+            return result;
+        }
+
+        void clear() {
+            for (int i = 0; i < samples.length(); i++) {
+                samples.set(i, null);
+            }
+        }
+    }
+
+    private static final LongAdder callCount = new LongAdder();
+    private static final Map<String, CallStats> stats = Maps.newConcurrentMap();
+    private static final SampleRing slowest = new SampleRing();
+    private static final SampleRing largest = new SampleRing();
+
+    static {
+        if (!RpcMonitor.DISABLED) {
+            RpcMonitor.registerMBean();
+        }
+    }
+
+    private RpcMonitor() {
+    }
+
+    /**
+     * A request is being sent.
+     *
+     * @return the call, to be passed to {@link #recordResponse}; null if monitoring is
+     *         off
+     */
+    public static Call recordRequest(final String peer, final String module,
+            final String fun, final OtpErlangObject[] args) {
+        RpcMonitor.callCount.increment();
         if (RpcMonitor.DISABLED) {
+            return null;
+        }
+        return new Call(peer, module, fun, args);
+    }
+
+    /**
+     * The reply to a call was received in the mailbox.
+     */
+    public static void recordResponse(final Call call, final OtpMbox mbox,
+            final OtpErlangObject result) {
+        RpcMonitor.record(call, mbox, result);
+    }
+
+    public static void recordResponse(final Call call, final OtpMbox mbox,
+            final OtpLazyTerm result) {
+        RpcMonitor.record(call, mbox, result);
+    }
+
+    private static void record(final Call call, final OtpMbox mbox, final Object result) {
+        if (call == null) {
             return;
         }
-        final RpcData data = RpcMonitor.ongoing.remove(ref);
-        final long now = System.currentTimeMillis();
-        final RpcInfo info = new RpcInfo(data, result, now);
-        RpcMonitor.add(RpcMonitor.largest, RpcMonitor.sizeComparator, info);
-        RpcMonitor.add(RpcMonitor.slowest, RpcMonitor.timeComparator, info);
+        synchronized (call) {
+            if (call.done) {
+                return;
+            }
+            call.done = true;
+        }
+        final long micros = TimeUnit.NANOSECONDS
+                .toMicros(System.nanoTime() - call.startNanos);
+        final long requestBytes = mbox.getSentBytes();
+        final long replyBytes = mbox.getReceivedBytes();
+        final CallStats s = RpcMonitor.stats.computeIfAbsent(
+                call.module + ":" + call.fun, CallStats::new);
+        s.calls.increment();
+        s.latency.record(micros);
+        s.requestBytes.record(requestBytes);
+        s.replyBytes.record(replyBytes);
+
+        final boolean slow = micros >= RpcMonitor.SLOW_MILLIS * 1000;
+        final boolean large = requestBytes + replyBytes >= RpcMonitor.LARGE_BYTES;
+        if (slow || large) {
+            final Sample sample = new Sample(call, micros, requestBytes, replyBytes,
+                    RpcMonitor.materialize(result));
+            if (slow) {
+                RpcMonitor.slowest.add(sample);
+            }
+            if (large) {
+                RpcMonitor.largest.add(sample);
+            }
+        }
     }
 
-    private static void add(final List<RpcInfo> list,
-            final Comparator<RpcInfo> comparator, final RpcInfo info) {
-        final int index = Collections.binarySearch(list, info, comparator);
-        if (index < 0) {
-            // Add the non-existent item to the list
-            list.add(-index - 1, info);
-        } else {
-            list.add(index, info);
+    private static Object materialize(final Object result) {
+        if (RpcMonitor.FULL && result instanceof OtpLazyTerm) {
+            try {
+                return ((OtpLazyTerm) result).materialize();
+            } catch (final OtpErlangDecodeException e) {
+                return result;
+            }
         }
-        if (list.size() > RpcMonitor.COUNT) {
-            list.remove(list.size() - 1);
+        return result;
+    }
+
+    public static long getCallCount() {
+        return RpcMonitor.callCount.sum();
+    }
+
+    /**
+     * @return the metrics of each called function, the most time consuming first
+     */
+    public static List<CallStats> getStats() {
+        final List<CallStats> result = Lists.newArrayList(RpcMonitor.stats.values());
+        result.sort(Comparator.comparingLong(
+                (final CallStats s) -> s.latency.getSum()).reversed());
+        return result;
+    }
+
+    /**
+     * @return the last sampled slow calls, the slowest first
+     */
+    public static List<Sample> getSlowestCalls() {
+        final List<Sample> result = RpcMonitor.slowest.get();
+        result.sort(Comparator.comparingLong((final Sample s) -> s.micros).reversed());
+        return result;
+    }
+
+    /**
+     * @return the last sampled large calls, the largest first
+     */
+    public static List<Sample> getLargestCalls() {
+        final List<Sample> result = RpcMonitor.largest.get();
+        result.sort(Comparator
+                .comparingLong((final Sample s) -> s.requestBytes + s.replyBytes)
+                .reversed());
+        return result;
+    }
+
+    public static void reset() {
+        RpcMonitor.callCount.reset();
+        RpcMonitor.stats.clear();
+        RpcMonitor.slowest.clear();
+        RpcMonitor.largest.clear();
+    }
+
+    public static String toJson() {
+        final StringBuilder out = new StringBuilder();
+        out.append("{\"calls\":").append(RpcMonitor.getCallCount());
+        out.append(",\"functions\":[");
+        String sep = "";
+        for (final CallStats s : RpcMonitor.getStats()) {
+            out.append(sep).append("{\"name\":");
+            RpcMonitor.appendString(out, s.name);
+            out.append(",\"calls\":").append(s.getCalls());
+            out.append(",\"latency_us\":");
+            RpcMonitor.appendHistogram(out, s.latency);
+            out.append(",\"request_bytes\":");
+            RpcMonitor.appendHistogram(out, s.requestBytes);
+            out.append(",\"reply_bytes\":");
+            RpcMonitor.appendHistogram(out, s.replyBytes);
+            out.append('}');
+            sep = ",";
         }
+        out.append("],\"slowest\":");
+        RpcMonitor.appendSamples(out, RpcMonitor.getSlowestCalls());
+        out.append(",\"largest\":");
+        RpcMonitor.appendSamples(out, RpcMonitor.getLargestCalls());
+        out.append('}');
+        return out.toString();
     }
 
-    public static OtpErlangRef recordRequest(final OtpNode node, final String peer,
-            final String module, final String fun, final OtpErlangObject[] args,
-            final long callSize) {
-        RpcMonitor.callCount++;
-        if (RpcMonitor.DISABLED) {
-            return null;
+    private static void appendHistogram(final StringBuilder out, final RpcHistogram h) {
+        out.append("{\"count\":").append(h.getCount());
+        out.append(",\"mean\":").append(Math.round(h.getMean()));
+        out.append(",\"p50\":").append(h.getValueAtPercentile(50));
+        out.append(",\"p90\":").append(h.getValueAtPercentile(90));
+        out.append(",\"p99\":").append(h.getValueAtPercentile(99));
+        out.append(",\"max\":").append(h.getMax()).append('}');
+    }
+
+    private static void appendSamples(final StringBuilder out,
+            final List<Sample> samples) {
+        out.append('[');
+        String sep = "";
+        for (final Sample s : samples) {
+            out.append(sep).append("{\"name\":");
+            RpcMonitor.appendString(out, s.module + ":" + s.fun);
+            out.append(",\"node\":");
+            RpcMonitor.appendString(out, s.node);
+            out.append(",\"start\":").append(s.startTime);
+            out.append(",\"latency_us\":").append(s.micros);
+            out.append(",\"request_bytes\":").append(s.requestBytes);
+            out.append(",\"reply_bytes\":").append(s.replyBytes).append('}');
+            sep = ",";
+        }
+        out.append(']');
+    }
+
+    private static void appendString(final StringBuilder out, final String s) {
+        out.append('"');
+        for (int i = 0; i < s.length(); i++) {
+            final char c = s.charAt(i);
+            if (c == '"' || c == '\\') {
+                out.append('\\').append(c);
+            } else if (c < ' ') {
+                out.append(String.format("\\u%04x", (int) c));
+            } else {
+                out.append(c);
+            }
+        }
+        out.append('"');
+    }
+
+    private static void registerMBean() {
+        final RpcMonitorMBean bean = new RpcMonitorMBean() {
+            @Override
+            public long getCallCount() {
+                return RpcMonitor.getCallCount();
+            }
+
+            @Override
+            public String getJson() {
+                return RpcMonitor.toJson();
+            }
+
+            @Override
+            public void reset() {
+                RpcMonitor.reset();
+            }
+        };
+        try {
+            final ObjectName name = new ObjectName("org.erlide:type=RpcMonitor");
+            final MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            if (!server.isRegistered(name)) {
+                server.registerMBean(new StandardMBean(bean, RpcMonitorMBean.class),
+                        name);
+            }
+        } catch (final Exception | LinkageError e) {
+            ErlLogger.warn("Could not publish RPC metrics over JMX: " + e);
         }
-        final RpcData data = new RpcData(System.currentTimeMillis(), peer, module, fun,
-                args, callSize);
-        final OtpErlangRef ref = node.createRef();
-        RpcMonitor.ongoing.put(ref, data);
-        return ref;
     }
 
     public static void dump() {
@@ -162,7 +444,7 @@ public class RpcMonitor {
     }
 
     public static void dump(final String fileName, final int n, final boolean full) {
-        if (RpcMonitor.DISABLED) {
+        if (RpcMonitor.DISABLED || !RpcMonitor.DUMP) {
             return;
         }
         try (final PrintStream os = new PrintStream(
@@ -173,27 +455,45 @@ public class RpcMonitor {
         }
     }
 
-    public static synchronized void dump(final PrintStream out, final int n,
-            final boolean full) {
+    /**
+     * @param full
+     *            not used anymore; arguments and results are kept only with
+     *            <code>erlide.rpcmonitor.full</code>
+     */
+    public static void dump(final PrintStream out, final int n, final boolean full) {
         final String delim = "--------------------------------------------------------------";
 
         out.println("\n" + delim);
-        out.format("*** RpcMonitor statistics%n - %d calls%n", RpcMonitor.callCount);
+        out.format("*** RpcMonitor statistics%n - %d calls%n", RpcMonitor.getCallCount());
         out.println(delim);
         out.println();
-        out.format("Slowest %d calls%n", RpcMonitor.slowest.size());
+        final List<CallStats> all = RpcMonitor.getStats();
+        out.format("Most time consuming %d functions (us, bytes)%n",
+                Math.min(n, all.size()));
         out.println(delim);
-        for (final RpcInfo info : RpcMonitor.slowest) {
-            info.dump(out, full);
+        for (final CallStats s : all.subList(0, Math.min(n, all.size()))) {
+            out.format("%45s calls=%7d, t: p50=%8d p99=%9d max=%9d, in: p99=%9d,"
+                    + " out: p99=%9d%n", s.name, s.getCalls(),
+                    s.latency.getValueAtPercentile(50),
+                    s.latency.getValueAtPercentile(99), s.latency.getMax(),
+                    s.requestBytes.getValueAtPercentile(99),
+                    s.replyBytes.getValueAtPercentile(99));
         }
         out.println(delim);
         out.println();
-        out.format("Largest %d calls%n", RpcMonitor.largest.size());
+        final List<Sample> slow = RpcMonitor.getSlowestCalls();
+        out.format("Slowest %d calls%n", Math.min(n, slow.size()));
         out.println(delim);
-        for (final RpcInfo info : RpcMonitor.largest) {
-            if (info != null) {
-                info.dump(out, full);
-            }
+        for (final Sample s : slow.subList(0, Math.min(n, slow.size()))) {
+            s.dump(out);
+        }
+        out.println(delim);
+        out.println();
+        final List<Sample> large = RpcMonitor.getLargestCalls();
+        out.format("Largest %d calls%n", Math.min(n, large.size()));
+        out.println(delim);
+        for (final Sample s : large.subList(0, Math.min(n, large.size()))) {
+            s.dump(out);
         }
         out.println(delim);
         out.close();
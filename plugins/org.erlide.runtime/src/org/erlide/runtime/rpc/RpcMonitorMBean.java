@@ -0,0 +1,17 @@
+package org.erlide.runtime.rpc;
+
+/**
+ * The RPC metrics, as published over JMX.
+ */
+public interface RpcMonitorMBean {
+
+    long getCallCount();
+
+    /**
+     * @return the metrics of all called functions and the sampled calls, as JSON
+     */
+    String getJson();
+
+    void reset();
+
+}
@@ -33,6 +33,11 @@ public interface IBackendShell {
 
     IoRequest findAtPos(final int thePos);
 
+    /**
+     * @return the current position of the request in the text of the shell.
+     */
+    int getOffset(final IoRequest request);
+
     List<IoRequest> getAllFrom(final OtpErlangPid sender);
 
     void add(final List<OtpErlangObject> msgs);
@@ -1,26 +1,19 @@
 package org.erlide.test_support.ui.suites;
 
-import java.util.List;
-
 import org.eclipse.jface.action.Action;
-import org.eclipse.jface.viewers.TreeViewer;
 import org.erlide.ui.ErlideImage;
 
 public class ClearTestResultsAction extends Action {
-    private final List<TestCaseData> events;
-    private final TreeViewer treeViewer;
+    private final TestResultsView view;
 
-    public ClearTestResultsAction(final TreeViewer treeViewer,
-            final List<TestCaseData> events) {
+    public ClearTestResultsAction(final TestResultsView view) {
         super("Clear results");
-        this.events = events;
-        this.treeViewer = treeViewer;
+        this.view = view;
         setImageDescriptor(ErlideImage.CLEAR.getDescriptor());
     }
 
     @Override
     public void run() {
-        events.clear();
-        treeViewer.refresh();
+        view.clearEvents();
     }
 }
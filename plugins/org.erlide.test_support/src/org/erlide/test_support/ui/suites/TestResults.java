@@ -0,0 +1,76 @@
+package org.erlide.test_support.ui.suites;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+
+import org.erlide.test_support.ui.suites.TestCaseData.TestState;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * The test cases of a run, in the order they were first reported, with the number of
+ * cases in each state.
+ */
+class TestResults {
+
+    private static final TestState[] STATES = TestState.values();
+
+    private final List<TestCaseData> cases = Lists.newArrayList();
+    private final Map<String, TestCaseData> byName = Maps.newHashMap();
+    private final int[] counts = new int[TestResults.STATES.length];
+
+    TestCaseData findCase(final String mod, final String fun) {
+        final String key = mod + ":" + fun;
+        TestCaseData data = byName.get(key);
+        if (data == null) {
+            data = new TestCaseData(mod, fun);
+            byName.put(key, data);
+            cases.add(data);
+            counts[data.getState().ordinal()]++;
+        }
+        return data;
+    }
+
+    /**
+     * Must be called after the state of a case was changed.
+     */
+    void stateChanged(final TestCaseData data, final TestState oldState) {
+        counts[oldState.ordinal()]--;
+        counts[data.getState().ordinal()]++;
+    }
+
+    int getCount(final TestState state) {
+        return counts[state.ordinal()];
+    }
+
+    int size() {
+        return cases.size();
+    }
+
+    void clear() {
+        cases.clear();
+        byName.clear();
+        Arrays.fill(counts, 0);
+    }
+
+    /**
+     * @return the cases ordered by state, the most interesting (failed) first, and in
+     *         the order they were reported within a state
+     */
+    TestCaseData[] sorted() {
+        final int[] start = new int[TestResults.STATES.length];
+        int pos = 0;
+        for (int s = TestResults.STATES.length - 1; s >= 0; s--) {
+            start[s] = pos;
+            pos += counts[s];
+        }
+        final TestCaseData[] result = new TestCaseData[cases.size()];
+        for (final TestCaseData data : cases) {
+            result[start[data.getState().ordinal()]++] = data;
+        }
+        return result;
+    }
+
+}
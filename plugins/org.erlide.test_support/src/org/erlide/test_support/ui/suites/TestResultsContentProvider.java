@@ -2,45 +2,75 @@ package org.erlide.test_support.ui.suites;
 
 import java.util.List;
 
-import org.eclipse.jface.viewers.ITreeContentProvider;
+import org.eclipse.jface.viewers.ILazyTreeContentProvider;
+import org.eclipse.jface.viewers.TreeViewer;
 import org.eclipse.jface.viewers.Viewer;
 import org.erlide.test_support.ui.suites.TestCaseData.FailLocations;
 import org.erlide.test_support.ui.suites.TestCaseData.FailReason;
 import org.erlide.test_support.ui.suites.TestCaseData.TestState;
 
-import com.ericsson.otp.erlang.OtpErlangObject;
 import com.google.common.collect.Lists;
 
-class TestResultsContentProvider implements ITreeContentProvider {
+/**
+ * Content of the (virtual) test results tree. The top level items are set with
+ * {@link #setElements(Object[])}, the viewer only asks for those that are visible.
+ */
+class TestResultsContentProvider implements ILazyTreeContentProvider {
     private static final String[] NO_RESULTS_MSG = { "No test results available." };
     private static final Object[] NO_CHILDREN = {};
 
-    private List<OtpErlangObject> myEvents;
+    private TreeViewer viewer;
+    private Object input;
+    private Object[] elements = TestResultsContentProvider.NO_RESULTS_MSG;
 
     @Override
-    @SuppressWarnings("unchecked")
-    public void inputChanged(final Viewer viewer, final Object oldInput,
+    public void inputChanged(final Viewer aViewer, final Object oldInput,
             final Object newInput) {
-        myEvents = (List<OtpErlangObject>) newInput;
+        viewer = (TreeViewer) aViewer;
+        input = newInput;
     }
 
     @Override
     public void dispose() {
-        myEvents = null;
+        viewer = null;
+    }
+
+    /**
+     * @return the previous top level elements
+     */
+    Object[] setElements(final Object[] newElements) {
+        final Object[] old = elements;
+        elements = newElements.length == 0 ? TestResultsContentProvider.NO_RESULTS_MSG
+                : newElements;
+        return old;
+    }
+
+    Object[] getElements() {
+        return elements;
+    }
+
+    @Override
+    public void updateElement(final Object parent, final int index) {
+        final Object[] children = parent == input ? elements : getChildren(parent);
+        if (index < children.length) {
+            final Object child = children[index];
+            viewer.replace(parent, index, child);
+            viewer.setChildCount(child, getChildren(child).length);
+        }
     }
 
     @Override
-    public Object[] getElements(final Object inputElement) {
-        if (myEvents.isEmpty()) {
-            return TestResultsContentProvider.NO_RESULTS_MSG;
+    public void updateChildCount(final Object element, final int currentChildCount) {
+        final int count = element == input ? elements.length
+                : getChildren(element).length;
+        if (count != currentChildCount) {
+            viewer.setChildCount(element, count);
         }
-        return myEvents.toArray();
     }
 
     // TODO group after test suite
 
-    @Override
-    public Object[] getChildren(final Object parentElement) {
+    Object[] getChildren(final Object parentElement) {
         if (parentElement instanceof TestCaseData) {
             final TestCaseData data = (TestCaseData) parentElement;
             if (data.getState() == TestState.FAILED) {
@@ -65,9 +95,4 @@ class TestResultsContentProvider implements ITreeContentProvider {
     public Object getParent(final Object element) {
         return null;
     }
-
-    @Override
-    public boolean hasChildren(final Object element) {
-        return getChildren(element).length > 0;
-    }
 }
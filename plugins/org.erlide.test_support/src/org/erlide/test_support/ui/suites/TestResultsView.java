@@ -1,7 +1,11 @@
 package org.erlide.test_support.ui.suites;
 
+import java.util.Arrays;
 import java.util.Collection;
-import java.util.List;
+import java.util.Queue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.eclipse.core.runtime.CoreException;
 import org.eclipse.jface.action.Action;
@@ -14,12 +18,14 @@ import org.eclipse.swt.events.MouseEvent;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Tree;
 import org.eclipse.ui.IActionBars;
 import org.eclipse.ui.part.ViewPart;
 import org.erlide.test_support.ui.suites.TestCaseData.FailReason;
 import org.erlide.test_support.ui.suites.TestCaseData.FailStackItem;
+import org.erlide.test_support.ui.suites.TestCaseData.TestState;
 import org.erlide.ui.util.DisplayUtils;
 import org.erlide.ui.util.ErlModelUtils;
 import org.erlide.util.ErlLogger;
@@ -31,23 +37,34 @@ import com.ericsson.otp.erlang.OtpErlangAtom;
 import com.ericsson.otp.erlang.OtpErlangException;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangTuple;
-import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
 
 public class TestResultsView extends ViewPart {
     public static final String VIEW_ID = "org.erlide.test_support.views.testresults";
+    /**
+     * Test events are queued and applied together, at most once per UPDATE_INTERVAL
+     * ms, so that large suites don't flood the UI thread.
+     */
+    private static final int UPDATE_INTERVAL = 100;
 
     private final TestEventHandler eventHandler;
     private Composite control;
 
     private TreeViewer treeViewer;
+    private TestResultsContentProvider contentProvider;
 
-    private final List<TestCaseData> events;
+    private final TestResults results;
     private Label label;
+    private String status = "";
+
+    private final Queue<OtpErlangObject> pendingEvents = new ConcurrentLinkedQueue<>();
+    private final AtomicBoolean updateScheduled = new AtomicBoolean();
+    private long lastUpdate;
 
     public TestResultsView() {
         // FIXME which backend?
         eventHandler = new TestEventHandler(this);
-        events = Lists.newArrayList();
+        results = new TestResults();
     }
 
     public TestEventHandler getEventHandler() {
@@ -63,8 +80,8 @@ public class TestResultsView extends ViewPart {
         label.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 1, 1));
         label.setText("");
 
-        treeViewer = new TreeViewer(control, SWT.NONE);
-        treeViewer.setComparator(new TestResultSorter());
+        treeViewer = new TreeViewer(control, SWT.VIRTUAL);
+        treeViewer.setUseHashlookup(true);
         final Tree tree = treeViewer.getTree();
         tree.addMouseListener(new MouseAdapter() {
             @Override
@@ -88,8 +105,10 @@ public class TestResultsView extends ViewPart {
         tree.setLinesVisible(true);
         tree.setLayoutData(new GridData(SWT.FILL, SWT.FILL, true, true, 1, 1));
         treeViewer.setLabelProvider(new TestResultsLabelProvider());
-        treeViewer.setContentProvider(new TestResultsContentProvider());
-        treeViewer.setInput(events);
+        contentProvider = new TestResultsContentProvider();
+        treeViewer.setContentProvider(contentProvider);
+        treeViewer.setInput(results);
+        treeViewer.setChildCount(results, contentProvider.getElements().length);
 
         initToolbar();
     }
@@ -107,7 +126,7 @@ public class TestResultsView extends ViewPart {
         final IMenuManager dropDownMenu = actionBars.getMenuManager();
         final IToolBarManager toolBar = actionBars.getToolBarManager();
 
-        final Action action = new ClearTestResultsAction(treeViewer, events);
+        final Action action = new ClearTestResultsAction(this);
         dropDownMenu.add(action);
         toolBar.add(action);
     }
@@ -118,30 +137,93 @@ public class TestResultsView extends ViewPart {
     }
 
     public void notifyEvent(final OtpErlangObject msg) {
+        pendingEvents.add(msg);
+        if (!updateScheduled.compareAndSet(false, true)) {
+            return;
+        }
         DisplayUtils.asyncExec(() -> {
+            final long wait = lastUpdate + TestResultsView.UPDATE_INTERVAL
+                    - System.currentTimeMillis();
+            if (wait > 0) {
+                Display.getCurrent().timerExec((int) wait, this::applyPendingEvents);
+            } else {
+                applyPendingEvents();
+            }
+        });
+    }
+
+    private void applyPendingEvents() {
+        updateScheduled.set(false);
+        if (treeViewer == null || treeViewer.getControl().isDisposed()) {
+            return;
+        }
+        lastUpdate = System.currentTimeMillis();
+        final Set<TestCaseData> changed = Sets.newLinkedHashSet();
+        OtpErlangObject msg;
+        while ((msg = pendingEvents.poll()) != null) {
             try {
-                handleEvent(msg);
-                treeViewer.refresh();
-                control.update();
+                final TestCaseData test = handleEvent(msg);
+                if (test != null) {
+                    changed.add(test);
+                }
             } catch (final OtpParserException e1) {
                 ErlLogger.error(e1);
             } catch (final OtpErlangException e2) {
                 ErlLogger.error(e2);
             }
-        });
+        }
+        if (!changed.isEmpty()) {
+            updateTree(changed);
+        }
+        updateLabel();
     }
 
-    private void handleEvent(final OtpErlangObject msg)
+    /**
+     * Update only the changed items, unless the order of the cases changed. The tree
+     * is virtual, so a refresh only touches the visible items.
+     */
+    private void updateTree(final Collection<TestCaseData> changed) {
+        final Object[] old = contentProvider.setElements(results.sorted());
+        final Object[] elements = contentProvider.getElements();
+        if (Arrays.equals(old, elements)) {
+            for (final TestCaseData test : changed) {
+                treeViewer.setChildCount(test,
+                        contentProvider.getChildren(test).length);
+            }
+            treeViewer.update(changed.toArray(), null);
+        } else {
+            treeViewer.setChildCount(results, elements.length);
+            treeViewer.refresh();
+        }
+    }
+
+    private void updateLabel() {
+        final StringBuilder text = new StringBuilder(status);
+        if (results.size() > 0) {
+            text.append(" [Run: ")
+                    .append(results.size() - results.getCount(TestState.NOT_RUN))
+                    .append('/').append(results.size()).append(", Failed: ")
+                    .append(results.getCount(TestState.FAILED)).append(", Skipped: ")
+                    .append(results.getCount(TestState.SKIPPED)).append(']');
+        }
+        label.setText(text.toString());
+    }
+
+    /**
+     * @return the test case that was changed, if any
+     */
+    private TestCaseData handleEvent(final OtpErlangObject msg)
             throws OtpParserException, OtpErlangException {
         final OtpErlangTuple tuple = (OtpErlangTuple) msg;
         final String tag = ((OtpErlangAtom) tuple.elementAt(0)).atomValue();
         final OtpErlangObject value = tuple.elementAt(1);
 
-        TestCaseData test;
+        TestCaseData test = null;
+        TestState oldState = null;
         if ("init".equals(tag)) {
             // value = {Dir, Suite, Case}
-            label.setText("Started: " + formatTitle(value)
-                    + ". Compiling files, please wait...");
+            status = "Started: " + formatTitle(value)
+                    + ". Compiling files, please wait...";
             treeViewer.getTree().setCursor(treeViewer.getTree().getShell().getDisplay()
                     .getSystemCursor(SWT.CURSOR_WAIT));
         } else if ("start_failed".equals(tag)) {
@@ -155,7 +237,8 @@ public class TestResultsView extends ViewPart {
             final OtpBindings bindings = OtpErlang.match("{M:a,F:a}", value);
             final String mod = bindings.getAtom("M");
             final String fun = bindings.getAtom("F");
-            test = findCase(mod, fun);
+            test = results.findCase(mod, fun);
+            oldState = test.getState();
             test.setRunning();
         } else if ("result".equals(tag)) {
             // value = {Module, Function, Result}
@@ -163,7 +246,8 @@ public class TestResultsView extends ViewPart {
             final String mod = bindings.getAtom("M");
             final String fun = bindings.getAtom("F");
             final OtpErlangObject result = bindings.get("R");
-            test = findCase(mod, fun);
+            test = results.findCase(mod, fun);
+            oldState = test.getState();
             if (result instanceof OtpErlangAtom) {
                 test.setSuccesful();
                 // } else {
@@ -180,7 +264,8 @@ public class TestResultsView extends ViewPart {
             final String fun = bindings.getAtom("F");
             final Collection<OtpErlangObject> locations = bindings.getList("L");
             final OtpErlangObject reason = bindings.get("R");
-            test = findCase(mod, fun);
+            test = results.findCase(mod, fun);
+            oldState = test.getState();
             test.setFailed(reason, locations);
         } else if ("skip".equals(tag)) {
             // value = {Module, Function, Comment
@@ -188,7 +273,8 @@ public class TestResultsView extends ViewPart {
             final String mod = bindings.getAtom("M");
             final String fun = bindings.getAtom("F");
             final OtpErlangObject reason = bindings.get("C");
-            test = findCase(mod, fun);
+            test = results.findCase(mod, fun);
+            oldState = test.getState();
             test.setSkipped(reason);
         } else if ("done".equals(tag)) {
             // value = Module, Log, {Successful,Failed,Skipped}, [Results]}
@@ -196,10 +282,13 @@ public class TestResultsView extends ViewPart {
             final int successful = bindings.getInt("S");
             final int failed = bindings.getInt("F");
             final int skipped = bindings.getInt("K");
-            label.setText(label.getText() + " -- Done! Successful: " + successful
-                    + ", Failed: " + failed + ", Skipped: " + skipped);
+            status = status + " -- Done! Successful: " + successful + ", Failed: "
+                    + failed + ", Skipped: " + skipped;
         }
-        control.redraw();
+        if (test != null) {
+            results.stateChanged(test, oldState);
+        }
+        return test;
     }
 
     private String formatTitle(final OtpErlangObject value) {
@@ -217,23 +306,16 @@ public class TestResultsView extends ViewPart {
         return value.toString();
     }
 
-    private TestCaseData findCase(final String mod, final String fun) {
-        for (final TestCaseData data : events) {
-            if (data.getModule().equals(mod) && data.getFunction().equals(fun)) {
-                return data;
-            }
-        }
-        final TestCaseData data = new TestCaseData(mod, fun);
-        events.add(data);
-        return data;
-    }
-
     public void clearEvents() {
-        events.clear();
+        results.clear();
+        contentProvider.setElements(results.sorted());
+        treeViewer.setChildCount(results, contentProvider.getElements().length);
         treeViewer.refresh();
+        updateLabel();
     }
 
     public void setMessage(final String string) {
+        status = string;
         label.setText(string);
         label.update();
     }
@@ -1,11 +1,9 @@
 package org.erlide.ui.actions;
 
+import java.util.List;
 import java.util.Map;
 import java.util.TreeMap;
 
-import org.eclipse.core.runtime.IStatus;
-import org.eclipse.core.runtime.Status;
-import org.eclipse.jface.dialogs.ErrorDialog;
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.IRewriteTarget;
@@ -15,12 +13,11 @@ import org.eclipse.swt.widgets.Display;
 import org.eclipse.ui.editors.text.EditorsUI;
 import org.eclipse.ui.texteditor.AbstractDecoratedTextEditorPreferenceConstants;
 import org.eclipse.ui.texteditor.ITextEditor;
-import org.erlide.core.ErlangCore;
-import org.erlide.core.ErlangStatus;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.services.text.IndentService;
 import org.erlide.runtime.rpc.RpcException;
 import org.erlide.ui.editors.erl.autoedit.AutoIndentStrategy;
+import org.erlide.ui.editors.erl.autoedit.DocumentIndenter;
 import org.erlide.ui.editors.erl.autoedit.SmartTypingPreferencePage;
 import org.erlide.ui.handlers.ErlangAbstractHandler;
 import org.erlide.ui.prefs.plugin.IndentationPreferencePage;
@@ -37,30 +34,6 @@ public class IndentHandler extends ErlangAbstractHandler {
                 .getDocument(textEditor.getEditorInput());
         final ITextSelection selection = ErlangAbstractHandler
                 .extendSelectionToWholeLines(document, (ITextSelection) sel);
-        final ITextSelection getSelection = getTextSelection(document, selection,
-                textEditor);
-        String text;
-        OtpErlangObject r1 = null;
-        try {
-            text = document.get(getSelection.getOffset(), getSelection.getLength());
-            // call erlang, with selection within text
-            r1 = callErlang(selection.getOffset() - getSelection.getOffset(),
-                    selection.getLength(), text);
-        } catch (final Exception e) {
-            ErlLogger.error(e);
-        }
-        final String newText = Util.stringValue(r1);
-        if (newText == null) {
-            final String msg = "call to " + getClass().getSimpleName()
-                    + " timed out; try a smaller selection.";
-            final Status status = new Status(IStatus.ERROR, ErlangCore.PLUGIN_ID,
-                    ErlangStatus.INTERNAL_ERROR.getValue(), msg, null);
-            ErlLogger.error("INTERNAL ERROR: " + msg);
-
-            ErrorDialog.openError(textEditor.getSite().getShell(),
-                    ActionMessages.IndentAction_error_message, "Internal error", status);
-            return;
-        }
         final Display display = textEditor.getEditorSite().getShell().getDisplay();
         display.syncExec(() -> {
             final IRewriteTarget target = textEditor.getAdapter(IRewriteTarget.class);
@@ -69,11 +42,8 @@ public class IndentHandler extends ErlangAbstractHandler {
                 target.setRedraw(false);
             }
             try {
-                if (!document.get(selection.getOffset(), selection.getLength())
-                        .equals(newText)) {
-                    document.replace(selection.getOffset(), selection.getLength(),
-                            newText);
-                }
+                IndentHandler.indentLines(document, selection.getStartLine(),
+                        selection.getEndLine());
             } catch (final BadLocationException e) {
                 ErlLogger.warn(e);
             }
@@ -84,11 +54,25 @@ public class IndentHandler extends ErlangAbstractHandler {
         });
     }
 
-    private OtpErlangObject callErlang(final int offset, final int length,
-            final String text) throws RpcException {
-        final OtpErlangObject r1 = IndentHandler.doIndentLines(offset, length, text,
-                false, "");
-        return r1;
+    /**
+     * Re-indent whole lines with the document's {@link DocumentIndenter}, changing
+     * only the lines whose indentation is different.
+     */
+    public static void indentLines(final IDocument document, final int firstLine,
+            final int lastLine) throws BadLocationException {
+        final List<String> lines = DocumentIndenter.get(document).indentLines(document,
+                firstLine, lastLine);
+        for (int i = 0; i < lines.size(); i++) {
+            final int line = firstLine + i;
+            final int offset = document.getLineOffset(line);
+            final String delimiter = document.getLineDelimiter(line);
+            final int length = document.getLineLength(line)
+                    - (delimiter == null ? 0 : delimiter.length());
+            final String newText = lines.get(i);
+            if (!document.get(offset, length).equals(newText)) {
+                document.replace(offset, length, newText);
+            }
+        }
     }
 
     protected static OtpErlangObject doIndentLines(final int offset, final int length,
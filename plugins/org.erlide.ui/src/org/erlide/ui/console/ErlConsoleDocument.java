@@ -8,11 +8,14 @@
  *******************************************************************************/
 package org.erlide.ui.console;
 
+import java.util.List;
+
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.Document;
 import org.eclipse.jface.text.IDocumentPartitioner;
 import org.eclipse.jface.text.rules.FastPartitioner;
 import org.eclipse.jface.text.rules.IPartitionTokenScanner;
+import org.eclipse.swt.widgets.Display;
 import org.erlide.runtime.shell.BackendShellEvent;
 import org.erlide.runtime.shell.BackendShellListener;
 import org.erlide.runtime.shell.IBackendShell;
@@ -20,11 +23,18 @@ import org.erlide.runtime.shell.IoRequest.IoRequestKind;
 import org.erlide.ui.util.DisplayUtils;
 import org.erlide.util.ErlLogger;
 
+import com.google.common.collect.Lists;
+
 public final class ErlConsoleDocument extends Document implements BackendShellListener {
 
     private static String[] LEGAL_CONTENT_TYPES;
 
+    private static final int UPDATE_INTERVAL = 50;
+
     private final IBackendShell shell;
+    private final List<BackendShellEvent> pendingEvents = Lists.newArrayList();
+    private boolean updateScheduled;
+    private long lastUpdate;
 
     public ErlConsoleDocument(final IBackendShell shell) {
         if (ErlConsoleDocument.LEGAL_CONTENT_TYPES == null) {
@@ -49,19 +59,70 @@ public final class ErlConsoleDocument extends Document implements BackendShellLi
         return new IoRequestScanner(shell);
     }
 
+    /**
+     * Events are queued and applied together, at most once per UPDATE_INTERVAL ms, so
+     * that a chatty node doesn't flood the UI thread. Consecutive appends are merged
+     * into one replace.
+     */
     @Override
     public void changed(final BackendShellEvent event) {
+        synchronized (pendingEvents) {
+            pendingEvents.add(event);
+            if (updateScheduled) {
+                return;
+            }
+            updateScheduled = true;
+        }
         DisplayUtils.asyncExec(() -> {
-            try {
-                replace(event.getOffset(), event.getRemovedLength(), event.getText());
-            } catch (final BadLocationException e) {
-                ErlLogger.debug("%d, %d, %s", event.getOffset(), event.getRemovedLength(),
-                        event.getText());
-                ErlLogger.error(e);
+            final long wait = lastUpdate + ErlConsoleDocument.UPDATE_INTERVAL
+                    - System.currentTimeMillis();
+            if (wait > 0) {
+                Display.getCurrent().timerExec((int) wait, this::applyPendingEvents);
+            } else {
+                applyPendingEvents();
             }
         });
     }
 
+    private void applyPendingEvents() {
+        final List<BackendShellEvent> events;
+        synchronized (pendingEvents) {
+            events = Lists.newArrayList(pendingEvents);
+            pendingEvents.clear();
+            updateScheduled = false;
+        }
+        lastUpdate = System.currentTimeMillis();
+        int offset = -1;
+        int removed = 0;
+        final StringBuilder text = new StringBuilder();
+        for (final BackendShellEvent event : events) {
+            if (offset >= 0 && event.getRemovedLength() == 0
+                    && event.getOffset() == offset + text.length()) {
+                text.append(event.getText());
+                continue;
+            }
+            if (offset >= 0) {
+                apply(offset, removed, text.toString());
+            }
+            offset = event.getOffset();
+            removed = event.getRemovedLength();
+            text.setLength(0);
+            text.append(event.getText());
+        }
+        if (offset >= 0) {
+            apply(offset, removed, text.toString());
+        }
+    }
+
+    private void apply(final int offset, final int removed, final String text) {
+        try {
+            replace(offset, removed, text);
+        } catch (final BadLocationException e) {
+            ErlLogger.debug("%d, %d, %s", offset, removed, text);
+            ErlLogger.error(e);
+        }
+    }
+
     public IBackendShell getShell() {
         return shell;
     }
@@ -33,7 +33,7 @@ public class IoRequestScanner implements IPartitionTokenScanner {
         docLength = length;
         final IoRequest req = model.findAtPos(docOffset);
         if (req != null) {
-            crtOffset = req.getStart();
+            crtOffset = model.getOffset(req);
         } else {
             crtOffset = -1;
         }
@@ -74,7 +74,7 @@ public class IoRequestScanner implements IPartitionTokenScanner {
         docLength = length;
         final IoRequest req = model.findAtPos(docOffset);
         if (req != null) {
-            crtOffset = req.getStart();
+            crtOffset = model.getOffset(req);
         } else {
             crtOffset = -1;
         }
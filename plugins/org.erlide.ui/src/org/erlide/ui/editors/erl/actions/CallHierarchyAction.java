@@ -8,25 +8,29 @@
  *******************************************************************************/
 package org.erlide.ui.editors.erl.actions;
 
+import java.util.Collection;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.action.Action;
 import org.eclipse.ui.IViewPart;
 import org.eclipse.ui.IWorkbenchPage;
 import org.eclipse.ui.IWorkbenchWindow;
 import org.eclipse.ui.PartInitException;
 import org.eclipse.ui.PlatformUI;
-import org.erlide.backend.api.BackendException;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.model.ErlModelException;
 import org.erlide.engine.model.IErlElement;
-import org.erlide.engine.model.OtpRpcFactory;
 import org.erlide.engine.model.erlang.FunctionRef;
 import org.erlide.engine.model.erlang.IErlFunction;
 import org.erlide.engine.model.erlang.IErlFunctionClause;
 import org.erlide.engine.model.root.IErlModule;
-import org.erlide.engine.services.search.ErlangXref;
-import org.erlide.runtime.rpc.RpcFuture;
+import org.erlide.engine.model.root.IErlProject;
+import org.erlide.engine.services.search.XrefService;
 import org.erlide.ui.editors.erl.ErlangEditor;
-import org.erlide.ui.jinterface.AsyncCaller;
+import org.erlide.ui.util.DisplayUtils;
 import org.erlide.ui.views.CallHierarchyView;
 import org.erlide.util.ErlLogger;
 
@@ -34,13 +38,11 @@ public class CallHierarchyAction extends Action {
 
     private final ErlangEditor editor;
     IErlModule module;
-    private final ErlangXref xrefService;
 
     public CallHierarchyAction(final ErlangEditor erlangEditor, final IErlModule module) {
         super("Call hierarchy");
         editor = erlangEditor;
         this.module = module;
-        xrefService = new ErlangXref(OtpRpcFactory.getOtpRpc());
     }
 
     @Override
@@ -68,47 +70,59 @@ public class CallHierarchyAction extends Action {
 
         final IWorkbenchWindow dw = PlatformUI.getWorkbench().getActiveWorkbenchWindow();
         final IWorkbenchPage page = dw.getActivePage();
+        final CallHierarchyView view;
+        try {
+            final IViewPart p = page.showView("org.erlide.ui.callhierarchy");
+            view = p.getAdapter(CallHierarchyView.class);
+        } catch (final PartInitException e) {
+            ErlLogger.error("could not open Call hierarchy view: ", e.getMessage());
+            return;
+        }
+        if (view == null) {
+            return;
+        }
+        final IErlProject project = ErlangEngine.getInstance().getModelUtilService()
+                .getProject(module);
+        view.setMessage("<searching... project " + project.getName() + ">");
 
-        final AsyncCaller<CallHierarchyView> ac = new AsyncCaller<CallHierarchyView>(
-                100) {
-
+        // parsing the modules puts their calls in the call graph; those the builder
+        // reported are analysed first, and modules already in the graph are current
+        final Job job = new Job("Building call graph") {
             @Override
-            protected CallHierarchyView prepare() {
+            protected IStatus run(final IProgressMonitor monitor) {
+                final XrefService xref = XrefService.getDefault();
                 try {
-                    final IViewPart p = page.showView("org.erlide.ui.callhierarchy");
-                    final CallHierarchyView cvh = p.getAdapter(CallHierarchyView.class);
-                    if (cvh == null) {
-                        return null;
+                    xref.analysePending(monitor);
+                    final Collection<IErlModule> modules = project.getModules();
+                    monitor.beginTask("Parsing modules", modules.size());
+                    for (final IErlModule m : modules) {
+                        if (monitor.isCanceled()) {
+                            return Status.CANCEL_STATUS;
+                        }
+                        if (!xref.isAnalysed(m)) {
+                            m.open(null);
+                        }
+                        monitor.worked(1);
                     }
-                    cvh.setMessage("<searching... project " + ErlangEngine.getInstance()
-                            .getModelUtilService().getProject(module).getName() + ">");
-                    return cvh;
-                } catch (final PartInitException e) {
-                    ErlLogger.error("could not open Call hierarchy view: ",
-                            e.getMessage());
-                    return null;
-                }
-            }
-
-            @Override
-            protected RpcFuture call() throws BackendException {
-                final RpcFuture result = xrefService.addProject(ErlangEngine.getInstance()
-                        .getModelUtilService().getProject(module));
-                return result;
-            }
-
-            @Override
-            protected void handleResult(final CallHierarchyView context,
-                    final RpcFuture result) {
-                page.activate(context);
-                try {
-                    context.setRoot(
-                            ErlangEngine.getInstance().getModel().findFunction(ref));
+                    // scan the modules parsed above
+                    xref.analysePending(monitor);
                 } catch (final ErlModelException e) {
-                    ErlLogger.error(e);
+                    ErlLogger.warn(e);
                 }
+                monitor.done();
+                DisplayUtils.asyncExec(() -> {
+                    page.activate(view);
+                    try {
+                        view.setRoot(
+                                ErlangEngine.getInstance().getModel().findFunction(ref));
+                    } catch (final ErlModelException e) {
+                        ErlLogger.error(e);
+                    }
+                });
+                return Status.OK_STATUS;
             }
         };
-        ac.run();
+        job.setPriority(Job.SHORT);
+        job.schedule();
     }
 }
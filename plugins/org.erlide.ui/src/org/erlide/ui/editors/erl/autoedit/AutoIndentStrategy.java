@@ -8,9 +8,6 @@
  *******************************************************************************/
 package org.erlide.ui.editors.erl.autoedit;
 
-import java.util.Map;
-import java.util.TreeMap;
-
 import org.eclipse.jface.text.BadLocationException;
 import org.eclipse.jface.text.DocumentCommand;
 import org.eclipse.jface.text.IAutoEditStrategy;
@@ -18,18 +15,16 @@ import org.eclipse.jface.text.IDocument;
 import org.eclipse.jface.text.TextUtilities;
 import org.eclipse.ui.editors.text.EditorsUI;
 import org.eclipse.ui.texteditor.AbstractDecoratedTextEditorPreferenceConstants;
-import org.erlide.engine.ErlangEngine;
-import org.erlide.engine.model.IErlElement;
-import org.erlide.engine.model.erlang.IErlMember;
+import org.erlide.engine.services.text.IndentEngine;
 import org.erlide.engine.services.text.IndentResult;
 import org.erlide.ui.editors.erl.AbstractErlangEditor;
 import org.erlide.ui.editors.erl.ErlangEditor;
 import org.erlide.ui.internal.ErlideUIPlugin;
-import org.erlide.ui.prefs.plugin.IndentationPreferencePage;
 import org.erlide.util.ErlLogger;
 
 /**
- * The erlang auto indent strategy
+ * The erlang auto indent strategy. The indentation is computed locally by the
+ * document's {@link DocumentIndenter}.
  *
  *
  * @author Eric Merritt [cyberlync at gmail dot com]
@@ -56,44 +51,46 @@ public class AutoIndentStrategy implements IAutoEditStrategy {
         if (editor == null) {
             return;
         }
-        final int offset = c.offset;
-        String txt = null;
-        editor.reconcileNow();
-        final IErlElement element = editor.getElementAt(offset, false);
-        final IErlMember member = (IErlMember) element;
-        if (member != null) {
-            final int start = member.getSourceRange().getOffset();
-            if (offset >= start) {
-                txt = d.get(start, offset - start);
+        final DocumentIndenter indenter = DocumentIndenter.get(d);
+        final int delimiter = TextUtilities.endsWith(d.getLegalLineDelimiters(), c.text);
+        final String inserted;
+        final boolean addNewLine;
+        if (delimiter != -1) {
+            inserted = c.text.substring(0,
+                    c.text.length() - d.getLegalLineDelimiters()[delimiter].length());
+            addNewLine = false;
+        } else {
+            inserted = c.text;
+            addNewLine = AutoIndentStrategy.isAutoNewLine(indenter.getEngineSettings(),
+                    c.text);
+            if (!addNewLine) {
+                return;
             }
         }
-        if (txt == null) {
-            txt = "";
+        final IndentResult res = indenter.indentAfter(d, c.offset, inserted,
+                addNewLine);
+        if (res.isAddNewLine()) {
+            c.text += "\n";
         }
-        final int lineN = d.getLineOfOffset(offset);
-        final int lineOffset = d.getLineOffset(lineN);
-        final int lineLength = d.getLineLength(lineN);
-        final String oldLine = d.get(offset, lineLength + lineOffset - offset);
-        try {
-            final int indentw = AutoIndentStrategy.getIndentWidthFromPreferences();
-            final int tabw = EditorsUI.getPreferenceStore().getInt(
-                    AbstractDecoratedTextEditorPreferenceConstants.EDITOR_TAB_WIDTH);
-
-            final Map<String, String> prefs = new TreeMap<>();
-            IndentationPreferencePage.addKeysAndPrefs(prefs);
-            SmartTypingPreferencePage.addAutoNLKeysAndPrefs(prefs);
-            final boolean useTabs = AutoIndentStrategy.getUseTabsFromPreferences();
-            final IndentResult res = ErlangEngine.getInstance().getIndentService()
-                    .indentLine(oldLine, txt, c.text, indentw, tabw, useTabs, prefs);
+        c.text += res.getText();
+        c.length += res.getRemoveNext();
+    }
 
-            if (res.isAddNewLine()) {
-                c.text += "\n";
-            }
-            c.text += res.getText();
-            c.length += res.getRemoveNext();
-        } catch (final Exception e) {
-            ErlLogger.warn(e);
+    private static boolean isAutoNewLine(final IndentEngine.Settings settings,
+            final String text) {
+        if (text.endsWith(";")) {
+            return settings.getBoolean("semicolon_nl");
+        }
+        if (text.endsWith(".")) {
+            return settings.getBoolean("dot_nl");
+        }
+        if (text.endsWith(",")) {
+            return settings.getBoolean("comma_nl");
+        }
+        if (text.endsWith(">")) {
+            return settings.getBoolean("arrow_nl");
         }
+        return false;
     }
 
     /**
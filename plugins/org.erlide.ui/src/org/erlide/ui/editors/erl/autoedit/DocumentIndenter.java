@@ -0,0 +1,172 @@
+package org.erlide.ui.editors.erl.autoedit;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.WeakHashMap;
+
+import org.eclipse.core.runtime.preferences.IEclipsePreferences.IPreferenceChangeListener;
+import org.eclipse.jface.text.BadLocationException;
+import org.eclipse.jface.text.DocumentEvent;
+import org.eclipse.jface.text.IDocument;
+import org.eclipse.jface.text.IDocumentListener;
+import org.eclipse.jface.util.IPropertyChangeListener;
+import org.eclipse.ui.editors.text.EditorsUI;
+import org.eclipse.ui.texteditor.AbstractDecoratedTextEditorPreferenceConstants;
+import org.erlide.engine.services.text.IndentEngine;
+import org.erlide.engine.services.text.IndentEngine.State;
+import org.erlide.engine.services.text.IndentResult;
+import org.erlide.ui.internal.ErlideUIPlugin;
+import org.erlide.ui.prefs.plugin.IndentationPreferencePage;
+
+/**
+ * Keeps an {@link IndentEngine} per document, whose cached line states are marked
+ * old from the changed line on each document change. The settings are read from the
+ * preferences once and again after the preferences change.
+ */
+public final class DocumentIndenter implements IDocumentListener {
+
+    private static final Map<IDocument, DocumentIndenter> indenters = new WeakHashMap<>();
+
+    private static IndentEngine.Settings settings;
+    private static boolean listening;
+
+    private final IndentEngine engine = new IndentEngine();
+
+    private DocumentIndenter() {
+    }
+
+    public static DocumentIndenter get(final IDocument document) {
+        synchronized (DocumentIndenter.indenters) {
+            DocumentIndenter result = DocumentIndenter.indenters.get(document);
+            if (result == null) {
+                result = new DocumentIndenter();
+                document.addDocumentListener(result);
+                DocumentIndenter.indenters.put(document, result);
+            }
+            result.engine.setSettings(DocumentIndenter.getSettings());
+            return result;
+        }
+    }
+
+    public IndentEngine.Settings getEngineSettings() {
+        return engine.getSettings();
+    }
+
+    public static synchronized IndentEngine.Settings getSettings() {
+        if (!DocumentIndenter.listening) {
+            final IPreferenceChangeListener nodeListener = event -> DocumentIndenter
+                    .settingsChanged();
+            final IPropertyChangeListener storeListener = event -> DocumentIndenter
+                    .settingsChanged();
+            ErlideUIPlugin.getPrefsNode().addPreferenceChangeListener(nodeListener);
+            ErlideUIPlugin.getDefault().getPreferenceStore()
+                    .addPropertyChangeListener(storeListener);
+            EditorsUI.getPreferenceStore().addPropertyChangeListener(storeListener);
+            DocumentIndenter.listening = true;
+        }
+        if (DocumentIndenter.settings == null) {
+            DocumentIndenter.settings = DocumentIndenter.readSettings();
+        }
+        return DocumentIndenter.settings;
+    }
+
+    private static synchronized void settingsChanged() {
+        DocumentIndenter.settings = null;
+    }
+
+    private static IndentEngine.Settings readSettings() {
+        final int indentw = AutoIndentStrategy.getIndentWidthFromPreferences();
+        final int tabw = EditorsUI.getPreferenceStore()
+                .getInt(AbstractDecoratedTextEditorPreferenceConstants.EDITOR_TAB_WIDTH);
+        final Map<String, String> prefs = new TreeMap<>();
+        IndentationPreferencePage.addKeysAndPrefs(prefs);
+        SmartTypingPreferencePage.addAutoNLKeysAndPrefs(prefs);
+        final boolean useTabs = AutoIndentStrategy.getUseTabsFromPreferences();
+        return new IndentEngine.Settings(indentw, tabw, useTabs, prefs);
+    }
+
+    /**
+     * Compute the indentation of the line that follows the text inserted at the
+     * offset.
+     *
+     * @param insertedText
+     *            the inserted text, without the line delimiter
+     */
+    public IndentResult indentAfter(final IDocument document, final int offset,
+            final String insertedText, final boolean addNewLine)
+            throws BadLocationException {
+        final int line = document.getLineOfOffset(offset);
+        final int lineOffset = document.getLineOffset(line);
+        final String before = document.get(lineOffset, offset - lineOffset);
+        final String after = document.get(offset,
+                DocumentIndenter.lineEnd(document, line) - offset);
+        int removeNext = 0;
+        while (removeNext < after.length() && (after.charAt(removeNext) == ' '
+                || after.charAt(removeNext) == '\t')) {
+            removeNext++;
+        }
+        final State state = engine.scan(engine.getState(lines(document), line),
+                before + insertedText);
+        final int indent = engine.getIndent(state, after.substring(removeNext));
+        if (indent < 0) {
+            return new IndentResult("", 0, addNewLine);
+        }
+        return new IndentResult(engine.indentString(indent), removeNext, addNewLine);
+    }
+
+    /**
+     * @return the re-indented text of the lines, without line delimiters
+     */
+    public List<String> indentLines(final IDocument document, final int firstLine,
+            final int lastLine) {
+        return engine.indentLines(lines(document), firstLine, lastLine);
+    }
+
+    private static IndentEngine.Lines lines(final IDocument document) {
+        return new IndentEngine.Lines() {
+            @Override
+            public int getNumberOfLines() {
+                return document.getNumberOfLines();
+            }
+
+            @Override
+            public String getLine(final int line) {
+                try {
+                    final int offset = document.getLineOffset(line);
+                    return document.get(offset,
+                            DocumentIndenter.lineEnd(document, line) - offset);
+                } catch (final BadLocationException e) {
+                    return "";
+                }
+            }
+        };
+    }
+
+    static int lineEnd(final IDocument document, final int line)
+            throws BadLocationException {
+        final String delimiter = document.getLineDelimiter(line);
+        return document.getLineOffset(line) + document.getLineLength(line)
+                - (delimiter == null ? 0 : delimiter.length());
+    }
+
+    @Override
+    public void documentAboutToBeChanged(final DocumentEvent event) {
+        final IDocument document = event.getDocument();
+        try {
+            final int line = document.getLineOfOffset(event.getOffset());
+            final int removed = document
+                    .getLineOfOffset(event.getOffset() + event.getLength()) - line;
+            final String text = event.getText();
+            final int added = text == null ? 0 : document.computeNumberOfLines(text);
+            engine.invalidate(line, removed, added);
+        } catch (final BadLocationException e) {
+            engine.clear();
+        }
+    }
+
+    @Override
+    public void documentChanged(final DocumentEvent event) {
+    }
+
+}
@@ -32,8 +32,10 @@ import org.eclipse.swt.SWT;
 import org.eclipse.swt.widgets.Composite;
 import org.eclipse.swt.widgets.Control;
 import org.eclipse.swt.widgets.Display;
+import org.eclipse.swt.widgets.Item;
 import org.eclipse.swt.widgets.Menu;
 import org.eclipse.swt.widgets.Tree;
+import org.eclipse.swt.widgets.Widget;
 import org.eclipse.ui.IActionBars;
 import org.eclipse.ui.IEditorInput;
 import org.eclipse.ui.IPartListener;
@@ -51,8 +53,12 @@ import org.eclipse.ui.texteditor.ITextEditorActionConstants;
 import org.eclipse.ui.views.contentoutline.ContentOutlinePage;
 import org.erlide.core.ErlangCore;
 import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.model.ErlModelException;
 import org.erlide.engine.model.IErlElement;
+import org.erlide.engine.model.IParent;
+import org.erlide.engine.model.erlang.IErlComment;
 import org.erlide.engine.model.erlang.ISourceReference;
+import org.erlide.engine.model.root.IErlElementDelta;
 import org.erlide.engine.model.root.IErlModelChangeListener;
 import org.erlide.engine.model.root.IErlModule;
 import org.erlide.ui.ErlideImage;
@@ -87,7 +93,7 @@ public class ErlangOutlinePage extends ContentOutlinePage
     IErlModule fModule;
     private ErlangEditor fEditor;
     private CompositeActionGroup fActionGroups;
-    private TreeViewer fOutlineViewer;
+    private OutlineViewer fOutlineViewer;
     private SortAction fSortAction;
     private OpenAndLinkWithEditorHelper fOpenAndLinkWithEditorHelper;
     private ToggleLinkingAction fToggleLinkingAction;
@@ -194,7 +200,7 @@ public class ErlangOutlinePage extends ContentOutlinePage
     @Override
     public void createControl(final Composite parent) {
         final Tree tree = new Tree(parent, SWT.MULTI);
-        fOutlineViewer = new TreeViewer(tree);
+        fOutlineViewer = new OutlineViewer(tree);
         fOutlineViewer.setAutoExpandLevel(0);
         fOutlineViewer.setUseHashlookup(true);
         fOutlineViewer.setContentProvider(fEditor.createOutlineContentProvider());
@@ -326,6 +332,97 @@ public class ErlangOutlinePage extends ContentOutlinePage
         }
     }
 
+    @Override
+    public void elementChanged(final IErlElement element, final IErlElementDelta delta) {
+        if (fModule != element) {
+            return;
+        }
+        if (delta == null || (delta.getFlags() & IErlElementDelta.F_FINE_GRAINED) == 0
+                || (delta.getFlags() & IErlElementDelta.F_REORDER) != 0) {
+            refresh();
+            return;
+        }
+        if (delta.getChildren(IErlElementDelta.ALL).length == 0
+                || getTreeViewer() == null) {
+            return;
+        }
+        final Control c = getTreeViewer().getControl();
+        if (c.isDisposed()) {
+            return;
+        }
+        c.getDisplay().asyncExec(() -> {
+            if (!fOutlineViewer.getControl().isDisposed()) {
+                applyDelta(delta);
+            }
+        });
+    }
+
+    /**
+     * Update only the outline items of the members that the reparse added, removed,
+     * changed or moved.
+     */
+    private void applyDelta(final IErlElementDelta delta) {
+        final Control c = fOutlineViewer.getControl();
+        c.setRedraw(false);
+        try {
+            for (final IErlElementDelta d : delta.getChildren(IErlElementDelta.REMOVED)) {
+                if (!(d.getElement() instanceof IErlComment)) {
+                    fOutlineViewer.remove(d.getElement());
+                }
+            }
+            for (final IErlElementDelta d : delta.getChildren(IErlElementDelta.CHANGED)) {
+                final IErlElement element = d.getElement();
+                if (element instanceof IErlComment) {
+                    continue;
+                }
+                fOutlineViewer.rebind(d.getMovedFromElement(), element);
+                if ((d.getFlags() & IErlElementDelta.F_CONTENT) != 0) {
+                    fOutlineViewer.update(element, null);
+                }
+                if (element instanceof IParent && ((IParent) element).hasChildren()) {
+                    fOutlineViewer.refresh(element,
+                            (d.getFlags() & IErlElementDelta.F_CONTENT) != 0);
+                }
+            }
+            final IErlElementDelta[] added = delta.getChildren(IErlElementDelta.ADDED);
+            if (added.length > 0) {
+                final List<IErlElement> children = fModule.getChildren();
+                for (final IErlElementDelta d : added) {
+                    if (!(d.getElement() instanceof IErlComment)) {
+                        fOutlineViewer.insert(fModule, d.getElement(),
+                                children.indexOf(d.getElement()));
+                    }
+                }
+            }
+        } catch (final ErlModelException e) {
+            ErlLogger.warn(e);
+            fOutlineViewer.refresh(fModule);
+        } finally {
+            c.setRedraw(true);
+        }
+    }
+
+    /**
+     * A tree viewer that can move an item over to the element that replaces its
+     * element after a reparse, instead of creating the item again.
+     */
+    private static class OutlineViewer extends TreeViewer {
+
+        OutlineViewer(final Tree tree) {
+            super(tree);
+        }
+
+        void rebind(final Object oldElement, final Object newElement) {
+            if (oldElement == null || oldElement == newElement) {
+                return;
+            }
+            final Widget item = findItem(oldElement);
+            if (item instanceof Item) {
+                associate(newElement, (Item) item);
+            }
+        }
+    }
+
     /**
      * @param actionBars
      */
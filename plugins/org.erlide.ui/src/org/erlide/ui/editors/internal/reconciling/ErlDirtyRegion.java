@@ -47,16 +47,29 @@ public class ErlDirtyRegion {
     }
 
     /**
-     * Modify the receiver so that it encompasses the region specified by the dirty
-     * region.
+     * Modify the receiver so that it is equivalent to applying first the receiver's
+     * change and then the given one. The regions must be mergable.
      *
      * @param dr
-     *            the dirty region to merge with
+     *            the dirty region to merge with, that happened after this one
      */
     public void mergeWith(final ErlDirtyRegion dr) {
-        fOffset = Math.min(fOffset, dr.fOffset);
-        fLength = fLength + dr.fLength;
-        fText = fText + dr.fText;
+        final int end = fOffset + fText.length();
+        final int drEnd = dr.fOffset + dr.fLength;
+        final StringBuilder text = new StringBuilder();
+        if (dr.fOffset > fOffset) {
+            text.append(fText, 0, dr.fOffset - fOffset);
+        }
+        text.append(dr.fText);
+        if (drEnd < end) {
+            text.append(fText, drEnd - fOffset, fText.length());
+        }
+        final int start = Math.min(fOffset, dr.fOffset);
+        final int originalEnd = Math.max(fOffset + fLength,
+                drEnd - fText.length() + fLength);
+        fOffset = start;
+        fLength = originalEnd - start;
+        fText = text.toString();
     }
 
     @Override
@@ -68,14 +81,14 @@ public class ErlDirtyRegion {
     }
 
     /**
-     * Check if the regions are adjacent and can be merged to one
+     * Check if the given region, that happened after this one, touches the text
+     * inserted by this one, so that both can be sent as a single replace.
      *
      * @param nextMerge
      * @return
      */
     public boolean isMergable(final ErlDirtyRegion nextMerge) {
-        return getOffset() - getLength() + getTextLength() == nextMerge.getOffset()
-                || getOffset() == nextMerge.getOffset() - nextMerge.getLength()
-                        + nextMerge.getTextLength();
+        return nextMerge.getOffset() <= getOffset() + getTextLength()
+                && nextMerge.getOffset() + nextMerge.getLength() >= getOffset();
     }
 }
@@ -10,11 +10,13 @@ import org.eclipse.jface.text.IDocumentListener;
 import org.eclipse.jface.text.ITextInputListener;
 import org.eclipse.jface.text.ITextViewer;
 import org.eclipse.jface.text.Region;
-import org.eclipse.jface.text.reconciler.AbstractReconciler;
 import org.eclipse.jface.text.reconciler.DirtyRegion;
 import org.eclipse.jface.text.reconciler.IReconciler;
 import org.eclipse.jface.text.reconciler.IReconcilingStrategy;
 import org.eclipse.jface.text.reconciler.IReconcilingStrategyExtension;
+import org.eclipse.swt.custom.StyledText;
+import org.eclipse.swt.events.FocusEvent;
+import org.eclipse.swt.events.FocusListener;
 import org.eclipse.ui.texteditor.ITextEditor;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.model.root.IErlModule;
@@ -23,11 +25,19 @@ import org.erlide.util.ErlLogger;
 
 public class ErlReconciler implements IReconciler {
 
+    private static final int RECONCILER_SUSPEND_LOOP_MAX = 10;
+
     private final IErlReconcilingStrategy fStrategy;
     private final String path;
+
     ErlDirtyRegionQueue fDirtyRegionQueue;
-    ReconcilerThread fThread;
     private Listener fListener;
+    private FocusListener fFocusListener;
+    private volatile boolean fInstalled;
+    private volatile boolean fCanceled;
+    private volatile boolean fIsActive;
+    private volatile boolean fInitialProcessDone;
+    private volatile Thread fReconcilingThread;
     int fDelay = 500;
     boolean fIsIncrementalReconciler = true;
     IProgressMonitor fProgressMonitor;
@@ -62,150 +72,116 @@ public class ErlReconciler implements IReconciler {
     }
 
     /**
-     * Background thread for the reconciling activity.
+     * Called by the {@link ReconcileScheduler} when the delay after the last change has
+     * expired. Extracts the queued dirty regions and processes them.
+     * <p>
+     * Calls {@link #initialProcess()} on the first run.
+     * </p>
      */
-    class ReconcilerThread extends Thread {
-
-        private static final int RECONCILER_SUSPEND_LOOP_MAX = 10;
-        private boolean fCanceled;
-        private boolean fReset;
-        private boolean fIsActive;
-
-        public ReconcilerThread(final String name) {
-            super(name);
-            setPriority(Thread.MIN_PRIORITY);
-            setDaemon(true);
-        }
-
-        public boolean isActive() {
-            return fIsActive;
+    void runReconcile() {
+        if (fCanceled) {
+            return;
         }
-
-        public boolean isDirty() {
+        fReconcilingThread = Thread.currentThread();
+        try {
+            if (!fInitialProcessDone) {
+                fInitialProcessDone = true;
+                initialProcess();
+            }
+            final List<ErlDirtyRegion> rs;
+            final ErlDirtyRegion r;
             synchronized (fDirtyRegionQueue) {
-                return !fDirtyRegionQueue.isEmpty();
+                if (fDirtyRegionQueue.isEmpty()) {
+                    return;
+                }
+                if (fChunkReconciler) {
+                    rs = fDirtyRegionQueue.extractAllDirtyRegions();
+                    r = null;
+                } else {
+                    rs = null;
+                    r = fDirtyRegionQueue.extractNextDirtyRegion();
+                }
             }
-        }
+            fIsActive = true;
 
-        public void cancel() {
-            fCanceled = true;
-            final IProgressMonitor pm = fProgressMonitor;
-            if (pm != null) {
-                pm.setCanceled(true);
+            if (fProgressMonitor != null) {
+                fProgressMonitor.setCanceled(false);
             }
-            synchronized (fDirtyRegionQueue) {
-                fDirtyRegionQueue.notifyAll();
-            }
-        }
 
-        public void suspendCallerWhileDirty() {
-            boolean isDirty = true;
-            int i = ReconcilerThread.RECONCILER_SUSPEND_LOOP_MAX;
-            while (i > 0 && isDirty) {
-                i--;
+            if (fChunkReconciler) {
+                for (final ErlDirtyRegion dirtyRegion : rs) {
+                    process(dirtyRegion);
+                }
+            } else {
+                process(r);
                 synchronized (fDirtyRegionQueue) {
-                    isDirty = isDirty();
-                    if (isDirty) {
-                        try {
-                            fDirtyRegionQueue.wait(fDelay);
-                        } catch (final InterruptedException x) {
-                        }
+                    if (!fDirtyRegionQueue.isEmpty()) {
+                        ReconcileScheduler.getDefault().schedule(this, fDelay);
                     }
                 }
             }
-            if (i == 0 || isDirty) {
-                ErlLogger.debug("broke out of loop i %d isDirty %b", i, isDirty);
+            postProcess();
+        } catch (final RuntimeException e) {
+            ErlLogger.error(e);
+        } finally {
+            fIsActive = false;
+            fReconcilingThread = null;
+            synchronized (fDirtyRegionQueue) {
+                fDirtyRegionQueue.notifyAll();
             }
         }
+    }
 
-        public synchronized void reset() {
-            if (fDelay > 0) {
-                fReset = true;
-            } else {
-                synchronized (fDirtyRegionQueue) {
-                    fDirtyRegionQueue.notifyAll();
-                }
-            }
-            reconcilerReset();
+    boolean isDirty() {
+        synchronized (fDirtyRegionQueue) {
+            return !fDirtyRegionQueue.isEmpty();
         }
+    }
 
-        public synchronized void unreset() {
-            fReset = false;
-        }
+    boolean isActive() {
+        return fIsActive;
+    }
 
-        /**
-         * The background activity. Waits until there is something in the queue managing
-         * the changes that have been applied to the text viewer. Removes the first change
-         * from the queue and process it. If fReconcileAllAtOnce is set, it removes all
-         * changes and processes them.
-         * <p>
-         * Calls {@link AbstractReconciler#initialProcess()} on entrance.
-         * </p>
-         */
-        @Override
-        public void run() {
+    private void cancel() {
+        fCanceled = true;
+        final IProgressMonitor pm = fProgressMonitor;
+        if (pm != null) {
+            pm.setCanceled(true);
+        }
+        ReconcileScheduler.getDefault().cancel(this);
+        synchronized (fDirtyRegionQueue) {
+            fDirtyRegionQueue.notifyAll();
+        }
+    }
 
+    private void suspendCallerWhileDirty() {
+        boolean isDirty = true;
+        int i = ErlReconciler.RECONCILER_SUSPEND_LOOP_MAX;
+        while (i > 0 && isDirty) {
+            i--;
             synchronized (fDirtyRegionQueue) {
-                try {
-                    fDirtyRegionQueue.wait(fDelay);
-                } catch (final InterruptedException x) {
-                }
-            }
-
-            initialProcess();
-
-            while (!fCanceled) {
-                synchronized (fDirtyRegionQueue) {
+                isDirty = isDirty() || isActive();
+                if (isDirty && !fCanceled) {
                     try {
                         fDirtyRegionQueue.wait(fDelay);
                     } catch (final InterruptedException x) {
                     }
                 }
-
-                if (fCanceled) {
-                    break;
-                }
-                synchronized (fDirtyRegionQueue) {
-                    if (fDirtyRegionQueue.isEmpty()) {
-                        continue;
-                    }
-                }
-                synchronized (this) {
-                    if (fReset) {
-                        fReset = false;
-                        continue;
-                    }
-                }
-
-                List<ErlDirtyRegion> rs = null;
-                ErlDirtyRegion r = null;
-                synchronized (fDirtyRegionQueue) {
-                    if (fChunkReconciler) {
-                        rs = fDirtyRegionQueue.extractAllDirtyRegions();
-                    } else {
-                        r = fDirtyRegionQueue.extractNextDirtyRegion();
-                    }
-                    fDirtyRegionQueue.notifyAll();
-                }
-                fIsActive = true;
-
-                if (fProgressMonitor != null) {
-                    fProgressMonitor.setCanceled(false);
-                }
-
-                if (fChunkReconciler) {
-                    if (rs != null) {
-                        for (final ErlDirtyRegion dirtyRegion : rs) {
-                            process(dirtyRegion);
-                        }
-                    }
-                } else {
-                    process(r);
-                }
-                postProcess();
-                fIsActive = false;
             }
         }
+        if (i == 0 || isDirty) {
+            ErlLogger.debug("broke out of loop i %d isDirty %b", i, isDirty);
+        }
+    }
+
+    /**
+     * Restart the delay before the queued changes are reconciled.
+     */
+    private void restartDelay() {
+        if (!fCanceled) {
+            ReconcileScheduler.getDefault().schedule(this, fDelay);
+        }
+        reconcilerReset();
     }
 
     class Listener implements IDocumentListener, ITextInputListener {
@@ -218,8 +194,9 @@ public class ErlReconciler implements IReconciler {
         public void documentChanged(final DocumentEvent e) {
             // ErlLogger.debug("documentChanged %d %d %d", e.getOffset(),
             // e.getLength(), e.getText().length());
-            if (!fThread.isDirty() && fThread.isAlive()) {
-                if (!fIsAllowedToModifyDocument && Thread.currentThread() == fThread) {
+            if (!isDirty() && fInitialProcessDone) {
+                if (!fIsAllowedToModifyDocument
+                        && Thread.currentThread() == fReconcilingThread) {
                     throw new UnsupportedOperationException(
                             "The reconciler thread is not allowed to modify the document"); //$NON-NLS-1$
                 }
@@ -231,7 +208,7 @@ public class ErlReconciler implements IReconciler {
              * while still inside initialProcess().
              */
             if (fProgressMonitor != null
-                    && (fThread.isActive() || fThread.isDirty() && fThread.isAlive())) {
+                    && (isActive() || isDirty() && fInitialProcessDone)) {
                 fProgressMonitor.setCanceled(true);
             }
 
@@ -239,7 +216,7 @@ public class ErlReconciler implements IReconciler {
                 createDirtyRegion(e);
             }
 
-            fThread.reset();
+            restartDelay();
 
         }
 
@@ -262,8 +239,8 @@ public class ErlReconciler implements IReconciler {
                         // 0,
                         // fDocument.getLength(), ""); //$NON-NLS-1$
                         // createDirtyRegion(e);
-                        fThread.reset();
-                        fThread.suspendCallerWhileDirty();
+                        restartDelay();
+                        suspendCallerWhileDirty();
                     }
                 }
 
@@ -284,7 +261,7 @@ public class ErlReconciler implements IReconciler {
 
             fDocument.addDocumentListener(this);
 
-            if (!fThread.isDirty()) {
+            if (!isDirty()) {
                 aboutToBeReconciled();
             }
 
@@ -365,10 +342,10 @@ public class ErlReconciler implements IReconciler {
         fViewer = textViewer;
 
         synchronized (this) {
-            if (fThread != null) {
+            if (fInstalled) {
                 return;
             }
-            fThread = new ReconcilerThread(getClass().getName());
+            fInstalled = true;
         }
 
         fDirtyRegionQueue = new ErlDirtyRegionQueue();
@@ -376,6 +353,22 @@ public class ErlReconciler implements IReconciler {
         fListener = new Listener();
         fViewer.addTextInputListener(fListener);
 
+        final StyledText textWidget = fViewer.getTextWidget();
+        if (textWidget != null) {
+            fFocusListener = new FocusListener() {
+                @Override
+                public void focusGained(final FocusEvent e) {
+                    ReconcileScheduler.getDefault().setFocused(ErlReconciler.this);
+                }
+
+                @Override
+                public void focusLost(final FocusEvent e) {
+                    ReconcileScheduler.getDefault().clearFocused(ErlReconciler.this);
+                }
+            };
+            textWidget.addFocusListener(fFocusListener);
+        }
+
         // see bug https://bugs.eclipse.org/bugs/show_bug.cgi?id=67046
         // if the reconciler gets installed on a viewer that already has a
         // document
@@ -401,11 +394,17 @@ public class ErlReconciler implements IReconciler {
             }
             fListener = null;
 
+            final StyledText textWidget = fViewer.getTextWidget();
+            if (fFocusListener != null && textWidget != null
+                    && !textWidget.isDisposed()) {
+                textWidget.removeFocusListener(fFocusListener);
+            }
+            fFocusListener = null;
+
             synchronized (this) {
                 // http://dev.eclipse.org/bugs/show_bug.cgi?id=19135
-                final ReconcilerThread bt = fThread;
-                fThread = null;
-                bt.cancel();
+                fInstalled = false;
+                cancel();
             }
         }
 
@@ -450,11 +449,11 @@ public class ErlReconciler implements IReconciler {
 
         if (fDocument != null) {
 
-            if (!fThread.isDirty() && fThread.isAlive()) {
+            if (!isDirty() && fInitialProcessDone) {
                 aboutToBeReconciled();
             }
 
-            if (fProgressMonitor != null && fThread.isActive()) {
+            if (fProgressMonitor != null && isActive()) {
                 fProgressMonitor.setCanceled(true);
             }
 
@@ -473,26 +472,14 @@ public class ErlReconciler implements IReconciler {
      * this method.
      */
     protected synchronized void startReconciling() {
-        if (fThread == null) {
+        if (!fInstalled) {
             return;
         }
-
-        if (!fThread.isAlive()) {
-            try {
-                fThread.start();
-            } catch (final IllegalThreadStateException e) {
-                // see https://bugs.eclipse.org/bugs/show_bug.cgi?id=40549
-                // This is the only instance where the thread is started; since
-                // we checked that it is not alive, it must be dead already due
-                // to a run-time exception or error. Exit.
-            }
-        } else {
-            fThread.reset();
-        }
+        restartDelay();
     }
 
     /**
-     * Hook that is called after the reconciler thread has been reset.
+     * Hook that is called after the reconciling delay has been restarted.
      */
     protected void reconcilerReset() {
     }
@@ -544,11 +531,11 @@ public class ErlReconciler implements IReconciler {
     }
 
     public void reconcileNow() {
-        fThread.unreset();
-        synchronized (fDirtyRegionQueue) {
-            fDirtyRegionQueue.notifyAll();
+        if (!fInstalled) {
+            return;
         }
-        fThread.suspendCallerWhileDirty();
+        ReconcileScheduler.getDefault().schedule(this, 0);
+        suspendCallerWhileDirty();
     }
 
     public void reset() {
@@ -557,7 +544,7 @@ public class ErlReconciler implements IReconciler {
                 fDirtyRegionQueue.purgeQueue();
                 fDirtyRegionQueue.notifyAll();
             }
-            fThread.reset();
+            restartDelay();
             initialProcess();
         }
     }
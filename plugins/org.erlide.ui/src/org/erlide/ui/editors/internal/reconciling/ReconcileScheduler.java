@@ -0,0 +1,218 @@
+package org.erlide.ui.editors.internal.reconciling;
+
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.Executors;
+import java.util.concurrent.PriorityBlockingQueue;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+import com.google.common.collect.Maps;
+import com.google.common.collect.Sets;
+
+/**
+ * Runs the reconciling of all open editors on a few shared threads, instead of one
+ * thread per editor.
+ *
+ * <p>
+ * A reconciler asks to be run after a delay; asking again before the delay expired
+ * restarts it. When due, the reconciler is queued for a worker. The editor that has
+ * the focus goes before the others and at most <code>erlide.reconcile.threads</code>
+ * reconcilers (default 2) talk to the backend at the same time. A reconciler never
+ * runs concurrently with itself.
+ */
+public final class ReconcileScheduler {
+
+    private static final int MAX_CONCURRENT = Integer
+            .parseInt(System.getProperty("erlide.reconcile.threads", "2"));
+
+    private static ReconcileScheduler instance;
+
+    private final ScheduledExecutorService timer;
+    private final ThreadPoolExecutor workers;
+    private final Map<ErlReconciler, ScheduledFuture<?>> delayed = Maps.newHashMap();
+    private final Set<ErlReconciler> queued = Sets.newHashSet();
+    private final Set<ErlReconciler> running = Sets.newHashSet();
+    private final Set<ErlReconciler> runAgain = Sets.newHashSet();
+    private volatile ErlReconciler focused;
+    private final AtomicLong sequence = new AtomicLong();
+
+    private final AtomicLong reconcileCount = new AtomicLong();
+    private final AtomicLong totalQueueLatency = new AtomicLong();
+    private final AtomicLong maxQueueLatency = new AtomicLong();
+
+    public static synchronized ReconcileScheduler getDefault() {
+        if (ReconcileScheduler.instance == null) {
+            ReconcileScheduler.instance = new ReconcileScheduler();
+        }
+        return ReconcileScheduler.instance;
+    }
+
+    private ReconcileScheduler() {
+        timer = Executors.newSingleThreadScheduledExecutor(
+                ReconcileScheduler.threadFactory("erlide reconcile timer"));
+        final int n = Math.max(1, ReconcileScheduler.MAX_CONCURRENT);
+        workers = new ThreadPoolExecutor(n, n, 0, TimeUnit.MILLISECONDS,
+                new PriorityBlockingQueue<>(),
+                ReconcileScheduler.threadFactory("erlide reconciler"));
+    }
+
+    private static ThreadFactory threadFactory(final String name) {
+        final AtomicInteger count = new AtomicInteger();
+        return r -> {
+            final Thread t = new Thread(r, name + " " + count.incrementAndGet());
+            t.setPriority(Thread.MIN_PRIORITY);
+            t.setDaemon(true);
+            return t;
+        };
+    }
+
+    /**
+     * Run the reconciler after the given delay, replacing any earlier request that is
+     * still waiting for its delay to expire.
+     */
+    public synchronized void schedule(final ErlReconciler reconciler, final long delay) {
+        final ScheduledFuture<?> old = delayed.remove(reconciler);
+        if (old != null) {
+            old.cancel(false);
+        }
+        if (delay <= 0) {
+            dispatch(reconciler);
+        } else {
+            delayed.put(reconciler, timer.schedule(() -> dispatch(reconciler), delay,
+                    TimeUnit.MILLISECONDS));
+        }
+    }
+
+    public synchronized void cancel(final ErlReconciler reconciler) {
+        final ScheduledFuture<?> old = delayed.remove(reconciler);
+        if (old != null) {
+            old.cancel(false);
+        }
+        runAgain.remove(reconciler);
+        if (focused == reconciler) {
+            focused = null;
+        }
+    }
+
+    public void setFocused(final ErlReconciler reconciler) {
+        focused = reconciler;
+    }
+
+    public void clearFocused(final ErlReconciler reconciler) {
+        if (focused == reconciler) {
+            focused = null;
+        }
+    }
+
+    private synchronized void dispatch(final ErlReconciler reconciler) {
+        delayed.remove(reconciler);
+        if (running.contains(reconciler)) {
+            runAgain.add(reconciler);
+            return;
+        }
+        // an already queued request will see the new dirty regions too
+        if (queued.add(reconciler)) {
+            workers.execute(new Request(reconciler));
+        }
+    }
+
+    private synchronized boolean start(final ErlReconciler reconciler) {
+        queued.remove(reconciler);
+        if (running.contains(reconciler)) {
+            runAgain.add(reconciler);
+            return false;
+        }
+        running.add(reconciler);
+        return true;
+    }
+
+    private synchronized void finish(final ErlReconciler reconciler) {
+        running.remove(reconciler);
+        if (runAgain.remove(reconciler)) {
+            dispatch(reconciler);
+        }
+    }
+
+    private void recordLatency(final long latency) {
+        reconcileCount.incrementAndGet();
+        totalQueueLatency.addAndGet(latency);
+        long max = maxQueueLatency.get();
+        while (latency > max && !maxQueueLatency.compareAndSet(max, latency)) {
+            max = maxQueueLatency.get();
+        }
+    }
+
+    /**
+     * @return the number of reconcilers waiting for a worker
+     */
+    public int getQueueLength() {
+        return workers.getQueue().size();
+    }
+
+    public long getReconcileCount() {
+        return reconcileCount.get();
+    }
+
+    /**
+     * @return the mean time (ms) a due reconciler waited for a worker
+     */
+    public long getAverageQueueLatency() {
+        final long count = reconcileCount.get();
+        return count == 0 ? 0 : totalQueueLatency.get() / count;
+    }
+
+    /**
+     * @return the longest time (ms) a due reconciler waited for a worker
+     */
+    public long getMaxQueueLatency() {
+        return maxQueueLatency.get();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("reconciles=%d queued=%d latency avg=%dms max=%dms",
+                getReconcileCount(), getQueueLength(), getAverageQueueLatency(),
+                getMaxQueueLatency());
+    }
+
+    private class Request implements Runnable, Comparable<Request> {
+        private final ErlReconciler reconciler;
+        private final boolean hasFocus;
+        private final long seq;
+        private final long queuedAt;
+
+        Request(final ErlReconciler reconciler) {
+            this.reconciler = reconciler;
+            hasFocus = reconciler == focused;
+            seq = sequence.getAndIncrement();
+            queuedAt = System.currentTimeMillis();
+        }
+
+        @Override
+        public void run() {
+            if (!start(reconciler)) {
+                return;
+            }
+            recordLatency(System.currentTimeMillis() - queuedAt);
+            try {
+                reconciler.runReconcile();
+            } finally {
+                finish(reconciler);
+            }
+        }
+
+        @Override
+        public int compareTo(final Request other) {
+            if (hasFocus != other.hasFocus) {
+                return hasFocus ? -1 : 1;
+            }
+            return Long.compare(seq, other.seq);
+        }
+    }
+}
@@ -12,6 +12,7 @@ import java.net.MalformedURLException;
 import java.net.URL;
 import java.util.Calendar;
 import java.util.GregorianCalendar;
+import java.util.List;
 import java.util.MissingResourceException;
 import java.util.ResourceBundle;
 import java.util.concurrent.TimeUnit;
@@ -41,6 +42,7 @@ import org.eclipse.jface.window.Window;
 import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.widgets.Display;
 import org.eclipse.swt.widgets.Shell;
+import org.eclipse.ui.IEditorReference;
 import org.eclipse.ui.IPageLayout;
 import org.eclipse.ui.IViewPart;
 import org.eclipse.ui.IWorkbenchPage;
@@ -60,10 +62,14 @@ import org.erlide.backend.BackendCore;
 import org.erlide.core.ErlangStatus;
 import org.erlide.debug.ui.model.ErlangDebuggerBackendListener;
 import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.engine.util.DocCacheWarmupJob;
+import org.erlide.engine.util.ModelWarmupJob;
 import org.erlide.ui.ErlideImage;
 import org.erlide.ui.ErlideUIConstants;
 import org.erlide.ui.UIMessageReporter;
 import org.erlide.ui.console.ErlConsoleManager;
+import org.erlide.ui.editors.erl.ErlangEditor;
 import org.erlide.ui.editors.erl.actions.ClearAllCachesAction;
 import org.erlide.ui.internal.folding.ErlangFoldingStructureProviderRegistry;
 import org.erlide.ui.perspectives.ErlangPerspective;
@@ -71,6 +77,7 @@ import org.erlide.ui.templates.ErlangSourceContextTypeModule;
 import org.erlide.ui.templates.ErlangSourceContextTypeModuleElement;
 import org.erlide.ui.templates.ErlangTemplateContextType;
 import org.erlide.ui.util.BackendManagerPopup;
+import org.erlide.ui.util.ErlModelUtils;
 import org.erlide.ui.util.IContextMenuConstants;
 import org.erlide.ui.util.ImageDescriptorRegistry;
 import org.erlide.ui.util.NoRuntimeHandler;
@@ -82,6 +89,8 @@ import org.erlide.util.SystemConfiguration;
 import org.osgi.framework.BundleContext;
 import org.osgi.service.prefs.BackingStoreException;
 
+import com.google.common.collect.Lists;
+
 /**
  * The main plugin class to be used in the desktop.
  *
@@ -145,9 +154,42 @@ public class ErlideUIPlugin extends AbstractUIPlugin {
 
         startPeriodicCacheCleaner();
 
+        if (ModelWarmupJob.isEnabled()) {
+            startModelWarmup();
+        }
+        if (DocCacheWarmupJob.isEnabled()) {
+            new DocCacheWarmupJob(null).schedule(TimeUnit.SECONDS.toMillis(30));
+        }
+
         checkNavigatorView();
     }
 
+    private void startModelWarmup() {
+        Display.getDefault().asyncExec(() -> {
+            final List<IErlModule> openModules = Lists.newArrayList();
+            for (final IWorkbenchWindow window : PlatformUI.getWorkbench()
+                    .getWorkbenchWindows()) {
+                for (final IWorkbenchPage page : window.getPages()) {
+                    for (final IEditorReference editor : page.getEditorReferences()) {
+                        if (!ErlangEditor.ERLANG_EDITOR_ID.equals(editor.getId())) {
+                            continue;
+                        }
+                        try {
+                            final IErlModule module = ErlModelUtils
+                                    .getModule(editor.getEditorInput());
+                            if (module != null) {
+                                openModules.add(module);
+                            }
+                        } catch (final CoreException e) {
+                            ErlLogger.warn(e);
+                        }
+                    }
+                }
+            }
+            new ModelWarmupJob(openModules).schedule();
+        });
+    }
+
     private void checkNavigatorView() {
         Display.getDefault().asyncExec(() -> {
             final IWorkbenchWindow win = PlatformUI.getWorkbench()
@@ -3,6 +3,7 @@ package org.erlide.ui.internal.folding;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Collection;
+import java.util.Collections;
 import java.util.Comparator;
 import java.util.HashMap;
 import java.util.HashSet;
@@ -827,6 +828,98 @@ public class DefaultErlangFoldingStructureProvider implements IProjectionListene
         }
     }
 
+    /**
+     * Updates only the annotations of the members in a fine-grained member delta.
+     * Annotations of members that just moved are kept, their positions have already
+     * followed the document edits.
+     */
+    private void processMemberDelta(final IErlElementDelta delta,
+            final ProjectionAnnotationModel model) throws ErlModelException {
+        final Map<ErlangProjectionAnnotation, Position> additions = new HashMap<>();
+        final List<ErlangProjectionAnnotation> deletions = new ArrayList<>();
+        final List<ErlangProjectionAnnotation> updates = new ArrayList<>();
+        final Map<Object, List<Tuple>> previous = createAnnotationMap(model);
+
+        for (final IErlElementDelta d : delta.getChildren(IErlElementDelta.ALL)) {
+            final IErlElement element = d.getElement();
+            final IErlElement old = d.getKind() == IErlElementDelta.REMOVED ? element
+                    : d.getMovedFromElement();
+            if (d.getKind() == IErlElementDelta.CHANGED
+                    && (d.getFlags() & IErlElementDelta.F_CONTENT) == 0
+                    && retarget(old, element, previous)) {
+                continue;
+            }
+            if (old != null) {
+                collectAnnotations(old, previous, deletions);
+            }
+            if (d.getKind() != IErlElementDelta.REMOVED) {
+                computeAdditions(Collections.singletonList(element), additions);
+            }
+        }
+
+        match(deletions, additions, updates);
+
+        final Annotation[] removals = new Annotation[deletions.size()];
+        deletions.toArray(removals);
+        final Annotation[] changes = new Annotation[updates.size()];
+        updates.toArray(changes);
+        model.modifyAnnotations(removals, additions, changes);
+    }
+
+    /**
+     * Moves the annotations of a member and its clauses over to the reparsed member.
+     *
+     * @return false if the clauses don't correspond
+     */
+    private boolean retarget(final IErlElement old, final IErlElement element,
+            final Map<Object, List<Tuple>> previous) throws ErlModelException {
+        if (old == null) {
+            return false;
+        }
+        if (old instanceof IParent && element instanceof IParent) {
+            final List<IErlElement> oldChildren = ((IParent) old).getChildren();
+            final List<IErlElement> children = ((IParent) element).getChildren();
+            if (oldChildren.size() != children.size()) {
+                return false;
+            }
+            for (int i = 0; i < children.size(); i++) {
+                retarget(previous.get(oldChildren.get(i)), children.get(i));
+            }
+        }
+        retarget(previous.get(old), element);
+        return true;
+    }
+
+    private void retarget(final List<Tuple> tuples, final IErlElement element) {
+        if (tuples == null) {
+            return;
+        }
+        for (final Tuple tuple : tuples) {
+            tuple.annotation.setElement(element);
+            if (tuple.position instanceof ErlangElementPosition
+                    && element instanceof IErlMember) {
+                ((ErlangElementPosition) tuple.position).setMember((IErlMember) element);
+            }
+        }
+    }
+
+    private void collectAnnotations(final IErlElement element,
+            final Map<Object, List<Tuple>> previous,
+            final List<ErlangProjectionAnnotation> annotations)
+            throws ErlModelException {
+        final List<Tuple> tuples = previous.get(element);
+        if (tuples != null) {
+            for (final Tuple tuple : tuples) {
+                annotations.add(tuple.annotation);
+            }
+        }
+        if (element instanceof IParent) {
+            for (final IErlElement child : ((IParent) element).getChildren()) {
+                collectAnnotations(child, previous, annotations);
+            }
+        }
+    }
+
     /**
      * Matches deleted annotations to changed or added ones. A deleted annotation/position
      * tuple that has a matching addition / change is updated and marked as changed. The
@@ -1063,4 +1156,41 @@ public class DefaultErlangFoldingStructureProvider implements IProjectionListene
             fCachedModel = null;
         }
     }
+
+    @Override
+    public void elementChanged(final IErlElement element, final IErlElementDelta delta) {
+        if (delta == null || (delta.getFlags() & IErlElementDelta.F_FINE_GRAINED) == 0) {
+            elementChanged(element);
+            return;
+        }
+        if (element != fModule || fEditor == null || !isInstalled()
+                || delta.getChildren(IErlElementDelta.ALL).length == 0) {
+            return;
+        }
+        final IDocumentProvider provider = fEditor.getDocumentProvider();
+        final IEditorInput input = fEditor.getEditorInput();
+        final ProjectionAnnotationModel model = fEditor
+                .getAdapter(ProjectionAnnotationModel.class);
+        if (provider == null || input == null || model == null) {
+            return;
+        }
+        try {
+            fCachedModel = model;
+            fCachedDocument = provider.getDocument(input);
+            if (fCachedDocument == null) {
+                return;
+            }
+            if (fCachedDocument.getNumberOfLines() > PerformanceTuning.get()
+                    .getFoldingLimit()) {
+                model.removeAllAnnotations();
+                return;
+            }
+            processMemberDelta(delta, model);
+        } catch (final ErlModelException e) {
+            ErlLogger.warn(e);
+        } finally {
+            fCachedDocument = null;
+            fCachedModel = null;
+        }
+    }
 }
@@ -8,6 +8,11 @@
  *******************************************************************************/
 package org.erlide.ui.views;
 
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.List;
 
@@ -25,6 +30,7 @@ import org.eclipse.swt.graphics.Image;
 import org.eclipse.swt.layout.GridData;
 import org.eclipse.swt.layout.GridLayout;
 import org.eclipse.swt.widgets.Composite;
+import org.eclipse.swt.widgets.FileDialog;
 import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.ToolBar;
 import org.eclipse.swt.widgets.ToolItem;
@@ -34,10 +40,11 @@ import org.eclipse.ui.PartInitException;
 import org.eclipse.ui.part.ViewPart;
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.model.ErlModelException;
-import org.erlide.engine.model.OtpRpcFactory;
 import org.erlide.engine.model.erlang.FunctionRef;
 import org.erlide.engine.model.erlang.IErlFunction;
-import org.erlide.engine.services.search.ErlangXref;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.engine.services.search.CallGraph;
+import org.erlide.engine.services.search.XrefService;
 import org.erlide.ui.editors.util.EditorUtility;
 import org.erlide.util.ErlLogger;
 
@@ -45,7 +52,6 @@ public class CallHierarchyView extends ViewPart {
     Tree tree;
     TreeViewer treeViewer;
     Label lblRoot;
-    private final ErlangXref xrefService;
 
     static class ViewerLabelProvider extends LabelProvider {
         @Override
@@ -95,13 +101,9 @@ public class CallHierarchyView extends ViewPart {
                 return new Object[0];
             }
             final IErlFunction parent = (IErlFunction) parentElement;
-            final FunctionRef ref = new FunctionRef(parent);
-            final FunctionRef[] children = xrefService.functionUse(ref);
-            if (children == null) {
-                return new Object[0];
-            }
-            if (parentElement == input && children.length == 0) {
-                // TODO ErlangXref should cache _all_ projects added to it
+            final List<FunctionRef> children = XrefService.getDefault()
+                    .functionUse(CallHierarchyView.functionRef(parent));
+            if (parentElement == input && children.isEmpty()) {
                 return new Object[] { "<no callers from project " + ErlangEngine
                         .getInstance().getModelUtilService().getProject(ErlangEngine
                                 .getInstance().getModelUtilService().getModule(parent))
@@ -129,13 +131,20 @@ public class CallHierarchyView extends ViewPart {
 
         @Override
         public boolean hasChildren(final Object element) {
-            return getChildren(element).length > 0;
+            if (element instanceof IErlFunction) {
+                final FunctionRef ref = CallHierarchyView
+                        .functionRef((IErlFunction) element);
+                return !XrefService.getDefault().functionUse(ref).isEmpty();
+            }
+            return false;
         }
     }
 
-    public CallHierarchyView() {
-        xrefService = new ErlangXref(OtpRpcFactory.getOtpRpc());
-        xrefService.start();
+    static FunctionRef functionRef(final IErlFunction function) {
+        final IErlModule module = ErlangEngine.getInstance().getModelUtilService()
+                .getModule(function);
+        return new FunctionRef(module.getModuleName(), function.getFunctionName(),
+                function.getArity());
     }
 
     @Override
@@ -158,12 +167,23 @@ public class CallHierarchyView extends ViewPart {
                     tltmRefresh.addSelectionListener(new SelectionAdapter() {
                         @Override
                         public void widgetSelected(final SelectionEvent e) {
-                            xrefService.update();
                             treeViewer.refresh();
                         }
                     });
                     tltmRefresh.setText("refresh");
                 }
+                {
+                    final ToolItem tltmDot = new ToolItem(toolBar, SWT.NONE);
+                    tltmDot.addSelectionListener(new SelectionAdapter() {
+                        @Override
+                        public void widgetSelected(final SelectionEvent e) {
+                            exportDot();
+                        }
+                    });
+                    tltmDot.setText("export DOT");
+                    tltmDot.setToolTipText(
+                            "Save the callers of the current function as a Graphviz file");
+                }
             }
             {
                 treeViewer = new TreeViewer(composite, SWT.NONE);
@@ -189,10 +209,25 @@ public class CallHierarchyView extends ViewPart {
         }
     }
 
-    @Override
-    public void dispose() {
-        xrefService.stop();
-        super.dispose();
+    void exportDot() {
+        final Object input = treeViewer.getInput();
+        if (!(input instanceof IErlFunction)) {
+            return;
+        }
+        final FileDialog dialog = new FileDialog(tree.getShell(), SWT.SAVE);
+        dialog.setFilterExtensions(new String[] { "*.dot" });
+        dialog.setOverwrite(true);
+        final String path = dialog.open();
+        if (path == null) {
+            return;
+        }
+        try (Writer out = Files.newBufferedWriter(Paths.get(path),
+                StandardCharsets.UTF_8)) {
+            CallGraph.getDefault().writeDot(out,
+                    CallHierarchyView.functionRef((IErlFunction) input));
+        } catch (final IOException e) {
+            ErlLogger.error(e);
+        }
     }
 
     @Override
@@ -0,0 +1,96 @@
+package org.erlide.ui.views.eval;
+
+import java.util.List;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+
+import org.erlide.backend.debug.BackendEvalResult;
+import org.erlide.backend.debug.EvalHelper;
+import org.erlide.runtime.rpc.IOtpRpc;
+import org.erlide.ui.views.eval.LiveExpressionsView.LiveExpr;
+import org.erlide.util.ErlLogger;
+
+import com.google.common.collect.Lists;
+
+/**
+ * Evaluates the live expressions on a background thread, all of them in one backend
+ * call, and reports only those whose value changed.
+ *
+ * <p>
+ * Besides explicit requests, the expressions are evaluated every
+ * <code>erlide.liveexpr.refresh</code> ms (default 2000, 0 disables the periodic
+ * refresh). Requests made while an evaluation is waiting are merged into it.
+ */
+class LiveExpressionsScheduler {
+
+    private static final long REFRESH_INTERVAL = Long
+            .getLong("erlide.liveexpr.refresh", 2000);
+
+    private final IOtpRpc backend;
+    private final Supplier<List<LiveExpr>> expressions;
+    private final Consumer<List<LiveExpr>> onChange;
+    private final ScheduledExecutorService executor;
+    private final AtomicBoolean pending = new AtomicBoolean();
+
+    LiveExpressionsScheduler(final IOtpRpc backend,
+            final Supplier<List<LiveExpr>> expressions,
+            final Consumer<List<LiveExpr>> onChange) {
+        this.backend = backend;
+        this.expressions = expressions;
+        this.onChange = onChange;
+        executor = Executors.newSingleThreadScheduledExecutor(r -> {
+            final Thread t = new Thread(r, "erlide live expressions");
+            t.setDaemon(true);
+            return t;
+        });
+        if (LiveExpressionsScheduler.REFRESH_INTERVAL > 0) {
+            executor.scheduleWithFixedDelay(this::schedule,
+                    LiveExpressionsScheduler.REFRESH_INTERVAL,
+                    LiveExpressionsScheduler.REFRESH_INTERVAL, TimeUnit.MILLISECONDS);
+        }
+    }
+
+    public void schedule() {
+        if (pending.compareAndSet(false, true) && !executor.isShutdown()) {
+            executor.execute(this::evaluate);
+        }
+    }
+
+    public void dispose() {
+        executor.shutdownNow();
+    }
+
+    private void evaluate() {
+        pending.set(false);
+        final List<LiveExpr> toEval = Lists.newArrayList();
+        final List<String> sources = Lists.newArrayList();
+        for (final LiveExpr e : expressions.get()) {
+            if (e.doEval) {
+                toEval.add(e);
+                sources.add(e.fExpr);
+            }
+        }
+        if (toEval.isEmpty()) {
+            return;
+        }
+        try {
+            final List<BackendEvalResult> results = EvalHelper.evalAll(backend, sources);
+            final List<LiveExpr> changed = Lists.newArrayList();
+            for (int i = 0; i < toEval.size(); i++) {
+                if (toEval.get(i).setResult(sources.get(i), results.get(i))) {
+                    changed.add(toEval.get(i));
+                }
+            }
+            if (!changed.isEmpty()) {
+                onChange.accept(changed);
+            }
+        } catch (final RuntimeException e) {
+            ErlLogger.warn(e);
+        }
+    }
+
+}
@@ -8,9 +8,10 @@
  *******************************************************************************/
 package org.erlide.ui.views.eval;
 
-import java.util.ArrayList;
 import java.util.Iterator;
 import java.util.List;
+import java.util.Objects;
+import java.util.concurrent.CopyOnWriteArrayList;
 
 import org.eclipse.core.resources.IResourceChangeEvent;
 import org.eclipse.core.resources.IResourceChangeListener;
@@ -67,6 +68,8 @@ import org.erlide.ui.util.DisplayUtils;
 import org.erlide.ui.views.SourceViewerInformationControl;
 import org.erlide.util.erlang.OtpErlang;
 
+import com.ericsson.otp.erlang.OtpErlangObject;
+
 /**
  * @author Vlad Dumitrescu
  */
@@ -82,6 +85,7 @@ public class LiveExpressionsView extends ViewPart implements IResourceChangeList
     Action fRemoveAction;
 
     private final IOtpRpc backend;
+    private LiveExpressionsScheduler scheduler;
 
     private final class ListenerImplementation implements Listener {
         private final Table t;
@@ -144,15 +148,16 @@ public class LiveExpressionsView extends ViewPart implements IResourceChangeList
         }
     }
 
-    private static class LiveExpr {
-        String fExpr;
-        private String cachedValue = "";
-        boolean doEval;
-        private final IOtpRpc b;
+    static class LiveExpr {
+        volatile String fExpr;
+        private volatile String cachedValue = "";
+        // the last result, to tell whether it changed
+        private boolean lastOk;
+        private OtpErlangObject lastValue;
+        volatile boolean doEval;
 
-        public LiveExpr(final IOtpRpc b, final String s) {
+        public LiveExpr(final String s) {
             fExpr = s;
-            this.b = b;
         }
 
         public void setDoEval(final boolean eval) {
@@ -160,18 +165,32 @@ public class LiveExpressionsView extends ViewPart implements IResourceChangeList
         }
 
         public String getValue() {
-            if (doEval) {
-                cachedValue = evaluate();
-            }
             return cachedValue;
         }
 
-        private String evaluate() {
-            final BackendEvalResult r = EvalHelper.eval(b, fExpr + ".", null);
-            if (r.isOk()) {
-                return r.getValue().toString();
+        void reset() {
+            cachedValue = "";
+            lastValue = null;
+        }
+
+        /**
+         * @return true if the value changed. Formatting the value is skipped when it
+         *         is the same as before.
+         */
+        boolean setResult(final String source, final BackendEvalResult r) {
+            if (!source.equals(fExpr)) {
+                // edited while it was evaluated
+                return false;
+            }
+            final OtpErlangObject value = r.isOk() ? r.getValue() : r.getErrorReason();
+            if (r.isOk() == lastOk && Objects.equals(value, lastValue)
+                    && !cachedValue.isEmpty()) {
+                return false;
             }
-            return "ERR: " + r.getErrorReason().toString();
+            lastOk = r.isOk();
+            lastValue = value;
+            cachedValue = r.isOk() ? String.valueOf(value) : "ERR: " + value;
+            return true;
         }
 
         @Override
@@ -223,7 +242,6 @@ public class LiveExpressionsView extends ViewPart implements IResourceChangeList
                 return e.fExpr;
             }
             if (index == 1) {
-                e.setDoEval(viewer.getChecked(e));
                 return e.getValue();
             }
             return null;
@@ -320,10 +338,16 @@ public class LiveExpressionsView extends ViewPart implements IResourceChangeList
 
         if (!restoreState()) {
             /* Fill LiveExpressions for first time */
-            exprs = new ArrayList<>(10);
-            addExpr(new LiveExpr(backend, "erlide_time_compat:timestamp()"));
+            exprs = new CopyOnWriteArrayList<>();
+            addExpr(new LiveExpr("erlide_time_compat:timestamp()"));
         }
         viewer.setInput(exprs);
+        scheduler = new LiveExpressionsScheduler(backend, () -> exprs,
+                this::valuesChanged);
+        viewer.addCheckStateListener(event -> {
+            ((LiveExpr) event.getElement()).setDoEval(event.getChecked());
+            scheduler.schedule();
+        });
 
         final TextCellEditor e = new TextCellEditor(t);
         viewer.setCellEditors(new CellEditor[] { e, null });
@@ -372,9 +396,9 @@ public class LiveExpressionsView extends ViewPart implements IResourceChangeList
         if (memento != null) {
             final IMemento[] expressions = memento.getChildren("expression");
             if (expressions.length > 0) {
-                exprs = new ArrayList<>(expressions.length);
+                exprs = new CopyOnWriteArrayList<>();
                 for (final IMemento element : expressions) {
-                    exprs.add(new LiveExpr(backend, element.getTextData()));
+                    exprs.add(new LiveExpr(element.getTextData()));
                 }
             }
             return true;
@@ -415,7 +439,7 @@ public class LiveExpressionsView extends ViewPart implements IResourceChangeList
                 el = (LiveExpr) element;
             }
             el.fExpr = (String) value;
-            el.cachedValue = "";
+            el.reset();
             view.updateExpr(el);
         }
     }
@@ -461,7 +485,7 @@ public class LiveExpressionsView extends ViewPart implements IResourceChangeList
 
             @Override
             public void run() {
-                refreshView();
+                scheduler.schedule();
             }
         };
         refreshAction.setText("Refresh");
@@ -473,7 +497,7 @@ public class LiveExpressionsView extends ViewPart implements IResourceChangeList
 
             @Override
             public void run() {
-                addExpr(new LiveExpr(backend, "expr"));
+                addExpr(new LiveExpr("expr"));
             }
         };
         fAddAction.setText("Add expression");
@@ -524,7 +548,18 @@ public class LiveExpressionsView extends ViewPart implements IResourceChangeList
 
     @Override
     public void resourceChanged(final IResourceChangeEvent event) {
-        refreshView();
+        if (scheduler != null) {
+            scheduler.schedule();
+        }
+    }
+
+    @Override
+    public void dispose() {
+        ResourcesPlugin.getWorkspace().removeResourceChangeListener(this);
+        if (scheduler != null) {
+            scheduler.dispose();
+        }
+        super.dispose();
     }
 
     private void refreshView() {
@@ -539,6 +574,17 @@ public class LiveExpressionsView extends ViewPart implements IResourceChangeList
                 viewer.refresh();
             });
         }
+        if (scheduler != null) {
+            scheduler.schedule();
+        }
+    }
+
+    private void valuesChanged(final List<LiveExpr> changed) {
+        DisplayUtils.asyncExec(() -> {
+            if (viewer != null && !viewer.getControl().isDisposed()) {
+                viewer.update(changed.toArray(), null);
+            }
+        });
     }
 
     public void addExpr(final LiveExpr e) {
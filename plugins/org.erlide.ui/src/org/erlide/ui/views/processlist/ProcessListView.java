@@ -8,7 +8,14 @@
  *******************************************************************************/
 package org.erlide.ui.views.processlist;
 
+import java.util.Arrays;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.Status;
+import org.eclipse.core.runtime.jobs.Job;
 import org.eclipse.jface.action.Action;
+import org.eclipse.jface.action.IAction;
 import org.eclipse.jface.action.IMenuManager;
 import org.eclipse.jface.action.IToolBarManager;
 import org.eclipse.jface.action.MenuManager;
@@ -16,7 +23,7 @@ import org.eclipse.jface.action.Separator;
 import org.eclipse.jface.dialogs.MessageDialog;
 import org.eclipse.jface.viewers.ComboViewer;
 import org.eclipse.jface.viewers.ISelection;
-import org.eclipse.jface.viewers.IStructuredContentProvider;
+import org.eclipse.jface.viewers.ILazyContentProvider;
 import org.eclipse.jface.viewers.IStructuredSelection;
 import org.eclipse.jface.viewers.ITableLabelProvider;
 import org.eclipse.jface.viewers.LabelProvider;
@@ -32,6 +39,7 @@ import org.eclipse.swt.widgets.Label;
 import org.eclipse.swt.widgets.Menu;
 import org.eclipse.swt.widgets.Table;
 import org.eclipse.swt.widgets.TableColumn;
+import org.eclipse.swt.widgets.Text;
 import org.eclipse.ui.IActionBars;
 import org.eclipse.ui.ISharedImages;
 import org.eclipse.ui.IWorkbenchActionConstants;
@@ -40,6 +48,7 @@ import org.eclipse.ui.part.ViewPart;
 import org.erlide.backend.BackendCore;
 import org.erlide.backend.api.IBackend;
 import org.erlide.engine.ErlangEngine;
+import org.erlide.engine.services.proclist.ProcessTable;
 import org.erlide.runtime.events.ErlEvent;
 import org.erlide.runtime.events.ErlangEventHandler;
 import org.erlide.runtime.rpc.IOtpRpc;
@@ -50,31 +59,64 @@ import org.erlide.ui.views.BackendLabelProvider;
 import com.ericsson.otp.erlang.OtpErlangList;
 import com.ericsson.otp.erlang.OtpErlangObject;
 import com.ericsson.otp.erlang.OtpErlangPid;
-import com.ericsson.otp.erlang.OtpErlangString;
 import com.ericsson.otp.erlang.OtpErlangTuple;
 import com.google.common.eventbus.Subscribe;
 
 /**
+ * Shows the processes of a backend node.
  *
- *
+ * <p>
+ * The list is fetched in the background and merged into a {@link ProcessTable}; only
+ * the rows that changed are redrawn, unless processes were spawned or exited or the
+ * sort order changed. The table is virtual, so only the visible rows are created.
+ * Sorting (by clicking a column header), filtering and showing only the top
+ * <code>erlide.proclist.top</code> processes (default 100) are done on the table.
  *
  * @author Vlad Dumitrescu
  */
 public class ProcessListView extends ViewPart {
 
     public static final String ID = "org.erlide.ui.views.processlist.ProcessListView";
+    private static final int TOP_COUNT = Integer.getInteger("erlide.proclist.top", 100);
+
     private ComboViewer backends;
     TableViewer viewer;
+    private Text filterText;
     private Action refreshAction;
+    private Action topAction;
     Action doubleClickAction;
 
+    final ProcessTable processes = new ProcessTable();
+    private OtpErlangPid[] shown = new OtpErlangPid[0];
+    private int sortColumn = -1;
+    private boolean descending;
+    private volatile IOtpRpc refreshBackend;
+    private final Job refreshJob = new Job("Refresh process list") {
+        @Override
+        protected IStatus run(final IProgressMonitor monitor) {
+            final IOtpRpc backend = refreshBackend;
+            if (backend == null) {
+                return Status.OK_STATUS;
+            }
+            final OtpErlangList r = ErlangEngine.getInstance().getProclistService()
+                    .getProcessList(backend);
+            if (r == null) {
+                // keep showing the last snapshot
+                return Status.OK_STATUS;
+            }
+            final ProcessTable.Diff diff = processes.update(r);
+            if (!diff.isEmpty()) {
+                DisplayUtils.asyncExec(() -> applyDiff(diff));
+            }
+            return Status.OK_STATUS;
+        }
+    };
+
     /*
-     * The content provider class is responsible for providing objects to the view. It can
-     * wrap existing objects in adapters or simply return objects as-is. These objects may
-     * be sensitive to the current input of the view, or ignore it and always show the
-     * same content (like Task List, for example).
+     * The lazy content provider only hands out the processes for the rows that are
+     * visible.
      */
-    class ViewContentProvider implements IStructuredContentProvider {
+    class ViewContentProvider implements ILazyContentProvider {
 
         private final ProcessEventHandler handler = new ProcessEventHandler();
 
@@ -92,25 +134,10 @@ public class ProcessListView extends ViewPart {
         }
 
         @Override
-        public Object[] getElements(final Object parent) {
-            final IOtpRpc backend = getBackend().getOtpRpc();
-            if (backend == null) {
-                return new OtpErlangObject[] {};
+        public void updateElement(final int index) {
+            if (index < shown.length) {
+                viewer.replace(shown[index], index);
             }
-
-            final OtpErlangList r = ErlangEngine.getInstance().getProclistService()
-                    .getProcessList(backend);
-            if (r == null || r.arity() == 0) {
-                return new OtpErlangObject[] {};
-            }
-            final OtpErlangObject[] ss = new OtpErlangObject[r.elements().length];
-
-            for (int i = 0; i < r.elements().length; i++) {
-                final OtpErlangTuple e = (OtpErlangTuple) r.elementAt(i);
-                ss[i] = e;
-            }
-
-            return ss;
         }
 
         class ProcessEventHandler extends ErlangEventHandler {
@@ -126,23 +153,18 @@ public class ProcessListView extends ViewPart {
                 }
                 DisplayUtils.asyncExec(() -> {
                     if (!viewer.getControl().isDisposed()) {
-                        viewer.refresh();
+                        refresh();
                     }
                 });
             }
         }
     }
 
-    static class ViewLabelProvider extends LabelProvider implements ITableLabelProvider {
+    class ViewLabelProvider extends LabelProvider implements ITableLabelProvider {
 
         @Override
         public String getColumnText(final Object obj, final int index) {
-            final OtpErlangTuple t = (OtpErlangTuple) obj;
-            final OtpErlangObject e = t.elementAt(index + 1);
-            if (e instanceof OtpErlangString) {
-                return ((OtpErlangString) e).stringValue();
-            }
-            return e.toString();
+            return processes.getText((OtpErlangPid) obj, index);
         }
 
         @Override
@@ -164,6 +186,8 @@ public class ProcessListView extends ViewPart {
      * The constructor.
      */
     public ProcessListView() {
+        refreshJob.setSystem(true);
+        refreshJob.setPriority(Job.SHORT);
     }
 
     /**
@@ -189,8 +213,21 @@ public class ProcessListView extends ViewPart {
         backends.setContentProvider(new BackendContentProvider());
         backends.setLabelProvider(new BackendLabelProvider());
         backends.setInput(BackendCore.getBackendManager());
+        backends.addSelectionChangedListener(event -> {
+            processes.clear();
+            applyOrder(true);
+            refresh();
+        });
+
+        final Label filterLabel = new Label(container, SWT.SHADOW_NONE);
+        filterLabel.setText("Filter");
+        filterText = new Text(container, SWT.SINGLE | SWT.BORDER | SWT.SEARCH);
+        filterText.setLayoutData(new GridData(SWT.FILL, SWT.CENTER, true, false, 1, 1));
+        filterText.addModifyListener(event -> applyOrder(false));
+
         viewer = new TableViewer(container,
-                SWT.SINGLE | SWT.V_SCROLL | SWT.FULL_SELECTION);
+                SWT.SINGLE | SWT.V_SCROLL | SWT.FULL_SELECTION | SWT.VIRTUAL);
+        viewer.setUseHashlookup(true);
         final Table table = viewer.getTable();
         final GridData layoutData = new GridData(SWT.FILL, SWT.FILL, false, true, 2, 1);
         table.setLayoutData(layoutData);
@@ -207,9 +244,11 @@ public class ProcessListView extends ViewPart {
         final TableColumn colMsgs = new TableColumn(t, SWT.LEAD);
         colMsgs.setText("Msgs");
         colMsgs.setWidth(60);
+        for (final TableColumn column : t.getColumns()) {
+            column.addListener(SWT.Selection, event -> sortBy(t.indexOf(column)));
+        }
         viewer.setContentProvider(new ViewContentProvider());
         viewer.setLabelProvider(new ViewLabelProvider());
-        // viewer.setSorter(new NameSorter());
         viewer.setInput(getViewSite());
         viewer.addDoubleClickListener(event -> doubleClickAction.run());
 
@@ -222,6 +261,63 @@ public class ProcessListView extends ViewPart {
         hookContextMenu();
         hookDoubleClickAction();
         contributeToActionBars();
+        refresh();
+    }
+
+    void refresh() {
+        refreshBackend = getBackend().getOtpRpc();
+        refreshJob.schedule();
+    }
+
+    void sortBy(final int column) {
+        if (column == sortColumn) {
+            descending = !descending;
+        } else {
+            sortColumn = column;
+            // the largest numbers are the interesting ones
+            descending = column == ProcessTable.REDUCTIONS
+                    || column == ProcessTable.MESSAGES;
+        }
+        final Table t = viewer.getTable();
+        t.setSortColumn(t.getColumn(column));
+        t.setSortDirection(descending ? SWT.DOWN : SWT.UP);
+        applyOrder(false);
+    }
+
+    void applyDiff(final ProcessTable.Diff diff) {
+        if (viewer.getControl().isDisposed()) {
+            return;
+        }
+        final boolean orderMayChange = !diff.getSpawned().isEmpty()
+                || !diff.getExited().isEmpty()
+                || sortColumn >= 0 && diff.isColumnChanged(sortColumn)
+                || !filterText.getText().trim().isEmpty()
+                        && (diff.isColumnChanged(ProcessTable.NAME)
+                                || diff.isColumnChanged(ProcessTable.INITIAL_CALL));
+        if (!orderMayChange || !applyOrder(false)) {
+            viewer.update(diff.getChanged().toArray(), null);
+        }
+    }
+
+    /**
+     * Recompute the rows to show.
+     *
+     * @return true if the table was refreshed
+     */
+    boolean applyOrder(final boolean force) {
+        if (viewer.getControl().isDisposed()) {
+            return false;
+        }
+        final OtpErlangPid[] selected = processes.select(sortColumn, descending,
+                filterText.getText(), topAction != null && topAction.isChecked()
+                        ? ProcessListView.TOP_COUNT : 0);
+        if (!force && Arrays.equals(selected, shown)) {
+            return false;
+        }
+        shown = selected;
+        viewer.setItemCount(shown.length);
+        viewer.refresh();
+        return true;
     }
 
     private void initErlangService() {
@@ -247,6 +343,7 @@ public class ProcessListView extends ViewPart {
 
     private void fillLocalPullDown(final IMenuManager manager) {
         manager.add(refreshAction);
+        manager.add(topAction);
         manager.add(new Separator());
     }
 
@@ -258,6 +355,7 @@ public class ProcessListView extends ViewPart {
 
     private void fillLocalToolBar(final IToolBarManager manager) {
         manager.add(refreshAction);
+        manager.add(topAction);
     }
 
     private void makeActions() {
@@ -265,7 +363,7 @@ public class ProcessListView extends ViewPart {
 
             @Override
             public void run() {
-                viewer.refresh();
+                refresh();
             }
         };
         refreshAction.setText("Refresh");
@@ -273,6 +371,21 @@ public class ProcessListView extends ViewPart {
         refreshAction.setImageDescriptor(PlatformUI.getWorkbench().getSharedImages()
                 .getImageDescriptor(ISharedImages.IMG_OBJS_INFO_TSK));
 
+        topAction = new Action("Top " + ProcessListView.TOP_COUNT,
+                IAction.AS_CHECK_BOX) {
+
+            @Override
+            public void run() {
+                if (isChecked() && sortColumn < 0) {
+                    sortBy(ProcessTable.REDUCTIONS);
+                } else {
+                    applyOrder(false);
+                }
+            }
+        };
+        topAction.setToolTipText("Show only the first " + ProcessListView.TOP_COUNT
+                + " processes in the current order");
+
         doubleClickAction = new Action() {
 
             @Override
@@ -284,8 +397,7 @@ public class ProcessListView extends ViewPart {
                     return;
                 }
 
-                final OtpErlangPid pid = (OtpErlangPid) ((OtpErlangTuple) obj)
-                        .elementAt(0);
+                final OtpErlangPid pid = (OtpErlangPid) obj;
 
                 final OtpErlangObject r = ErlangEngine.getInstance().getProclistService()
                         .getProcessInfo(getBackend().getOtpRpc(), pid);
@@ -314,6 +426,12 @@ public class ProcessListView extends ViewPart {
                 message);
     }
 
+    @Override
+    public void dispose() {
+        refreshJob.cancel();
+        super.dispose();
+    }
+
     /**
      * Passing the focus request to the viewer's control.
      */
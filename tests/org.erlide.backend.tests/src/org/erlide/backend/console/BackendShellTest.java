@@ -0,0 +1,61 @@
+package org.erlide.backend.console;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+
+import org.erlide.runtime.shell.BackendShellEvent;
+import org.erlide.runtime.shell.IoRequest;
+import org.erlide.runtime.shell.IoRequest.IoRequestKind;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class BackendShellTest {
+
+    private BackendShell shell;
+    private List<BackendShellEvent> events;
+
+    @Before
+    public void setUp() {
+        shell = new BackendShell(null, "test", null);
+        events = Lists.newArrayList();
+        shell.addListener(events::add);
+    }
+
+    @Test
+    public void findAtPos() {
+        shell.add("abc", IoRequestKind.OUTPUT);
+        shell.add("de", IoRequestKind.OUTPUT);
+        assertThat(shell.getTextLength()).isEqualTo(5);
+        assertThat(shell.findAtPos(0).getMessage()).isEqualTo("abc");
+        assertThat(shell.findAtPos(2).getMessage()).isEqualTo("abc");
+        assertThat(shell.findAtPos(3).getMessage()).isEqualTo("de");
+        assertThat(shell.findAtPos(5)).isNull();
+        assertThat(events).hasSize(2);
+        assertThat(events.get(1).getOffset()).isEqualTo(3);
+    }
+
+    @Test
+    public void oldRequestsAreDropped() {
+        for (int i = 0; i < 5001; i++) {
+            shell.add(String.format("%04d\n", i % 10000), IoRequestKind.OUTPUT);
+        }
+        // 500 requests of 5 chars were dropped when the buffer was full
+        assertThat(shell.getTextLength()).isEqualTo(4501 * 5);
+        assertThat(shell.getText()).startsWith("0500\n");
+        final IoRequest first = shell.findAtPos(0);
+        assertThat(first.getMessage()).isEqualTo("0500\n");
+        assertThat(shell.getOffset(first)).isEqualTo(0);
+        assertThat(shell.findAtPos(4500 * 5).getMessage()).isEqualTo("5000\n");
+        assertThat(shell.getAllFrom(first.getSender())).hasSize(4501);
+
+        final BackendShellEvent removed = events.get(events.size() - 2);
+        assertThat(removed.getOffset()).isEqualTo(0);
+        assertThat(removed.getRemovedLength()).isEqualTo(500 * 5);
+        final BackendShellEvent added = events.get(events.size() - 1);
+        assertThat(added.getOffset()).isEqualTo(4500 * 5);
+    }
+
+}
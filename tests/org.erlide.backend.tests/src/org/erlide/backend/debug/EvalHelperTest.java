@@ -0,0 +1,46 @@
+package org.erlide.backend.debug;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Collections;
+
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class EvalHelperTest {
+
+    @Test
+    public void batchWrapsEachExpression() {
+        assertThat(EvalHelper.batch(Lists.newArrayList("1 + 2", "X = a, X")))
+                .isEqualTo("[(fun() -> try begin 1 + 2\n"
+                        + " end of Erlide__V -> {ok, Erlide__V} catch Erlide__C:Erlide__R"
+                        + " -> {error, {Erlide__C, Erlide__R}} end end)(),\n"
+                        + "(fun() -> try begin X = a, X\n"
+                        + " end of Erlide__V -> {ok, Erlide__V} catch Erlide__C:Erlide__R"
+                        + " -> {error, {Erlide__C, Erlide__R}} end end)()].");
+    }
+
+    @Test
+    public void wrapperDoesNotUseTheVariablesOfTheExpression() {
+        // the result of the expression would be matched against its own V
+        final String expr = "V = 1, C = 2, R = 3, V + C + R";
+        final String batch = EvalHelper.batch(Lists.newArrayList(expr));
+        assertThat(batch).contains(expr);
+        final String wrapper = batch.replace(expr, "");
+        assertThat(wrapper).doesNotContainMatch("\\b[VCR]\\b");
+    }
+
+    @Test
+    public void trailingCommentDoesNotHideTheRest() {
+        final String batch = EvalHelper.batch(Lists.newArrayList("self() % me"));
+        assertThat(batch).startsWith("[(fun() -> try begin self() % me\n end of ");
+        assertThat(batch).endsWith("end end)()].");
+    }
+
+    @Test
+    public void noExpressionsNeedNoCall() {
+        assertThat(EvalHelper.evalAll(null, Collections.emptyList())).isEmpty();
+    }
+
+}
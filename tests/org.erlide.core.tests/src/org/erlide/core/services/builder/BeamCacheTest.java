@@ -0,0 +1,98 @@
+package org.erlide.core.services.builder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.erlide.core.builder.BeamCache;
+import org.erlide.core.builder.BeamCache.DirectoryStore;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangString;
+
+public class BeamCacheTest {
+
+    private File dir;
+    private File source;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("beam_cache").toFile();
+        source = new File(dir, "m.erl");
+        Files.write(source.toPath(), "-module(m).".getBytes(StandardCharsets.UTF_8));
+    }
+
+    @After
+    public void tearDown() {
+        BeamCacheTest.delete(dir);
+    }
+
+    private static void delete(final File file) {
+        final File[] children = file.listFiles();
+        if (children != null) {
+            for (final File child : children) {
+                BeamCacheTest.delete(child);
+            }
+        }
+        file.delete();
+    }
+
+    private BeamCache cache(final String local, final String remote) {
+        return new BeamCache(new DirectoryStore(new File(dir, local)),
+                remote == null ? null : new DirectoryStore(new File(dir, remote)));
+    }
+
+    private static BeamCache.Entry entry(final String beam) {
+        return new BeamCache.Entry(beam.getBytes(StandardCharsets.UTF_8),
+                new OtpErlangList(new OtpErlangString("warning")), 500);
+    }
+
+    @Test
+    public void keyDependsOnContentOptionsAndRuntime() throws Exception {
+        final String key = BeamCache.key(null, source, "[]", "OTP 21");
+        assertThat(BeamCache.key(null, source, "[]", "OTP 21")).isEqualTo(key);
+        assertThat(BeamCache.key(null, source, "[debug_info]", "OTP 21"))
+                .isNotEqualTo(key);
+        assertThat(BeamCache.key(null, source, "[]", "OTP 22")).isNotEqualTo(key);
+        Files.write(source.toPath(), "-module(m). ".getBytes(StandardCharsets.UTF_8));
+        assertThat(BeamCache.key(null, source, "[]", "OTP 21")).isNotEqualTo(key);
+    }
+
+    @Test
+    public void missThenHit() {
+        final BeamCache cache = cache("local", null);
+        assertThat(cache.get("abcd")).isNull();
+        cache.put("abcd", BeamCacheTest.entry("beam"));
+        final BeamCache.Entry hit = cache.get("abcd");
+        assertThat(new String(hit.getBeam(), StandardCharsets.UTF_8)).isEqualTo("beam");
+        assertThat(hit.getMessages())
+                .isEqualTo(new OtpErlangList(new OtpErlangString("warning")));
+        final BeamCache.Stats stats = cache.takeStats();
+        assertThat(stats.getHits()).isEqualTo(1);
+        assertThat(stats.getMisses()).isEqualTo(1);
+        assertThat(stats.getSavedMillis()).isAtMost(500L);
+        assertThat(cache.takeStats().getHits()).isEqualTo(0);
+    }
+
+    @Test
+    public void remoteEntriesAreSharedAndCopiedLocally() {
+        cache("one", "shared").put("abcd", BeamCacheTest.entry("beam"));
+        final BeamCache other = cache("two", "shared");
+        assertThat(other.get("abcd")).isNotNull();
+        assertThat(cache("two", null).get("abcd")).isNotNull();
+    }
+
+    @Test
+    public void corruptEntriesAreMisses() throws Exception {
+        final File entry = new File(new File(new File(dir, "local"), "ab"), "abcd.entry");
+        entry.getParentFile().mkdirs();
+        Files.write(entry.toPath(), new byte[] { 1, 2, 3 });
+        assertThat(cache("local", null).get("abcd")).isNull();
+    }
+
+}
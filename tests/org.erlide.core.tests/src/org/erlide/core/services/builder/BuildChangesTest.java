@@ -0,0 +1,66 @@
+package org.erlide.core.services.builder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+
+import org.eclipse.core.resources.IMarker;
+import org.erlide.core.builder.BuildChanges;
+import org.erlide.engine.MarkerUtils.ProblemMarkerData;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class BuildChangesTest {
+
+    private static ProblemMarkerData marker(final int line, final String message) {
+        return new ProblemMarkerData(null, null, message, line, IMarker.SEVERITY_WARNING,
+                null);
+    }
+
+    private static List<ProblemMarkerData> diff(final List<ProblemMarkerData> existing,
+            final List<ProblemMarkerData> wanted,
+            final List<ProblemMarkerData> obsolete) {
+        return BuildChanges.diff(existing, wanted, ProblemMarkerData::getKey, obsolete);
+    }
+
+    @Test
+    public void unchangedMarkersAreKept() {
+        final List<ProblemMarkerData> existing = Lists.newArrayList(
+                BuildChangesTest.marker(3, "unused variable 'X'"),
+                BuildChangesTest.marker(7, "function f/0 is unused"));
+        final List<ProblemMarkerData> obsolete = Lists.newArrayList();
+        final List<ProblemMarkerData> created = BuildChangesTest.diff(existing,
+                Lists.newArrayList(BuildChangesTest.marker(7, "function f/0 is unused"),
+                        BuildChangesTest.marker(3, "unused variable 'X'")),
+                obsolete);
+        assertThat(created).isEmpty();
+        assertThat(obsolete).isEmpty();
+    }
+
+    @Test
+    public void changedMarkersAreReplaced() {
+        final ProblemMarkerData old = BuildChangesTest.marker(3, "unused variable 'X'");
+        final ProblemMarkerData kept = BuildChangesTest.marker(7,
+                "function f/0 is unused");
+        final ProblemMarkerData added = BuildChangesTest.marker(4, "unused variable 'X'");
+        final List<ProblemMarkerData> obsolete = Lists.newArrayList();
+        final List<ProblemMarkerData> created = BuildChangesTest.diff(
+                Lists.newArrayList(old, kept), Lists.newArrayList(kept, added), obsolete);
+        assertThat(created).containsExactly(added);
+        assertThat(obsolete).containsExactly(old);
+    }
+
+    @Test
+    public void duplicatesAreCounted() {
+        final List<ProblemMarkerData> obsolete = Lists.newArrayList();
+        final List<ProblemMarkerData> created = BuildChangesTest.diff(
+                Lists.newArrayList(BuildChangesTest.marker(1, "m")),
+                Lists.newArrayList(BuildChangesTest.marker(1, "m"),
+                        BuildChangesTest.marker(1, "m")),
+                obsolete);
+        assertThat(created).hasSize(1);
+        assertThat(obsolete).isEmpty();
+    }
+
+}
@@ -0,0 +1,120 @@
+package org.erlide.core.services.builder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.erlide.core.builder.BuildNotifier;
+import org.erlide.core.builder.BuildReport;
+import org.erlide.core.builder.BuildScheduler;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+public class BuildSchedulerTest {
+
+    private static final Map<String, List<String>> REFS = ImmutableMap.of("app",
+            Lists.newArrayList("lib1", "lib2"), "lib1", Lists.newArrayList("base"),
+            "lib2", Collections.<String> emptyList(), "base",
+            Collections.<String> emptyList());
+
+    private static Collection<String> refs(final String node) {
+        final List<String> result = BuildSchedulerTest.REFS.get(node);
+        return result == null ? Collections.<String> emptyList() : result;
+    }
+
+    @Test
+    public void referencedProjectsAreBuiltFirst() {
+        final List<String> order = Collections.synchronizedList(Lists.newArrayList());
+        final BuildReport<String> report = new BuildScheduler<String>(4).run(
+                Lists.newArrayList("app", "lib1", "lib2", "base"),
+                BuildSchedulerTest::refs, (node, n) -> order.add(node),
+                new BuildNotifier(null, null));
+        assertThat(report.getTimes().keySet()).containsExactly("app", "lib1", "lib2",
+                "base");
+        assertThat(order.indexOf("base")).isLessThan(order.indexOf("lib1"));
+        assertThat(order.indexOf("lib1")).isLessThan(order.indexOf("app"));
+        assertThat(order.indexOf("lib2")).isLessThan(order.indexOf("app"));
+        assertThat(report.isCanceled()).isFalse();
+    }
+
+    @Test
+    public void independentProjectsRunConcurrently() {
+        // each build waits until all four have started, which they only can if
+        // they run at the same time
+        final CountDownLatch started = new CountDownLatch(4);
+        final AtomicInteger overlapping = new AtomicInteger();
+        final BuildReport<String> report = new BuildScheduler<String>(4).run(
+                Lists.newArrayList("a", "b", "c", "d"), BuildSchedulerTest::refs,
+                (node, n) -> {
+                    started.countDown();
+                    if (BuildSchedulerTest.await(started)) {
+                        overlapping.incrementAndGet();
+                    }
+                }, new BuildNotifier(null, null));
+        assertThat(overlapping.get()).isEqualTo(4);
+        assertThat(report.getTimes()).hasSize(4);
+    }
+
+    @Test
+    public void criticalPathFollowsTheLongestChain() {
+        final Map<String, Integer> times = ImmutableMap.of("app", 50, "lib1", 50,
+                "lib2", 300, "base", 50);
+        final BuildReport<String> report = new BuildScheduler<String>(4).run(
+                Lists.newArrayList("app", "lib1", "lib2", "base"),
+                BuildSchedulerTest::refs,
+                (node, n) -> BuildSchedulerTest.sleep(times.get(node)),
+                new BuildNotifier(null, null));
+        assertThat(report.getCriticalPath()).containsExactly("lib2", "app").inOrder();
+        assertThat(report.getCriticalPathTime()).isAtLeast(350L);
+    }
+
+    @Test
+    public void cyclesDoNotBlockTheBuild() {
+        final Map<String, List<String>> refs = ImmutableMap.of("a",
+                Lists.newArrayList("b"), "b", Lists.newArrayList("a"));
+        final BuildReport<String> report = new BuildScheduler<String>(2).run(
+                Lists.newArrayList("a", "b"), refs::get, (node, n) -> {
+                }, new BuildNotifier(null, null));
+        assertThat(report.getTimes()).hasSize(2);
+    }
+
+    @Test
+    public void cancelingSkipsProjectsNotStarted() {
+        final NullProgressMonitor monitor = new NullProgressMonitor();
+        final BuildReport<String> report = new BuildScheduler<String>(1).run(
+                Lists.newArrayList("a", "b", "c"), BuildSchedulerTest::refs,
+                (node, n) -> {
+                    monitor.setCanceled(true);
+                    n.checkCancel();
+                }, new BuildNotifier(monitor, null));
+        assertThat(report.isCanceled()).isTrue();
+        assertThat(report.getTimes()).hasSize(1);
+    }
+
+    private static boolean await(final CountDownLatch latch) {
+        try {
+            return latch.await(10, TimeUnit.SECONDS);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        }
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
@@ -0,0 +1,94 @@
+package org.erlide.core.services.builder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import org.erlide.core.builder.BuildState;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+public class BuildStateTest {
+
+    private File dir;
+    private File source;
+    private File beam;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("build_state").toFile();
+        source = write("m.erl", "-module(m).");
+        beam = write("m.beam", "beam");
+    }
+
+    @After
+    public void tearDown() {
+        for (final File f : dir.listFiles()) {
+            f.delete();
+        }
+        dir.delete();
+    }
+
+    private File write(final String name, final String content) throws Exception {
+        final File f = new File(dir, name);
+        Files.write(f.toPath(), content.getBytes(StandardCharsets.UTF_8));
+        return f;
+    }
+
+    private String inputs(final String options) {
+        return BuildState.inputs(null, source, options, "ebin");
+    }
+
+    @Test
+    public void unchangedInputsAreUpToDate() {
+        final BuildState state = new BuildState(new File(dir, "state"));
+        assertThat(state.isUpToDate("src/m.erl", inputs("[]"), beam)).isFalse();
+        state.put("src/m.erl", inputs("[]"), beam);
+        assertThat(state.isUpToDate("src/m.erl", inputs("[]"), beam)).isTrue();
+    }
+
+    @Test
+    public void touchingTheSourceDoesNotChangeTheInputs() throws Exception {
+        final String before = inputs("[]");
+        source.setLastModified(source.lastModified() + 10000);
+        assertThat(inputs("[]")).isEqualTo(before);
+    }
+
+    @Test
+    public void changedSourceOrOptionsAreNotUpToDate() throws Exception {
+        final BuildState state = new BuildState(new File(dir, "state"));
+        state.put("src/m.erl", inputs("[]"), beam);
+        assertThat(state.isUpToDate("src/m.erl", inputs("[debug_info]"), beam))
+                .isFalse();
+        write("m.erl", "-module(m). ");
+        assertThat(state.isUpToDate("src/m.erl", inputs("[]"), beam)).isFalse();
+    }
+
+    @Test
+    public void changedBeamIsNotUpToDate() throws Exception {
+        final BuildState state = new BuildState(new File(dir, "state"));
+        state.put("src/m.erl", inputs("[]"), beam);
+        write("m.beam", "other beam");
+        assertThat(state.isUpToDate("src/m.erl", inputs("[]"), beam)).isFalse();
+        beam.delete();
+        assertThat(state.isUpToDate("src/m.erl", inputs("[]"), beam)).isFalse();
+    }
+
+    @Test
+    public void stateIsSavedAndLoaded() {
+        final File file = new File(dir, "state");
+        final BuildState state = new BuildState(file);
+        state.put("src/m.erl", inputs("[]"), beam);
+        state.save();
+        final BuildState loaded = new BuildState(file);
+        assertThat(loaded.isKnown("src/m.erl")).isTrue();
+        assertThat(loaded.isUpToDate("src/m.erl", inputs("[]"), beam)).isTrue();
+        loaded.clear();
+        loaded.save();
+        assertThat(new BuildState(file).isKnown("src/m.erl")).isFalse();
+    }
+
+}
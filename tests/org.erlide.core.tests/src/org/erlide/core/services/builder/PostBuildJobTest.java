@@ -0,0 +1,93 @@
+package org.erlide.core.services.builder;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+
+import org.eclipse.core.resources.IMarker;
+import org.erlide.core.builder.PostBuildJob;
+import org.erlide.engine.MarkerUtils.ProblemMarkerData;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class PostBuildJobTest {
+
+    private static ProblemMarkerData marker(final String message) {
+        return new ProblemMarkerData(null, null, message, 0, IMarker.SEVERITY_WARNING,
+                null);
+    }
+
+    private static List<ProblemMarkerData> diff(final List<ProblemMarkerData> existing,
+            final List<ProblemMarkerData> wanted,
+            final List<ProblemMarkerData> obsolete) {
+        return PostBuildJob.diffClashMarkers(existing, ProblemMarkerData::getMessage,
+                ProblemMarkerData::getKey, wanted, obsolete);
+    }
+
+    @Test
+    public void firstRunIsStale() {
+        assertThat(PostBuildJob.isStale(Sets.newHashSet("a", "b"), null, false))
+                .isTrue();
+    }
+
+    @Test
+    public void sameModulesAreNotStale() {
+        assertThat(PostBuildJob.isStale(Sets.newHashSet("a", "b"),
+                Sets.newHashSet("b", "a"), false)).isFalse();
+    }
+
+    @Test
+    public void addedRemovedOrRenamedModulesAreStale() {
+        assertThat(PostBuildJob.isStale(Sets.newHashSet("a", "b", "c"),
+                Sets.newHashSet("a", "b"), false)).isTrue();
+        assertThat(PostBuildJob.isStale(Sets.newHashSet("a"), Sets.newHashSet("a", "b"),
+                false)).isTrue();
+        assertThat(PostBuildJob.isStale(Sets.newHashSet("a", "c"),
+                Sets.newHashSet("a", "b"), false)).isTrue();
+    }
+
+    @Test
+    public void forcedRunIsStale() {
+        assertThat(PostBuildJob.isStale(Sets.newHashSet("a"), Sets.newHashSet("a"),
+                true)).isTrue();
+    }
+
+    @Test
+    public void unchangedClashesAreKept() {
+        final List<ProblemMarkerData> obsolete = Lists.newArrayList();
+        final List<ProblemMarkerData> created = PostBuildJobTest.diff(
+                Lists.newArrayList(PostBuildJobTest.marker("code clash between a and b")),
+                Lists.newArrayList(PostBuildJobTest.marker("code clash between a and b")),
+                obsolete);
+        assertThat(created).isEmpty();
+        assertThat(obsolete).isEmpty();
+    }
+
+    @Test
+    public void changedClashesAreReplaced() {
+        final ProblemMarkerData old = PostBuildJobTest
+                .marker("duplicated module name in a/x.erl and b/x.erl");
+        final ProblemMarkerData added = PostBuildJobTest
+                .marker("code clash between a/y.erl and b/y.erl");
+        final List<ProblemMarkerData> obsolete = Lists.newArrayList();
+        final List<ProblemMarkerData> created = PostBuildJobTest
+                .diff(Lists.newArrayList(old), Lists.newArrayList(added), obsolete);
+        assertThat(created).containsExactly(added);
+        assertThat(obsolete).containsExactly(old);
+    }
+
+    @Test
+    public void otherMarkersAreLeftAlone() {
+        final List<ProblemMarkerData> obsolete = Lists.newArrayList();
+        final List<ProblemMarkerData> created = PostBuildJobTest.diff(
+                Lists.newArrayList(PostBuildJobTest.marker("Could not compile file"),
+                        PostBuildJobTest.marker("code clash between a and b")),
+                Lists.<ProblemMarkerData> newArrayList(), obsolete);
+        assertThat(created).isEmpty();
+        assertThat(obsolete).hasSize(1);
+        assertThat(obsolete.get(0).getMessage()).isEqualTo("code clash between a and b");
+    }
+
+}
@@ -2,18 +2,89 @@ package org.erlide.core.services.builder;
 
 import static com.google.common.truth.Truth.assertThat;
 
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Collections;
+
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.erlide.core.builder.BuildNotifier;
+import org.erlide.core.builder.executor.ProgressCallback;
 import org.erlide.core.builder.executor.ToolExecutor;
+import org.erlide.core.builder.executor.ToolExecutor.ToolResults;
 import org.erlide.util.SystemConfiguration;
+import org.junit.Assume;
 import org.junit.Test;
 
 public class ToolExecutorTest {
 
+    private static class CountingCallback implements ProgressCallback {
+        int out;
+        int err;
+
+        @Override
+        public void stdout(final String line) {
+            out++;
+        }
+
+        @Override
+        public void stderr(final String line) {
+            err++;
+        }
+    }
+
     @Test
     public void whichToolShouldBeFound() {
         final boolean onWindows = SystemConfiguration.getInstance().isOnWindows();
         final String cmd = onWindows ? "where" : "which";
         final String res = ToolExecutor.getToolLocation(cmd);
         assertThat(res).isNotNull();
+        assertThat(ToolExecutor.getToolLocation(cmd)).isEqualTo(res);
+    }
+
+    @Test
+    public void toolIsFoundInPathDirectories() throws Exception {
+        Assume.assumeFalse(SystemConfiguration.getInstance().isOnWindows());
+        final File dir = Files.createTempDirectory("tools").toFile();
+        final File tool = new File(dir, "mytool");
+        try {
+            assertThat(ToolExecutor.findInPath("mytool",
+                    Collections.singletonList(dir), false)).isNull();
+            Files.write(tool.toPath(), new byte[0]);
+            tool.setExecutable(true);
+            assertThat(ToolExecutor.findInPath("mytool",
+                    Collections.singletonList(dir), false)).isEqualTo(tool.getPath());
+        } finally {
+            tool.delete();
+            dir.delete();
+        }
+    }
+
+    @Test
+    public void bothStreamsAreDrained() {
+        Assume.assumeFalse(SystemConfiguration.getInstance().isOnWindows());
+        final CountingCallback callback = new CountingCallback();
+        // much more than a pipe buffer on stderr before anything on stdout
+        final ToolResults result = new ToolExecutor().run("/bin/sh",
+                new String[] { "-c",
+                        "i=0; while [ $i -lt 20000 ]; do echo error line $i >&2; "
+                                + "i=$((i+1)); done; echo done" },
+                null, callback, null);
+        assertThat(result.exit).isEqualTo(0);
+        assertThat(callback.err).isEqualTo(20000);
+        assertThat(callback.out).isEqualTo(1);
+    }
+
+    @Test
+    public void canceledBuildStopsTheTool() {
+        Assume.assumeFalse(SystemConfiguration.getInstance().isOnWindows());
+        final NullProgressMonitor monitor = new NullProgressMonitor();
+        monitor.setCanceled(true);
+        final long start = System.currentTimeMillis();
+        final ToolResults result = new ToolExecutor().run("/bin/sh",
+                new String[] { "-c", "sleep 30" }, null, null,
+                new BuildNotifier(monitor, null));
+        assertThat(result.canceled).isTrue();
+        assertThat(System.currentTimeMillis() - start).isLessThan(10000L);
     }
 
 }
@@ -0,0 +1,123 @@
+package org.erlide.engine.internal.model.root;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.erlide.engine.internal.model.erlang.ErlExport;
+import org.erlide.engine.internal.model.erlang.ErlFunction;
+import org.erlide.engine.internal.model.erlang.SourceRefElement;
+import org.erlide.engine.model.IErlElement;
+import org.erlide.engine.model.root.IErlElementDelta;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.google.common.collect.Lists;
+
+public class MemberDiffTest {
+
+    private MemberDiff diff;
+    private String text;
+
+    @Before
+    public void setUp() {
+        diff = new MemberDiff();
+    }
+
+    /**
+     * Build the members of a module with one form per line.
+     */
+    private List<IErlElement> parse(final String... forms) {
+        final List<IErlElement> result = Lists.newArrayList();
+        final StringBuilder b = new StringBuilder();
+        for (final String form : forms) {
+            final SourceRefElement element;
+            if (form.startsWith("-export")) {
+                element = new ErlExport(null, new OtpErlangList(), form);
+            } else {
+                element = new ErlFunction(null, form.substring(0, form.indexOf('(')), 0,
+                        "", false, new OtpErlangList());
+            }
+            element.setSourceRangeOffset(b.length());
+            element.setSourceRangeLength(form.length());
+            result.add(element);
+            b.append(form).append('\n');
+        }
+        text = b.toString();
+        return result;
+    }
+
+    private IErlElementDelta update(final List<IErlElement> members) {
+        return diff.update(null, members, Collections.<IErlElement> emptyList(), text);
+    }
+
+    @Test
+    public void firstParseHasNoDelta() {
+        assertThat(update(parse("f() -> ok."))).isNull();
+    }
+
+    @Test
+    public void unchangedMembersGiveEmptyDelta() {
+        update(parse("f() -> ok.", "g() -> ok."));
+        final IErlElementDelta delta = update(parse("f() -> ok.", "g() -> ok."));
+        assertThat(delta.getChildren(IErlElementDelta.ALL)).isEmpty();
+        assertThat(delta.getFlags() & IErlElementDelta.F_FINE_GRAINED).isNotEqualTo(0);
+    }
+
+    @Test
+    public void editedMemberChangesAndFollowingOnesMove() {
+        final List<IErlElement> before = parse("f() -> ok.", "g() -> ok.", "h() -> ok.");
+        update(before);
+        final List<IErlElement> after = parse("f() -> ok.", "g() -> error.",
+                "h() -> ok.");
+        final IErlElementDelta[] changed = update(after)
+                .getChildren(IErlElementDelta.CHANGED);
+        assertThat(changed).hasLength(2);
+        assertThat(changed[0].getElement()).isSameAs(after.get(1));
+        assertThat(changed[0].getFlags()).isEqualTo(IErlElementDelta.F_CONTENT);
+        assertThat(changed[0].getMovedFromElement()).isSameAs(before.get(1));
+        assertThat(changed[1].getElement()).isSameAs(after.get(2));
+        assertThat(changed[1].getFlags()).isEqualTo(IErlElementDelta.F_POSITION);
+        assertThat(changed[1].getMovedFromElement()).isSameAs(before.get(2));
+    }
+
+    @Test
+    public void addedAndRemovedMembers() {
+        final List<IErlElement> before = parse("f() -> ok.", "g() -> ok.");
+        update(before);
+        final List<IErlElement> after = parse("f() -> ok.", "h() -> ok.");
+        final IErlElementDelta delta = update(after);
+        assertThat(delta.getChildren(IErlElementDelta.ADDED)[0].getElement())
+                .isSameAs(after.get(1));
+        assertThat(delta.getChildren(IErlElementDelta.REMOVED)[0].getElement())
+                .isSameAs(before.get(1));
+        assertThat(delta.getChildren(IErlElementDelta.CHANGED)).isEmpty();
+        assertThat(delta.getFlags() & IErlElementDelta.F_REORDER).isEqualTo(0);
+    }
+
+    @Test
+    public void reorderedMembersAreFlagged() {
+        update(parse("f() -> ok.", "g() -> ok."));
+        final IErlElementDelta delta = update(parse("g() -> ok.", "f() -> ok."));
+        assertThat(delta.getFlags() & IErlElementDelta.F_REORDER).isNotEqualTo(0);
+    }
+
+    @Test
+    public void changedExportIsNotFineGrained() {
+        update(parse("-export([f/0]).", "f() -> ok."));
+        final IErlElementDelta delta = update(
+                parse("-export([f/0, g/0]).", "f() -> ok.", "g() -> ok."));
+        assertThat(delta.getFlags() & IErlElementDelta.F_FINE_GRAINED).isEqualTo(0);
+    }
+
+    @Test
+    public void membersOutsideTheTextGiveNoDelta() {
+        update(parse("f() -> ok."));
+        final List<IErlElement> members = parse("f() -> ok.");
+        text = "";
+        assertThat(update(members)).isNull();
+    }
+
+}
@@ -0,0 +1,101 @@
+package org.erlide.engine.internal.model.root;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+
+import org.erlide.engine.internal.model.erlang.ErlFunction;
+import org.erlide.engine.model.IErlElement;
+import org.erlide.engine.model.erlang.ISourceReference;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.google.common.collect.Lists;
+
+public class MemberIndexTest {
+
+    private static final int FUNCTIONS = 5000;
+    private static final int SIZE = 100;
+    private static final int LINES = 5;
+
+    private List<IErlElement> children;
+    private MemberIndex index;
+
+    @Before
+    public void setUp() {
+        children = Lists.newArrayList();
+        for (int i = 0; i < MemberIndexTest.FUNCTIONS; i++) {
+            // a gap of 10 characters and one line between functions
+            children.add(function("f" + i, i * MemberIndexTest.SIZE,
+                    MemberIndexTest.SIZE - 10, i * MemberIndexTest.LINES,
+                    i * MemberIndexTest.LINES + MemberIndexTest.LINES - 2));
+        }
+        index = new MemberIndex(children);
+    }
+
+    private static ErlFunction function(final String name, final int offset,
+            final int length, final int lineStart, final int lineEnd) {
+        final ErlFunction f = new ErlFunction(null, name, 0, "", false,
+                new OtpErlangList());
+        f.setSourceRangeOffset(offset);
+        f.setSourceRangeLength(length);
+        f.setLineStart(lineStart);
+        f.setLineEnd(lineEnd);
+        return f;
+    }
+
+    @Test
+    public void findAtOffset() {
+        assertThat(index.findAtOffset(0)).isSameAs(children.get(0));
+        assertThat(index.findAtOffset(1234)).isSameAs(children.get(12));
+        assertThat(index.findAtOffset(1290)).isSameAs(children.get(12));
+        assertThat(index.findAtOffset(1295)).isNull();
+        assertThat(index.findAtOffset(-1)).isNull();
+        assertThat(index.findAtOffset(MemberIndexTest.FUNCTIONS * MemberIndexTest.SIZE))
+                .isNull();
+    }
+
+    @Test
+    public void findAtLine() {
+        assertThat(index.findAtLine(0)).isSameAs(children.get(0));
+        assertThat(index.findAtLine(63)).isSameAs(children.get(12));
+        assertThat(index.findAtLine(64)).isNull();
+    }
+
+    @Test
+    public void overlappingChildrenPreferFirst() {
+        final ErlFunction outer = function("outer", 0, 100, 0, 10);
+        final ErlFunction inner = function("inner", 20, 10, 2, 3);
+        final MemberIndex idx = new MemberIndex(Lists.newArrayList(inner, outer));
+        assertThat(idx.findAtOffset(25)).isSameAs(inner);
+        assertThat(idx.findAtOffset(50)).isSameAs(outer);
+        assertThat(idx.findAtLine(2)).isSameAs(inner);
+        assertThat(idx.findAtLine(8)).isSameAs(outer);
+    }
+
+    @Test
+    public void emptyModule() {
+        final MemberIndex idx = new MemberIndex(Lists.newArrayList());
+        assertThat(idx.findAtOffset(0)).isNull();
+        assertThat(idx.findAtLine(0)).isNull();
+    }
+
+    @Test
+    public void sameResultsAsScan() {
+        final int end = MemberIndexTest.FUNCTIONS * MemberIndexTest.SIZE;
+        for (int pos = 0; pos < end; pos += 7) {
+            assertThat(index.findAtOffset(pos)).isSameAs(scan(pos));
+        }
+    }
+
+    private IErlElement scan(final int pos) {
+        for (final IErlElement e : children) {
+            if (((ISourceReference) e).getSourceRange().hasPosition(pos)) {
+                return e;
+            }
+        }
+        return null;
+    }
+
+}
@@ -0,0 +1,70 @@
+package org.erlide.engine.internal.services.codeassist;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Arrays;
+
+import org.eclipse.core.resources.IResourceDelta;
+import org.junit.Test;
+
+public class CompletionIndexTest {
+
+    private final String[] names = CompletionIndex.sorted(Arrays.asList("lists", "io",
+            "lists_sort", "io_lib", "gen_server", "io", "gen", "list"));
+
+    @Test
+    public void sortedRemovesDuplicates() {
+        assertThat(names).asList().containsExactly("gen", "gen_server", "io", "io_lib",
+                "list", "lists", "lists_sort").inOrder();
+    }
+
+    @Test
+    public void withPrefix() {
+        assertThat(CompletionIndex.withPrefix(names, "io")).containsExactly("io",
+                "io_lib").inOrder();
+        assertThat(CompletionIndex.withPrefix(names, "lists")).containsExactly("lists",
+                "lists_sort").inOrder();
+        assertThat(CompletionIndex.withPrefix(names, "gen_")).containsExactly(
+                "gen_server");
+    }
+
+    @Test
+    public void withPrefixNoMatch() {
+        assertThat(CompletionIndex.withPrefix(names, "zz")).isEmpty();
+        assertThat(CompletionIndex.withPrefix(names, "a")).isEmpty();
+    }
+
+    @Test
+    public void emptyPrefixReturnsAll() {
+        assertThat(CompletionIndex.withPrefix(names, "")).hasSize(names.length);
+    }
+
+    @Test
+    public void mergeKeepsOrderAndDropsDuplicates() {
+        assertThat(CompletionIndex.merge(Arrays.asList("a", "io", "my_io"),
+                Arrays.asList("io", "io_lib", "lists"))).containsExactly("a", "io",
+                        "io_lib", "lists", "my_io").inOrder();
+        assertThat(CompletionIndex.merge(Arrays.<String> asList(),
+                Arrays.asList("io"))).containsExactly("io");
+        assertThat(CompletionIndex.merge(Arrays.asList("io"),
+                Arrays.<String> asList())).containsExactly("io");
+    }
+
+    @Test
+    public void onlySourceFilesAndSettingsAffectModules() {
+        assertThat(CompletionIndex.affectsModules("a.erl", IResourceDelta.ADDED))
+                .isTrue();
+        assertThat(CompletionIndex.affectsModules("a.hrl", IResourceDelta.REMOVED))
+                .isTrue();
+        assertThat(CompletionIndex.affectsModules("org.erlide.model.prefs",
+                IResourceDelta.CHANGED)).isTrue();
+        assertThat(CompletionIndex.affectsModules("a.erl", IResourceDelta.CHANGED))
+                .isFalse();
+        // written by every build
+        assertThat(CompletionIndex.affectsModules("a.beam", IResourceDelta.ADDED))
+                .isFalse();
+        assertThat(CompletionIndex.affectsModules("a.app", IResourceDelta.REMOVED))
+                .isFalse();
+    }
+
+}
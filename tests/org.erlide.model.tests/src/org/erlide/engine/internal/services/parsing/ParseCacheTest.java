@@ -0,0 +1,101 @@
+package org.erlide.engine.internal.services.parsing;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+
+public class ParseCacheTest {
+
+    private File dir;
+    private ParseCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("parse_cache").toFile();
+        cache = new ParseCache(dir);
+    }
+
+    @After
+    public void tearDown() {
+        cache.clear();
+        dir.delete();
+    }
+
+    @Test
+    public void keyDependsOnContent() {
+        final String key = ParseCache.key("v1", "-module(a).");
+        assertThat(ParseCache.key("v1", "-module(a).")).isEqualTo(key);
+        assertThat(ParseCache.key("v1", "-module(b).")).isNotEqualTo(key);
+    }
+
+    @Test
+    public void keyDependsOnParserVersion() {
+        assertThat(ParseCache.key("v2", "-module(a)."))
+                .isNotEqualTo(ParseCache.key("v1", "-module(a)."));
+    }
+
+    @Test
+    public void missingEntryIsNull() {
+        assertThat(cache.get(ParseCache.key("v1", "x"))).isNull();
+    }
+
+    @Test
+    public void storedEntryIsReturned() {
+        final OtpErlangList forms = new OtpErlangList(new OtpErlangObject[] {
+                new OtpErlangTuple(new OtpErlangObject[] { new OtpErlangAtom("attribute"),
+                        new OtpErlangLong(1), new OtpErlangAtom("module"),
+                        new OtpErlangAtom("a") }) });
+        final OtpErlangList comments = new OtpErlangList();
+        final String key = ParseCache.key("v1", "-module(a).");
+        cache.put(key, forms, comments);
+
+        final OtpErlangTuple result = cache.get(key);
+        assertThat(result).isNotNull();
+        assertThat(result.elementAt(0)).isEqualTo(forms);
+        assertThat(result.elementAt(1)).isEqualTo(comments);
+    }
+
+    @Test
+    public void concurrentPutsOfSameKey() throws Exception {
+        final OtpErlangList forms = new OtpErlangList(new OtpErlangAtom("a"));
+        final OtpErlangList comments = new OtpErlangList();
+        final String key = ParseCache.key("v1", "-module(a).");
+        final Thread[] threads = new Thread[4];
+        for (int i = 0; i < threads.length; i++) {
+            threads[i] = new Thread(() -> {
+                for (int j = 0; j < 50; j++) {
+                    cache.put(key, forms, comments);
+                }
+            });
+            threads[i].start();
+        }
+        for (final Thread t : threads) {
+            t.join();
+        }
+
+        assertThat(cache.get(key).elementAt(0)).isEqualTo(forms);
+        assertThat(dir.list()).asList().containsExactly(key + ".epc");
+    }
+
+    @Test
+    public void corruptEntryIsDropped() throws Exception {
+        final String key = ParseCache.key("v1", "-module(a).");
+        final File file = new File(dir, key + ".epc");
+        Files.write(file.toPath(), new byte[] { 1, 2, 3, 4, 5, 6 });
+
+        assertThat(cache.get(key)).isNull();
+        assertThat(file.exists()).isFalse();
+    }
+
+}
@@ -0,0 +1,98 @@
+package org.erlide.engine.internal.services.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.util.Map;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.google.common.collect.Maps;
+
+public class DocCacheTest {
+
+    private static final String RUNTIME = "0123456789abcdef";
+
+    private File dir;
+    private DocCache cache;
+
+    @Before
+    public void setUp() throws Exception {
+        dir = Files.createTempDirectory("doc_cache").toFile();
+        cache = new DocCache(dir);
+    }
+
+    @After
+    public void tearDown() {
+        cache.clear();
+        new File(dir, DocCacheTest.RUNTIME).delete();
+        dir.delete();
+    }
+
+    private static OtpErlangObject doc(final String text) {
+        return new OtpErlangTuple(new OtpErlangObject[] { new OtpErlangAtom("ok"),
+                new OtpErlangString(text) });
+    }
+
+    @Test
+    public void missingEntryIsNull() {
+        assertThat(cache.get(DocCacheTest.RUNTIME, "lists", "map/2")).isNull();
+        assertThat(cache.get(null, "lists", "map/2")).isNull();
+    }
+
+    @Test
+    public void entriesSurviveANewCache() {
+        cache.put(DocCacheTest.RUNTIME, "lists", DocCache.entry("map", 2),
+                DocCacheTest.doc("map docs"));
+        final Map<String, OtpErlangObject> docs = Maps.newHashMap();
+        docs.put("foldl/3", DocCacheTest.doc("foldl docs"));
+        docs.put(DocCache.PROPOSALS, DocCacheTest.doc("proposals"));
+        cache.putAll(DocCacheTest.RUNTIME, "lists", docs);
+
+        final DocCache other = new DocCache(dir);
+        assertThat(other.get(DocCacheTest.RUNTIME, "lists", "map/2"))
+                .isEqualTo(DocCacheTest.doc("map docs"));
+        assertThat(other.get(DocCacheTest.RUNTIME, "lists", "foldl/3"))
+                .isEqualTo(DocCacheTest.doc("foldl docs"));
+        assertThat(other.get(DocCacheTest.RUNTIME, "lists", DocCache.PROPOSALS))
+                .isEqualTo(DocCacheTest.doc("proposals"));
+        assertThat(other.get("fedcba9876543210", "lists", "map/2")).isNull();
+    }
+
+    @Test
+    public void quotedModuleNames() {
+        cache.put(DocCacheTest.RUNTIME, "<auto_imported>", "length/1",
+                DocCacheTest.doc("length docs"));
+        assertThat(new DocCache(dir).get(DocCacheTest.RUNTIME, "<auto_imported>",
+                "length/1")).isEqualTo(DocCacheTest.doc("length docs"));
+    }
+
+    @Test
+    public void invalidateDropsModuleInMemoryAndOnDisk() {
+        cache.put(DocCacheTest.RUNTIME, "mymod", "f/0", DocCacheTest.doc("f"));
+        cache.put(DocCacheTest.RUNTIME, "other", "g/0", DocCacheTest.doc("g"));
+        cache.invalidate("mymod");
+        assertThat(cache.get(DocCacheTest.RUNTIME, "mymod", "f/0")).isNull();
+        assertThat(new DocCache(dir).get(DocCacheTest.RUNTIME, "mymod", "f/0"))
+                .isNull();
+        assertThat(cache.get(DocCacheTest.RUNTIME, "other", "g/0"))
+                .isEqualTo(DocCacheTest.doc("g"));
+    }
+
+    @Test
+    public void corruptFileIsIgnored() throws Exception {
+        final File runtimeDir = new File(dir, DocCacheTest.RUNTIME);
+        runtimeDir.mkdirs();
+        Files.write(new File(runtimeDir, "bad.edc").toPath(), new byte[] { 1, 2, 3 });
+        assertThat(cache.get(DocCacheTest.RUNTIME, "bad", "f/0")).isNull();
+        assertThat(new File(runtimeDir, "bad.edc").exists()).isFalse();
+    }
+
+}
@@ -9,6 +9,7 @@ import static org.junit.Assert.assertTrue;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import org.erlide.engine.ErlangEngine;
 import org.erlide.engine.internal.services.parsing.ErlParser;
@@ -16,6 +17,7 @@ import org.erlide.engine.model.ErlModelException;
 import org.erlide.engine.model.IErlElement;
 import org.erlide.engine.model.OtpRpcFactory;
 import org.erlide.engine.model.root.IErlModel;
+import org.erlide.engine.model.root.IErlModelChangeListener;
 import org.erlide.engine.model.root.IErlModule;
 import org.erlide.engine.services.parsing.InternalScanner;
 import org.erlide.engine.util.TestingSupport;
@@ -82,4 +84,28 @@ public class ParsingTest {
         assertEquals(expected.toString(), actual.toString());
     }
 
+    @Test
+    public void parseManyForms() throws ErlModelException {
+        final StringBuilder source = new StringBuilder("-module(testing).\n");
+        for (int i = 0; i < 1200; i++) {
+            source.append("f").append(i).append("() -> ").append(i).append(".\n");
+        }
+        final AtomicInteger notifications = new AtomicInteger();
+        final IErlModelChangeListener listener = element -> notifications
+                .incrementAndGet();
+        final IErlModel model = ErlangEngine.getInstance().getModel();
+        model.addModelChangeListener(listener);
+        try {
+            assertTrue(parse(source.toString()));
+        } finally {
+            model.removeModelChangeListener(listener);
+        }
+        // listeners hear about the module once it is built, not while parsing
+        assertEquals(0, notifications.get());
+        final List<IErlElement> children = module.getChildren();
+        assertEquals(1201, children.size());
+        assertEquals("f0", children.get(1).getName());
+        assertEquals("f1199", children.get(1200).getName());
+    }
+
 }
@@ -0,0 +1,99 @@
+package org.erlide.engine.services.proclist;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangPid;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+
+public class ProcessTableTest {
+
+    private ProcessTable table;
+
+    @Before
+    public void setUp() {
+        table = new ProcessTable();
+    }
+
+    private static OtpErlangPid pid(final int id) {
+        return new OtpErlangPid("test@localhost", id, 0, 0);
+    }
+
+    private static OtpErlangTuple row(final int id, final String name, final long reds,
+            final long msgs) {
+        return new OtpErlangTuple(new OtpErlangObject[] { ProcessTableTest.pid(id),
+                new OtpErlangString(name), new OtpErlangString("proc_lib:init_p/5"),
+                new OtpErlangLong(reds), new OtpErlangLong(msgs) });
+    }
+
+    private static OtpErlangList snapshot(final OtpErlangTuple... rows) {
+        return new OtpErlangList(rows);
+    }
+
+    @Test
+    public void firstSnapshotSpawnsEverything() {
+        final ProcessTable.Diff diff = table.update(ProcessTableTest.snapshot(
+                ProcessTableTest.row(1, "init", 10, 0),
+                ProcessTableTest.row(2, "code_server", 20, 1)));
+        assertThat(diff.getSpawned()).containsExactly(ProcessTableTest.pid(1),
+                ProcessTableTest.pid(2));
+        assertThat(diff.getExited()).isEmpty();
+        assertThat(table.size()).isEqualTo(2);
+        assertThat(table.getText(ProcessTableTest.pid(2), ProcessTable.NAME))
+                .isEqualTo("code_server");
+        assertThat(table.getText(ProcessTableTest.pid(2), ProcessTable.MESSAGES))
+                .isEqualTo("1");
+    }
+
+    @Test
+    public void unchangedSnapshotGivesEmptyDiff() {
+        table.update(ProcessTableTest.snapshot(ProcessTableTest.row(1, "init", 10, 0)));
+        final ProcessTable.Diff diff = table.update(
+                ProcessTableTest.snapshot(ProcessTableTest.row(1, "init", 10, 0)));
+        assertThat(diff.isEmpty()).isTrue();
+    }
+
+    @Test
+    public void diffReportsExitedAndChangedRows() {
+        table.update(ProcessTableTest.snapshot(ProcessTableTest.row(1, "init", 10, 0),
+                ProcessTableTest.row(2, "a", 20, 0), ProcessTableTest.row(3, "b", 30, 0)));
+        final ProcessTable.Diff diff = table.update(ProcessTableTest.snapshot(
+                ProcessTableTest.row(1, "init", 10, 0), ProcessTableTest.row(3, "b", 35, 0),
+                ProcessTableTest.row(4, "c", 1, 0)));
+        assertThat(diff.getExited()).containsExactly(ProcessTableTest.pid(2));
+        assertThat(diff.getSpawned()).containsExactly(ProcessTableTest.pid(4));
+        assertThat(diff.getChanged()).containsExactly(ProcessTableTest.pid(3));
+        assertThat(diff.isColumnChanged(ProcessTable.REDUCTIONS)).isTrue();
+        assertThat(diff.isColumnChanged(ProcessTable.NAME)).isFalse();
+        assertThat(table.size()).isEqualTo(3);
+        assertThat(table.contains(ProcessTableTest.pid(2))).isFalse();
+        assertThat(table.getText(ProcessTableTest.pid(3), ProcessTable.REDUCTIONS))
+                .isEqualTo("35");
+        assertThat(table.getText(ProcessTableTest.pid(4), ProcessTable.NAME))
+                .isEqualTo("c");
+    }
+
+    @Test
+    public void selectSortsFiltersAndLimits() {
+        table.update(ProcessTableTest.snapshot(ProcessTableTest.row(1, "init", 10, 0),
+                ProcessTableTest.row(2, "code_server", 50, 0),
+                ProcessTableTest.row(3, "user_drv", 30, 0),
+                ProcessTableTest.row(4, "user", 40, 0)));
+        assertThat(table.select(-1, false, "", 0)).asList().containsExactly(
+                ProcessTableTest.pid(1), ProcessTableTest.pid(2), ProcessTableTest.pid(3),
+                ProcessTableTest.pid(4)).inOrder();
+        assertThat(table.select(ProcessTable.REDUCTIONS, true, "", 2)).asList()
+                .containsExactly(ProcessTableTest.pid(2), ProcessTableTest.pid(4))
+                .inOrder();
+        assertThat(table.select(ProcessTable.NAME, false, "USER", 0)).asList()
+                .containsExactly(ProcessTableTest.pid(4), ProcessTableTest.pid(3))
+                .inOrder();
+    }
+
+}
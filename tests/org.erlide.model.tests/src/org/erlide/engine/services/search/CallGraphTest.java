@@ -0,0 +1,128 @@
+package org.erlide.engine.services.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+import java.util.Map;
+
+import org.erlide.engine.model.erlang.FunctionRef;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+public class CallGraphTest {
+
+    private CallGraph graph;
+
+    @Before
+    public void setUp() {
+        graph = new CallGraph();
+    }
+
+    private static FunctionRef ref(final String s) {
+        final int colon = s.indexOf(':');
+        final int slash = s.indexOf('/');
+        return new FunctionRef(s.substring(0, colon), s.substring(colon + 1, slash),
+                Integer.parseInt(s.substring(slash + 1)));
+    }
+
+    private static Map<FunctionRef, List<FunctionRef>> calls(final String caller,
+            final String... callees) {
+        final List<FunctionRef> refs = Lists.newArrayList();
+        for (final String callee : callees) {
+            refs.add(CallGraphTest.ref(callee));
+        }
+        return ImmutableMap.of(CallGraphTest.ref(caller), refs);
+    }
+
+    private static List<String> names(final Iterable<FunctionRef> refs) {
+        final List<String> result = Lists.newArrayList();
+        for (final FunctionRef ref : refs) {
+            result.add(ref.toString());
+        }
+        return result;
+    }
+
+    @Test
+    public void callersAndCallees() {
+        graph.setModuleCalls("a", calls("a:f/0", "b:g/1", "b:g/1", "c:h/2"));
+        graph.setModuleCalls("b", calls("b:g/1", "c:h/2"));
+        assertThat(names(graph.getCallees(ref("a:f/0")))).containsExactly("b:g/1",
+                "c:h/2");
+        assertThat(names(graph.getCallers(ref("c:h/2")))).containsExactly("a:f/0",
+                "b:g/1");
+        assertThat(graph.getCallers(ref("x:y/0"))).isEmpty();
+    }
+
+    @Test
+    public void updateReplacesModuleEdges() {
+        graph.setModuleCalls("a", calls("a:f/0", "b:g/1"));
+        graph.setModuleCalls("a", calls("a:f/0", "c:h/2"));
+        assertThat(graph.getCallers(ref("b:g/1"))).isEmpty();
+        assertThat(names(graph.getCallers(ref("c:h/2")))).containsExactly("a:f/0");
+        graph.removeModule("a");
+        assertThat(graph.getCallers(ref("c:h/2"))).isEmpty();
+        assertThat(graph.hasModule("a")).isFalse();
+    }
+
+    @Test
+    public void sameModuleInTwoUnits() {
+        graph.setModuleCalls("p1/a", calls("a:f/0", "b:g/1", "c:h/2"));
+        graph.setModuleCalls("p2/a", calls("a:f/0", "b:g/1"));
+        graph.removeModule("p1/a");
+        assertThat(names(graph.getCallees(ref("a:f/0")))).containsExactly("b:g/1");
+        assertThat(graph.hasModule("p2/a")).isTrue();
+        graph.removeModule("p2/a");
+        assertThat(graph.getCallers(ref("b:g/1"))).isEmpty();
+    }
+
+    @Test
+    public void transitiveCallersHandleCycles() {
+        graph.setModuleCalls("a", calls("a:f/0", "b:g/1"));
+        graph.setModuleCalls("b", calls("b:g/1", "c:h/2"));
+        graph.setModuleCalls("c", calls("c:h/2", "a:f/0"));
+        assertThat(names(graph.getTransitiveCallers(ref("c:h/2"))))
+                .containsExactly("b:g/1", "a:f/0");
+    }
+
+    @Test
+    public void manyFunctions() {
+        for (int i = 0; i < 1000; i++) {
+            graph.setModuleCalls("m" + i, calls("m" + i + ":f/0", "lib:g/0"));
+        }
+        assertThat(graph.getCallers(ref("lib:g/0"))).hasSize(1000);
+    }
+
+    @Test
+    public void listenersGetChangedFunctions() {
+        final List<String> changed = Lists.newArrayList();
+        graph.addListener(refs -> changed.addAll(names(refs)));
+        graph.setModuleCalls("a", calls("a:f/0", "b:g/1"));
+        assertThat(changed).containsExactly("a:f/0", "b:g/1");
+        changed.clear();
+        graph.setModuleCalls("a", calls("a:f/0", "b:g/1"));
+        assertThat(changed).isEmpty();
+        graph.setModuleCalls("a", calls("a:f/0", "c:h/2"));
+        assertThat(changed).containsExactly("a:f/0", "b:g/1", "c:h/2");
+        changed.clear();
+        graph.removeModule("a");
+        assertThat(changed).containsExactly("a:f/0", "c:h/2");
+    }
+
+    @Test
+    public void dot() throws Exception {
+        graph.setModuleCalls("a", calls("a:f/0", "b:g/1"));
+        graph.setModuleCalls("x", calls("x:y/0", "x:z/0"));
+        final StringBuilder all = new StringBuilder();
+        graph.writeDot(all, null);
+        assertThat(all.toString()).contains("\"a:f/0\" -> \"b:g/1\";");
+        assertThat(all.toString()).contains("\"x:y/0\" -> \"x:z/0\";");
+        final StringBuilder sub = new StringBuilder();
+        graph.writeDot(sub, ref("b:g/1"));
+        assertThat(sub.toString())
+                .isEqualTo("digraph calls {\n  \"a:f/0\" -> \"b:g/1\";\n}\n");
+    }
+
+}
@@ -0,0 +1,140 @@
+package org.erlide.engine.services.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.erlide.engine.model.erlang.FunctionRef;
+import org.erlide.engine.services.parsing.ErlToken;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.ImmutableSet;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class CallScannerTest {
+
+    private static final Map<String, String> RESOLVE = ImmutableMap.of("f/1", "m",
+            "g/1", "m", "h/0", "m", "seq/2", "lists");
+
+    // stands in for the backend scanner
+    private static final Pattern TOKEN = Pattern.compile("(%[^\\n]*)|(\\s+)"
+            + "|(\"(?:\\\\.|[^\"\\\\])*\")|('(?:\\\\.|[^'\\\\])*'|[a-z][\\w@]*)"
+            + "|([A-Z_]\\w*)|(\\$\\\\?.)|(\\?\\??\\w+)|(\\d+)|(->)|(<<|>>|=>|\\S)");
+    private static final int[] KINDS = { ErlToken.KIND_COMMENT,
+            ErlToken.KIND_WHITESPACE, ErlToken.KIND_STRING, ErlToken.KIND_ATOM,
+            ErlToken.KIND_VAR, ErlToken.KIND_CHAR, ErlToken.KIND_MACRO,
+            ErlToken.KIND_INTEGER, ErlToken.KIND_ARROW, ErlToken.KIND_OTHER };
+    private static final Set<String> KEYWORDS = ImmutableSet.of("begin", "case", "of",
+            "fun", "end", "when", "if", "receive", "after", "try", "catch");
+
+    private static List<String> calls(final String text) {
+        return calls(text, ErlToken.KIND_ATOM);
+    }
+
+    /**
+     * @param keywordKind
+     *            the kind the scanner gives keywords
+     */
+    private static List<String> calls(final String text, final int keywordKind) {
+        final List<ErlToken> tokens = Lists.newArrayList();
+        // the clauses in the tests start at the beginning of a line
+        final Set<Integer> heads = Sets.newHashSet();
+        final Matcher m = CallScannerTest.TOKEN.matcher(text);
+        while (m.find()) {
+            for (int g = 1; g <= m.groupCount(); g++) {
+                if (m.group(g) != null) {
+                    int kind = CallScannerTest.KINDS[g - 1];
+                    if (kind == ErlToken.KIND_ATOM
+                            && CallScannerTest.KEYWORDS.contains(m.group(g))) {
+                        kind = keywordKind;
+                    }
+                    tokens.add(new ErlToken(kind, m.start(), m.end() - m.start()));
+                    if (kind == ErlToken.KIND_ATOM
+                            && (m.start() == 0 || text.charAt(m.start() - 1) == '\n')) {
+                        heads.add(m.start());
+                    }
+                    break;
+                }
+            }
+        }
+        final Set<FunctionRef> refs = CallScanner.scanCalls(text, tokens, heads, "m",
+                CallScannerTest.RESOLVE);
+        final List<String> result = Lists.newArrayList();
+        for (final FunctionRef ref : refs) {
+            result.add(ref.toString());
+        }
+        return result;
+    }
+
+    @Test
+    public void localAndRemoteCalls() {
+        assertThat(calls("f(X) -> g(X), h(), lists:map(fun(Y) -> Y end, [a, b]).\n"))
+                .containsExactly("m:g/1", "m:h/0", "lists:map/2").inOrder();
+    }
+
+    @Test
+    public void clauseHeadsAreNotCalls() {
+        assertThat(calls("f(0) -> ok;\nf(N) -> f(N - 1).")).containsExactly("m:f/1");
+    }
+
+    @Test
+    public void nestedClausesAreNotHeads() {
+        assertThat(calls("f(X) -> case X of a -> g(1); b -> h() end."))
+                .containsExactly("m:g/1", "m:h/0").inOrder();
+    }
+
+    @Test
+    public void callsInGuards() {
+        assertThat(calls("f(X) when is_atom(X); is_list(X) -> g(X)."))
+                .containsExactly("erlang:is_atom/1", "erlang:is_list/1", "m:g/1")
+                .inOrder();
+    }
+
+    @Test
+    public void importsAndBifs() {
+        assertThat(calls("f() -> seq(1, 2), length([1,2,3]).")).containsExactly(
+                "lists:seq/2", "erlang:length/1").inOrder();
+    }
+
+    @Test
+    public void funReferences() {
+        assertThat(calls("f() -> [fun g/1, fun io:format/2, fun ?MODULE:h/0]."))
+                .containsExactly("m:g/1", "io:format/2").inOrder();
+    }
+
+    @Test
+    public void moduleMacro() {
+        assertThat(calls("f() -> ?MODULE:h().")).containsExactly("m:h/0");
+    }
+
+    @Test
+    public void arityCountsTopLevelCommasOnly() {
+        assertThat(calls("f() -> io:format(\"~p, ~p\", [{a, b}, <<1, 2>>]), "
+                + "x:y(fun() -> a, b end, $,, 'q,r', #{k => v, l => w})."))
+                        .containsExactly("io:format/2", "x:y/4").inOrder();
+    }
+
+    @Test
+    public void stringsAndCommentsAreIgnored() {
+        assertThat(calls("f() ->\n  % g(1)\n  \"h()\", 'g'(2).")).containsExactly(
+                "m:g/1");
+    }
+
+    @Test
+    public void keywordsWithTheirOwnKind() {
+        assertThat(calls("f(X) -> case X of a -> fun g/1; b -> fun(Y) -> h() end end.",
+                ErlToken.KIND_OTHER)).containsExactly("m:g/1", "m:h/0").inOrder();
+    }
+
+    @Test
+    public void variablesAreNotCalls() {
+        assertThat(calls("f(M, F) -> M:F(1), F(2), M:g(3).")).isEmpty();
+    }
+
+}
@@ -0,0 +1,69 @@
+package org.erlide.engine.services.search;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+
+import org.erlide.engine.model.erlang.FunctionRef;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.collect.ImmutableMap;
+import com.google.common.collect.Lists;
+
+public class XrefServiceTest {
+
+    private CallGraph graph;
+    private XrefService xref;
+
+    @Before
+    public void setUp() {
+        graph = new CallGraph();
+        xref = new XrefService(graph);
+    }
+
+    private static FunctionRef ref(final String module, final String function) {
+        return new FunctionRef(module, function, 0);
+    }
+
+    private void calls(final String module, final String function,
+            final FunctionRef... callees) {
+        graph.setModuleCalls(XrefService.unit("p", module), ImmutableMap.of(
+                ref(module, function), Lists.newArrayList(callees)));
+    }
+
+    @Test
+    public void functionUseIsCached() {
+        calls("a", "f", ref("c", "h"));
+        final List<FunctionRef> uses = xref.functionUse(ref("c", "h"));
+        assertThat(uses).hasSize(1);
+        assertThat(xref.functionUse(ref("c", "h"))).isSameAs(uses);
+    }
+
+    @Test
+    public void onlyAffectedResultsAreDropped() {
+        calls("a", "f", ref("c", "h"));
+        calls("b", "g", ref("c", "k"));
+        final List<FunctionRef> usesH = xref.functionUse(ref("c", "h"));
+        final List<FunctionRef> usesK = xref.functionUse(ref("c", "k"));
+
+        calls("b", "g", ref("c", "k"), ref("c", "x"));
+        assertThat(xref.functionUse(ref("c", "h"))).isSameAs(usesH);
+        assertThat(xref.functionUse(ref("c", "k"))).isSameAs(usesK);
+
+        calls("b", "g", ref("c", "h"));
+        assertThat(xref.functionUse(ref("c", "h"))).hasSize(2);
+        assertThat(xref.functionUse(ref("c", "k"))).isEmpty();
+    }
+
+    @Test
+    public void removedModulesLoseTheirCalls() {
+        calls("a", "f", ref("c", "h"));
+        assertThat(xref.functionUse(ref("c", "h"))).hasSize(1);
+        xref.modulesRemoved("q", Lists.newArrayList("a"));
+        assertThat(xref.functionUse(ref("c", "h"))).hasSize(1);
+        xref.modulesRemoved("p", Lists.newArrayList("a"));
+        assertThat(xref.functionUse(ref("c", "h"))).isEmpty();
+    }
+
+}
@@ -0,0 +1,164 @@
+package org.erlide.engine.services.text;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.Collections;
+import java.util.List;
+
+import org.junit.Before;
+import org.junit.Test;
+
+import com.google.common.base.Joiner;
+import com.google.common.collect.Lists;
+
+public class IndentEngineTest {
+
+    private IndentEngine engine;
+
+    @Before
+    public void setUp() {
+        engine = new IndentEngine();
+    }
+
+    private static class StringLines implements IndentEngine.Lines {
+        final List<String> lines;
+
+        StringLines(final String... lines) {
+            this.lines = Lists.newArrayList(lines);
+        }
+
+        @Override
+        public int getNumberOfLines() {
+            return lines.size();
+        }
+
+        @Override
+        public String getLine(final int line) {
+            return lines.get(line);
+        }
+    }
+
+    private String indent(final String... lines) {
+        final StringLines source = new StringLines(lines);
+        return Joiner.on('\n').join(engine.indentLines(source, 0, lines.length - 1));
+    }
+
+    @Test
+    public void functionClauses() {
+        assertThat(indent("f(a) ->", "ok;", "f(B) ->", "X = B,", "X.", "g() -> ok."))
+                .isEqualTo(Joiner.on('\n').join("f(a) ->", "    ok;", "f(B) ->",
+                        "    X = B,", "    X.", "g() -> ok."));
+    }
+
+    @Test
+    public void caseClausesAndEnd() {
+        assertThat(indent("f(X) ->", "case X of", "a ->", "1;", "_ ->", "2", "end."))
+                .isEqualTo(Joiner.on('\n').join("f(X) ->", "    case X of",
+                        "        a ->", "            1;", "        _ ->", "            2",
+                        "    end."));
+    }
+
+    @Test
+    public void bracketsAlignOrHang() {
+        assertThat(indent("f() ->", "foo(a,", "b),", "L = [", "1", "],", "L."))
+                .isEqualTo(Joiner.on('\n').join("f() ->", "    foo(a,", "        b),",
+                        "    L = [", "        1", "    ],", "    L."));
+    }
+
+    @Test
+    public void trySectionsAndFunBlocks() {
+        assertThat(indent("f() ->", "try", "lists:map(fun(E) ->", "E", "end, L)",
+                "catch", "_:_ ->", "error", "end.")).isEqualTo(Joiner.on('\n').join(
+                        "f() ->", "    try", "        lists:map(fun(E) ->",
+                        "                      E", "                  end, L)",
+                        "    catch", "        _:_ ->", "            error", "    end."));
+    }
+
+    @Test
+    public void stringsAndCommentsDoNotCount() {
+        assertThat(indent("f() ->", "X = \"(case\", % (begin", "Y = 'end',", "$(.",
+                "g() -> ok.")).isEqualTo(Joiner.on('\n').join("f() ->",
+                        "    X = \"(case\", % (begin", "    Y = 'end',", "    $(.",
+                        "g() -> ok."));
+    }
+
+    @Test
+    public void multiLineStringIsLeftAlone() {
+        assertThat(indent("f() ->", "\"abc", "  def\".")).isEqualTo(
+                Joiner.on('\n').join("f() ->", "    \"abc", "  def\"."));
+    }
+
+    @Test
+    public void funReferencesAreNotBlocks() {
+        assertThat(indent("f() ->", "F = fun m:g/1,", "F.")).isEqualTo(
+                Joiner.on('\n').join("f() ->", "    F = fun m:g/1,", "    F."));
+    }
+
+    @Test
+    public void binaryOperatorContinues() {
+        assertThat(indent("f() ->", "X = 1 +", "2,", "X.")).isEqualTo(
+                Joiner.on('\n').join("f() ->", "    X = 1 +", "        2,", "    X."));
+    }
+
+    @Test
+    public void onlyLinesAfterAnEditAreScannedAgain() {
+        final StringLines source = new StringLines();
+        for (int i = 0; i < 1000; i++) {
+            source.lines.add("f" + i + "() ->");
+            source.lines.add("    ok.");
+        }
+        final int last = source.getNumberOfLines();
+        engine.getState(source, last);
+        assertThat(engine.getCachedLines()).isEqualTo(last + 1);
+        source.lines.set(1990, "    case x of");
+        engine.invalidate(1990, 0, 0);
+        assertThat(engine.getCachedLines()).isEqualTo(1991);
+        final IndentEngine.State state = engine.getState(source, 1991);
+        assertThat(engine.getIndent(state, "a -> ok")).isEqualTo(8);
+    }
+
+    @Test
+    public void scanningStopsAtAnUnchangedState() {
+        final StringLines source = new StringLines();
+        for (int i = 0; i < 1000; i++) {
+            source.lines.add("f" + i + "() ->");
+            source.lines.add("    ok.");
+        }
+        final int last = source.getNumberOfLines();
+        engine.getState(source, last);
+        source.lines.set(11, "    X = 1 +");
+        source.lines.add(12, "        2.");
+        engine.invalidate(11, 0, 1);
+        assertThat(engine.getCachedLines()).isEqualTo(12);
+        engine.getState(source, 13);
+        // the state after the form is the same as before
+        assertThat(engine.getCachedLines()).isEqualTo(last + 2);
+        assertThat(engine.getIndent(engine.getState(source, 12), "2.")).isEqualTo(8);
+        assertThat(engine.getIndent(engine.getState(source, last + 1), ""))
+                .isEqualTo(0);
+    }
+
+    @Test
+    public void keptStatesFollowRemovedLines() {
+        final StringLines source = new StringLines("f() ->", "    case x of",
+                "        a ->", "            ok", "    end.", "g() ->", "    ok.");
+        engine.getState(source, 7);
+        source.lines.subList(1, 4).clear();
+        source.lines.set(1, "    ok.");
+        engine.invalidate(1, 3, 0);
+        assertThat(engine.getIndent(engine.getState(source, 3), "ok.")).isEqualTo(4);
+        assertThat(engine.getCachedLines()).isEqualTo(5);
+        assertThat(engine.getIndent(engine.getState(source, 2), "g() ->")).isEqualTo(0);
+    }
+
+    @Test
+    public void changedSettingsDropTheCache() {
+        final StringLines source = new StringLines("f() ->", "ok.");
+        engine.getState(source, 2);
+        engine.setSettings(new IndentEngine.Settings(2, 8, false,
+                Collections.singletonMap("clause", "2")));
+        assertThat(engine.getCachedLines()).isEqualTo(0);
+        assertThat(engine.getIndent(engine.getState(source, 1), "ok.")).isEqualTo(2);
+    }
+
+}
@@ -0,0 +1,132 @@
+package org.erlide.engine.util;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+
+import org.eclipse.core.runtime.IProgressMonitor;
+import org.eclipse.core.runtime.IStatus;
+import org.eclipse.core.runtime.NullProgressMonitor;
+import org.erlide.engine.model.ErlModelException;
+import org.erlide.engine.model.root.IErlModule;
+import org.erlide.engine.model.root.IErlProject;
+import org.junit.After;
+import org.junit.AfterClass;
+import org.junit.Before;
+import org.junit.BeforeClass;
+import org.junit.Test;
+
+import com.google.common.collect.Lists;
+
+public class ModelWarmupJobTest {
+
+    private static IErlProject project;
+
+    @BeforeClass
+    public static void setUpBeforeClass() throws Exception {
+        ErlideTestUtils.initProjects();
+        ModelWarmupJobTest.project = ErlideTestUtils.createErlProject("testproject1");
+    }
+
+    @AfterClass
+    public static void tearDownAfterClass() throws Exception {
+        ErlideTestUtils.deleteProjects();
+    }
+
+    @Before
+    public void setUp() throws Exception {
+        ErlideTestUtils.initModulesAndIncludes();
+    }
+
+    @After
+    public void tearDown() throws Exception {
+        ErlideTestUtils.deleteModules();
+    }
+
+    /**
+     * Records the parse order on a single thread and cancels after a given number of
+     * modules.
+     */
+    private static class RecordingJob extends ModelWarmupJob {
+
+        private final List<IErlModule> parsed = Lists.newCopyOnWriteArrayList();
+        private final IProgressMonitor monitor = new NullProgressMonitor();
+        private final int cancelAfter;
+
+        RecordingJob(final List<IErlModule> priorityModules, final int cancelAfter) {
+            super(priorityModules, 1);
+            this.cancelAfter = cancelAfter;
+        }
+
+        @Override
+        protected void parse(final IErlModule module) throws ErlModelException {
+            parsed.add(module);
+            super.parse(module);
+            if (parsed.size() == cancelAfter) {
+                monitor.setCanceled(true);
+            }
+        }
+
+        IStatus runNow() {
+            return run(monitor);
+        }
+    }
+
+    @Test
+    public void priorityModulesAndIncludesAreParsedFirst() throws Exception {
+        final IErlModule other1 = ErlideTestUtils.createModule(
+                ModelWarmupJobTest.project, "ww1.erl", "-module(ww1).\nf() -> ok.\n");
+        final IErlModule include = ErlideTestUtils.createInclude(
+                ModelWarmupJobTest.project, "ww.hrl", "-define(A, a).\n");
+        final IErlModule priority = ErlideTestUtils.createModule(
+                ModelWarmupJobTest.project, "ww2.erl",
+                "-module(ww2).\n-include(\"ww.hrl\").\nf() -> ?A.\n");
+        final IErlModule other2 = ErlideTestUtils.createModule(
+                ModelWarmupJobTest.project, "ww3.erl", "-module(ww3).\nf() -> ok.\n");
+        final RecordingJob job = new RecordingJob(Lists.newArrayList(priority), 0);
+
+        assertThat(job.runNow().isOK()).isTrue();
+
+        assertThat(job.parsed.subList(0, 2)).containsExactly(priority, include)
+                .inOrder();
+        assertThat(job.parsed).containsAllOf(other1, other2);
+        // each module is parsed once, and timed
+        assertThat(job.parsed).containsNoDuplicates();
+        assertThat(job.getTimings().keySet()).containsAllOf(priority, include, other1,
+                other2);
+        assertThat(job.getTimings().size()).isEqualTo(job.parsed.size());
+        assertThat(job.getTotalTime()).isAtLeast(0L);
+    }
+
+    @Test
+    public void cancelStopsTheRemainingWork() throws Exception {
+        final IErlModule priority = ErlideTestUtils.createModule(
+                ModelWarmupJobTest.project, "ww0.erl", "-module(ww0).\nf() -> ok.\n");
+        for (int i = 1; i <= 5; i++) {
+            ErlideTestUtils.createModule(ModelWarmupJobTest.project, "ww" + i + ".erl",
+                    "-module(ww" + i + ").\nf() -> ok.\n");
+        }
+        final RecordingJob job = new RecordingJob(Lists.newArrayList(priority), 2);
+
+        assertThat(job.runNow().getSeverity()).isEqualTo(IStatus.CANCEL);
+
+        assertThat(job.parsed).hasSize(2);
+        assertThat(job.parsed.get(0)).isEqualTo(priority);
+        assertThat(job.getTimings().keySet()).containsExactlyElementsIn(job.parsed);
+    }
+
+    @Test
+    public void cancelWhileParsingPriorityModulesSkipsTheWorkspace() throws Exception {
+        final IErlModule priority = ErlideTestUtils.createModule(
+                ModelWarmupJobTest.project, "ww0.erl", "-module(ww0).\nf() -> ok.\n");
+        final IErlModule other = ErlideTestUtils.createModule(
+                ModelWarmupJobTest.project, "ww1.erl", "-module(ww1).\nf() -> ok.\n");
+        final RecordingJob job = new RecordingJob(
+                Lists.newArrayList(priority, other), 1);
+
+        assertThat(job.runNow().getSeverity()).isEqualTo(IStatus.CANCEL);
+
+        assertThat(job.parsed).containsExactly(priority);
+    }
+
+}
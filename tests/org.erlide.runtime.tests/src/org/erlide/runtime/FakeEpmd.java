@@ -0,0 +1,97 @@
+package org.erlide.runtime;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.util.List;
+import java.util.Map;
+
+import com.ericsson.otp.erlang.OtpEpmd;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Maps;
+
+/**
+ * Just enough of epmd to let nodes in the same JVM find each other, so that tests can
+ * send messages over a real connection without an Erlang installation.
+ */
+public class FakeEpmd implements AutoCloseable {
+
+    private static final int ALIVE2_REQ = 120;
+    private static final int ALIVE2_RESP = 121;
+    private static final int PORT_PLEASE2_REQ = 122;
+    private static final int PORT2_RESP = 119;
+
+    private final ServerSocket server;
+    // the body of the registration request of each node, by name
+    private final Map<String, byte[]> nodes = Maps.newConcurrentMap();
+    // nodes stay registered while their connection is open
+    private final List<Socket> registrations = Lists.newCopyOnWriteArrayList();
+
+    public FakeEpmd() throws IOException {
+        server = new ServerSocket(0);
+        final Thread thread = new Thread(this::serve, "fake epmd");
+        thread.setDaemon(true);
+        thread.start();
+        OtpEpmd.useEpmdPort(server.getLocalPort());
+    }
+
+    private void serve() {
+        while (!server.isClosed()) {
+            try {
+                handle(server.accept());
+            } catch (final IOException e) {
+                // closed
+            }
+        }
+    }
+
+    private void handle(final Socket socket) throws IOException {
+        final DataInputStream in = new DataInputStream(socket.getInputStream());
+        final DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+        final byte[] request = new byte[in.readUnsignedShort()];
+        in.readFully(request);
+        if (request[0] == FakeEpmd.ALIVE2_REQ) {
+            // port[2], type[1], proto[1], high[2], low[2], nlen[2], name, elen[2]
+            final int nameLength = (request[9] & 0xff) << 8 | request[10] & 0xff;
+            nodes.put(new String(request, 11, nameLength), request);
+            out.write(new byte[] { FakeEpmd.ALIVE2_RESP, 0, 0, 1 });
+            out.flush();
+            registrations.add(socket);
+            return;
+        }
+        if (request[0] == FakeEpmd.PORT_PLEASE2_REQ) {
+            final String name = new String(request, 1, request.length - 1);
+            final byte[] node = nodes.get(name);
+            // the node reads the reply with a single read
+            final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+            final DataOutputStream reply = new DataOutputStream(bytes);
+            reply.write(FakeEpmd.PORT2_RESP);
+            if (node == null) {
+                reply.write(1);
+            } else {
+                reply.write(0);
+                // port, type, proto, high and low, as registered
+                reply.write(node, 1, 8);
+                reply.writeShort(name.length());
+                reply.write(name.getBytes());
+                reply.writeShort(0);
+            }
+            out.write(bytes.toByteArray());
+            out.flush();
+        }
+        socket.close();
+    }
+
+    @Override
+    public void close() throws IOException {
+        server.close();
+        for (final Socket socket : registrations) {
+            socket.close();
+        }
+        OtpEpmd.useEpmdPort(0);
+    }
+
+}
@@ -0,0 +1,106 @@
+package org.erlide.runtime;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.GenericQueue;
+
+public class GenericQueueTest {
+
+    @Test
+    public void itemsComeOutInOrder() {
+        final GenericQueue queue = new GenericQueue();
+        queue.put("a");
+        queue.put("b");
+        assertThat(queue.getCount()).isEqualTo(2);
+        assertThat(queue.get()).isEqualTo("a");
+        assertThat(queue.poll(0)).isEqualTo("b");
+        assertThat(queue.poll(0)).isNull();
+        assertThat(queue.getPutCount()).isEqualTo(2);
+        assertThat(queue.getMaxCount()).isEqualTo(2);
+    }
+
+    @Test
+    public void pollTimesOutWithNull() {
+        final GenericQueue queue = new GenericQueue();
+        assertThat(queue.poll(10)).isNull();
+    }
+
+    @Test(expected = InterruptedException.class)
+    public void getTimesOutWithException() throws InterruptedException {
+        new GenericQueue().get(10);
+    }
+
+    @Test
+    public void pollGetsItemPutWhileWaiting() throws InterruptedException {
+        final GenericQueue queue = new GenericQueue();
+        final Thread producer = new Thread(() -> {
+            sleep(50);
+            queue.put("a");
+        });
+        producer.start();
+        assertThat(queue.poll(10000)).isEqualTo("a");
+        producer.join();
+    }
+
+    @Test
+    public void fullQueueBlocksProducer() throws InterruptedException {
+        final GenericQueue queue = new GenericQueue(1);
+        queue.put("a");
+        final CountDownLatch done = new CountDownLatch(1);
+        final Thread producer = new Thread(() -> {
+            queue.put("b");
+            done.countDown();
+        });
+        producer.start();
+        assertThat(done.await(50, TimeUnit.MILLISECONDS)).isFalse();
+        assertThat(queue.get()).isEqualTo("a");
+        assertThat(done.await(10, TimeUnit.SECONDS)).isTrue();
+        assertThat(queue.get()).isEqualTo("b");
+        assertThat(queue.getBlockedPutCount()).isEqualTo(1);
+        producer.join();
+    }
+
+    @Test
+    public void noWakeupIsLostWithSeveralConsumers() throws InterruptedException {
+        final GenericQueue queue = new GenericQueue();
+        final int items = 20000;
+        final AtomicInteger received = new AtomicInteger();
+        final Thread[] consumers = new Thread[4];
+        for (int i = 0; i < consumers.length; i++) {
+            consumers[i] = new Thread(() -> {
+                while (received.get() < items) {
+                    // short timeouts, so that consumers often time out after being
+                    // woken up for an item that another one took
+                    if (queue.poll(1) != null) {
+                        received.incrementAndGet();
+                    }
+                }
+            });
+            consumers[i].start();
+        }
+        for (int i = 0; i < items; i++) {
+            queue.put(i);
+        }
+        for (final Thread t : consumers) {
+            t.join(10000);
+            assertThat(t.isAlive()).isFalse();
+        }
+        assertThat(received.get()).isEqualTo(items);
+        assertThat(queue.getCount()).isEqualTo(0);
+    }
+
+    private static void sleep(final long millis) {
+        try {
+            Thread.sleep(millis);
+        } catch (final InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
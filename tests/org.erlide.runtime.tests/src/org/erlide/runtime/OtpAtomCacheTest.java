@@ -0,0 +1,87 @@
+package org.erlide.runtime;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpExternal;
+import com.ericsson.otp.erlang.OtpInputStream;
+import com.ericsson.otp.erlang.OtpOutputStream;
+
+/**
+ * The atom cache is internal to jinterface; it is tested through the decoding of
+ * atoms by {@link OtpInputStream}.
+ */
+public class OtpAtomCacheTest {
+
+    @Test
+    public void decodedAtomsAreShared() throws OtpErlangDecodeException {
+        final byte[] bytes = encode(new OtpErlangAtom("shared_atom"));
+        final OtpErlangObject a1 = new OtpInputStream(bytes).read_any();
+        final OtpErlangObject a2 = new OtpInputStream(bytes).read_any();
+        assertThat(a1).isEqualTo(new OtpErlangAtom("shared_atom"));
+        assertThat(a2).isSameAs(a1);
+        assertThat(new OtpInputStream(bytes).read_atom()).isEqualTo("shared_atom");
+    }
+
+    @Test
+    public void roundTripSurvivesEviction() throws OtpErlangDecodeException {
+        // many more atoms than the cache has slots, so that entries get replaced
+        final int n = 20000;
+        final OtpErlangObject[] atoms = new OtpErlangObject[n];
+        for (int i = 0; i < n; i++) {
+            atoms[i] = new OtpErlangAtom("atom_" + i);
+        }
+        final byte[] bytes = encode(new OtpErlangList(atoms));
+
+        final OtpErlangList first = (OtpErlangList) new OtpInputStream(bytes).read_any();
+        final OtpErlangList second = (OtpErlangList) new OtpInputStream(bytes)
+                .read_any();
+        assertThat(first).isEqualTo(new OtpErlangList(atoms));
+        assertThat(second).isEqualTo(new OtpErlangList(atoms));
+        int shared = 0;
+        for (int i = 0; i < n; i++) {
+            if (first.elementAt(i) == second.elementAt(i)) {
+                shared++;
+            }
+        }
+        assertThat(shared).isLessThan(n);
+    }
+
+    @Test
+    public void encodingIsPartOfTheKey() throws OtpErlangDecodeException {
+        // the same bytes mean different atoms in latin-1 and in UTF-8
+        final byte[] latin1 = { (byte) OtpExternal.versionTag,
+                (byte) OtpExternal.atomTag, 0, 2, (byte) 0xc3, (byte) 0xa9 };
+        final byte[] utf8 = { (byte) OtpExternal.versionTag,
+                (byte) OtpExternal.atomUtf8Tag, 0, 2, (byte) 0xc3, (byte) 0xa9 };
+        assertThat(new OtpInputStream(latin1).read_atom()).isEqualTo("Ã©");
+        assertThat(new OtpInputStream(utf8).read_atom()).isEqualTo("é");
+        assertThat(new OtpInputStream(latin1).read_atom()).isEqualTo("Ã©");
+    }
+
+    @Test
+    public void streamPositionIsKeptForOtherTerms() throws OtpErlangDecodeException {
+        final OtpOutputStream out = new OtpOutputStream();
+        out.write1(OtpExternal.versionTag);
+        out.write_tuple_head(2);
+        out.write_long(42);
+        out.write_atom("ok");
+        final OtpInputStream in = new OtpInputStream(out.toByteArray());
+        assertThat(in.read_tuple_head()).isEqualTo(2);
+        assertThat(in.read_long()).isEqualTo(42);
+        assertThat(in.read_atom()).isEqualTo("ok");
+    }
+
+    private static byte[] encode(final OtpErlangObject term) {
+        final OtpOutputStream out = new OtpOutputStream();
+        out.write1(OtpExternal.versionTag);
+        out.write_any(term);
+        return out.toByteArray();
+    }
+
+}
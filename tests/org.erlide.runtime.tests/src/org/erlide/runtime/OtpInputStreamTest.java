@@ -0,0 +1,197 @@
+package org.erlide.runtime;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.math.BigInteger;
+import java.util.List;
+import java.util.Set;
+
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangBinary;
+import com.ericsson.otp.erlang.OtpErlangBitstr;
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpErlangDouble;
+import com.ericsson.otp.erlang.OtpErlangException;
+import com.ericsson.otp.erlang.OtpErlangExternalFun;
+import com.ericsson.otp.erlang.OtpErlangFun;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangMap;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangPid;
+import com.ericsson.otp.erlang.OtpErlangPort;
+import com.ericsson.otp.erlang.OtpErlangRef;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpExternal;
+import com.ericsson.otp.erlang.OtpInputStream;
+import com.ericsson.otp.erlang.OtpOutputStream;
+import com.google.common.base.Strings;
+import com.google.common.collect.Lists;
+import com.google.common.collect.Sets;
+
+public class OtpInputStreamTest {
+
+    private static final OtpErlangAtom END = new OtpErlangAtom("end");
+
+    /**
+     * A term for each tag that {@link OtpOutputStream} writes.
+     */
+    static List<OtpErlangObject> samples() throws OtpErlangException {
+        final OtpErlangPid pid = new OtpErlangPid("node@host", 1, 2, 3);
+        final OtpErlangObject[] end = { OtpInputStreamTest.END };
+        final OtpErlangObject[] many = new OtpErlangObject[300];
+        for (int i = 0; i < many.length; i++) {
+            many[i] = new OtpErlangLong(i);
+        }
+        return Lists.newArrayList(new OtpErlangLong(7), new OtpErlangLong(-70000),
+                new OtpErlangLong(1L << 40),
+                new OtpErlangLong(BigInteger.ONE.shiftLeft(2100)),
+                new OtpErlangDouble(3.25), new OtpErlangAtom("ok"),
+                // more than 255 bytes in UTF-8
+                new OtpErlangAtom(Strings.repeat("é", 200)), pid,
+                new OtpErlangPort("node@host", 5, 6),
+                new OtpErlangRef("node@host", new int[] { 1, 2, 3 }, 4),
+                new OtpErlangTuple(new OtpErlangObject[] { pid, OtpInputStreamTest.END }),
+                new OtpErlangTuple(many),
+                new OtpErlangMap(end, new OtpErlangObject[] { new OtpErlangString("v") }),
+                new OtpErlangList(), new OtpErlangString("abc"), new OtpErlangList(many),
+                new OtpErlangList(end, new OtpErlangLong(1)),
+                new OtpErlangBinary(new byte[] { 1, 2, 3 }),
+                new OtpErlangBitstr(new byte[] { 1, 2, (byte) 0xf0 }, 4),
+                new OtpErlangFun(pid, "m", 1, new byte[16], 2, 3, 4, end),
+                new OtpErlangFun(pid, "m", 2, 3, end),
+                new OtpErlangExternalFun("m", "f", 2));
+    }
+
+    @Test
+    public void samplesCoverTheTags() throws OtpErlangException {
+        final Set<Integer> tags = Sets.newHashSet();
+        for (final OtpErlangObject term : OtpInputStreamTest.samples()) {
+            tags.add(new OtpOutputStream(term).toByteArray()[0] & 0xff);
+        }
+        assertThat(tags).containsAllOf(OtpExternal.smallIntTag, OtpExternal.intTag,
+                OtpExternal.smallBigTag, OtpExternal.largeBigTag,
+                OtpExternal.newFloatTag, OtpExternal.smallAtomUtf8Tag,
+                OtpExternal.atomUtf8Tag, OtpExternal.newPidTag, OtpExternal.newPortTag,
+                OtpExternal.newerRefTag, OtpExternal.smallTupleTag,
+                OtpExternal.largeTupleTag, OtpExternal.mapTag, OtpExternal.nilTag,
+                OtpExternal.stringTag, OtpExternal.listTag, OtpExternal.binTag,
+                OtpExternal.bitBinTag, OtpExternal.newFunTag, OtpExternal.funTag,
+                OtpExternal.externalFunTag);
+    }
+
+    @Test
+    public void skipMovesAsFarAsRead() throws OtpErlangException {
+        for (final OtpErlangObject term : OtpInputStreamTest.samples()) {
+            final byte[] bytes = encode(term, OtpInputStreamTest.END);
+            assertSkipMatchesRead(bytes, term);
+        }
+    }
+
+    @Test
+    public void skipOlderFormats() throws OtpErlangDecodeException {
+        final OtpOutputStream node = new OtpOutputStream();
+        node.write_atom("node@host");
+        final byte[] atom = node.toByteArray();
+
+        final OtpOutputStream pid = new OtpOutputStream();
+        pid.write1(OtpExternal.pidTag);
+        pid.writeN(atom);
+        pid.write4BE(1);
+        pid.write4BE(2);
+        pid.write1(3);
+        assertSkipMatchesRead(pid.toByteArray(), new OtpErlangPid("node@host", 1, 2, 3));
+
+        final OtpOutputStream port = new OtpOutputStream();
+        port.write1(OtpExternal.portTag);
+        port.writeN(atom);
+        port.write4BE(5);
+        port.write1(2);
+        assertSkipMatchesRead(port.toByteArray(),
+                new OtpErlangPort(OtpExternal.portTag, "node@host", 5, 2));
+
+        final OtpOutputStream ref = new OtpOutputStream();
+        ref.write1(OtpExternal.refTag);
+        ref.writeN(atom);
+        ref.write4BE(5);
+        ref.write1(2);
+        assertSkipMatchesRead(ref.toByteArray(), new OtpErlangRef("node@host", 5, 2));
+
+        final OtpOutputStream newRef = new OtpOutputStream();
+        newRef.write1(OtpExternal.newRefTag);
+        newRef.write2BE(3);
+        newRef.writeN(atom);
+        newRef.write1(2);
+        newRef.write4BE(1);
+        newRef.write4BE(2);
+        newRef.write4BE(3);
+        assertSkipMatchesRead(newRef.toByteArray(), null);
+
+        final OtpOutputStream oldFloat = new OtpOutputStream();
+        oldFloat.write1(OtpExternal.floatTag);
+        oldFloat.writeN(Strings.padEnd("3.25000000000000000000e+00", 31, '\0')
+                .getBytes());
+        assertSkipMatchesRead(oldFloat.toByteArray(), new OtpErlangDouble(3.25));
+    }
+
+    @Test
+    public void skipCompressedTerm() throws OtpErlangDecodeException {
+        final OtpErlangObject term = new OtpErlangString(Strings.repeat("abc", 1000));
+        final OtpOutputStream out = new OtpOutputStream();
+        out.write1(OtpExternal.versionTag);
+        out.write_compressed(term);
+        final byte[] bytes = out.toByteArray();
+        assertThat(bytes[1] & 0xff).isEqualTo(OtpExternal.compressedTag);
+
+        final OtpInputStream in = new OtpInputStream(bytes);
+        in.skip_term();
+        assertThat(in.getPos()).isEqualTo(bytes.length);
+        assertThat(new OtpInputStream(bytes).read_any()).isEqualTo(term);
+    }
+
+    @Test(expected = OtpErlangDecodeException.class)
+    public void skipTruncatedTerm() throws OtpErlangDecodeException {
+        final byte[] bytes = new OtpOutputStream(new OtpErlangBinary(new byte[100]))
+                .toByteArray();
+        final byte[] truncated = new byte[bytes.length - 1];
+        System.arraycopy(bytes, 0, truncated, 0, truncated.length);
+        new OtpInputStream(truncated).skip_term();
+    }
+
+    @Test(expected = OtpErlangDecodeException.class)
+    public void skipUnknownTag() throws OtpErlangDecodeException {
+        new OtpInputStream(new byte[] { 1, 2, 3 }).skip_term();
+    }
+
+    /**
+     * Skipping the first term of the stream ends where reading it ends, and the next
+     * term can be read from there.
+     */
+    private static void assertSkipMatchesRead(final byte[] bytes,
+            final OtpErlangObject expected) throws OtpErlangDecodeException {
+        final OtpInputStream read = new OtpInputStream(bytes);
+        final OtpErlangObject term = read.read_any();
+        if (expected != null) {
+            assertThat(term).isEqualTo(expected);
+        }
+        final OtpInputStream skip = new OtpInputStream(bytes);
+        skip.skip_term();
+        assertThat(skip.getPos()).isEqualTo(read.getPos());
+        if (skip.getPos() < bytes.length) {
+            assertThat(skip.read_any()).isEqualTo(OtpInputStreamTest.END);
+        }
+    }
+
+    static byte[] encode(final OtpErlangObject... terms) {
+        final OtpOutputStream out = new OtpOutputStream();
+        out.write1(OtpExternal.versionTag);
+        for (final OtpErlangObject term : terms) {
+            out.write_any(term);
+        }
+        return out.toByteArray();
+    }
+
+}
@@ -0,0 +1,137 @@
+package org.erlide.runtime;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangBinary;
+import com.ericsson.otp.erlang.OtpErlangDecodeException;
+import com.ericsson.otp.erlang.OtpErlangException;
+import com.ericsson.otp.erlang.OtpErlangList;
+import com.ericsson.otp.erlang.OtpErlangLong;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangString;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpExternal;
+import com.ericsson.otp.erlang.OtpInputStream;
+import com.ericsson.otp.erlang.OtpLazyTerm;
+import com.ericsson.otp.erlang.OtpOutputStream;
+import com.google.common.base.Strings;
+
+public class OtpLazyTermTest {
+
+    @Test
+    public void materializeMatchesReadAny() throws OtpErlangException {
+        for (final OtpErlangObject term : OtpInputStreamTest.samples()) {
+            final byte[] bytes = OtpInputStreamTest.encode(term);
+            final OtpLazyTerm lazy = OtpLazyTerm.read(new OtpInputStream(bytes));
+            final OtpErlangObject read = new OtpInputStream(bytes).read_any();
+            assertThat(lazy.materialize()).isEqualTo(read);
+            assertThat(lazy.size()).isEqualTo(bytes.length - 1);
+            assertThat(lazy.type()).isEqualTo(bytes[1] & 0xff);
+        }
+    }
+
+    @Test
+    public void elementsMatchReadAny() throws OtpErlangException {
+        final List<OtpErlangObject> samples = OtpInputStreamTest.samples();
+        final OtpErlangObject[] elements = samples
+                .toArray(new OtpErlangObject[samples.size()]);
+        final OtpErlangTuple tuple = new OtpErlangTuple(elements);
+        final OtpErlangList list = new OtpErlangList(elements);
+
+        final OtpLazyTerm lazyTuple = lazy(tuple);
+        final OtpLazyTerm lazyList = lazy(list);
+        assertThat(lazyTuple.isTuple()).isTrue();
+        assertThat(lazyList.isList()).isTrue();
+        assertThat(lazyTuple.arity()).isEqualTo(elements.length);
+        assertThat(lazyList.arity()).isEqualTo(elements.length);
+        // from the back, so that the offsets are all computed on the first call
+        for (int i = elements.length - 1; i >= 0; i--) {
+            assertThat(lazyTuple.elementAt(i).materialize()).isEqualTo(elements[i]);
+            assertThat(lazyList.elementAt(i).materialize()).isEqualTo(elements[i]);
+        }
+        assertThat(lazyTuple.materialize()).isEqualTo(tuple);
+        assertThat(lazyList.materialize()).isEqualTo(list);
+    }
+
+    @Test
+    public void nestedElements() throws OtpErlangDecodeException {
+        final OtpErlangObject reply = new OtpErlangTuple(new OtpErlangObject[] {
+                new OtpErlangAtom("ok"), new OtpErlangBinary(new byte[] { 1, 2 }),
+                new OtpErlangTuple(new OtpErlangObject[] { new OtpErlangLong(1),
+                        new OtpErlangString("xy") }) });
+        final OtpLazyTerm lazy = lazy(reply);
+
+        assertThat(lazy.elementAt(0).isAtom("ok")).isTrue();
+        assertThat(lazy.elementAt(0).isAtom("error")).isFalse();
+        assertThat(lazy.elementAt(1).isBinary()).isTrue();
+        assertThat(lazy.elementAt(1).binaryValue()).isEqualTo(new byte[] { 1, 2 });
+        final OtpLazyTerm inner = lazy.elementAt(2);
+        assertThat(inner.elementAt(0).materialize()).isEqualTo(new OtpErlangLong(1));
+        // a string is a list of bytes
+        final OtpLazyTerm string = inner.elementAt(1);
+        assertThat(string.type()).isEqualTo(OtpExternal.stringTag);
+        assertThat(string.arity()).isEqualTo(2);
+        assertThat(string.elementAt(1).materialize()).isEqualTo(new OtpErlangLong('y'));
+    }
+
+    @Test
+    public void emptyList() throws OtpErlangDecodeException {
+        final OtpLazyTerm lazy = lazy(new OtpErlangList());
+        assertThat(lazy.isList()).isTrue();
+        assertThat(lazy.arity()).isEqualTo(0);
+    }
+
+    @Test(expected = OtpErlangDecodeException.class)
+    public void noSuchElement() throws OtpErlangDecodeException {
+        lazy(new OtpErlangTuple(new OtpErlangAtom("a"))).elementAt(1);
+    }
+
+    @Test(expected = OtpErlangDecodeException.class)
+    public void notATuple() throws OtpErlangDecodeException {
+        lazy(new OtpErlangAtom("a")).elementAt(0);
+    }
+
+    @Test
+    public void compressedTerm() throws OtpErlangDecodeException {
+        final OtpErlangObject term = new OtpErlangTuple(
+                new OtpErlangObject[] { new OtpErlangAtom("ok"),
+                        new OtpErlangString(Strings.repeat("ab", 500)) });
+        final OtpOutputStream out = new OtpOutputStream();
+        out.write1(OtpExternal.versionTag);
+        out.write_compressed(term);
+
+        final OtpLazyTerm lazy = OtpLazyTerm
+                .read(new OtpInputStream(out.toByteArray()));
+        assertThat(lazy.isTuple()).isTrue();
+        assertThat(lazy.elementAt(0).isAtom("ok")).isTrue();
+        assertThat(lazy.materialize()).isEqualTo(term);
+    }
+
+    @Test
+    public void ofDecodedTerm() throws OtpErlangDecodeException {
+        final OtpErlangObject term = new OtpErlangTuple(new OtpErlangObject[] {
+                new OtpErlangAtom("ok"), new OtpErlangLong(42) });
+        final OtpLazyTerm lazy = OtpLazyTerm.of(term);
+        assertThat(lazy.materialize()).isSameAs(term);
+        assertThat(lazy.elementAt(1).materialize()).isEqualTo(new OtpErlangLong(42));
+    }
+
+    @Test
+    public void readMovesPastTheTerm() throws OtpErlangDecodeException {
+        final OtpInputStream in = new OtpInputStream(OtpInputStreamTest
+                .encode(new OtpErlangAtom("first"), new OtpErlangAtom("second")));
+        assertThat(OtpLazyTerm.read(in).isAtom("first")).isTrue();
+        assertThat(in.read_atom()).isEqualTo("second");
+    }
+
+    private static OtpLazyTerm lazy(final OtpErlangObject term)
+            throws OtpErlangDecodeException {
+        return OtpLazyTerm.read(new OtpInputStream(OtpInputStreamTest.encode(term)));
+    }
+
+}
@@ -0,0 +1,71 @@
+package org.erlide.runtime;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangBinary;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpErlangTuple;
+import com.ericsson.otp.erlang.OtpMbox;
+import com.ericsson.otp.erlang.OtpNode;
+import com.ericsson.otp.erlang.OtpOutputStream;
+
+public class OtpMboxTest {
+
+    private FakeEpmd epmd;
+    private OtpNode a;
+    private OtpNode b;
+
+    @Before
+    public void setUp() throws IOException {
+        epmd = new FakeEpmd();
+        a = new OtpNode("mbox_a@localhost", "cookie");
+        b = new OtpNode("mbox_b@localhost", "cookie");
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        a.close();
+        b.close();
+        epmd.close();
+    }
+
+    @Test
+    public void bytesOnTheWireAreCounted() throws Exception {
+        final OtpMbox from = a.createMbox();
+        final OtpMbox to = b.createMbox();
+        final OtpErlangObject msg = new OtpErlangTuple(new OtpErlangObject[] {
+                new OtpErlangAtom("hello"), new OtpErlangBinary(new byte[1000]) });
+        // the encoded message and its version tag
+        final int size = new OtpOutputStream(msg).size() + 1;
+
+        from.send(to.self(), msg);
+        assertThat(to.receive(10000)).isEqualTo(msg);
+        assertThat(from.getSentBytes()).isEqualTo(size);
+        assertThat(to.getReceivedBytes()).isEqualTo(size);
+
+        from.send(to.self(), msg);
+        assertThat(to.receiveMsg(10000)).isNotNull();
+        assertThat(from.getSentBytes()).isEqualTo(2 * size);
+        assertThat(to.getReceivedBytes()).isEqualTo(2 * size);
+        assertThat(from.getReceivedBytes()).isEqualTo(0);
+        assertThat(to.getSentBytes()).isEqualTo(0);
+    }
+
+    @Test
+    public void localMessagesAreNotCounted() throws Exception {
+        final OtpMbox from = a.createMbox();
+        final OtpMbox to = a.createMbox();
+        from.send(to.self(), new OtpErlangAtom("hello"));
+        assertThat(to.receive(10000)).isEqualTo(new OtpErlangAtom("hello"));
+        assertThat(from.getSentBytes()).isEqualTo(0);
+        assertThat(to.getReceivedBytes()).isEqualTo(0);
+    }
+
+}
@@ -0,0 +1,64 @@
+package org.erlide.runtime.rpc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import org.junit.Test;
+
+import com.google.common.collect.Range;
+
+public class RpcHistogramTest {
+
+    @Test
+    public void bucketsCoverAllValues() {
+        for (int i = 0; i < 311; i++) {
+            assertThat(RpcHistogram.index(RpcHistogram.lowest(i))).isEqualTo(i);
+            assertThat(RpcHistogram.index(RpcHistogram.highest(i))).isEqualTo(i);
+        }
+        assertThat(RpcHistogram.index(Long.MAX_VALUE)).isEqualTo(311);
+    }
+
+    @Test
+    public void bucketsAreNarrow() {
+        for (long v = 1; v < 1L << 40; v = v * 3 + 1) {
+            final int i = RpcHistogram.index(v);
+            assertThat(RpcHistogram.highest(i) - RpcHistogram.lowest(i))
+                    .isAtMost(v / 8);
+        }
+    }
+
+    @Test
+    public void percentiles() {
+        final RpcHistogram h = new RpcHistogram();
+        for (int v = 1; v <= 1000; v++) {
+            h.record(v);
+        }
+        assertThat(h.getCount()).isEqualTo(1000);
+        assertThat(h.getMax()).isEqualTo(1000);
+        assertThat(h.getMean()).isWithin(0.01).of(500.5);
+        assertThat(h.getValueAtPercentile(50)).isIn(Range.closed(500L, 563L));
+        assertThat(h.getValueAtPercentile(100)).isEqualTo(1000);
+        h.reset();
+        assertThat(h.getCount()).isEqualTo(0);
+        assertThat(h.getValueAtPercentile(50)).isEqualTo(0);
+    }
+
+    @Test
+    public void concurrentRecording() throws Exception {
+        final RpcHistogram h = new RpcHistogram();
+        final Thread[] threads = new Thread[4];
+        for (int t = 0; t < threads.length; t++) {
+            threads[t] = new Thread(() -> {
+                for (int i = 0; i < 10000; i++) {
+                    h.record(i);
+                }
+            });
+            threads[t].start();
+        }
+        for (final Thread t : threads) {
+            t.join();
+        }
+        assertThat(h.getCount()).isEqualTo(40000);
+        assertThat(h.getValueAtPercentile(100)).isEqualTo(9999);
+    }
+
+}
@@ -0,0 +1,96 @@
+package org.erlide.runtime.rpc;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.io.IOException;
+import java.util.List;
+
+import org.erlide.runtime.FakeEpmd;
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+import com.ericsson.otp.erlang.OtpErlangBinary;
+import com.ericsson.otp.erlang.OtpErlangObject;
+import com.ericsson.otp.erlang.OtpMbox;
+import com.ericsson.otp.erlang.OtpNode;
+
+public class RpcMonitorTest {
+
+    private FakeEpmd epmd;
+    private OtpNode a;
+    private OtpNode b;
+
+    @Before
+    public void setUp() throws IOException {
+        epmd = new FakeEpmd();
+        a = new OtpNode("rpc_a@localhost", "cookie");
+        b = new OtpNode("rpc_b@localhost", "cookie");
+        RpcMonitor.reset();
+    }
+
+    @After
+    public void tearDown() throws IOException {
+        RpcMonitor.reset();
+        a.close();
+        b.close();
+        epmd.close();
+    }
+
+    @Test
+    public void callIsRecordedWithItsWireSizes() throws Exception {
+        final OtpMbox caller = a.createMbox();
+        final OtpMbox server = b.createMbox();
+        final OtpErlangObject[] args = { new OtpErlangBinary(new byte[500]) };
+
+        final RpcMonitor.Call call = RpcMonitor.recordRequest("rpc_b@localhost", "m",
+                "f", args);
+        caller.send(server.self(), args[0]);
+        server.receive(10000);
+        server.send(caller.self(), new OtpErlangBinary(new byte[2000]));
+        final OtpErlangObject reply = caller.receive(10000);
+        RpcMonitor.recordResponse(call, caller, reply);
+        // only the first reply counts
+        RpcMonitor.recordResponse(call, caller, reply);
+
+        final long sent = caller.getSentBytes();
+        final long received = caller.getReceivedBytes();
+        assertThat(sent).isGreaterThan(500L);
+        assertThat(received).isGreaterThan(2000L);
+        assertThat(RpcMonitor.getCallCount()).isEqualTo(1);
+        final List<RpcMonitor.CallStats> stats = RpcMonitor.getStats();
+        assertThat(stats).hasSize(1);
+        final RpcMonitor.CallStats s = stats.get(0);
+        assertThat(s.getName()).isEqualTo("m:f");
+        assertThat(s.getCalls()).isEqualTo(1);
+        assertThat(s.getLatency().getCount()).isEqualTo(1);
+        assertThat(s.getRequestBytes().getMax()).isEqualTo(sent);
+        assertThat(s.getReplyBytes().getMax()).isEqualTo(received);
+
+        final String json = RpcMonitor.toJson();
+        assertThat(json).startsWith("{\"calls\":1,\"functions\":[{\"name\":\"m:f\","
+                + "\"calls\":1,\"latency_us\":{\"count\":1,");
+        assertThat(json).contains(",\"request_bytes\":" + RpcMonitorTest.histogram(sent)
+                + ",\"reply_bytes\":" + RpcMonitorTest.histogram(received) + "}]");
+        assertThat(json).endsWith(",\"slowest\":[],\"largest\":[]}");
+    }
+
+    @Test
+    public void callWithoutReplyIsNotRecorded() {
+        RpcMonitor.recordRequest("rpc_b@localhost", "m", "f",
+                new OtpErlangObject[] { new OtpErlangAtom("x") });
+        assertThat(RpcMonitor.getCallCount()).isEqualTo(1);
+        assertThat(RpcMonitor.getStats()).isEmpty();
+        assertThat(RpcMonitor.toJson()).isEqualTo(
+                "{\"calls\":1,\"functions\":[],\"slowest\":[],\"largest\":[]}");
+    }
+
+    // a single value is all its percentiles
+    private static String histogram(final long value) {
+        return String.format(
+                "{\"count\":1,\"mean\":%d,\"p50\":%d,\"p90\":%d,\"p99\":%d,\"max\":%d}",
+                value, value, value, value, value);
+    }
+
+}
@@ -0,0 +1,74 @@
+package org.erlide.test_support.ui.suites;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import org.erlide.test_support.ui.suites.TestCaseData.TestState;
+import org.junit.Test;
+
+import com.ericsson.otp.erlang.OtpErlangAtom;
+
+public class TestResultsTest {
+
+    private final TestResults results = new TestResults();
+
+    private TestCaseData run(final String fun, final boolean ok) {
+        final TestCaseData data = results.findCase("m_SUITE", fun);
+        TestState old = data.getState();
+        data.setRunning();
+        results.stateChanged(data, old);
+        old = data.getState();
+        if (ok) {
+            data.setSuccesful();
+        } else {
+            data.setSkipped(new OtpErlangAtom("skipped"));
+        }
+        results.stateChanged(data, old);
+        return data;
+    }
+
+    @Test
+    public void findCaseReturnsSameCase() {
+        final TestCaseData a = results.findCase("m", "a");
+        assertSame(a, results.findCase("m", "a"));
+        assertEquals(1, results.size());
+        assertEquals(1, results.getCount(TestState.NOT_RUN));
+    }
+
+    @Test
+    public void countsFollowStates() {
+        run("a", true);
+        run("b", false);
+        run("c", true);
+        results.findCase("m_SUITE", "d");
+        assertEquals(4, results.size());
+        assertEquals(2, results.getCount(TestState.SUCCESS));
+        assertEquals(1, results.getCount(TestState.SKIPPED));
+        assertEquals(1, results.getCount(TestState.NOT_RUN));
+        assertEquals(0, results.getCount(TestState.RUNNING));
+    }
+
+    @Test
+    public void sortedByStateThenReportOrder() {
+        final TestCaseData a = run("a", true);
+        final TestCaseData b = run("b", false);
+        final TestCaseData c = run("c", true);
+        final TestCaseData d = results.findCase("m_SUITE", "d");
+        final TestCaseData e = results.findCase("m_SUITE", "e");
+        final TestState old = e.getState();
+        e.setRunning();
+        results.stateChanged(e, old);
+        assertArrayEquals(new Object[] { e, b, a, c, d }, results.sorted());
+    }
+
+    @Test
+    public void clear() {
+        run("a", true);
+        results.clear();
+        assertEquals(0, results.size());
+        assertEquals(0, results.getCount(TestState.SUCCESS));
+        assertEquals(0, results.sorted().length);
+    }
+
+}
@@ -0,0 +1,59 @@
+package org.erlide.ui.editors.internal.reconciling;
+
+import static com.google.common.truth.Truth.assertThat;
+
+import java.util.List;
+
+import org.junit.Test;
+
+public class ErlDirtyRegionQueueTest {
+
+    private static String apply(final String text, final ErlDirtyRegion r) {
+        return text.substring(0, r.getOffset()) + r.getText()
+                + text.substring(r.getOffset() + r.getLength());
+    }
+
+    private static void checkMerge(final String text, final ErlDirtyRegion first,
+            final ErlDirtyRegion second) {
+        final String expected = apply(apply(text, first), second);
+        final ErlDirtyRegionQueue queue = new ErlDirtyRegionQueue();
+        queue.addDirtyRegion(first);
+        queue.addDirtyRegion(second);
+        final List<ErlDirtyRegion> regions = queue.extractAllDirtyRegions();
+        assertThat(regions).hasSize(1);
+        assertThat(apply(text, regions.get(0))).isEqualTo(expected);
+    }
+
+    @Test
+    public void typingIsMerged() {
+        checkMerge("f() -> ok.", new ErlDirtyRegion(7, 0, "o"),
+                new ErlDirtyRegion(8, 0, "k"));
+    }
+
+    @Test
+    public void backspacingIsMerged() {
+        checkMerge("f() -> okay.", new ErlDirtyRegion(10, 1, ""),
+                new ErlDirtyRegion(9, 1, ""));
+    }
+
+    @Test
+    public void replacingInsertedTextIsMerged() {
+        checkMerge("f() -> ok.", new ErlDirtyRegion(7, 2, "error"),
+                new ErlDirtyRegion(8, 3, "x"));
+    }
+
+    @Test
+    public void overlappingDeleteIsMerged() {
+        checkMerge("abcdefgh", new ErlDirtyRegion(3, 1, "XY"),
+                new ErlDirtyRegion(1, 5, "Z"));
+    }
+
+    @Test
+    public void distantChangesAreNotMerged() {
+        final ErlDirtyRegionQueue queue = new ErlDirtyRegionQueue();
+        queue.addDirtyRegion(new ErlDirtyRegion(1, 0, "a"));
+        queue.addDirtyRegion(new ErlDirtyRegion(10, 0, "b"));
+        assertThat(queue.extractAllDirtyRegions()).hasSize(2);
+    }
+
+}